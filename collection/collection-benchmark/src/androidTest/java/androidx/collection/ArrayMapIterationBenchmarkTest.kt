@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+
+/**
+ * Compares iterator-based loops over [ArrayMap] and [ArraySet] with the index-based extensions.
+ */
+@RunWith(Parameterized::class)
+class ArrayMapIterationBenchmarkTest(size: Int) {
+    private val map = ArrayMap<Int, String>().apply {
+        repeat(size) { put(it, "value$it") }
+    }
+    private val set = ArraySet<Int>().apply {
+        repeat(size) { add(it) }
+    }
+
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    @Test fun mapEntriesIterator() {
+        var count = 0
+        benchmark.measureRepeated {
+            for (entry in map.entries) {
+                if (entry.value != null) count++
+            }
+        }
+        check(count > 0)
+    }
+
+    @Test fun mapForEachEntry() {
+        var count = 0
+        benchmark.measureRepeated {
+            map.forEachEntry { _, value ->
+                if (value != null) count++
+            }
+        }
+        check(count > 0)
+    }
+
+    @Test fun setIterator() {
+        var sum = 0
+        benchmark.measureRepeated {
+            for (element in set) {
+                sum += element
+            }
+        }
+        check(sum >= 0)
+    }
+
+    @Test fun setForEachValueIndexed() {
+        var sum = 0
+        benchmark.measureRepeated {
+            set.forEachValueIndexed { _, element ->
+                sum += element
+            }
+        }
+        check(sum >= 0)
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameters(name = "size={0}")
+        fun parameters() = listOf(10, 100, 1_000).map { arrayOf(it) }
+    }
+}
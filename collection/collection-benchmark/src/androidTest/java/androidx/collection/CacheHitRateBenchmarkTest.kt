@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection
+
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+import kotlin.math.pow
+import kotlin.random.Random
+
+/**
+ * Replays synthetic access traces against [LruCache] and [TinyLfuCache], measuring the cost of a
+ * single access and logging the resulting hit ratio, which the benchmark rule cannot report.
+ */
+@RunWith(Parameterized::class)
+class CacheHitRateBenchmarkTest(private val policy: String, private val trace: String) {
+    private val keys: IntArray = when (trace) {
+        "zipfian" -> zipfianTrace()
+        "scan" -> scanTrace()
+        else -> throw IllegalArgumentException(trace)
+    }
+    private val cache: Cache = when (policy) {
+        "lru" -> LruCache<Int, Int>(CACHE_SIZE).let { lru ->
+            Cache(
+                access = { key -> if (lru.get(key) == null) lru.put(key, key) },
+                hitCount = { lru.hitCount() },
+                missCount = { lru.missCount() }
+            )
+        }
+        "tinyLfu" -> TinyLfuCache<Int, Int>(CACHE_SIZE).let { tinyLfu ->
+            Cache(
+                access = { key -> if (tinyLfu.get(key) == null) tinyLfu.put(key, key) },
+                hitCount = { tinyLfu.hitCount() },
+                missCount = { tinyLfu.missCount() }
+            )
+        }
+        else -> throw IllegalArgumentException(policy)
+    }
+
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    @Test
+    fun access() {
+        var index = 0
+        benchmark.measureRepeated {
+            cache.access(keys[index])
+            index = (index + 1) % keys.size
+        }
+    }
+
+    @After
+    fun logHitRate() {
+        val hits = cache.hitCount()
+        val accesses = hits + cache.missCount()
+        Log.i(TAG, "policy=$policy,trace=$trace hitRate=${hits.toDouble() / accesses}")
+    }
+
+    private class Cache(
+        val access: (Int) -> Unit,
+        val hitCount: () -> Int,
+        val missCount: () -> Int
+    )
+
+    companion object {
+        private const val TAG = "CacheHitRateBenchmark"
+        private const val CACHE_SIZE = 1_000
+        private const val TRACE_LENGTH = 100_000
+
+        private fun zipfianTrace(): IntArray {
+            val size = CACHE_SIZE * 100
+            val cumulative = DoubleArray(size)
+            var sum = 0.0
+            for (i in 0 until size) {
+                sum += 1 / (i + 1.0).pow(0.9)
+                cumulative[i] = sum
+            }
+            val random = Random(0)
+            return IntArray(TRACE_LENGTH) {
+                val index = cumulative.binarySearch(random.nextDouble() * sum)
+                if (index >= 0) index else -index - 1
+            }
+        }
+
+        /** A hot working set interleaved with long scans of keys that are never reused. */
+        private fun scanTrace(): IntArray {
+            val random = Random(0)
+            var next = CACHE_SIZE
+            return IntArray(TRACE_LENGTH) { i ->
+                if ((i / CACHE_SIZE) % 2 == 0) random.nextInt(CACHE_SIZE * 4 / 5) else next++
+            }
+        }
+
+        @JvmStatic
+        @Parameters(name = "policy={0},trace={1}")
+        fun parameters() = buildParameters(
+            listOf("lru", "tinyLfu"),
+            listOf("zipfian", "scan")
+        )
+    }
+}
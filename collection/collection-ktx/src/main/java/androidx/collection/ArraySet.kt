@@ -30,3 +30,16 @@ fun <T> arraySetOf(vararg values: T): ArraySet<T> {
     }
     return set
 }
+
+/**
+ * Performs the given [action] on each element, providing its index as used by
+ * [ArraySet.valueAt].
+ *
+ * Unlike iterating over the set, this does not allocate an iterator. Named differently from
+ * [Iterable.forEachIndexed] so that it does not shadow the standard library function.
+ */
+inline fun <T> ArraySet<T>.forEachValueIndexed(action: (index: Int, element: T) -> Unit) {
+    for (index in 0 until size) {
+        action(index, valueAt(index))
+    }
+}
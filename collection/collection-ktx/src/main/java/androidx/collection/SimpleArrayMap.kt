@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection
+
+/**
+ * Performs the given [action] for each key/value entry.
+ *
+ * Unlike iterating over [ArrayMap.entries], this does not allocate an iterator.
+ */
+inline fun <K, V> SimpleArrayMap<K, V>.forEachEntry(action: (key: K, value: V) -> Unit) {
+    for (index in 0 until size()) {
+        action(keyAt(index), valueAt(index))
+    }
+}
+
+/**
+ * Performs the given [action] for each key/value entry, providing its sequential index.
+ *
+ * Unlike iterating over [ArrayMap.entries], this does not allocate an iterator.
+ */
+inline fun <K, V> SimpleArrayMap<K, V>.forEachIndexed(
+    action: (index: Int, key: K, value: V) -> Unit
+) {
+    for (index in 0 until size()) {
+        action(index, keyAt(index), valueAt(index))
+    }
+}
@@ -30,4 +30,14 @@ class ArraySetTest {
         val set = arraySetOf("foo", "bar", "baz")
         assertThat(set).containsExactly("foo", "bar", "baz")
     }
+
+    @Test fun forEachValueIndexed() {
+        val set = arraySetOf("foo", "bar", "baz")
+        val visited = mutableListOf<String>()
+        set.forEachValueIndexed { index, element ->
+            assertEquals(set.valueAt(index), element)
+            visited += element
+        }
+        assertThat(visited).containsExactly("foo", "bar", "baz")
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class SimpleArrayMapTest {
+    @Test fun forEachEntry() {
+        val map = SimpleArrayMap<String, Int>()
+        map.put("foo", 1)
+        map.put("bar", 2)
+        val visited = mutableMapOf<String, Int>()
+        map.forEachEntry { key, value -> visited[key] = value }
+        assertThat(visited).containsExactly("foo", 1, "bar", 2)
+    }
+
+    @Test fun forEachIndexed() {
+        val map = arrayMapOf("foo" to 1, "bar" to 2)
+        var count = 0
+        map.forEachIndexed { index, key, value ->
+            assertEquals(map.keyAt(index), key)
+            assertEquals(map.valueAt(index), value)
+            count++
+        }
+        assertEquals(2, count)
+    }
+}
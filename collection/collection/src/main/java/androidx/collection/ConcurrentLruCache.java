@@ -0,0 +1,585 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe variant of {@link LruCache} for caches that are accessed by many threads at once.
+ *
+ * <p>{@link LruCache} guards every operation with a single monitor, so threads reading from a
+ * shared cache serialize on each other. This cache instead looks values up in a
+ * {@link ConcurrentHashMap} without taking any lock, and splits its recency ordering into
+ * independently locked segments selected by key hash. A read only records the accessed entry in a
+ * small per-segment buffer; recorded reads are applied to the segment's ordering in batches, by
+ * whichever thread next holds that segment's lock.
+ *
+ * <p>The {@link #create}, {@link #entryRemoved} and {@link #sizeOf} hooks and the statistics
+ * counters behave as they do in {@link LruCache}, and hooks are likewise called without holding
+ * any lock. Eviction differs in two ways: each segment evicts its own least recently used entries
+ * once it exceeds its share of {@link #maxSize()}, and reads that happen while a segment's read
+ * buffer is full may not be recorded. The eviction order is therefore an approximation of the
+ * global least recently used order. Constructing the cache with a concurrency level of 1 yields a
+ * single segment and the same eviction order as {@link LruCache}, apart from dropped reads.
+ */
+public class ConcurrentLruCache<K, V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+    private static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+
+    private final ConcurrentHashMap<K, Node<K, V>> mMap;
+    private final Segment<K, V>[] mSegments;
+    private final int mSegmentMask;
+
+    private volatile int mMaxSize;
+
+    /**
+     * @param maxSize for caches that do not override {@link #sizeOf}, this is
+     *     the maximum number of entries in the cache. For all other caches,
+     *     this is the maximum sum of the sizes of the entries in this cache.
+     */
+    public ConcurrentLruCache(int maxSize) {
+        this(maxSize, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param maxSize for caches that do not override {@link #sizeOf}, this is
+     *     the maximum number of entries in the cache. For all other caches,
+     *     this is the maximum sum of the sizes of the entries in this cache.
+     * @param concurrencyLevel the expected number of threads updating the cache concurrently.
+     *     It is rounded up to a power of two and bounded by {@code maxSize} to give the
+     *     number of segments.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(int maxSize, int concurrencyLevel) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel <= 0");
+        }
+        int segmentLimit = Math.min(Math.min(concurrencyLevel, maxSize), MAX_CONCURRENCY_LEVEL);
+        int segmentCount = 1;
+        while (segmentCount < segmentLimit) {
+            segmentCount <<= 1;
+        }
+        if (segmentCount > maxSize) {
+            segmentCount >>= 1;
+        }
+
+        mMaxSize = maxSize;
+        mMap = new ConcurrentHashMap<K, Node<K, V>>(16, 0.75f, segmentCount);
+        mSegments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        mSegmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            mSegments[i] = new Segment<K, V>(mMap, segmentMaxSize(maxSize, i));
+        }
+    }
+
+    /**
+     * Sets the size of the cache.
+     *
+     * @param maxSize The new maximum size.
+     */
+    public void resize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+
+        mMaxSize = maxSize;
+        for (int i = 0; i < mSegments.length; i++) {
+            mSegments[i].mMaxSize = segmentMaxSize(maxSize, i);
+        }
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Returns the value for {@code key} if it exists in the cache or can be
+     * created by {@code #create}. If a value was returned, it is moved to the
+     * head of the queue. This returns null if a value is not cached and cannot
+     * be created.
+     */
+    @Nullable
+    public final V get(@NonNull K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        Segment<K, V> segment = segmentFor(key);
+        Node<K, V> node = mMap.get(key);
+        if (node != null) {
+            segment.mHitCount.incrementAndGet();
+            segment.recordRead(node);
+            return node.mValue;
+        }
+        segment.mMissCount.incrementAndGet();
+
+        /*
+         * Attempt to create a value. This may take a long time, and the map
+         * may be different when create() returns. If a conflicting value was
+         * added to the map while create() was working, we leave that value in
+         * the map and release the created value.
+         */
+
+        V createdValue = create(key);
+        if (createdValue == null) {
+            return null;
+        }
+
+        V mapValue = null;
+        segment.mLock.lock();
+        try {
+            segment.drainReadBuffer();
+            segment.mCreateCount++;
+            Node<K, V> existing = mMap.get(key);
+            if (existing != null) {
+                mapValue = existing.mValue;
+            } else {
+                segment.add(new Node<K, V>(key, createdValue, safeSizeOf(key, createdValue)));
+            }
+        } finally {
+            segment.mLock.unlock();
+        }
+
+        if (mapValue != null) {
+            entryRemoved(false, key, createdValue, mapValue);
+            return mapValue;
+        } else {
+            trimSegment(segment, segment.mMaxSize);
+            return createdValue;
+        }
+    }
+
+    /**
+     * Caches {@code value} for {@code key}. The value is moved to the head of
+     * the queue.
+     *
+     * @return the previous value mapped by {@code key}.
+     */
+    @Nullable
+    public final V put(@NonNull K key, @NonNull V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+
+        Segment<K, V> segment = segmentFor(key);
+        Node<K, V> node = new Node<K, V>(key, value, safeSizeOf(key, value));
+        Node<K, V> previous;
+        segment.mLock.lock();
+        try {
+            segment.drainReadBuffer();
+            segment.mPutCount++;
+            previous = mMap.get(key);
+            if (previous != null) {
+                segment.remove(previous);
+            }
+            segment.add(node);
+        } finally {
+            segment.mLock.unlock();
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous.mValue, value);
+        }
+
+        trimSegment(segment, segment.mMaxSize);
+        return previous != null ? previous.mValue : null;
+    }
+
+    /**
+     * Remove the eldest entries until the total of remaining entries is at or
+     * below the requested size. The requested size is split between segments
+     * in the same proportion as {@link #maxSize()}.
+     *
+     * @param maxSize the maximum size of the cache before returning. May be -1
+     *            to evict even 0-sized elements.
+     */
+    public void trimToSize(int maxSize) {
+        for (int i = 0; i < mSegments.length; i++) {
+            trimSegment(mSegments[i], maxSize < 0 ? maxSize : segmentMaxSize(maxSize, i));
+        }
+    }
+
+    private void trimSegment(Segment<K, V> segment, int maxSize) {
+        while (true) {
+            Node<K, V> toEvict;
+            segment.mLock.lock();
+            try {
+                if (segment.mSize < 0 || (segment.mHead == null && segment.mSize != 0)) {
+                    throw new IllegalStateException(getClass().getName()
+                            + ".sizeOf() is reporting inconsistent results!");
+                }
+
+                if (segment.mSize <= maxSize || segment.mHead == null) {
+                    break;
+                }
+
+                segment.drainReadBuffer();
+                toEvict = segment.mHead;
+                segment.remove(toEvict);
+                segment.mEvictionCount++;
+            } finally {
+                segment.mLock.unlock();
+            }
+
+            entryRemoved(true, toEvict.mKey, toEvict.mValue, null);
+        }
+    }
+
+    /**
+     * Removes the entry for {@code key} if it exists.
+     *
+     * @return the previous value mapped by {@code key}.
+     */
+    @Nullable
+    public final V remove(@NonNull K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        Segment<K, V> segment = segmentFor(key);
+        Node<K, V> previous;
+        segment.mLock.lock();
+        try {
+            previous = mMap.get(key);
+            if (previous != null) {
+                segment.remove(previous);
+            }
+        } finally {
+            segment.mLock.unlock();
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous.mValue, null);
+            return previous.mValue;
+        }
+        return null;
+    }
+
+    /**
+     * Called for entries that have been evicted or removed. This method is
+     * invoked when a value is evicted to make space, removed by a call to
+     * {@link #remove}, or replaced by a call to {@link #put}. The default
+     * implementation does nothing.
+     *
+     * <p>The method is called without synchronization: other threads may
+     * access the cache while this method is executing.
+     *
+     * @param evicted true if the entry is being removed to make space, false
+     *     if the removal was caused by a {@link #put} or {@link #remove}.
+     * @param newValue the new value for {@code key}, if it exists. If non-null,
+     *     this removal was caused by a {@link #put}. Otherwise it was caused by
+     *     an eviction or a {@link #remove}.
+     */
+    protected void entryRemoved(boolean evicted, @NonNull K key, @NonNull V oldValue,
+            @Nullable V newValue) {
+    }
+
+    /**
+     * Called after a cache miss to compute a value for the corresponding key.
+     * Returns the computed value or null if no value can be computed. The
+     * default implementation returns null.
+     *
+     * <p>The method is called without synchronization: other threads may
+     * access the cache while this method is executing.
+     *
+     * <p>If a value for {@code key} exists in the cache when this method
+     * returns, the created value will be released with {@link #entryRemoved}
+     * and discarded. This can occur when multiple threads request the same key
+     * at the same time (causing multiple values to be created), or when one
+     * thread calls {@link #put} while another is creating a value for the same
+     * key.
+     */
+    @Nullable
+    protected V create(@NonNull K key) {
+        return null;
+    }
+
+    private int safeSizeOf(K key, V value) {
+        int result = sizeOf(key, value);
+        if (result < 0) {
+            throw new IllegalStateException("Negative size: " + key + "=" + value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of the entry for {@code key} and {@code value} in
+     * user-defined units.  The default implementation returns 1 so that size
+     * is the number of entries and max size is the maximum number of entries.
+     *
+     * <p>An entry's size must not change while it is in the cache.
+     */
+    protected int sizeOf(@NonNull K key, @NonNull V value) {
+        return 1;
+    }
+
+    /**
+     * Clear the cache, calling {@link #entryRemoved} on each removed entry.
+     */
+    public final void evictAll() {
+        trimToSize(-1); // -1 will evict 0-sized elements
+    }
+
+    /**
+     * For caches that do not override {@link #sizeOf}, this returns the number
+     * of entries in the cache. For all other caches, this returns the sum of
+     * the sizes of the entries in this cache.
+     */
+    public final int size() {
+        int size = 0;
+        for (Segment<K, V> segment : mSegments) {
+            size += segment.mSize;
+        }
+        return size;
+    }
+
+    /**
+     * For caches that do not override {@link #sizeOf}, this returns the maximum
+     * number of entries in the cache. For all other caches, this returns the
+     * maximum sum of the sizes of the entries in this cache.
+     */
+    public final int maxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned a value that was
+     * already present in the cache.
+     */
+    public final int hitCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mHitCount.get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned null or required a new
+     * value to be created.
+     */
+    public final int missCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mMissCount.get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times {@link #create(Object)} returned a value.
+     */
+    public final int createCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mCreateCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times {@link #put} was called.
+     */
+    public final int putCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mPutCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of values that have been evicted.
+     */
+    public final int evictionCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mEvictionCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of the current contents of the cache. Entries of each segment are
+     * ordered from least recently accessed to most recently accessed.
+     */
+    @NonNull
+    public final Map<K, V> snapshot() {
+        LinkedHashMap<K, V> snapshot = new LinkedHashMap<K, V>();
+        for (Segment<K, V> segment : mSegments) {
+            segment.mLock.lock();
+            try {
+                segment.drainReadBuffer();
+                for (Node<K, V> node = segment.mHead; node != null; node = node.mNext) {
+                    snapshot.put(node.mKey, node.mValue);
+                }
+            } finally {
+                segment.mLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public final String toString() {
+        int hitCount = hitCount();
+        int missCount = missCount();
+        int accesses = hitCount + missCount;
+        int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+        return String.format(Locale.US,
+                "ConcurrentLruCache[maxSize=%d,hits=%d,misses=%d,hitRate=%d%%]",
+                mMaxSize, hitCount, missCount, hitPercent);
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        // Use the high bits so that segment selection is independent of the bucket selection in
+        // the backing ConcurrentHashMap, which is driven by the low bits.
+        int h = ContainerHelpers.hash(key.hashCode());
+        return mSegments[(h >>> 16) & mSegmentMask];
+    }
+
+    private int segmentMaxSize(int maxSize, int segment) {
+        int count = mSegments.length;
+        return maxSize / count + (segment < maxSize % count ? 1 : 0);
+    }
+
+    private static final class Node<K, V> {
+        final K mKey;
+        final V mValue;
+        final int mSize;
+
+        // Guarded by the owning segment's lock.
+        Node<K, V> mPrev;
+        Node<K, V> mNext;
+        boolean mLinked;
+
+        Node(K key, V value, int size) {
+            mKey = key;
+            mValue = value;
+            mSize = size;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private static final int READ_BUFFER_SIZE = 32;
+        private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+        final ReentrantLock mLock = new ReentrantLock();
+        final ConcurrentHashMap<K, Node<K, V>> mMap;
+
+        // Reads recorded since the last drain. Slots are overwritten once the buffer wraps, so
+        // recency updates may be dropped under heavy contention, but reads never block.
+        private final AtomicReferenceArray<Node<K, V>> mReadBuffer =
+                new AtomicReferenceArray<Node<K, V>>(READ_BUFFER_SIZE);
+        private final AtomicInteger mReadCount = new AtomicInteger();
+
+        final AtomicInteger mHitCount = new AtomicInteger();
+        final AtomicInteger mMissCount = new AtomicInteger();
+
+        // Written while holding mLock, read without it.
+        volatile int mSize;
+        volatile int mMaxSize;
+        volatile int mPutCount;
+        volatile int mCreateCount;
+        volatile int mEvictionCount;
+
+        // Access order, least recently used first. Guarded by mLock.
+        Node<K, V> mHead;
+        Node<K, V> mTail;
+
+        Segment(ConcurrentHashMap<K, Node<K, V>> map, int maxSize) {
+            mMap = map;
+            mMaxSize = maxSize;
+        }
+
+        void recordRead(Node<K, V> node) {
+            int count = mReadCount.getAndIncrement();
+            mReadBuffer.lazySet(count & READ_BUFFER_MASK, node);
+            if ((count & READ_BUFFER_MASK) == READ_BUFFER_MASK && mLock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    mLock.unlock();
+                }
+            }
+        }
+
+        // Must be called while holding mLock.
+        void drainReadBuffer() {
+            // Start after the most recently written slot so that older reads are applied first.
+            int start = mReadCount.get();
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                Node<K, V> node = mReadBuffer.getAndSet((start + i) & READ_BUFFER_MASK, null);
+                if (node != null && node.mLinked && node != mTail) {
+                    unlink(node);
+                    link(node);
+                }
+            }
+        }
+
+        // Must be called while holding mLock.
+        void add(Node<K, V> node) {
+            mMap.put(node.mKey, node);
+            link(node);
+            mSize += node.mSize;
+        }
+
+        // Must be called while holding mLock.
+        void remove(Node<K, V> node) {
+            mMap.remove(node.mKey, node);
+            unlink(node);
+            mSize -= node.mSize;
+        }
+
+        private void link(Node<K, V> node) {
+            node.mPrev = mTail;
+            node.mNext = null;
+            if (mTail == null) {
+                mHead = node;
+            } else {
+                mTail.mNext = node;
+            }
+            mTail = node;
+            node.mLinked = true;
+        }
+
+        private void unlink(Node<K, V> node) {
+            if (node.mPrev == null) {
+                mHead = node.mNext;
+            } else {
+                node.mPrev.mNext = node.mNext;
+            }
+            if (node.mNext == null) {
+                mTail = node.mPrev;
+            } else {
+                node.mNext.mPrev = node.mPrev;
+            }
+            node.mPrev = null;
+            node.mNext = null;
+            node.mLinked = false;
+        }
+    }
+}
@@ -37,6 +37,31 @@ class ContainerHelpers {
         return need;
     }
 
+    // Returns the power-of-two slot count for an open-addressing table holding up to capacity
+    // entries. The table is kept at most half full so that probe sequences stay short.
+    static int idealHashTableSize(int capacity) {
+        if (capacity > 1 << 29) {
+            // the table would need more than 2^30 slots, which an array cannot hold
+            throw new IllegalArgumentException("capacity must be <= 2^29");
+        }
+        int size = 8;
+        while (size < capacity * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    // Spreads the bits of a key so that sequential keys do not cluster when masked down to
+    // a table slot.
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int hash(long key) {
+        return hash((int) (key ^ (key >>> 32)));
+    }
+
     public static boolean equal(Object a, Object b) {
         return a == b || (a != null && a.equals(b));
     }
@@ -80,6 +105,68 @@ class ContainerHelpers {
         return ~lo;  // value not present
     }
 
+    // Returns the indices 0..count-1 ordered by the key at each index. The sort is stable, so
+    // indices of equal keys stay in ascending order.
+    static int[] sortedIndices(int[] keys, int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width <<= 1) {
+            for (int lo = 0; lo < count; lo += width << 1) {
+                int mid = Math.min(lo + width, count);
+                int hi = Math.min(lo + (width << 1), count);
+                int a = lo;
+                int b = mid;
+                int o = lo;
+                while (a < mid && b < hi) {
+                    buffer[o++] = keys[indices[b]] < keys[indices[a]] ? indices[b++] : indices[a++];
+                }
+                while (a < mid) {
+                    buffer[o++] = indices[a++];
+                }
+                while (b < hi) {
+                    buffer[o++] = indices[b++];
+                }
+            }
+            int[] swap = indices;
+            indices = buffer;
+            buffer = swap;
+        }
+        return indices;
+    }
+
+    static int[] sortedIndices(long[] keys, int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width <<= 1) {
+            for (int lo = 0; lo < count; lo += width << 1) {
+                int mid = Math.min(lo + width, count);
+                int hi = Math.min(lo + (width << 1), count);
+                int a = lo;
+                int b = mid;
+                int o = lo;
+                while (a < mid && b < hi) {
+                    buffer[o++] = keys[indices[b]] < keys[indices[a]] ? indices[b++] : indices[a++];
+                }
+                while (a < mid) {
+                    buffer[o++] = indices[a++];
+                }
+                while (b < hi) {
+                    buffer[o++] = indices[b++];
+                }
+            }
+            int[] swap = indices;
+            indices = buffer;
+            buffer = swap;
+        }
+        return indices;
+    }
+
     private ContainerHelpers() {
     }
 }
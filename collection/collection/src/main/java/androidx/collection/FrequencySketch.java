@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+/**
+ * A probabilistic estimate of how often keys have been accessed recently, used by
+ * {@link TinyLfuCache} to decide whether a new entry is worth keeping over an existing one.
+ *
+ * <p>This is a count-min sketch of depth four with 4-bit counters, sixteen of which are packed
+ * into each {@code long}. Once the number of recorded accesses reaches ten times the table
+ * length every counter is halved, so that the estimate favours recent popularity.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class FrequencySketch {
+    private static final int MIN_TABLE_SIZE = 16;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] mTable;
+    private int mSampleSize;
+    private int mSize;
+
+    FrequencySketch() {
+        mTable = new long[MIN_TABLE_SIZE];
+        mSampleSize = 10 * MIN_TABLE_SIZE;
+    }
+
+    /**
+     * Grows the sketch so that it can track about {@code expectedSize} distinct keys with
+     * acceptable accuracy. Growing discards all counts recorded so far.
+     */
+    void ensureCapacity(int expectedSize) {
+        int tableSize = mTable.length;
+        if (expectedSize <= tableSize || tableSize >= MAX_TABLE_SIZE) {
+            return;
+        }
+        while (tableSize < expectedSize && tableSize < MAX_TABLE_SIZE) {
+            tableSize <<= 1;
+        }
+        mTable = new long[tableSize];
+        mSampleSize = 10 * tableSize;
+        mSize = 0;
+    }
+
+    /** Returns the estimated number of recent accesses of {@code key}, up to 15. */
+    int frequency(Object key) {
+        int hash = ContainerHelpers.hash(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((mTable[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /** Records an access of {@code key}, aging all counts if the sample period is over. */
+    void increment(Object key) {
+        int hash = ContainerHelpers.hash(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++mSize >= mSampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((mTable[index] & mask) != mask) {
+            mTable[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & (mTable.length - 1);
+    }
+
+    private void reset() {
+        int oddCounters = 0;
+        long[] table = mTable;
+        for (int i = 0; i < table.length; i++) {
+            oddCounters += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        mSize = (mSize >>> 1) - (oddCounters >>> 2);
+    }
+}
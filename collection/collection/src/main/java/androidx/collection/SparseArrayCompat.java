@@ -187,6 +187,58 @@ public class SparseArrayCompat<E> implements Cloneable {
         }
     }
 
+    /**
+     * Removes the mappings for all keys in the range from {@code fromKey}, inclusive, to
+     * {@code toKey}, exclusive. The removed entries are compacted in a single pass the next time
+     * the array is accessed.
+     */
+    public void removeKeyRange(int fromKey, int toKey) {
+        if (fromKey >= toKey) {
+            return;
+        }
+        int start = ContainerHelpers.binarySearch(mKeys, mSize, fromKey);
+        if (start < 0) {
+            start = ~start;
+        }
+        int end = ContainerHelpers.binarySearch(mKeys, mSize, toKey);
+        if (end < 0) {
+            end = ~end;
+        }
+        for (int i = start; i < end; i++) {
+            removeAt(i);
+        }
+    }
+
+    /**
+     * Removes the mappings for all of {@code keys}, if there were any. The removed entries are
+     * compacted in a single pass the next time the array is accessed.
+     */
+    public void removeAll(@NonNull int[] keys) {
+        for (int key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes the mappings for all keys matching {@code predicate}. The removed entries are
+     * compacted in a single pass the next time the array is accessed.
+     *
+     * @return true if any mapping was removed
+     */
+    public boolean removeIf(@NonNull KeyPredicate predicate) {
+        boolean removed = false;
+        for (int i = 0; i < mSize; i++) {
+            if (mValues[i] != DELETED && predicate.test(mKeys[i])) {
+                mValues[i] = DELETED;
+                removed = true;
+            }
+        }
+        if (removed) {
+            mGarbage = true;
+        }
+        return removed;
+    }
+
     /**
      * Replace the mapping for {@code key} only if it is already mapped to a value.
      * @param key The key of the mapping to replace.
@@ -316,6 +368,93 @@ public class SparseArrayCompat<E> implements Cloneable {
         }
     }
 
+    /**
+     * Adds a mapping from each of {@code keys} to the value at the same position in
+     * {@code values}, replacing any previous mappings for those keys. If a key appears more than
+     * once, the value appearing last wins.
+     *
+     * <p>Unlike calling {@link #put(int, Object)} once per mapping, the keys do not need to be
+     * sorted: they are sorted once and then merged with the existing mappings in a single pass,
+     * so that existing mappings are moved at most once.
+     *
+     * @throws IllegalArgumentException if {@code keys} and {@code values} differ in length.
+     */
+    public void putAll(@NonNull int[] keys, @NonNull E[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys.length != values.length");
+        }
+        int count = keys.length;
+        if (count == 0) {
+            return;
+        }
+        if (mGarbage) {
+            gc();
+        }
+
+        int[] order = ContainerHelpers.sortedIndices(keys, count);
+
+        // Drop duplicate keys, keeping the last occurrence.
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            int key = keys[order[i]];
+            if (i + 1 < count && keys[order[i + 1]] == key) {
+                continue;
+            }
+            order[unique++] = order[i];
+        }
+        // Count the keys that are already mapped so that the merged size is known up front.
+        int replaced = 0;
+        for (int i = 0, j = 0; i < unique && j < mSize; ) {
+            int key = keys[order[i]];
+            if (mKeys[j] < key) {
+                j++;
+            } else if (mKeys[j] > key) {
+                i++;
+            } else {
+                replaced++;
+                i++;
+                j++;
+            }
+        }
+
+        int newSize = mSize + unique - replaced;
+        int[] dstKeys = mKeys;
+        Object[] dstValues = mValues;
+        if (newSize > mKeys.length) {
+            int n = ContainerHelpers.idealIntArraySize(newSize);
+            dstKeys = new int[n];
+            dstValues = new Object[n];
+        }
+
+        // Merge from the back so that the in-place case never overwrites unread mappings.
+        int i = mSize - 1;
+        int j = unique - 1;
+        int o = newSize - 1;
+        while (j >= 0) {
+            int key = keys[order[j]];
+            if (i >= 0 && mKeys[i] > key) {
+                dstKeys[o] = mKeys[i];
+                dstValues[o] = mValues[i];
+                i--;
+            } else {
+                if (i >= 0 && mKeys[i] == key) {
+                    i--;
+                }
+                dstKeys[o] = key;
+                dstValues[o] = values[order[j]];
+                j--;
+            }
+            o--;
+        }
+        if (dstKeys != mKeys) {
+            System.arraycopy(mKeys, 0, dstKeys, 0, i + 1);
+            System.arraycopy(mValues, 0, dstValues, 0, i + 1);
+            mKeys = dstKeys;
+            mValues = dstValues;
+        }
+        mSize = newSize;
+    }
+
     /**
      * Add a new value to the array map only if the key does not already have a value or it is
      * mapped to {@code null}.
@@ -393,6 +532,22 @@ public class SparseArrayCompat<E> implements Cloneable {
         mValues[index] = value;
     }
 
+    /**
+     * Given an index in the range <code>0...size()-values.length</code>, sets
+     * the values of the <code>index</code>th and following key-value mappings
+     * that this SparseArray stores to the elements of {@code values}.
+     */
+    public void setValueAtRange(int index, @NonNull E[] values) {
+        if (mGarbage) {
+            gc();
+        }
+
+        if (index < 0 || index + values.length > mSize) {
+            throw new ArrayIndexOutOfBoundsException(index + values.length - 1);
+        }
+        System.arraycopy(values, 0, mValues, index, values.length);
+    }
+
     /**
      * Returns the index for which {@link #keyAt} would return the
      * specified key, or a negative number if the specified
@@ -519,4 +674,14 @@ public class SparseArrayCompat<E> implements Cloneable {
         buffer.append('}');
         return buffer.toString();
     }
+
+    /**
+     * Selects keys to remove in {@link #removeIf(KeyPredicate)}.
+     */
+    public interface KeyPredicate {
+        /**
+         * @return true if the mapping for {@code key} should be removed
+         */
+        boolean test(int key);
+    }
 }
@@ -0,0 +1,555 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A cache with the same API as {@link LruCache} that decides what to evict by how often entries
+ * are used as well as by how recently they were used.
+ *
+ * <p>{@link LruCache} always admits new entries and evicts the least recently used ones, so a
+ * single pass over a large data set can flush all frequently used entries. This cache follows the
+ * W-TinyLFU policy instead: new entries first enter a small LRU window holding about one percent
+ * of {@link #maxSize()}. Entries leaving the window are only admitted into the main area if their
+ * estimated access frequency is higher than that of the entry they would displace; otherwise they
+ * are evicted. The main area is a segmented LRU, where entries accessed a second time are
+ * promoted from a probation segment into a protected segment holding up to 80% of the main area.
+ * Access frequencies are estimated with a compact count-min sketch that ages periodically.
+ *
+ * <p>Entries may be weighted by overriding {@link #sizeOf}; all segment limits are then expressed
+ * in the same units as {@link #maxSize()}. Rejected candidates count towards
+ * {@link #evictionCount()} and are reported to {@link #entryRemoved} as evictions.
+ *
+ * <p>Like {@link LruCache}, this class is thread-safe and calls its hooks without holding its
+ * lock.
+ */
+public class TinyLfuCache<K, V> {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final HashMap<K, Node<K, V>> mMap;
+    private final FrequencySketch mSketch;
+
+    private final AccessOrderQueue<K, V> mWindow = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V> mProbation = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K, V> mProtected = new AccessOrderQueue<>();
+
+    /** Size of this cache in units. Not necessarily the number of elements. */
+    private int mSize;
+    private int mMaxSize;
+    private int mWindowMaxSize;
+    private int mProtectedMaxSize;
+
+    private int mPutCount;
+    private int mCreateCount;
+    private int mEvictionCount;
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * @param maxSize for caches that do not override {@link #sizeOf}, this is
+     *     the maximum number of entries in the cache. For all other caches,
+     *     this is the maximum sum of the sizes of the entries in this cache.
+     */
+    public TinyLfuCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mMap = new HashMap<>();
+        mSketch = new FrequencySketch();
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Sets the size of the cache.
+     *
+     * @param maxSize The new maximum size.
+     */
+    public void resize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+
+        synchronized (this) {
+            setMaxSize(maxSize);
+        }
+        trimToSize(maxSize);
+    }
+
+    private void setMaxSize(int maxSize) {
+        mMaxSize = maxSize;
+        mWindowMaxSize = Math.max(1, (int) ((long) maxSize * WINDOW_PERCENT / 100));
+        mProtectedMaxSize = (int) ((long) (maxSize - mWindowMaxSize) * PROTECTED_PERCENT / 100);
+    }
+
+    /**
+     * Returns the value for {@code key} if it exists in the cache or can be
+     * created by {@code #create}. This returns null if a value is not cached
+     * and cannot be created.
+     */
+    @Nullable
+    public final V get(@NonNull K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        synchronized (this) {
+            Node<K, V> node = mMap.get(key);
+            if (node != null) {
+                mHitCount++;
+                onAccess(node);
+                return node.mValue;
+            }
+            mMissCount++;
+            // Misses count towards the frequency too, so that a key which keeps being
+            // requested is eventually admitted.
+            mSketch.increment(key);
+        }
+
+        /*
+         * Attempt to create a value. This may take a long time, and the map
+         * may be different when create() returns. If a conflicting value was
+         * added to the map while create() was working, we leave that value in
+         * the map and release the created value.
+         */
+
+        V createdValue = create(key);
+        if (createdValue == null) {
+            return null;
+        }
+
+        V mapValue = null;
+        Node<K, V> evicted = null;
+        int size = safeSizeOf(key, createdValue);
+        synchronized (this) {
+            mCreateCount++;
+            Node<K, V> node = mMap.get(key);
+            if (node != null) {
+                mapValue = node.mValue;
+            } else {
+                addToWindow(new Node<>(key, createdValue, size));
+                evicted = evict();
+            }
+        }
+
+        if (mapValue != null) {
+            entryRemoved(false, key, createdValue, mapValue);
+            return mapValue;
+        } else {
+            notifyEvicted(evicted);
+            return createdValue;
+        }
+    }
+
+    /**
+     * Caches {@code value} for {@code key}. This counts as an access of {@code key}.
+     *
+     * @return the previous value mapped by {@code key}.
+     */
+    @Nullable
+    public final V put(@NonNull K key, @NonNull V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+
+        int size = safeSizeOf(key, value);
+        V previous = null;
+        Node<K, V> evicted;
+        synchronized (this) {
+            mPutCount++;
+            Node<K, V> node = mMap.get(key);
+            if (node != null) {
+                previous = node.mValue;
+                node.mQueue.mSize += size - node.mSize;
+                mSize += size - node.mSize;
+                node.mSize = size;
+                node.mValue = value;
+                onAccess(node);
+            } else {
+                mSketch.increment(key);
+                addToWindow(new Node<>(key, value, size));
+            }
+            evicted = evict();
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous, value);
+        }
+
+        notifyEvicted(evicted);
+        return previous;
+    }
+
+    /**
+     * Remove entries until the total of remaining entries is at or below the
+     * requested size. Entries are removed from the probation segment first,
+     * then from the protected segment and finally from the admission window,
+     * each in least recently used order.
+     *
+     * @param maxSize the maximum size of the cache before returning. May be -1
+     *            to evict even 0-sized elements.
+     */
+    public void trimToSize(int maxSize) {
+        Node<K, V> evicted = null;
+        synchronized (this) {
+            while (true) {
+                if (mSize < 0 || (mMap.isEmpty() && mSize != 0)) {
+                    throw new IllegalStateException(getClass().getName()
+                            + ".sizeOf() is reporting inconsistent results!");
+                }
+
+                if (mSize <= maxSize || mMap.isEmpty()) {
+                    break;
+                }
+
+                Node<K, V> victim = mProbation.mHead;
+                if (victim == null) {
+                    victim = mProtected.mHead;
+                }
+                if (victim == null) {
+                    victim = mWindow.mHead;
+                }
+                evicted = evictNode(victim, evicted);
+            }
+        }
+
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Removes the entry for {@code key} if it exists.
+     *
+     * @return the previous value mapped by {@code key}.
+     */
+    @Nullable
+    public final V remove(@NonNull K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        Node<K, V> previous;
+        synchronized (this) {
+            previous = mMap.remove(key);
+            if (previous != null) {
+                previous.mQueue.remove(previous);
+                mSize -= previous.mSize;
+            }
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous.mValue, null);
+            return previous.mValue;
+        }
+        return null;
+    }
+
+    /**
+     * Called for entries that have been evicted or removed. This method is
+     * invoked when a value is evicted to make space or rejected by the
+     * admission policy, removed by a call to {@link #remove}, or replaced by a
+     * call to {@link #put}. The default implementation does nothing.
+     *
+     * <p>The method is called without synchronization: other threads may
+     * access the cache while this method is executing.
+     *
+     * @param evicted true if the entry is being removed to make space, false
+     *     if the removal was caused by a {@link #put} or {@link #remove}.
+     * @param newValue the new value for {@code key}, if it exists. If non-null,
+     *     this removal was caused by a {@link #put}. Otherwise it was caused by
+     *     an eviction or a {@link #remove}.
+     */
+    protected void entryRemoved(boolean evicted, @NonNull K key, @NonNull V oldValue,
+            @Nullable V newValue) {
+    }
+
+    /**
+     * Called after a cache miss to compute a value for the corresponding key.
+     * Returns the computed value or null if no value can be computed. The
+     * default implementation returns null.
+     *
+     * <p>The method is called without synchronization: other threads may
+     * access the cache while this method is executing.
+     *
+     * <p>If a value for {@code key} exists in the cache when this method
+     * returns, the created value will be released with {@link #entryRemoved}
+     * and discarded. This can occur when multiple threads request the same key
+     * at the same time (causing multiple values to be created), or when one
+     * thread calls {@link #put} while another is creating a value for the same
+     * key.
+     */
+    @Nullable
+    protected V create(@NonNull K key) {
+        return null;
+    }
+
+    private int safeSizeOf(K key, V value) {
+        int result = sizeOf(key, value);
+        if (result < 0) {
+            throw new IllegalStateException("Negative size: " + key + "=" + value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of the entry for {@code key} and {@code value} in
+     * user-defined units.  The default implementation returns 1 so that size
+     * is the number of entries and max size is the maximum number of entries.
+     *
+     * <p>An entry's size must not change while it is in the cache.
+     */
+    protected int sizeOf(@NonNull K key, @NonNull V value) {
+        return 1;
+    }
+
+    /**
+     * Clear the cache, calling {@link #entryRemoved} on each removed entry.
+     */
+    public final void evictAll() {
+        trimToSize(-1); // -1 will evict 0-sized elements
+    }
+
+    /**
+     * For caches that do not override {@link #sizeOf}, this returns the number
+     * of entries in the cache. For all other caches, this returns the sum of
+     * the sizes of the entries in this cache.
+     */
+    public synchronized final int size() {
+        return mSize;
+    }
+
+    /**
+     * For caches that do not override {@link #sizeOf}, this returns the maximum
+     * number of entries in the cache. For all other caches, this returns the
+     * maximum sum of the sizes of the entries in this cache.
+     */
+    public synchronized final int maxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned a value that was
+     * already present in the cache.
+     */
+    public synchronized final int hitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned null or required a new
+     * value to be created.
+     */
+    public synchronized final int missCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the number of times {@link #create(Object)} returned a value.
+     */
+    public synchronized final int createCount() {
+        return mCreateCount;
+    }
+
+    /**
+     * Returns the number of times {@link #put} was called.
+     */
+    public synchronized final int putCount() {
+        return mPutCount;
+    }
+
+    /**
+     * Returns the number of values that have been evicted, including new
+     * values that were rejected by the admission policy.
+     */
+    public synchronized final int evictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Returns a copy of the current contents of the cache. Entries are
+     * ordered by segment, probation first, then protected and finally the
+     * admission window, and from least to most recently accessed within each
+     * segment.
+     */
+    @NonNull
+    public synchronized final Map<K, V> snapshot() {
+        LinkedHashMap<K, V> snapshot = new LinkedHashMap<>();
+        mProbation.copyTo(snapshot);
+        mProtected.copyTo(snapshot);
+        mWindow.copyTo(snapshot);
+        return snapshot;
+    }
+
+    @Override public synchronized final String toString() {
+        int accesses = mHitCount + mMissCount;
+        int hitPercent = accesses != 0 ? (100 * mHitCount / accesses) : 0;
+        return String.format(Locale.US, "TinyLfuCache[maxSize=%d,hits=%d,misses=%d,hitRate=%d%%]",
+                mMaxSize, mHitCount, mMissCount, hitPercent);
+    }
+
+    private void addToWindow(Node<K, V> node) {
+        mMap.put(node.mKey, node);
+        mSketch.ensureCapacity(mMap.size());
+        mWindow.addLast(node);
+        mSize += node.mSize;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        mSketch.increment(node.mKey);
+        AccessOrderQueue<K, V> queue = node.mQueue;
+        if (queue == mProbation) {
+            mProbation.remove(node);
+            mProtected.addLast(node);
+            while (mProtected.mSize > mProtectedMaxSize && mProtected.mHead != node) {
+                Node<K, V> demoted = mProtected.mHead;
+                mProtected.remove(demoted);
+                mProbation.addLast(demoted);
+            }
+        } else {
+            queue.moveToLast(node);
+        }
+    }
+
+    /**
+     * Moves entries that overflow the window into probation, then evicts until the cache fits
+     * in its maximum size, preferring to keep whichever of the oldest probation entry and the
+     * newest admission candidate has been accessed more frequently. Must be called while
+     * holding the lock; returns the evicted nodes chained through {@link Node#mNext}.
+     */
+    private Node<K, V> evict() {
+        Node<K, V> candidate = null;
+        while (mWindow.mSize > mWindowMaxSize && mWindow.mHead != null) {
+            Node<K, V> node = mWindow.mHead;
+            mWindow.remove(node);
+            mProbation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        Node<K, V> evicted = null;
+        while (mSize > mMaxSize) {
+            Node<K, V> victim = mProbation.mHead;
+            if (victim == null) {
+                victim = mProtected.mHead != null ? mProtected.mHead : mWindow.mHead;
+                evicted = evictNode(victim, evicted);
+                continue;
+            }
+            if (candidate == null) {
+                evicted = evictNode(victim, evicted);
+            } else if (victim == candidate) {
+                candidate = candidate.mNext;
+                evicted = evictNode(victim, evicted);
+            } else if (mSketch.frequency(candidate.mKey) > mSketch.frequency(victim.mKey)) {
+                evicted = evictNode(victim, evicted);
+            } else {
+                Node<K, V> rejected = candidate;
+                candidate = candidate.mNext;
+                evicted = evictNode(rejected, evicted);
+            }
+        }
+        return evicted;
+    }
+
+    private Node<K, V> evictNode(Node<K, V> node, Node<K, V> evicted) {
+        mMap.remove(node.mKey);
+        node.mQueue.remove(node);
+        mSize -= node.mSize;
+        mEvictionCount++;
+        node.mNext = evicted;
+        return node;
+    }
+
+    private void notifyEvicted(Node<K, V> evicted) {
+        while (evicted != null) {
+            entryRemoved(true, evicted.mKey, evicted.mValue, null);
+            evicted = evicted.mNext;
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K mKey;
+        V mValue;
+        int mSize;
+
+        AccessOrderQueue<K, V> mQueue;
+        Node<K, V> mPrev;
+        Node<K, V> mNext;
+
+        Node(K key, V value, int size) {
+            mKey = key;
+            mValue = value;
+            mSize = size;
+        }
+    }
+
+    /** A doubly linked list of nodes, least recently used first. */
+    private static final class AccessOrderQueue<K, V> {
+        Node<K, V> mHead;
+        Node<K, V> mTail;
+        int mSize;
+
+        void addLast(Node<K, V> node) {
+            node.mQueue = this;
+            node.mPrev = mTail;
+            node.mNext = null;
+            if (mTail == null) {
+                mHead = node;
+            } else {
+                mTail.mNext = node;
+            }
+            mTail = node;
+            mSize += node.mSize;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.mPrev == null) {
+                mHead = node.mNext;
+            } else {
+                node.mPrev.mNext = node.mNext;
+            }
+            if (node.mNext == null) {
+                mTail = node.mPrev;
+            } else {
+                node.mNext.mPrev = node.mPrev;
+            }
+            node.mQueue = null;
+            node.mPrev = null;
+            node.mNext = null;
+            mSize -= node.mSize;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != mTail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void copyTo(Map<K, V> map) {
+            for (Node<K, V> node = mHead; node != null; node = node.mNext) {
+                map.put(node.mKey, node.mValue);
+            }
+        }
+    }
+}
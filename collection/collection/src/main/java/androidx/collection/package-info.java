@@ -32,11 +32,32 @@
  *         prevents boxing compared to a traditional {@link java.util.Map}.
  *     </li>
  *     <li>
+ *         <b>{@link androidx.collection.IntObjectHashMap} /
+ *         {@link androidx.collection.LongObjectHashMap} /
+ *         {@link androidx.collection.IntIntHashMap} /
+ *         {@link androidx.collection.IntLongHashMap}</b>
+ *         <p>
+ *         Hash-based alternatives to the sparse arrays with constant-time lookups, insertions and
+ *         removals, for maps holding many thousands of entries.
+ *     </li>
+ *     <li>
  *         <b>{@link androidx.collection.LruCache}</b>
  *         <p>
  *         A map-like cache which keeps frequently-used entries and automatically evicts others.
  *     </li>
  *     <li>
+ *         <b>{@link androidx.collection.ConcurrentLruCache}</b>
+ *         <p>
+ *         A variant of {@link androidx.collection.LruCache} which serves reads without locking,
+ *         for caches shared by many threads.
+ *     </li>
+ *     <li>
+ *         <b>{@link androidx.collection.TinyLfuCache}</b>
+ *         <p>
+ *         A map-like cache which only admits new entries that are used more frequently than the
+ *         entries they would replace, so that scans do not flush the working set.
+ *     </li>
+ *     <li>
  *         <b>{@link androidx.collection.CircularArray} /
  *         {@link androidx.collection.CircularIntArray}</b>
  *         <p>
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class ConcurrentLruCacheTest {
+    @Test
+    public void singleSegmentEvictsLeastRecentlyUsed() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(3, 1);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals("A", cache.get("a"));
+        cache.put("d", "D");
+        assertNull(cache.get("b"));
+        assertEquals(Arrays.asList("c", "a", "d"), new ArrayList<>(cache.snapshot().keySet()));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void statistics() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(3);
+        cache.put("a", "A");
+        cache.put("a", "A2");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(2, cache.putCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0, cache.createCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void createAndEntryRemovedHooks() {
+        final List<String> log = new ArrayList<>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(2, 1) {
+            @Override
+            protected String create(String key) {
+                return key.toUpperCase();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, String oldValue,
+                    String newValue) {
+                log.add(key + "=" + oldValue + (evicted ? " evicted" : " -> " + newValue));
+            }
+        };
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.createCount());
+        cache.put("a", "A2");
+        cache.get("b");
+        cache.get("c");
+        cache.remove("c");
+        assertEquals(Arrays.asList("a=A -> A2", "a=A2 evicted", "c=C -> null"), log);
+    }
+
+    @Test
+    public void sizeOfIsUsedForEviction() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10, 1) {
+            @Override
+            protected int sizeOf(String key, String value) {
+                return value.length();
+            }
+        };
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.put("c", "cccc");
+        assertEquals(8, cache.size());
+        assertNull(cache.get("a"));
+        cache.resize(4);
+        assertEquals(4, cache.size());
+        assertEquals("cccc", cache.get("c"));
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void concurrentAccessStaysWithinMaxSize() throws InterruptedException {
+        final int maxSize = 100;
+        final AtomicInteger removed = new AtomicInteger();
+        final ConcurrentLruCache<Integer, Integer> cache =
+                new ConcurrentLruCache<Integer, Integer>(maxSize) {
+                    @Override
+                    protected Integer create(Integer key) {
+                        return key;
+                    }
+
+                    @Override
+                    protected void entryRemoved(boolean evicted, Integer key, Integer oldValue,
+                            Integer newValue) {
+                        removed.incrementAndGet();
+                    }
+                };
+        final int threadCount = 8;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = random.nextInt(1_000);
+                        assertEquals(Integer.valueOf(key), cache.get(key));
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        assertTrue(cache.size() <= maxSize);
+        assertEquals(threadCount * 20_000, cache.hitCount() + cache.missCount());
+        assertEquals(cache.createCount() - cache.size(), removed.get());
+    }
+}
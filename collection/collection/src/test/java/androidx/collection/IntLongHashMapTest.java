@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class IntLongHashMapTest {
+    @Test
+    public void getReturnsZeroWhenAbsent() {
+        IntLongHashMap map = new IntLongHashMap();
+        assertEquals(0L, map.get(1));
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void getOrDefaultUsesDefaultWhenAbsent() {
+        IntLongHashMap map = new IntLongHashMap();
+        assertEquals(5L, map.get(1, 5L));
+        map.put(1, 0L);
+        assertEquals(0L, map.get(1, 5L));
+    }
+
+    @Test
+    public void putAllCopiesMappings() {
+        IntLongHashMap source = new IntLongHashMap();
+        for (int i = 0; i < 100; i++) {
+            source.put(i, i * 2);
+        }
+        IntLongHashMap map = new IntLongHashMap(0);
+        map.put(0, -1L);
+        map.putAll(source);
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 2, map.get(i));
+        }
+        assertTrue(map.containsValue(198L));
+    }
+
+    @Test
+    public void matchesSparseArrayCompat() {
+        IntLongHashMap map = new IntLongHashMap();
+        SparseArrayCompat<Long> expected = new SparseArrayCompat<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                long value = random.nextLong();
+                map.put(key, value);
+                expected.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key, 0L).longValue(), map.get(key));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.valueAt(i).longValue(), map.get(expected.keyAt(i)));
+        }
+        for (int i = map.size() - 1; i >= 0; i--) {
+            assertEquals(i, map.indexOfKey(map.keyAt(i)));
+            map.removeAt(i);
+        }
+        assertTrue(map.isEmpty());
+    }
+}
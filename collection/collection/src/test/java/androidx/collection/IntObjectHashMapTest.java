@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class IntObjectHashMapTest {
+    @Test
+    public void getOrDefaultPrefersStoredValue() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(1, "1");
+        assertEquals("1", map.get(1, "2"));
+    }
+
+    @Test
+    public void getOrDefaultUsesDefaultWhenAbsent() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertEquals("1", map.get(1, "1"));
+    }
+
+    @Test
+    public void getOrDefaultReturnsNullWhenNullStored() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(1, null);
+        assertNull(map.get(1, "1"));
+    }
+
+    @Test
+    public void zeroCapacityGrowsOnPut() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>(0);
+        assertNull(map.get(1));
+        map.put(1, "1");
+        assertEquals("1", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putIfAbsentDoesNotOverwriteStoredValue() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(1, "1");
+        assertEquals("1", map.putIfAbsent(1, "2"));
+        assertEquals("1", map.get(1));
+    }
+
+    @Test
+    public void removeValueMismatchDoesNotRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(1, "1");
+        assertFalse(map.remove(1, "2"));
+        assertTrue(map.containsKey(1));
+        assertTrue(map.remove(1, "1"));
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void replaceStoresAndReturnsOldValue() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertNull(map.replace(1, "1"));
+        assertFalse(map.containsKey(1));
+        map.put(1, "1");
+        assertEquals("1", map.replace(1, "2"));
+        assertTrue(map.replace(1, "2", "3"));
+        assertEquals("3", map.get(1));
+    }
+
+    @Test
+    public void removeAtMovesLastMappingIntoIndex() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(10, "10");
+        map.put(20, "20");
+        map.put(30, "30");
+        map.removeAt(0);
+        assertEquals(2, map.size());
+        assertEquals(30, map.keyAt(0));
+        assertEquals(0, map.indexOfKey(30));
+        assertEquals(-1, map.indexOfKey(10));
+    }
+
+    @Test
+    public void copyConstructorIsIndependent() {
+        IntObjectHashMap<String> source = new IntObjectHashMap<>();
+        source.put(1, "1");
+        IntObjectHashMap<String> copy = new IntObjectHashMap<>(source);
+        source.put(2, "2");
+        assertEquals(1, copy.size());
+        assertEquals("1", copy.get(1));
+    }
+
+    @Test
+    public void matchesSparseArrayCompat() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        SparseArrayCompat<String> expected = new SparseArrayCompat<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, "value" + i);
+                expected.put(key, "value" + i);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.valueAt(i), map.get(expected.keyAt(i)));
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(i, map.indexOfKey(map.keyAt(i)));
+            assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+
+    @Test
+    public void clear() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "value" + i);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(50));
+        map.put(50, "50");
+        assertEquals("50", map.get(50));
+    }
+}
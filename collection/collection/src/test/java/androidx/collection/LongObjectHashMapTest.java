@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LongObjectHashMapTest {
+    @Test
+    public void getOrDefaultPrefersStoredValue() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(1L, "1");
+        assertEquals("1", map.get(1L, "2"));
+    }
+
+    @Test
+    public void getOrDefaultUsesDefaultWhenAbsent() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertEquals("1", map.get(1L, "1"));
+    }
+
+    @Test
+    public void keysDifferingInHighBitsAreDistinct() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(1L, "low");
+        map.put(1L << 32, "high");
+        map.put((1L << 32) | 1L, "both");
+        assertEquals(3, map.size());
+        assertEquals("low", map.get(1L));
+        assertEquals("high", map.get(1L << 32));
+        assertEquals("both", map.get((1L << 32) | 1L));
+    }
+
+    @Test
+    public void removeValueMismatchDoesNotRemove() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(1L, "1");
+        assertFalse(map.remove(1L, "2"));
+        assertTrue(map.containsKey(1L));
+        assertTrue(map.remove(1L, "1"));
+        assertNull(map.get(1L));
+    }
+
+    @Test
+    public void matchesLongSparseArray() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        LongSparseArray<String> expected = new LongSparseArray<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(5_000) * 4_294_967_311L;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, "value" + i);
+                expected.put(key, "value" + i);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.valueAt(i), map.get(expected.keyAt(i)));
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(i, map.indexOfKey(map.keyAt(i)));
+        }
+    }
+}
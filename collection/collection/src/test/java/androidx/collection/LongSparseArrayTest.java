@@ -25,6 +25,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Random;
+
 @RunWith(JUnit4.class)
 public class LongSparseArrayTest {
     @Test
@@ -274,4 +276,131 @@ public class LongSparseArrayTest {
         assertEquals(1L, dest.get(1L));
         assertEquals("two", dest.get(2L));
     }
+
+    @Test
+    public void putAllArraysMergesUnsortedKeys() {
+        LongSparseArray<String> array = new LongSparseArray<>();
+        array.put(2L, "two");
+        array.put(4L, "four");
+
+        array.putAll(new long[] { 5L, 1L, 4L, 3L, 1L }, new String[] { "5", "1", "4", "3", "one" });
+        assertEquals(5, array.size());
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(i + 1, array.keyAt(i));
+        }
+        assertEquals("one", array.get(1L));
+        assertEquals("two", array.get(2L));
+        assertEquals("4", array.get(4L));
+    }
+
+    @Test
+    public void putAllArraysMatchesPut() {
+        Random random = new Random(0);
+        LongSparseArray<String> expected = new LongSparseArray<>();
+        LongSparseArray<String> array = new LongSparseArray<>();
+        for (int round = 0; round < 20; round++) {
+            int removed = random.nextInt(1000) - 500;
+            array.remove(removed);
+            expected.remove(removed);
+
+            long[] keys = new long[random.nextInt(200)];
+            String[] values = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(1000) - 500;
+                values[i] = "value" + round + "-" + i;
+                expected.put(keys[i], values[i]);
+            }
+            array.putAll(keys, values);
+            assertEquals(expected.size(), array.size());
+        }
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(expected.keyAt(i), array.keyAt(i));
+            assertEquals(expected.valueAt(i), array.valueAt(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putAllArraysLengthMismatch() {
+        new LongSparseArray<String>().putAll(new long[] { 1L }, new String[0]);
+    }
+
+    @Test
+    public void removeKeyRange() {
+        LongSparseArray<String> array = new LongSparseArray<>();
+        for (int i = 0; i < 10; i++) {
+            array.put(i * 10, "value" + i);
+        }
+        array.removeKeyRange(15L, 50L);
+        assertEquals(7, array.size());
+        assertTrue(array.containsKey(10L));
+        assertFalse(array.containsKey(20L));
+        assertFalse(array.containsKey(40L));
+        assertTrue(array.containsKey(50L));
+    }
+
+    @Test
+    public void removeAllKeys() {
+        LongSparseArray<String> array = new LongSparseArray<>();
+        for (int i = 0; i < 10; i++) {
+            array.put(i, "value" + i);
+        }
+        array.removeAll(new long[] { 7L, 3L, 42L });
+        assertEquals(8, array.size());
+        assertFalse(array.containsKey(3L));
+        assertFalse(array.containsKey(7L));
+    }
+
+    @Test
+    public void removeIf() {
+        LongSparseArray<String> array = new LongSparseArray<>();
+        for (int i = 0; i < 10; i++) {
+            array.put(i, "value" + i);
+        }
+        // already deleted entries are not passed to the predicate again
+        array.remove(4);
+        final int[] testedCount = new int[1];
+        boolean removed = array.removeIf(new LongSparseArray.LongKeyPredicate() {
+            @Override
+            public boolean test(long key) {
+                testedCount[0]++;
+                return key % 2 == 0;
+            }
+        });
+        assertTrue(removed);
+        assertEquals(9, testedCount[0]);
+        assertEquals(5, array.size());
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(1, array.keyAt(i) % 2);
+            assertEquals("value" + array.keyAt(i), array.valueAt(i));
+        }
+
+        assertFalse(array.removeIf(new LongSparseArray.LongKeyPredicate() {
+            @Override
+            public boolean test(long key) {
+                return key > 100;
+            }
+        }));
+        assertEquals(5, array.size());
+    }
+
+    @Test
+    public void setValueAtRange() {
+        LongSparseArray<String> array = new LongSparseArray<>();
+        for (int i = 0; i < 5; i++) {
+            array.put(i, "value" + i);
+        }
+        array.remove(0L);
+        array.setValueAtRange(1, new String[] { "a", "b" });
+        assertEquals("value1", array.valueAt(0));
+        assertEquals("a", array.get(2L));
+        assertEquals("b", array.get(3L));
+        assertEquals("value4", array.get(4L));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void setValueAtRangeOutOfBounds() {
+        LongSparseArray<String> array = new LongSparseArray<>();
+        array.put(1L, "one");
+        array.setValueAtRange(0, new String[] { "a", "b" });
+    }
 }
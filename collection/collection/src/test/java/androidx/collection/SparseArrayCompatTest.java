@@ -25,6 +25,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Random;
+
 @RunWith(JUnit4.class)
 public class SparseArrayCompatTest {
     @Test
@@ -274,4 +276,131 @@ public class SparseArrayCompatTest {
         assertEquals(1L, dest.get(1));
         assertEquals("two", dest.get(2));
     }
+
+    @Test
+    public void putAllArraysMergesUnsortedKeys() {
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        array.put(2, "two");
+        array.put(4, "four");
+
+        array.putAll(new int[] { 5, 1, 4, 3, 1 }, new String[] { "5", "1", "4", "3", "one" });
+        assertEquals(5, array.size());
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(i + 1, array.keyAt(i));
+        }
+        assertEquals("one", array.get(1));
+        assertEquals("two", array.get(2));
+        assertEquals("4", array.get(4));
+    }
+
+    @Test
+    public void putAllArraysMatchesPut() {
+        Random random = new Random(0);
+        SparseArrayCompat<String> expected = new SparseArrayCompat<>();
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        for (int round = 0; round < 20; round++) {
+            int removed = random.nextInt(1000) - 500;
+            array.remove(removed);
+            expected.remove(removed);
+
+            int[] keys = new int[random.nextInt(200)];
+            String[] values = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(1000) - 500;
+                values[i] = "value" + round + "-" + i;
+                expected.put(keys[i], values[i]);
+            }
+            array.putAll(keys, values);
+            assertEquals(expected.size(), array.size());
+        }
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(expected.keyAt(i), array.keyAt(i));
+            assertEquals(expected.valueAt(i), array.valueAt(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putAllArraysLengthMismatch() {
+        new SparseArrayCompat<String>().putAll(new int[] { 1 }, new String[0]);
+    }
+
+    @Test
+    public void removeKeyRange() {
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        for (int i = 0; i < 10; i++) {
+            array.put(i * 10, "value" + i);
+        }
+        array.removeKeyRange(15, 50);
+        assertEquals(7, array.size());
+        assertTrue(array.containsKey(10));
+        assertFalse(array.containsKey(20));
+        assertFalse(array.containsKey(40));
+        assertTrue(array.containsKey(50));
+    }
+
+    @Test
+    public void removeAllKeys() {
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        for (int i = 0; i < 10; i++) {
+            array.put(i, "value" + i);
+        }
+        array.removeAll(new int[] { 7, 3, 42 });
+        assertEquals(8, array.size());
+        assertFalse(array.containsKey(3));
+        assertFalse(array.containsKey(7));
+    }
+
+    @Test
+    public void removeIf() {
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        for (int i = 0; i < 10; i++) {
+            array.put(i, "value" + i);
+        }
+        // already deleted entries are not passed to the predicate again
+        array.remove(4);
+        final int[] testedCount = new int[1];
+        boolean removed = array.removeIf(new SparseArrayCompat.KeyPredicate() {
+            @Override
+            public boolean test(int key) {
+                testedCount[0]++;
+                return key % 2 == 0;
+            }
+        });
+        assertTrue(removed);
+        assertEquals(9, testedCount[0]);
+        assertEquals(5, array.size());
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(1, array.keyAt(i) % 2);
+            assertEquals("value" + array.keyAt(i), array.valueAt(i));
+        }
+
+        assertFalse(array.removeIf(new SparseArrayCompat.KeyPredicate() {
+            @Override
+            public boolean test(int key) {
+                return key > 100;
+            }
+        }));
+        assertEquals(5, array.size());
+    }
+
+    @Test
+    public void setValueAtRange() {
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        for (int i = 0; i < 5; i++) {
+            array.put(i, "value" + i);
+        }
+        array.remove(0);
+        array.setValueAtRange(1, new String[] { "a", "b" });
+        assertEquals("value1", array.valueAt(0));
+        assertEquals("a", array.get(2));
+        assertEquals("b", array.get(3));
+        assertEquals("value4", array.get(4));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void setValueAtRangeOutOfBounds() {
+        SparseArrayCompat<String> array = new SparseArrayCompat<>();
+        array.put(1, "one");
+        array.setValueAtRange(0, new String[] { "a", "b" });
+    }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class TinyLfuCacheTest {
+    private static final int CACHE_SIZE = 500;
+
+    @Test
+    public void putAndGet() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10);
+        assertNull(cache.put("a", "A"));
+        assertEquals("A", cache.put("a", "A2"));
+        assertEquals("A2", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(2, cache.putCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void neverExceedsMaxSize() {
+        final int[] removed = new int[1];
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<Integer, Integer>(100) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Integer oldValue,
+                    Integer newValue) {
+                removed[0]++;
+            }
+        };
+        Random random = new Random(0);
+        for (int i = 0; i < 10_000; i++) {
+            int key = random.nextInt(1_000);
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(cache.evictionCount(), removed[0]);
+        assertEquals(cache.putCount() - cache.size(), cache.evictionCount());
+    }
+
+    @Test
+    public void rejectedCandidatesAreReportedAsEvicted() {
+        final List<String> evicted = new ArrayList<>();
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(2) {
+            @Override
+            protected void entryRemoved(boolean wasEvicted, String key, String oldValue,
+                    String newValue) {
+                assertTrue(wasEvicted);
+                evicted.add(key);
+            }
+        };
+        cache.put("hot", "hot");
+        cache.put("warm", "warm");
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot");
+            cache.get("warm");
+        }
+        cache.put("cold", "cold");
+        assertEquals(1, evicted.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void weightedEntries() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(10) {
+            @Override
+            protected int sizeOf(String key, String value) {
+                return value.length();
+            }
+        };
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.put("c", "cccc");
+        assertTrue(cache.size() <= 10);
+        cache.put("d", "dddddddddddd");
+        assertNull(cache.get("d"));
+        cache.resize(4);
+        assertTrue(cache.size() <= 4);
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void scanResistantComparedToLru() {
+        TinyLfuCache<Integer, Integer> tinyLfu = new TinyLfuCache<>(CACHE_SIZE);
+        LruCache<Integer, Integer> lru = new LruCache<>(CACHE_SIZE);
+        Random random = new Random(0);
+        int next = 1_000_000;
+        for (int i = 0; i < 200_000; i++) {
+            int key;
+            if ((i / 1_000) % 2 == 0) {
+                // Hot working set slightly smaller than the cache.
+                key = random.nextInt(CACHE_SIZE * 4 / 5);
+            } else {
+                // One-off scan over keys that are never requested again.
+                key = next++;
+            }
+            access(tinyLfu, key);
+            access(lru, key);
+        }
+        double tinyLfuHitRate = hitRate(tinyLfu);
+        double lruHitRate = hitRate(lru);
+        assertTrue("TinyLFU " + tinyLfuHitRate + " vs LRU " + lruHitRate,
+                tinyLfuHitRate > lruHitRate + 0.1);
+    }
+
+    @Test
+    public void zipfianHitRateAtLeastLru() {
+        TinyLfuCache<Integer, Integer> tinyLfu = new TinyLfuCache<>(CACHE_SIZE);
+        LruCache<Integer, Integer> lru = new LruCache<>(CACHE_SIZE);
+        ZipfianGenerator zipf = new ZipfianGenerator(50_000, 0.9, new Random(0));
+        for (int i = 0; i < 200_000; i++) {
+            int key = zipf.next();
+            access(tinyLfu, key);
+            access(lru, key);
+        }
+        double tinyLfuHitRate = hitRate(tinyLfu);
+        double lruHitRate = hitRate(lru);
+        assertTrue("TinyLFU " + tinyLfuHitRate + " vs LRU " + lruHitRate,
+                tinyLfuHitRate > lruHitRate);
+    }
+
+    private static double hitRate(TinyLfuCache<?, ?> cache) {
+        return (double) cache.hitCount() / (cache.hitCount() + cache.missCount());
+    }
+
+    private static double hitRate(LruCache<?, ?> cache) {
+        return (double) cache.hitCount() / (cache.hitCount() + cache.missCount());
+    }
+
+    private static void access(TinyLfuCache<Integer, Integer> cache, int key) {
+        if (cache.get(key) == null) {
+            cache.put(key, key);
+        }
+    }
+
+    private static void access(LruCache<Integer, Integer> cache, int key) {
+        if (cache.get(key) == null) {
+            cache.put(key, key);
+        }
+    }
+
+    /** Draws integers in [0, size) following a Zipf distribution, by inverse transform. */
+    static final class ZipfianGenerator {
+        private final double[] mCumulative;
+        private final Random mRandom;
+
+        ZipfianGenerator(int size, double skew, Random random) {
+            mCumulative = new double[size];
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                mCumulative[i] = sum;
+            }
+            for (int i = 0; i < size; i++) {
+                mCumulative[i] /= sum;
+            }
+            mRandom = random;
+        }
+
+        int next() {
+            double value = mRandom.nextDouble();
+            int lo = 0;
+            int hi = mCumulative.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (mCumulative[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.Random
+
+/**
+ * Compares [DiffUtil.calculateDiff] with [DiffUtil.calculateKeyedDiff] on large lists.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class LargeDiffBenchmark(
+    val input: Input
+) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun runDiff() {
+        benchmarkRule.measureRepeated {
+            val result = if (input.keyed) {
+                DiffUtil.calculateKeyedDiff(input.callback)
+            } else {
+                DiffUtil.calculateDiff(input.callback)
+            }
+            result.dispatchUpdatesTo(dummyUpdateCallback)
+        }
+    }
+
+    companion object {
+        private const val SIZE = 20_000
+
+        private val dummyUpdateCallback = object : ListUpdateCallback {
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+            }
+
+            override fun onInserted(position: Int, count: Int) {
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+            }
+        }
+
+        private fun insertHeavy(): List<Int> {
+            val random = Random(SIZE.toLong())
+            val after = (0 until SIZE).toMutableList()
+            repeat(SIZE / 10) {
+                after.add(random.nextInt(after.size + 1), SIZE + it)
+            }
+            return after
+        }
+
+        private fun shuffleHeavy(): List<Int> {
+            val random = Random(SIZE.toLong())
+            val after = (0 until SIZE).toMutableList()
+            repeat(SIZE / 20) {
+                after.add(random.nextInt(after.size), after.removeAt(random.nextInt(after.size)))
+            }
+            return after
+        }
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "input_{0}")
+        fun params() = listOf(
+            Input(
+                name = "insert_heavy",
+                before = (0 until SIZE).toList(),
+                after = insertHeavy()
+            ),
+            Input(
+                name = "shuffle_heavy",
+                before = (0 until SIZE).toList(),
+                after = shuffleHeavy()
+            ),
+            Input(
+                name = "append_only",
+                before = (0 until SIZE).toList(),
+                after = (0 until SIZE + SIZE / 10).toList()
+            )
+        ).flatMap {
+            listOf(
+                it,
+                it.copy(keyed = true)
+            )
+        }
+    }
+
+    data class Input(
+        val name: String,
+        val before: List<Int>,
+        val after: List<Int>,
+        val keyed: Boolean = false
+    ) {
+        val callback = object : DiffUtil.KeyedCallback() {
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                before[oldItemPosition] == after[newItemPosition]
+
+            override fun getOldListSize() = before.size
+
+            override fun getNewListSize() = after.size
+
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                before[oldItemPosition] == after[newItemPosition]
+
+            override fun getOldItemKey(oldItemPosition: Int) = before[oldItemPosition]
+
+            override fun getNewItemKey(newItemPosition: Int) = after[newItemPosition]
+        }
+
+        override fun toString() = name +
+                "_keyed_$keyed" +
+                "_size_[${before.size}_${after.size}]"
+    }
+}
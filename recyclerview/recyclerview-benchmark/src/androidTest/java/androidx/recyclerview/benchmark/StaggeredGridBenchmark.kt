@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import android.view.View
+import android.view.ViewGroup
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.widget.RecyclerView
+import androidx.recyclerview.widget.StaggeredGridLayoutManager
+import androidx.test.annotation.UiThreadTest
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures span lookup heavy operations of [StaggeredGridLayoutManager] on a million item adapter.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class StaggeredGridBenchmark {
+
+    private lateinit var adapter: StaggeredAdapter
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Suppress("DEPRECATION")
+    @get:Rule
+    val activityRule = androidx.test.rule.ActivityTestRule(RecyclerViewActivity::class.java)
+
+    @Before
+    fun setup() {
+        activityRule.runOnUiThread {
+            val rv = activityRule.activity.recyclerView
+            rv.layoutManager = StaggeredGridLayoutManager(3, RecyclerView.VERTICAL)
+            adapter = StaggeredAdapter(ITEM_COUNT)
+            rv.adapter = adapter
+            rv.relayout()
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun scrollToPosition() {
+        val rv = activityRule.activity.recyclerView
+        var position = 0
+        benchmarkRule.measureRepeated {
+            // jump to a new region each time, so spans have to be assigned there
+            position = (position + ITEM_COUNT / 7) % ITEM_COUNT
+            rv.scrollToPosition(position)
+            rv.relayout()
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun notifyItemRangeInserted() {
+        val rv = activityRule.activity.recyclerView
+        rv.scrollToPosition(ITEM_COUNT / 2)
+        rv.relayout()
+        benchmarkRule.measureRepeated {
+            // offsets the spans of every item after the insertion point
+            adapter.insert(ITEM_COUNT / 4, 10)
+            rv.relayout()
+        }
+    }
+
+    /**
+     * Lays out synchronously, with the same size as set up by [RecyclerViewActivity].
+     */
+    private fun RecyclerView.relayout() {
+        measure(
+            View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY)
+        )
+        layout(0, 0, 100, 100)
+    }
+
+    companion object {
+        private const val ITEM_COUNT = 1_000_000
+    }
+}
+
+private class StaggeredViewHolder(view: View) : RecyclerView.ViewHolder(view)
+
+/**
+ * Displays [count] items, 10 to 30px tall so that spans fill up unevenly.
+ */
+private class StaggeredAdapter(var count: Int) : RecyclerView.Adapter<StaggeredViewHolder>() {
+
+    fun insert(positionStart: Int, itemCount: Int) {
+        count += itemCount
+        notifyItemRangeInserted(positionStart, itemCount)
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): StaggeredViewHolder {
+        return StaggeredViewHolder(View(parent.context))
+    }
+
+    override fun onBindViewHolder(holder: StaggeredViewHolder, position: Int) {
+        holder.itemView.layoutParams = RecyclerView.LayoutParams(
+            RecyclerView.LayoutParams.MATCH_PARENT,
+            10 + (position % 3) * 10
+        )
+    }
+
+    override fun getItemCount() = count
+}
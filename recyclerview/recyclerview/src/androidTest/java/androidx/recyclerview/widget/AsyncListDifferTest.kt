@@ -40,12 +40,14 @@ class AsyncListDifferTest {
     private val mBackgroundThread = TestExecutor()
 
     private fun createDiffer(
-        listUpdateCallback: ListUpdateCallback = IGNORE_CALLBACK
+        listUpdateCallback: ListUpdateCallback = IGNORE_CALLBACK,
+        diffChunkSize: Int = 0
     ): AsyncListDiffer<String> {
         return AsyncListDiffer(listUpdateCallback,
                 AsyncDifferConfig.Builder(STRING_DIFF_CALLBACK)
                         .setMainThreadExecutor(mMainThread)
                         .setBackgroundThreadExecutor(mBackgroundThread)
+                        .setDiffChunkSize(diffChunkSize)
                         .build())
     }
 
@@ -345,6 +347,85 @@ class AsyncListDifferTest {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun supersededDiffCancelled() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = createDiffer(callback)
+
+        differ.submitList(listOf("a", "b"))
+        verify(callback).onInserted(0, 2)
+
+        // both diffs are scheduled before either runs, only the last one is dispatched
+        differ.submitList(listOf("a", "b", "c"))
+        differ.submitList(listOf("a"))
+        drain()
+        verify(callback).onRemoved(1, 1)
+        verifyNoMoreInteractions(callback)
+        assertEquals(listOf("a"), differ.currentList)
+
+        assertEquals(2, differ.startedDiffCount)
+        assertEquals(1, differ.cancelledDiffCount)
+        assertEquals(1, differ.dispatchedDiffCount)
+    }
+
+    @Test
+    fun diffCancelledWhileRunning() {
+        lateinit var differ: AsyncListDiffer<String>
+        val newest = listOf("z")
+        var firstDiffCalls = 0
+        val diffCallback = object : DiffUtil.ItemCallback<String>() {
+            override fun areItemsTheSame(oldItem: String, newItem: String): Boolean {
+                if (newItem.startsWith("new") && ++firstDiffCalls == 1000) {
+                    // submitted while the diff runs
+                    differ.submitList(newest)
+                }
+                return oldItem == newItem
+            }
+
+            override fun areContentsTheSame(oldItem: String, newItem: String) = true
+        }
+        differ = AsyncListDiffer(IGNORE_CALLBACK,
+                AsyncDifferConfig.Builder(diffCallback)
+                        .setMainThreadExecutor(mMainThread)
+                        .setBackgroundThreadExecutor(mBackgroundThread)
+                        .build())
+        differ.submitList((0 until 1000).map { "old$it" })
+        differ.submitList((0 until 1000).map { "new$it" })
+        mBackgroundThread.executeAll()
+
+        // the first diff stopped long before comparing all the items
+        assertEquals(1, differ.cancelledDiffCount)
+        assertEquals(true, firstDiffCalls < 2000)
+        drain()
+        assertEquals(newest, differ.currentList)
+        assertEquals(2, differ.startedDiffCount)
+        assertEquals(1, differ.dispatchedDiffCount)
+    }
+
+    @Test
+    fun chunkedDiff() {
+        val applied = mutableListOf<String>()
+        val differ = createDiffer(ApplyingCallback(applied), diffChunkSize = 2)
+        val before = listOf("a", "b", "c", "d", "e", "f")
+        differ.submitList(before)
+        applied.clear()
+        applied.addAll(before)
+
+        val after = listOf("a", "x", "b", "cc", "d", "f", "y")
+        differ.submitList(after)
+        drain()
+
+        assertEquals(after.size, applied.size)
+        after.indices.forEach {
+            // inserted and changed items are placeholders, the others must be in place
+            if (applied[it] != PLACEHOLDER) {
+                assertEquals(after[it], applied[it])
+            }
+        }
+        assertEquals("a", applied[0])
+        assertEquals(1, differ.dispatchedDiffCount)
+    }
+
     private fun drain() {
         var executed: Boolean
         do {
@@ -373,6 +454,8 @@ class AsyncListDifferTest {
             }
         }
 
+        private const val PLACEHOLDER = "?"
+
         private val IGNORE_CALLBACK = object : ListUpdateCallback {
             override fun onInserted(position: Int, count: Int) {}
 
@@ -383,4 +466,25 @@ class AsyncListDifferTest {
             override fun onChanged(position: Int, count: Int, payload: Any?) {}
         }
     }
+
+    /**
+     * Applies the updates to a list, with placeholders for inserted and changed items.
+     */
+    private class ApplyingCallback(val list: MutableList<String>) : ListUpdateCallback {
+        override fun onInserted(position: Int, count: Int) {
+            repeat(count) { list.add(position, PLACEHOLDER) }
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+            repeat(count) { list.removeAt(position) }
+        }
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) {
+            list.add(toPosition, list.removeAt(fromPosition))
+        }
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) {
+            repeat(count) { list[position + it] = PLACEHOLDER }
+        }
+    }
 }
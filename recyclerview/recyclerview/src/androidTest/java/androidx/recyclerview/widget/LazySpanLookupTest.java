@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.recyclerview.widget.StaggeredGridLayoutManager.LayoutParams;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager.LazySpanLookup;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class LazySpanLookupTest {
+
+    private static final int SPAN_COUNT = 3;
+
+    private StaggeredGridLayoutManager mLayoutManager;
+    private LazySpanLookup mLookup;
+
+    @Before
+    public void setup() {
+        mLayoutManager = new StaggeredGridLayoutManager(SPAN_COUNT,
+                StaggeredGridLayoutManager.VERTICAL);
+        mLookup = new LazySpanLookup();
+    }
+
+    private void setSpans(int from, int to) {
+        for (int i = from; i < to; i++) {
+            mLookup.setSpan(i, mLayoutManager.mSpans[i % SPAN_COUNT]);
+        }
+    }
+
+    private void assertSpans(int from, int to, int expectedOffset) {
+        for (int i = from; i < to; i++) {
+            assertEquals("span at " + i, (i - expectedOffset) % SPAN_COUNT, mLookup.getSpan(i));
+        }
+    }
+
+    private void assertInvalid(int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertEquals("span at " + i, LayoutParams.INVALID_SPAN_ID, mLookup.getSpan(i));
+        }
+    }
+
+    @Test
+    public void jumpOnlyTracksLaidOutPositions() {
+        setSpans(500000, 500010);
+        assertEquals(1, mLookup.mBlocks.size());
+        assertInvalid(0, 10);
+        assertInvalid(499990, 500000);
+        assertSpans(500000, 500010, 0);
+        assertInvalid(500010, 500020);
+    }
+
+    @Test
+    public void layoutTowardsStartGrowsBlock() {
+        for (int i = 1000; i >= 0; i--) {
+            mLookup.setSpan(i, mLayoutManager.mSpans[i % SPAN_COUNT]);
+        }
+        assertSpans(0, 1001, 0);
+        // blocks are merged as they fill up
+        assertTrue(mLookup.mBlocks.size() <= 5);
+    }
+
+    @Test
+    public void blocksAreLimitedToMaxBlockSize() {
+        final int count = LazySpanLookup.MAX_BLOCK_SIZE * 3 + 10;
+        setSpans(0, count);
+        assertEquals(4, mLookup.mBlocks.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(LazySpanLookup.MAX_BLOCK_SIZE, mLookup.mBlocks.get(i).mCount);
+        }
+        assertEquals(10, mLookup.mBlocks.get(3).mCount);
+        assertSpans(0, count, 0);
+    }
+
+    @Test
+    public void gapWithinMaxBlockGapIsBackfilled() {
+        setSpans(0, 10);
+        // laying out towards the end
+        final int end = 10 + LazySpanLookup.MAX_BLOCK_GAP;
+        setSpans(end, end + 1);
+        assertEquals(1, mLookup.mBlocks.size());
+        assertSpans(0, 10, 0);
+        assertInvalid(10, end);
+        assertSpans(end, end + 1, 0);
+        final int afterGap = end + LazySpanLookup.MAX_BLOCK_GAP + 2;
+        setSpans(afterGap, afterGap + 1);
+        assertEquals(2, mLookup.mBlocks.size());
+
+        // laying out towards the start
+        mLookup.clear();
+        setSpans(1000, 1010);
+        final int start = 1000 - LazySpanLookup.MAX_BLOCK_GAP - 1;
+        setSpans(start, start + 1);
+        assertEquals(1, mLookup.mBlocks.size());
+        assertSpans(start, start + 1, 0);
+        assertInvalid(start + 1, 1000);
+        assertSpans(1000, 1010, 0);
+        final int beforeGap = start - LazySpanLookup.MAX_BLOCK_GAP - 2;
+        setSpans(beforeGap, beforeGap + 1);
+        assertEquals(2, mLookup.mBlocks.size());
+    }
+
+    @Test
+    public void adjacentBlocksAreMerged() {
+        setSpans(0, 10);
+        setSpans(100, 110);
+        assertEquals(2, mLookup.mBlocks.size());
+        setSpans(10, 100);
+        assertEquals(1, mLookup.mBlocks.size());
+        assertSpans(0, 110, 0);
+
+        // removing the positions in between brings blocks together
+        setSpans(200, 250);
+        assertEquals(2, mLookup.mBlocks.size());
+        mLookup.offsetForRemoval(110, 90);
+        assertEquals(1, mLookup.mBlocks.size());
+        assertSpans(0, 110, 0);
+        assertSpans(110, 160, -90);
+    }
+
+    @Test
+    public void matchesDenseLookup() {
+        // compares against a plain list of spans, which is what LazySpanLookup used to be
+        final Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            mLookup.clear();
+            final List<Integer> expected = new ArrayList<>();
+            final int range = run % 2 == 0 ? 60 : 3000;
+            for (int op = 0; op < 200; op++) {
+                final int position = random.nextInt(range);
+                final int count = 1 + random.nextInt(random.nextBoolean() ? 3 : 300);
+                switch (random.nextInt(5)) {
+                    case 0:
+                        mLookup.offsetForAddition(position, count);
+                        if (position < expected.size()) {
+                            expected.addAll(position, Collections.nCopies(count,
+                                    LayoutParams.INVALID_SPAN_ID));
+                        }
+                        break;
+                    case 1:
+                        mLookup.offsetForRemoval(position, count);
+                        if (position < expected.size()) {
+                            expected.subList(position,
+                                    Math.min(position + count, expected.size())).clear();
+                        }
+                        break;
+                    case 2:
+                        mLookup.invalidateAfter(position);
+                        if (position < expected.size()) {
+                            expected.subList(position, expected.size()).clear();
+                        }
+                        break;
+                    default:
+                        // layout runs towards the end or the start
+                        final boolean towardsStart = random.nextBoolean();
+                        final int length = 1 + random.nextInt(40);
+                        for (int i = 0; i < length; i++) {
+                            final int laidOut = towardsStart ? position - i : position + i;
+                            if (laidOut < 0) {
+                                break;
+                            }
+                            final int span = random.nextInt(SPAN_COUNT);
+                            mLookup.setSpan(laidOut, mLayoutManager.mSpans[span]);
+                            while (expected.size() <= laidOut) {
+                                expected.add(LayoutParams.INVALID_SPAN_ID);
+                            }
+                            expected.set(laidOut, span);
+                        }
+                        break;
+                }
+                assertMatches(expected, "run " + run + " op " + op);
+            }
+        }
+    }
+
+    private void assertMatches(List<Integer> expected, String message) {
+        for (int i = 0; i < expected.size() + 100; i++) {
+            final int span = i < expected.size() ? expected.get(i) : LayoutParams.INVALID_SPAN_ID;
+            assertEquals(message + ", span at " + i, span, mLookup.getSpan(i));
+        }
+        for (int i = 0; i < mLookup.mBlocks.size(); i++) {
+            final LazySpanLookup.SpanBlock block = mLookup.mBlocks.get(i);
+            assertTrue(message, block.mCount > 0);
+            assertTrue(message, block.mCount <= LazySpanLookup.MAX_BLOCK_SIZE);
+            if (i > 0) {
+                assertFalse(message, mLookup.mBlocks.get(i - 1).getEnd() > block.mStart);
+            }
+        }
+    }
+
+    @Test
+    public void offsetForAddition() {
+        setSpans(0, 1000);
+        mLookup.offsetForAddition(500, 10);
+        assertSpans(0, 500, 0);
+        assertInvalid(500, 510);
+        assertSpans(510, 1010, 10);
+        assertInvalid(1010, 1020);
+    }
+
+    @Test
+    public void offsetForRemoval() {
+        setSpans(0, 1000);
+        mLookup.offsetForRemoval(500, 10);
+        assertSpans(0, 500, 0);
+        assertSpans(500, 990, -10);
+        assertInvalid(990, 1000);
+    }
+
+    @Test
+    public void invalidateAfterStopsAtFullSpanItem() {
+        setSpans(0, 100);
+        LazySpanLookup.FullSpanItem fullSpanItem = new LazySpanLookup.FullSpanItem();
+        fullSpanItem.mPosition = 60;
+        mLookup.addFullSpanItem(fullSpanItem);
+
+        assertEquals(61, mLookup.invalidateAfter(20));
+        assertSpans(0, 20, 0);
+        assertInvalid(20, 61);
+        assertSpans(61, 100, 0);
+        assertNull(mLookup.getFullSpanItem(60));
+
+        assertEquals(100, mLookup.invalidateAfter(80));
+        assertInvalid(80, 100);
+        assertEquals(RecyclerView.NO_POSITION, mLookup.invalidateAfter(80));
+    }
+
+    @Test
+    public void fullSpanItemsOffset() {
+        setSpans(0, 100);
+        for (int position = 10; position < 100; position += 10) {
+            LazySpanLookup.FullSpanItem fullSpanItem = new LazySpanLookup.FullSpanItem();
+            fullSpanItem.mPosition = position;
+            mLookup.addFullSpanItem(fullSpanItem);
+        }
+        mLookup.offsetForAddition(25, 5);
+        assertNotNull(mLookup.getFullSpanItem(20));
+        assertNotNull(mLookup.getFullSpanItem(35));
+        assertNull(mLookup.getFullSpanItem(30));
+
+        // removes the item at 35, and moves the ones after it back
+        mLookup.offsetForRemoval(30, 10);
+        assertEquals(8, mLookup.mFullSpanItems.size());
+        assertNotNull(mLookup.getFullSpanItem(35));
+        assertNotNull(mLookup.getFullSpanItem(85));
+        assertNull(mLookup.getFullSpanItem(95));
+        assertEquals(35, mLookup.getFirstFullSpanItemInRange(21, 100, 0, false).mPosition);
+    }
+
+    @Test
+    public void savedSpansRoundTrip() {
+        setSpans(0, 300);
+        setSpans(100000, 100050);
+        int[] savedSpans = mLookup.getSavedSpans();
+
+        mLookup = new LazySpanLookup();
+        mLookup.restoreSavedSpans(savedSpans);
+        assertSpans(0, 300, 0);
+        assertInvalid(300, 310);
+        assertSpans(100000, 100050, 0);
+    }
+}
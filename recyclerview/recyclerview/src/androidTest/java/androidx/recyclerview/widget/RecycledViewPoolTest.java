@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
 import android.view.View;
@@ -31,10 +32,15 @@ import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public class RecycledViewPoolTest {
@@ -138,6 +144,118 @@ public class RecycledViewPoolTest {
         assertThat(pool.getRecycledViewCount(1), is(equalTo(clears ? 0 : 1)));
     }
 
+    @Test
+    public void prefillRecycledViewsAsync() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = createRecyclerView(pool, new PrefillAdapter(false));
+        pool.setMaxRecycledViews(1, 3);
+        pool.putRecycledView(makeHolder(1));
+
+        assertEquals(2, pool.prefillRecycledViewsAsync(recyclerView, 1, 5, DIRECT_EXECUTOR));
+        // the pending ViewHolders count towards the max
+        assertEquals(0, pool.prefillRecycledViewsAsync(recyclerView, 1, 5, DIRECT_EXECUTOR));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(3, pool.getRecycledViewCount(1));
+        assertEquals(0, pool.getRecycledViewCount(0));
+        assertEquals(1, pool.getRecycledView(1).getItemViewType());
+        if (RecyclerView.ALLOW_THREAD_GAP_WORK) {
+            assertTrue(pool.mScrap.get(1).mCreateRunningAverageNs > 0);
+        }
+    }
+
+    @Test
+    public void prefillRecycledViewsAsync_failure() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = createRecyclerView(pool, new PrefillAdapter(true));
+
+        assertEquals(5, pool.prefillRecycledViewsAsync(recyclerView, 1, 10, DIRECT_EXECUTOR));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(0, pool.getRecycledViewCount(1));
+        // nothing is pending anymore
+        assertEquals(5, pool.prefillRecycledViewsAsync(recyclerView, 1, 10, DIRECT_EXECUTOR));
+    }
+
+    @Test
+    public void prefillRecycledViewsAsync_adapterSwapped() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = createRecyclerView(pool, new PrefillAdapter(false));
+        final List<Runnable> pending = new ArrayList<>();
+        Executor deferredExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                pending.add(command);
+            }
+        };
+
+        assertEquals(3, pool.prefillRecycledViewsAsync(recyclerView, 1, 3, deferredExecutor));
+        recyclerView.setAdapter(new PrefillAdapter(false));
+        // the ViewHolders of the old adapter no longer count towards the max
+        assertEquals(2, pool.prefillRecycledViewsAsync(recyclerView, 1, 2, DIRECT_EXECUTOR));
+        // the old adapter creates its ViewHolders after it was swapped
+        pending.get(0).run();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(2, pool.getRecycledViewCount(1));
+        // nothing is pending anymore
+        assertEquals(3, pool.prefillRecycledViewsAsync(recyclerView, 1, 5, DIRECT_EXECUTOR));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void prefillRecycledViewsAsync_noAdapter() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        pool.prefillRecycledViewsAsync(recyclerView, 1, 1, DIRECT_EXECUTOR);
+    }
+
+    private static RecyclerView createRecyclerView(RecyclerView.RecycledViewPool pool,
+            RecyclerView.Adapter adapter) {
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        recyclerView.setRecycledViewPool(pool);
+        recyclerView.setAdapter(adapter);
+        return recyclerView;
+    }
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private static class PrefillAdapter extends RecyclerView.Adapter<MockViewHolder> {
+        private final boolean mFail;
+
+        PrefillAdapter(boolean fail) {
+            mFail = fail;
+        }
+
+        @NonNull
+        @Override
+        public MockViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            if (mFail) {
+                throw new IllegalStateException("cannot create");
+            }
+            try {
+                // so that the create time is measurable
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return new MockViewHolder(parent.getContext());
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull MockViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+
     private static class MockViewHolder extends RecyclerView.ViewHolder {
         MockViewHolder(Context context) {
             super(new View(context));
@@ -465,6 +465,132 @@ public class RecyclerViewCacheTest {
         CacheUtils.verifyCacheContainsPositions(mRecyclerView, 12, 13, 14);
     }
 
+    /**
+     * Adapter of 100x100 pixel views, which take 1ms to create and 1ms to bind.
+     */
+    private RecyclerView.Adapter createTimedAdapter() {
+        return new RecyclerView.Adapter() {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(
+                    @NonNull ViewGroup parent, int viewType) {
+                mRecyclerView.registerTimePassingMs(1);
+                View view = new View(getContext());
+                view.setMinimumWidth(100);
+                view.setMinimumHeight(100);
+                return new RecyclerView.ViewHolder(view) {};
+            }
+
+            @Override
+            public void onBindViewHolder(
+                    @NonNull RecyclerView.ViewHolder holder, int position) {
+                mRecyclerView.registerTimePassingMs(1);
+            }
+
+            @Override
+            public int getItemCount() {
+                return 100;
+            }
+        };
+    }
+
+    @Test
+    public void adaptivePrefetchGrowsWithSpareTime() {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setAdaptivePrefetchEnabled(true);
+        mRecyclerView.setLayoutManager(layoutManager);
+        mRecyclerView.setAdapter(createTimedAdapter());
+
+        layout(100, 300);
+        assertEquals(1, layoutManager.mPrefetchLookaheadCount);
+
+        // 100px per frame, so lines up to 400px past the edge are close enough
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 100);
+        for (int i = 0; i < 8; i++) {
+            final long deadlineNs = mRecyclerView.getNanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(100);
+            mRecyclerView.mGapWorker.prefetch(deadlineNs);
+        }
+
+        assertEquals(GapWorker.MAX_ADAPTIVE_LOOKAHEAD_COUNT, layoutManager.mPrefetchLookaheadCount);
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 3, 4, 5, 6, 7);
+        CacheUtils.verifyCacheDoesNotContainPositions(mRecyclerView, 8);
+    }
+
+    @Test
+    public void adaptivePrefetchSingleLineWhenSlow() {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setAdaptivePrefetchEnabled(true);
+        layoutManager.mPrefetchLookaheadCount = GapWorker.MAX_ADAPTIVE_LOOKAHEAD_COUNT;
+        mRecyclerView.setLayoutManager(layoutManager);
+        mRecyclerView.setAdapter(createTimedAdapter());
+
+        layout(100, 300);
+
+        // too slow to reach anything past the adjacent item within a few frames
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 3);
+        CacheUtils.verifyCacheDoesNotContainPositions(mRecyclerView, 4);
+    }
+
+    @Test
+    public void adaptivePrefetchShrinksWhenOverDeadline() {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setAdaptivePrefetchEnabled(true);
+        layoutManager.mPrefetchLookaheadCount = 6;
+        mRecyclerView.setLayoutManager(layoutManager);
+        mRecyclerView.setAdapter(createTimedAdapter());
+
+        layout(100, 300);
+
+        // deadline already passed, so the pass overruns
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 100);
+        mRecyclerView.mGapWorker.prefetch(mRecyclerView.getNanoTime());
+        assertEquals(3, layoutManager.mPrefetchLookaheadCount);
+
+        mRecyclerView.mGapWorker.prefetch(mRecyclerView.getNanoTime());
+        assertEquals(1, layoutManager.mPrefetchLookaheadCount);
+
+        // disabling resets lookahead
+        layoutManager.mPrefetchLookaheadCount = 4;
+        layoutManager.setAdaptivePrefetchEnabled(false);
+        assertEquals(1, layoutManager.mPrefetchLookaheadCount);
+    }
+
+    @Test
+    public void prefetchHitsMissesAndWastedBinds() {
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        RecyclerView.Adapter adapter = createTimedAdapter();
+        mRecyclerView.setAdapter(adapter);
+
+        // initial layout binds the 3 visible items on the UI thread
+        layout(100, 300);
+        assertEquals(0, mRecyclerView.getPrefetchHitCount());
+        assertEquals(3, mRecyclerView.getPrefetchMissCount());
+        assertEquals(0, mRecyclerView.getPrefetchWastedBindCount());
+
+        // prefetched item 3 is used without binding again
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 3);
+        mRecyclerView.scrollBy(0, 100);
+        assertEquals(1, mRecyclerView.getPrefetchHitCount());
+        assertEquals(3, mRecyclerView.getPrefetchMissCount());
+        assertEquals(0, mRecyclerView.getPrefetchWastedBindCount());
+
+        // prefetched item 4 is thrown away by a data set change
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        CacheUtils.verifyCacheContainsPositions(mRecyclerView, 4);
+        adapter.notifyDataSetChanged();
+        layout(100, 300);
+        assertEquals(1, mRecyclerView.getPrefetchHitCount());
+        assertEquals(6, mRecyclerView.getPrefetchMissCount());
+        assertEquals(1, mRecyclerView.getPrefetchWastedBindCount());
+    }
+
     @Test
     public void partialPrefetchAvoidsViewRecycledCallback() {
         mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
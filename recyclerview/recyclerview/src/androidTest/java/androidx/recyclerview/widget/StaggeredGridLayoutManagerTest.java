@@ -1249,34 +1249,34 @@ public class StaggeredGridLayoutManagerTest extends BaseStaggeredGridLayoutManag
         }
         waitFirstLayout();
         smoothScrollToPosition(50);
-        int prevSpanId = mLayoutManager.mLazySpanLookup.mData[30];
+        int prevSpanId = mLayoutManager.mLazySpanLookup.getSpan(30);
         mAdapter.changeAndNotify(15, 2);
         Thread.sleep(200);
         assertEquals("Invalidation should happen within full span item boundaries", prevSpanId,
-                mLayoutManager.mLazySpanLookup.mData[30]);
+                mLayoutManager.mLazySpanLookup.getSpan(30));
         assertEquals("item in invalidated range should have clear span id",
-                LayoutParams.INVALID_SPAN_ID, mLayoutManager.mLazySpanLookup.mData[16]);
+                LayoutParams.INVALID_SPAN_ID, mLayoutManager.mLazySpanLookup.getSpan(16));
         smoothScrollToPosition(85);
-        int[] prevSpans = copyOfRange(mLayoutManager.mLazySpanLookup.mData, 62, 85);
+        int[] prevSpans = getSpans(62, 85);
         mAdapter.deleteAndNotify(55, 2);
         Thread.sleep(200);
         assertEquals("item in invalidated range should have clear span id",
-                LayoutParams.INVALID_SPAN_ID, mLayoutManager.mLazySpanLookup.mData[16]);
-        int[] newSpans = copyOfRange(mLayoutManager.mLazySpanLookup.mData, 60, 83);
+                LayoutParams.INVALID_SPAN_ID, mLayoutManager.mLazySpanLookup.getSpan(16));
+        int[] newSpans = getSpans(60, 83);
         assertSpanAssignmentEquality("valid spans should be shifted for deleted item", prevSpans,
                 newSpans, 0, 0, newSpans.length);
     }
 
-    // Same as Arrays.copyOfRange but for API 7
-    private int[] copyOfRange(int[] original, int from, int to) {
+    private int[] getSpans(int from, int to) {
         int newLength = to - from;
         if (newLength < 0) {
             throw new IllegalArgumentException(from + " > " + to);
         }
-        int[] copy = new int[newLength];
-        System.arraycopy(original, from, copy, 0,
-                Math.min(original.length - from, newLength));
-        return copy;
+        int[] spans = new int[newLength];
+        for (int i = 0; i < newLength; i++) {
+            spans[i] = mLayoutManager.mLazySpanLookup.getSpan(from + i);
+        }
+        return spans;
     }
 
     @Test
@@ -16,6 +16,7 @@
 
 package androidx.recyclerview.widget;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
@@ -29,6 +30,11 @@ import java.util.concurrent.Executors;
  * <p>
  * At minimum, defines item diffing behavior with a {@link DiffUtil.ItemCallback}, used to compute
  * item differences to pass to a RecyclerView adapter.
+ * <p>
+ * If the callback is a {@link DiffUtil.KeyedItemCallback}, the differences are computed with
+ * {@link DiffUtil#calculateKeyedDiff(DiffUtil.KeyedCallback)}, which matches the items by key
+ * and is faster than {@link DiffUtil#calculateDiff(DiffUtil.Callback)} for large lists with
+ * many changes.
  *
  * @param <T> Type of items in the lists, and being compared.
  */
@@ -39,15 +45,18 @@ public final class AsyncDifferConfig<T> {
     private final Executor mBackgroundThreadExecutor;
     @NonNull
     private final DiffUtil.ItemCallback<T> mDiffCallback;
+    private final int mDiffChunkSize;
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     AsyncDifferConfig(
             @Nullable Executor mainThreadExecutor,
             @NonNull Executor backgroundThreadExecutor,
-            @NonNull DiffUtil.ItemCallback<T> diffCallback) {
+            @NonNull DiffUtil.ItemCallback<T> diffCallback,
+            int diffChunkSize) {
         mMainThreadExecutor = mainThreadExecutor;
         mBackgroundThreadExecutor = backgroundThreadExecutor;
         mDiffCallback = diffCallback;
+        mDiffChunkSize = diffChunkSize;
     }
 
     /** @hide */
@@ -70,6 +79,15 @@ public final class AsyncDifferConfig<T> {
         return mDiffCallback;
     }
 
+    /**
+     * @return The maximum number of items of each list diffed at once, or {@code 0} if lists are
+     * diffed whole.
+     * @see Builder#setDiffChunkSize(int)
+     */
+    public int getDiffChunkSize() {
+        return mDiffChunkSize;
+    }
+
     /**
      * Builder class for {@link AsyncDifferConfig}.
      *
@@ -80,6 +98,7 @@ public final class AsyncDifferConfig<T> {
         private Executor mMainThreadExecutor;
         private Executor mBackgroundThreadExecutor;
         private final DiffUtil.ItemCallback<T> mDiffCallback;
+        private int mDiffChunkSize;
 
         public Builder(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
             mDiffCallback = diffCallback;
@@ -119,6 +138,30 @@ public final class AsyncDifferConfig<T> {
             return this;
         }
 
+        /**
+         * If provided, splits lists larger than the given size into chunks which are diffed
+         * separately.
+         * <p>
+         * The chunks split both lists at the same relative positions, so each chunk holds at most
+         * {@code chunkSize} items of each list. This bounds the time to diff a chunk, and lets a
+         * diff stop between chunks when a newer list is submitted. Items which moved to another
+         * chunk are dispatched as a removal and an insertion instead of a move.
+         * <p>
+         * If not provided, lists are diffed whole.
+         *
+         * @param chunkSize The maximum number of items of each list to diff at once, or
+         *                  {@code 0} to diff lists whole.
+         * @return this
+         */
+        @NonNull
+        public Builder<T> setDiffChunkSize(@IntRange(from = 0) int chunkSize) {
+            if (chunkSize < 0) {
+                throw new IllegalArgumentException("Chunk size must not be negative");
+            }
+            mDiffChunkSize = chunkSize;
+            return this;
+        }
+
         /**
          * Creates a {@link AsyncListDiffer} with the given parameters.
          *
@@ -137,7 +180,8 @@ public final class AsyncDifferConfig<T> {
             return new AsyncDifferConfig<>(
                     mMainThreadExecutor,
                     mBackgroundThreadExecutor,
-                    mDiffCallback);
+                    mDiffCallback,
+                    mDiffChunkSize);
         }
 
         // TODO: remove the below once supportlib has its own appropriate executors
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Helper for computing the difference between two lists via {@link DiffUtil} on a background
@@ -196,9 +197,16 @@ public class AsyncListDiffer<T> {
     @NonNull
     private List<T> mReadOnlyList = Collections.emptyList();
 
-    // Max generation of currently scheduled runnable
+    // Max generation of currently scheduled runnable, read by the diffs to stop when a newer list
+    // is submitted
     @SuppressWarnings("WeakerAccess") /* synthetic access */
-    int mMaxScheduledGeneration;
+    volatile int mMaxScheduledGeneration;
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final AtomicInteger mStartedDiffCount = new AtomicInteger();
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final AtomicInteger mCancelledDiffCount = new AtomicInteger();
+    private final AtomicInteger mDispatchedDiffCount = new AtomicInteger();
 
     /**
      * Get the current List - any diffing to present this list has already been computed and
@@ -286,69 +294,26 @@ public class AsyncListDiffer<T> {
         }
 
         final List<T> oldList = mList;
+        mStartedDiffCount.incrementAndGet();
         mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
-                    @Override
-                    public int getOldListSize() {
-                        return oldList.size();
-                    }
-
-                    @Override
-                    public int getNewListSize() {
-                        return newList.size();
-                    }
-
-                    @Override
-                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().areItemsTheSame(oldItem, newItem);
-                        }
-                        // If both items are null we consider them the same.
-                        return oldItem == null && newItem == null;
-                    }
-
-                    @Override
-                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().areContentsTheSame(oldItem, newItem);
-                        }
-                        if (oldItem == null && newItem == null) {
-                            return true;
-                        }
-                        // There is an implementation bug if we reach this point. Per the docs, this
-                        // method should only be invoked when areItemsTheSame returns true. That
-                        // only occurs when both items are non-null or both are null and both of
-                        // those cases are handled above.
-                        throw new AssertionError();
-                    }
-
-                    @Nullable
-                    @Override
-                    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().getChangePayload(oldItem, newItem);
-                        }
-                        // There is an implementation bug if we reach this point. Per the docs, this
-                        // method should only be invoked when areItemsTheSame returns true AND
-                        // areContentsTheSame returns false. That only occurs when both items are
-                        // non-null which is the only case handled above.
-                        throw new AssertionError();
-                    }
-                });
+                final DiffUtil.DiffResult[] results;
+                try {
+                    results = calculateDiff(oldList, newList, runGeneration);
+                } catch (DiffCancelledException e) {
+                    // a newer list was submitted, this diff would be discarded anyway
+                    mCancelledDiffCount.incrementAndGet();
+                    return;
+                }
 
                 mMainThreadExecutor.execute(new Runnable() {
                     @Override
                     public void run() {
                         if (mMaxScheduledGeneration == runGeneration) {
-                            latchList(newList, result, commitCallback);
+                            latchList(newList, results, commitCallback);
+                        } else {
+                            mCancelledDiffCount.incrementAndGet();
                         }
                     }
                 });
@@ -356,16 +321,67 @@ public class AsyncListDiffer<T> {
         });
     }
 
+    /**
+     * Calculates the diff between the lists, split in chunks if the lists are larger than
+     * {@link AsyncDifferConfig#getDiffChunkSize()}.
+     *
+     * @throws DiffCancelledException if a newer list was submitted in the meantime
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    @NonNull
+    DiffUtil.DiffResult[] calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList,
+            int runGeneration) {
+        final int oldSize = oldList.size();
+        final int newSize = newList.size();
+        final int chunkSize = mConfig.getDiffChunkSize();
+        final int maxSize = Math.max(oldSize, newSize);
+        final int chunkCount = chunkSize == 0 || maxSize <= chunkSize
+                ? 1 : (maxSize + chunkSize - 1) / chunkSize;
+        final DiffUtil.DiffResult[] results = new DiffUtil.DiffResult[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            // chunks split both lists at the same relative positions
+            final DiffCallback callback = new DiffCallback(
+                    oldList.subList(chunkStart(i, chunkCount, oldSize),
+                            chunkStart(i + 1, chunkCount, oldSize)),
+                    newList.subList(chunkStart(i, chunkCount, newSize),
+                            chunkStart(i + 1, chunkCount, newSize)),
+                    runGeneration);
+            callback.checkCancelled();
+            if (mConfig.getDiffCallback() instanceof DiffUtil.KeyedItemCallback) {
+                results[i] = DiffUtil.calculateKeyedDiff(callback);
+            } else {
+                results[i] = DiffUtil.calculateDiff(callback);
+            }
+        }
+        return results;
+    }
+
+    static int chunkStart(int chunk, int chunkCount, int listSize) {
+        return (int) ((long) chunk * listSize / chunkCount);
+    }
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     void latchList(
             @NonNull List<T> newList,
-            @NonNull DiffUtil.DiffResult diffResult,
+            @NonNull DiffUtil.DiffResult[] diffResults,
             @Nullable Runnable commitCallback) {
         final List<T> previousList = mReadOnlyList;
         mList = newList;
         // notify last, after list is updated
         mReadOnlyList = Collections.unmodifiableList(newList);
-        diffResult.dispatchUpdatesTo(mUpdateCallback);
+        if (diffResults.length == 1) {
+            diffResults[0].dispatchUpdatesTo(mUpdateCallback);
+        } else {
+            // Dispatch the last chunk first, so that the chunks before it are still at their
+            // position in the previous list.
+            final int previousSize = previousList.size();
+            for (int i = diffResults.length - 1; i >= 0; i--) {
+                final int offset = chunkStart(i, diffResults.length, previousSize);
+                diffResults[i].dispatchUpdatesTo(
+                        new OffsetListUpdateCallback(mUpdateCallback, offset));
+            }
+        }
+        mDispatchedDiffCount.incrementAndGet();
         onCurrentListChanged(previousList, commitCallback);
     }
 
@@ -380,6 +396,41 @@ public class AsyncListDiffer<T> {
         }
     }
 
+    /**
+     * Returns the number of diffs that were started on the background thread, because a List was
+     * submitted while another one was present.
+     * <p>
+     * Each of them is eventually either cancelled or dispatched.
+     *
+     * @return The number of started diffs.
+     * @see #getCancelledDiffCount()
+     * @see #getDispatchedDiffCount()
+     */
+    public int getStartedDiffCount() {
+        return mStartedDiffCount.get();
+    }
+
+    /**
+     * Returns the number of diffs that were discarded because a newer List was submitted before
+     * they were dispatched.
+     * <p>
+     * Diffs stop computing as soon as they notice that a newer List was submitted.
+     *
+     * @return The number of cancelled diffs.
+     */
+    public int getCancelledDiffCount() {
+        return mCancelledDiffCount.get();
+    }
+
+    /**
+     * Returns the number of diffs that were dispatched to the ListUpdateCallback.
+     *
+     * @return The number of dispatched diffs.
+     */
+    public int getDispatchedDiffCount() {
+        return mDispatchedDiffCount.get();
+    }
+
     /**
      * Add a ListListener to receive updates when the current List changes.
      *
@@ -402,4 +453,150 @@ public class AsyncListDiffer<T> {
     public void removeListListener(@NonNull ListListener<T> listener) {
         mListeners.remove(listener);
     }
+
+    /**
+     * Diffs a chunk of the old and new Lists with the ItemCallback of the config, and stops the
+     * diff once a newer List is submitted.
+     */
+    private class DiffCallback extends DiffUtil.KeyedCallback {
+        // how many areItemsTheSame calls to make between checks of the generation
+        private static final int CANCELLATION_CHECK_MASK = 0xFF;
+
+        private final List<T> mOldList;
+        private final List<T> mNewList;
+        private final int mRunGeneration;
+        private int mCalls;
+
+        DiffCallback(@NonNull List<T> oldList, @NonNull List<T> newList, int runGeneration) {
+            mOldList = oldList;
+            mNewList = newList;
+            mRunGeneration = runGeneration;
+        }
+
+        void checkCancelled() {
+            if (mMaxScheduledGeneration != mRunGeneration) {
+                throw new DiffCancelledException();
+            }
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            if ((++mCalls & CANCELLATION_CHECK_MASK) == 0) {
+                checkCancelled();
+            }
+            T oldItem = mOldList.get(oldItemPosition);
+            T newItem = mNewList.get(newItemPosition);
+            if (oldItem != null && newItem != null) {
+                return mConfig.getDiffCallback().areItemsTheSame(oldItem, newItem);
+            }
+            // If both items are null we consider them the same.
+            return oldItem == null && newItem == null;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            T oldItem = mOldList.get(oldItemPosition);
+            T newItem = mNewList.get(newItemPosition);
+            if (oldItem != null && newItem != null) {
+                return mConfig.getDiffCallback().areContentsTheSame(oldItem, newItem);
+            }
+            if (oldItem == null && newItem == null) {
+                return true;
+            }
+            // There is an implementation bug if we reach this point. Per the docs, this
+            // method should only be invoked when areItemsTheSame returns true. That
+            // only occurs when both items are non-null or both are null and both of
+            // those cases are handled above.
+            throw new AssertionError();
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            T oldItem = mOldList.get(oldItemPosition);
+            T newItem = mNewList.get(newItemPosition);
+            if (oldItem != null && newItem != null) {
+                return mConfig.getDiffCallback().getChangePayload(oldItem, newItem);
+            }
+            // There is an implementation bug if we reach this point. Per the docs, this
+            // method should only be invoked when areItemsTheSame returns true AND
+            // areContentsTheSame returns false. That only occurs when both items are
+            // non-null which is the only case handled above.
+            throw new AssertionError();
+        }
+
+        @Nullable
+        @Override
+        public Object getOldItemKey(int oldItemPosition) {
+            return getItemKey(mOldList.get(oldItemPosition));
+        }
+
+        @Nullable
+        @Override
+        public Object getNewItemKey(int newItemPosition) {
+            return getItemKey(mNewList.get(newItemPosition));
+        }
+
+        @SuppressWarnings("unchecked")
+        @Nullable
+        private Object getItemKey(@Nullable T item) {
+            // Null items have no key, they are matched next to other items.
+            return item == null ? null
+                    : ((DiffUtil.KeyedItemCallback<T>) mConfig.getDiffCallback()).getItemKey(item);
+        }
+    }
+
+    /**
+     * Thrown to stop a diff which was superseded by a newer List.
+     */
+    static class DiffCancelledException extends RuntimeException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // the stack trace is never used, skip capturing it
+            return this;
+        }
+    }
+
+    /**
+     * Dispatches the updates of a chunk at its position in the whole List.
+     */
+    private static class OffsetListUpdateCallback implements ListUpdateCallback {
+        private final ListUpdateCallback mCallback;
+        private final int mOffset;
+
+        OffsetListUpdateCallback(@NonNull ListUpdateCallback callback, int offset) {
+            mCallback = callback;
+            mOffset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mCallback.onInserted(position + mOffset, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mCallback.onRemoved(position + mOffset, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mCallback.onMoved(fromPosition + mOffset, toPosition + mOffset);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            mCallback.onChanged(position + mOffset, count, payload);
+        }
+    }
 }
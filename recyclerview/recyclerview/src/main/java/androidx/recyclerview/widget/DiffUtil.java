@@ -26,8 +26,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DiffUtil is a utility class that calculates the difference between two lists and outputs a
@@ -74,6 +76,11 @@ import java.util.List;
  *     <li>1000 items and 200 modifications without moves: 13.54 ms, median: 13.36 ms
  * </ul>
  * <p>
+ * If your items have stable keys, you can use {@link #calculateKeyedDiff(KeyedCallback, boolean)}
+ * instead, which anchors the diff on the keys rather than searching for the minimal edit script.
+ * Its run time does not depend on the number of changes, which makes it much faster for large
+ * lists that change a lot, at the cost of a possibly longer list of updates.
+ * <p>
  * Due to implementation constraints, the max size of the list can be 2^26.
  *
  * @see ListAdapter
@@ -179,6 +186,202 @@ public class DiffUtil {
                 detectMoves);
     }
 
+    /**
+     * Calculates the list of update operations that can covert one list into the other one, by
+     * matching the items with the keys provided by the callback.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     * @see #calculateKeyedDiff(KeyedCallback, boolean)
+     */
+    @NonNull
+    public static DiffResult calculateKeyedDiff(@NonNull KeyedCallback cb) {
+        return calculateKeyedDiff(cb, true);
+    }
+
+    /**
+     * Calculates the list of update operations that can covert one list into the other one, by
+     * matching the items with the keys provided by the callback.
+     * <p>
+     * This uses a variation of Paul Heckel's algorithm: items whose key appears exactly once in
+     * both lists are matched through a hash table, and the matches are extended to their
+     * neighbors with {@link Callback#areItemsTheSame(int, int)}, which matches items with
+     * duplicate or {@code null} keys around them. The longest sequence of matches that keeps its
+     * order, as found by patience sorting, stays in place and the other matches are moves.
+     * <p>
+     * This takes O(N + M) time to match the items, and O(K log K) in the worst case to order the K
+     * matches, regardless of the number of changes. Unlike
+     * {@link #calculateDiff(Callback, boolean)}, it does not guarantee the minimal number of
+     * updates: items with duplicate or {@code null} keys that are not next to a match are
+     * removed and inserted instead of being matched.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param detectMoves True if DiffUtil should dispatch moves for the items which changed
+     *                    order, false to dispatch them as removals and additions.
+     *
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     */
+    @NonNull
+    public static DiffResult calculateKeyedDiff(@NonNull KeyedCallback cb, boolean detectMoves) {
+        final int oldSize = cb.getOldListSize();
+        final int newSize = cb.getNewListSize();
+
+        // the matched position in the other list, or NO_POSITION
+        final int[] oldToNew = new int[oldSize];
+        final int[] newToOld = new int[newSize];
+        Arrays.fill(oldToNew, DiffResult.NO_POSITION);
+        Arrays.fill(newToOld, DiffResult.NO_POSITION);
+
+        matchUniqueKeys(cb, oldToNew, newToOld);
+        extendMatches(cb, oldToNew, newToOld);
+
+        final List<Diagonal> diagonals = longestOrderedMatches(oldToNew);
+        return new DiffResult(cb, diagonals, new int[oldSize], new int[newSize],
+                detectMoves ? oldToNew : null);
+    }
+
+    /**
+     * Matches the items whose key appears exactly once in each list.
+     */
+    private static void matchUniqueKeys(
+            KeyedCallback cb,
+            int[] oldToNew,
+            int[] newToOld) {
+        final Map<Object, KeyEntry> entries = new HashMap<>();
+        for (int i = 0; i < oldToNew.length; i++) {
+            final Object key = cb.getOldItemKey(i);
+            if (key == null) {
+                continue;
+            }
+            KeyEntry entry = entries.get(key);
+            if (entry == null) {
+                entry = new KeyEntry();
+                entries.put(key, entry);
+            }
+            entry.oldCount++;
+            entry.oldPosition = i;
+        }
+        for (int i = 0; i < newToOld.length; i++) {
+            final Object key = cb.getNewItemKey(i);
+            if (key == null) {
+                continue;
+            }
+            final KeyEntry entry = entries.get(key);
+            // keys which are not in the old list cannot match
+            if (entry != null) {
+                entry.newCount++;
+                entry.newPosition = i;
+            }
+        }
+        for (KeyEntry entry : entries.values()) {
+            if (entry.oldCount == 1 && entry.newCount == 1
+                    && cb.areItemsTheSame(entry.oldPosition, entry.newPosition)) {
+                oldToNew[entry.oldPosition] = entry.newPosition;
+                newToOld[entry.newPosition] = entry.oldPosition;
+            }
+        }
+    }
+
+    /**
+     * Matches the unmatched neighbors of matched items, when they are the same item. The start
+     * and the end of the lists are treated as matches.
+     */
+    private static void extendMatches(
+            KeyedCallback cb,
+            int[] oldToNew,
+            int[] newToOld) {
+        final int oldSize = oldToNew.length;
+        final int newSize = newToOld.length;
+        // forward, so that runs after a match are matched in one pass
+        for (int x = -1; x < oldSize - 1; x++) {
+            final int y = x == -1 ? -1 : oldToNew[x];
+            if (y == DiffResult.NO_POSITION && x != -1) {
+                continue;
+            }
+            if (y + 1 < newSize && oldToNew[x + 1] == DiffResult.NO_POSITION
+                    && newToOld[y + 1] == DiffResult.NO_POSITION
+                    && cb.areItemsTheSame(x + 1, y + 1)) {
+                oldToNew[x + 1] = y + 1;
+                newToOld[y + 1] = x + 1;
+            }
+        }
+        // backward, so that runs before a match are matched in one pass
+        for (int x = oldSize; x > 0; x--) {
+            final int y = x == oldSize ? newSize : oldToNew[x];
+            if (y == DiffResult.NO_POSITION && x != oldSize) {
+                continue;
+            }
+            if (y > 0 && oldToNew[x - 1] == DiffResult.NO_POSITION
+                    && newToOld[y - 1] == DiffResult.NO_POSITION
+                    && cb.areItemsTheSame(x - 1, y - 1)) {
+                oldToNew[x - 1] = y - 1;
+                newToOld[y - 1] = x - 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the longest sequence of matches which are in the same order in both lists, using
+     * patience sorting, and returns them as diagonals sorted by position.
+     */
+    private static List<Diagonal> longestOrderedMatches(int[] oldToNew) {
+        final int oldSize = oldToNew.length;
+        // tails[i] is the old position ending the best sequence of length i + 1 found so far
+        final int[] tails = new int[oldSize];
+        // the old position before each one in its sequence
+        final int[] previous = new int[oldSize];
+        int length = 0;
+        for (int x = 0; x < oldSize; x++) {
+            final int y = oldToNew[x];
+            if (y == DiffResult.NO_POSITION) {
+                continue;
+            }
+            int index;
+            if (length == 0 || oldToNew[tails[length - 1]] < y) {
+                // common case of items that kept their order, no need to search
+                index = length;
+            } else {
+                int low = 0;
+                int high = length - 1;
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    if (oldToNew[tails[mid]] < y) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                index = low;
+            }
+            previous[x] = index == 0 ? DiffResult.NO_POSITION : tails[index - 1];
+            tails[index] = x;
+            if (index == length) {
+                length++;
+            }
+        }
+        // walk the sequence back, merging consecutive matches into diagonals
+        final List<Diagonal> diagonals = new ArrayList<>();
+        int x = length == 0 ? DiffResult.NO_POSITION : tails[length - 1];
+        while (x != DiffResult.NO_POSITION) {
+            final int endX = x + 1;
+            final int endY = oldToNew[x] + 1;
+            int size = 1;
+            int prev = previous[x];
+            while (prev != DiffResult.NO_POSITION && prev == x - 1
+                    && oldToNew[prev] == oldToNew[x] - 1) {
+                x = prev;
+                prev = previous[x];
+                size++;
+            }
+            diagonals.add(new Diagonal(endX - size, endY - size, size));
+            x = prev;
+        }
+        Collections.reverse(diagonals);
+        return diagonals;
+    }
+
     /**
      * Finds a middle snake in the given range.
      */
@@ -397,6 +600,34 @@ public class DiffUtil {
         }
     }
 
+    /**
+     * A {@link Callback} which also provides the keys of the items, used by
+     * {@link DiffUtil#calculateKeyedDiff(KeyedCallback, boolean)}.
+     * <p>
+     * Keys are compared with {@link Object#equals(Object)} and {@link Object#hashCode()}. Two items
+     * with equal keys should be the same item per {@link #areItemsTheSame(int, int)}, for example
+     * the key can be the unique id of the item.
+     */
+    public abstract static class KeyedCallback extends Callback {
+        /**
+         * Returns the key of an item in the old list.
+         *
+         * @param oldItemPosition The position of the item in the old list
+         * @return The key of the item, or {@code null} if it has none.
+         */
+        @Nullable
+        public abstract Object getOldItemKey(int oldItemPosition);
+
+        /**
+         * Returns the key of an item in the new list.
+         *
+         * @param newItemPosition The position of the item in the new list
+         * @return The key of the item, or {@code null} if it has none.
+         */
+        @Nullable
+        public abstract Object getNewItemKey(int newItemPosition);
+    }
+
     /**
      * Callback for calculating the diff between two non-null items in a list.
      * <p>
@@ -469,6 +700,30 @@ public class DiffUtil {
         }
     }
 
+    /**
+     * An {@link ItemCallback} which also provides the keys of the items.
+     * <p>
+     * {@link AsyncListDiffer} and {@link ListAdapter} calculate the diff with
+     * {@link DiffUtil#calculateKeyedDiff(KeyedCallback, boolean)} when their
+     * {@link AsyncDifferConfig} has a KeyedItemCallback.
+     *
+     * @param <T> Type of items to compare.
+     * @see KeyedCallback
+     */
+    public abstract static class KeyedItemCallback<T> extends ItemCallback<T> {
+        /**
+         * Returns the key of an item, such as its unique id.
+         * <p>
+         * Two items with equal keys should be the same item per
+         * {@link #areItemsTheSame(Object, Object)}.
+         *
+         * @param item The item in the old or new list.
+         * @return The key of the item, or {@code null} if it has none.
+         */
+        @Nullable
+        public abstract Object getItemKey(@NonNull T item);
+    }
+
     /**
      * A diagonal is a match in the graph.
      * Rather than snakes, we only record the diagonals in the path.
@@ -561,6 +816,16 @@ public class DiffUtil {
         }
     }
 
+    /**
+     * The occurrences of a key in the two lists, used to calculate a keyed diff.
+     */
+    private static class KeyEntry {
+        int oldCount;
+        int newCount;
+        int oldPosition;
+        int newPosition;
+    }
+
     /**
      * Represents a range in two lists that needs to be solved.
      * <p>
@@ -653,6 +918,11 @@ public class DiffUtil {
 
         private final boolean mDetectMoves;
 
+        // The new positions of the old items when they are already known, used to find moves
+        // instead of searching for them.
+        @Nullable
+        private final int[] mKnownOldToNew;
+
         /**
          * @param callback        The callback that was used to calculate the diff
          * @param diagonals       Matches between the two lists
@@ -662,6 +932,26 @@ public class DiffUtil {
          */
         DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
                 int[] newItemStatuses, boolean detectMoves) {
+            this(callback, diagonals, oldItemStatuses, newItemStatuses, detectMoves, null);
+        }
+
+        /**
+         * @param callback        The callback that was used to calculate the diff
+         * @param diagonals       Matches between the two lists
+         * @param oldItemStatuses An int[] that can be re-purposed to keep metadata
+         * @param newItemStatuses An int[] that can be re-purposed to keep metadata
+         * @param knownOldToNew   The new position of each old item, or {@code NO_POSITION}, for
+         *                        the moves to dispatch. Null if moves should not be detected.
+         */
+        DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
+                int[] newItemStatuses, @Nullable int[] knownOldToNew) {
+            this(callback, diagonals, oldItemStatuses, newItemStatuses, knownOldToNew != null,
+                    knownOldToNew);
+        }
+
+        private DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
+                int[] newItemStatuses, boolean detectMoves, @Nullable int[] knownOldToNew) {
+            mKnownOldToNew = knownOldToNew;
             mDiagonals = diagonals;
             mOldItemStatuses = oldItemStatuses;
             mNewItemStatuses = newItemStatuses;
@@ -706,13 +996,30 @@ public class DiffUtil {
                 }
             }
             // now all matches are marked, lets look for moves
-            if (mDetectMoves) {
+            if (mKnownOldToNew != null) {
+                // the moves are already known, no need to search for them
+                markKnownMoves(mKnownOldToNew);
+            } else if (mDetectMoves) {
                 // traverse each addition / removal from the end of the list, find matching
                 // addition removal from before
                 findMoveMatches();
             }
         }
 
+        private void markKnownMoves(int[] knownOldToNew) {
+            for (int posX = 0; posX < mOldListSize; posX++) {
+                final int posY = knownOldToNew[posX];
+                // items on diagonals are already marked
+                if (posY != NO_POSITION && mOldItemStatuses[posX] == 0) {
+                    final boolean contentsMatching = mCallback.areContentsTheSame(posX, posY);
+                    final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
+                            : FLAG_MOVED_CHANGED;
+                    mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+                    mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+                }
+            }
+        }
+
         private void findMoveMatches() {
             // for each removal, find matching addition
             int posX = 0;
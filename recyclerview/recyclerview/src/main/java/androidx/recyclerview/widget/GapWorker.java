@@ -35,6 +35,23 @@ final class GapWorker implements Runnable {
     long mPostTimeNs;
     long mFrameIntervalNs;
 
+    /**
+     * With adaptive prefetch, lines are only prefetched ahead if they would be scrolled into view
+     * within this many frames at the current velocity.
+     */
+    static final int ADAPTIVE_LOOKAHEAD_FRAMES = 4;
+
+    /**
+     * Upper bound for {@link RecyclerView.LayoutManager#mPrefetchLookaheadCount}.
+     */
+    static final int MAX_ADAPTIVE_LOOKAHEAD_COUNT = 8;
+
+    /**
+     * Running average of the time spent on a single prefetch task, used to decide whether the
+     * time left before a deadline is worth prefetching one more line.
+     */
+    long mTaskRunningAverageNs;
+
     static class Task {
         public boolean immediate;
         public int viewVelocity;
@@ -70,6 +87,16 @@ final class GapWorker implements Runnable {
 
         int mCount;
 
+        /**
+         * True while {@link GapWorker} fetches a ViewHolder for this RecyclerView, so that binds
+         * can be told apart from the ones done for layout.
+         */
+        boolean mPrefetching;
+
+        int mHitCount;
+        int mMissCount;
+        int mWastedBindCount;
+
         void setPrefetchVector(int dx, int dy) {
             mPrefetchDx = dx;
             mPrefetchDy = dy;
@@ -93,6 +120,10 @@ final class GapWorker implements Runnable {
                     }
                 } else {
                     // momentum based prefetch, only if we trust current child/adapter state
+                    if (layout.isAdaptivePrefetchEnabled()) {
+                        layout.mPrefetchLookaheadDistance = ADAPTIVE_LOOKAHEAD_FRAMES
+                                * (Math.abs(mPrefetchDx) + Math.abs(mPrefetchDy));
+                    }
                     if (!view.hasPendingAdapterUpdates()) {
                         layout.collectAdjacentPrefetchPositions(mPrefetchDx, mPrefetchDy,
                                 view.mState, this);
@@ -135,6 +166,33 @@ final class GapWorker implements Runnable {
             mCount++;
         }
 
+        /**
+         * Called by the Recycler each time it hands out a ViewHolder, to track prefetch hits,
+         * misses and wasted binds.
+         */
+        void onViewHolderFetched(RecyclerView.ViewHolder holder, boolean bound,
+                boolean preLayout) {
+            final boolean prefetched =
+                    holder.hasAnyOfTheFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED);
+            if (mPrefetching) {
+                if (bound) {
+                    if (prefetched) {
+                        mWastedBindCount++;
+                    }
+                    holder.addFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED);
+                }
+            } else if (bound) {
+                mMissCount++;
+                if (prefetched) {
+                    mWastedBindCount++;
+                    holder.setFlags(0, RecyclerView.ViewHolder.FLAG_PREFETCHED);
+                }
+            } else if (prefetched && !preLayout) {
+                mHitCount++;
+                holder.setFlags(0, RecyclerView.ViewHolder.FLAG_PREFETCHED);
+            }
+        }
+
         boolean lastPrefetchIncludedPosition(int position) {
             if (mPrefetchArray != null) {
                 final int count = mCount * 2;
@@ -285,8 +343,13 @@ final class GapWorker implements Runnable {
         RecyclerView.ViewHolder holder;
         try {
             view.onEnterLayoutOrScroll();
-            holder = recycler.tryGetViewHolderForPositionByDeadline(
-                    position, false, deadlineNs);
+            view.mPrefetchRegistry.mPrefetching = true;
+            try {
+                holder = recycler.tryGetViewHolderForPositionByDeadline(
+                        position, false, deadlineNs);
+            } finally {
+                view.mPrefetchRegistry.mPrefetching = false;
+            }
 
             if (holder != null) {
                 if (holder.isBound() && !holder.isInvalid()) {
@@ -358,14 +421,54 @@ final class GapWorker implements Runnable {
             if (task.view == null) {
                 break; // done with populated tasks
             }
+            final long startNs = task.view.getNanoTime();
             flushTaskWithDeadline(task, deadlineNs);
+            mTaskRunningAverageNs = runningAverage(mTaskRunningAverageNs,
+                    task.view.getNanoTime() - startNs);
             task.clear();
         }
     }
 
+    /**
+     * Grows the lookahead of adaptive LayoutManagers by one line if the last prefetch pass left
+     * enough time for another task before the deadline, and halves it if the pass overran.
+     */
+    private void updateAdaptiveLookahead(long deadlineNs) {
+        final int viewCount = mRecyclerViews.size();
+        for (int i = 0; i < viewCount; i++) {
+            final RecyclerView view = mRecyclerViews.get(i);
+            final RecyclerView.LayoutManager layout = view.mLayout;
+            if (layout == null
+                    || !layout.isAdaptivePrefetchEnabled()
+                    || view.getWindowVisibility() != View.VISIBLE
+                    || (view.mPrefetchRegistry.mPrefetchDx == 0
+                            && view.mPrefetchRegistry.mPrefetchDy == 0)) {
+                // not scrolling, so last pass says nothing about how deep to look ahead
+                continue;
+            }
+            final long spareNs = deadlineNs - view.getNanoTime();
+            if (spareNs <= 0) {
+                layout.mPrefetchLookaheadCount = Math.max(1, layout.mPrefetchLookaheadCount / 2);
+            } else if (spareNs >= mTaskRunningAverageNs) {
+                layout.mPrefetchLookaheadCount = Math.min(MAX_ADAPTIVE_LOOKAHEAD_COUNT,
+                        layout.mPrefetchLookaheadCount + 1);
+            }
+        }
+    }
+
+    private static long runningAverage(long oldAverage, long newValue) {
+        if (oldAverage == 0) {
+            return newValue;
+        }
+        return (oldAverage / 4 * 3) + (newValue / 4);
+    }
+
     void prefetch(long deadlineNs) {
         buildTaskList();
         flushTasksWithDeadline(deadlineNs);
+        if (deadlineNs != RecyclerView.FOREVER_NS) {
+            updateAdaptiveLookahead(deadlineNs);
+        }
     }
 
     @Override
@@ -524,11 +524,29 @@ public class GridLayoutManager extends LinearLayoutManager {
     @Override
     void collectPrefetchPositionsForLayoutState(RecyclerView.State state, LayoutState layoutState,
             LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int distance = Math.max(0, layoutState.mScrollingOffset);
+        collectPrefetchPositionsForLine(state, layoutState, layoutPrefetchRegistry, distance);
+        if (mPrefetchLookaheadCount > 1) {
+            // adaptive prefetch, look further ahead while rows are close enough at this velocity
+            final int lineSize = estimatePrefetchLineSize(mSpanCount);
+            for (int i = 1; i < mPrefetchLookaheadCount; i++) {
+                if (distance + i * lineSize > mPrefetchLookaheadDistance) {
+                    break;
+                }
+                collectPrefetchPositionsForLine(state, layoutState, layoutPrefetchRegistry,
+                        distance + i * lineSize);
+            }
+        }
+    }
+
+    private void collectPrefetchPositionsForLine(RecyclerView.State state,
+            LayoutState layoutState, LayoutPrefetchRegistry layoutPrefetchRegistry,
+            int distance) {
         int remainingSpan = mSpanCount;
         int count = 0;
         while (count < mSpanCount && layoutState.hasMore(state) && remainingSpan > 0) {
             final int pos = layoutState.mCurrentPosition;
-            layoutPrefetchRegistry.addPosition(pos, Math.max(0, layoutState.mScrollingOffset));
+            layoutPrefetchRegistry.addPosition(pos, distance);
             final int spanSize = mSpanSizeLookup.getSpanSize(pos);
             remainingSpan -= spanSize;
             layoutState.mCurrentPosition += layoutState.mItemDirection;
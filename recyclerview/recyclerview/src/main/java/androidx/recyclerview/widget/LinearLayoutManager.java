@@ -1284,6 +1284,41 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         if (pos >= 0 && pos < state.getItemCount()) {
             layoutPrefetchRegistry.addPosition(pos, Math.max(0, layoutState.mScrollingOffset));
         }
+        if (mPrefetchLookaheadCount > 1) {
+            // adaptive prefetch, look further ahead while items are close enough at this velocity
+            final int itemSize = estimatePrefetchLineSize(1);
+            for (int i = 1; i < mPrefetchLookaheadCount; i++) {
+                final int nextPos = pos + i * layoutState.mItemDirection;
+                final int distance = Math.max(0, layoutState.mScrollingOffset) + i * itemSize;
+                if (nextPos < 0 || nextPos >= state.getItemCount()
+                        || distance > mPrefetchLookaheadDistance) {
+                    break;
+                }
+                layoutPrefetchRegistry.addPosition(nextPos, distance);
+            }
+        }
+    }
+
+    /**
+     * Estimates the size of a line of items in the layout direction from the attached children,
+     * to approximate how far away items past the viewport edge are.
+     *
+     * @param itemsPerLine Number of children laid out next to each other on one line.
+     * @return Average line size in pixels, at least 1.
+     */
+    int estimatePrefetchLineSize(int itemsPerLine) {
+        final int childCount = getChildCount();
+        if (childCount == 0) {
+            return 1;
+        }
+        final View first = getChildAt(0);
+        final View last = getChildAt(childCount - 1);
+        final int start = Math.min(mOrientationHelper.getDecoratedStart(first),
+                mOrientationHelper.getDecoratedStart(last));
+        final int end = Math.max(mOrientationHelper.getDecoratedEnd(first),
+                mOrientationHelper.getDecoratedEnd(last));
+        final int lineCount = (childCount + itemsPerLine - 1) / itemsPerLine;
+        return Math.max(1, (end - start) / lineCount);
     }
 
     @Override
@@ -38,6 +38,8 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.StateListDrawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.os.SystemClock;
@@ -93,6 +95,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * A flexible view for providing a limited window into a large data set.
@@ -1593,6 +1597,43 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         mRecycler.setViewCacheSize(size);
     }
 
+    /**
+     * Returns the number of items that were handed to the LayoutManager already bound by item
+     * prefetch, without having to create or bind them during layout.
+     *
+     * @return Number of prefetch hits since this RecyclerView was created.
+     * @see LayoutManager#setItemPrefetchEnabled(boolean)
+     * @see #getPrefetchMissCount()
+     * @see #getPrefetchWastedBindCount()
+     */
+    public int getPrefetchHitCount() {
+        return mPrefetchRegistry != null ? mPrefetchRegistry.mHitCount : 0;
+    }
+
+    /**
+     * Returns the number of items that had to be bound on the UI thread while they were
+     * requested by the LayoutManager, because prefetch did not prepare them ahead of time.
+     * <p>
+     * This includes items bound during the initial layout and after data set changes.
+     *
+     * @return Number of prefetch misses since this RecyclerView was created.
+     * @see #getPrefetchHitCount()
+     */
+    public int getPrefetchMissCount() {
+        return mPrefetchRegistry != null ? mPrefetchRegistry.mMissCount : 0;
+    }
+
+    /**
+     * Returns the number of prefetch binds that were thrown away, either because the item was
+     * recycled before the LayoutManager asked for it or because it had to be bound again.
+     *
+     * @return Number of wasted prefetch binds since this RecyclerView was created.
+     * @see #getPrefetchHitCount()
+     */
+    public int getPrefetchWastedBindCount() {
+        return mPrefetchRegistry != null ? mPrefetchRegistry.mWastedBindCount : 0;
+    }
+
     /**
      * Return the current scrolling state of the RecyclerView.
      *
@@ -5845,12 +5886,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             int mMaxScrap = DEFAULT_MAX_SCRAP;
             long mCreateRunningAverageNs = 0;
             long mBindRunningAverageNs = 0;
+            // ViewHolders being created in the background, which count towards mMaxScrap
+            int mPendingCreateCount = 0;
         }
 
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
         private int mAttachCount = 0;
 
+        // Bumped by clear(), so that ViewHolders created in the background before are dropped
+        private int mPrefillGeneration = 0;
+
+        private static final Object sPrefillLock = new Object();
+        // Shared by all pools, created on first use
+        private static Executor sPrefillExecutor;
+        private static Handler sMainThreadHandler;
+
         /**
          * Discard all ViewHolders.
          */
@@ -5858,7 +5909,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             for (int i = 0; i < mScrap.size(); i++) {
                 ScrapData data = mScrap.valueAt(i);
                 data.mScrapHeap.clear();
+                data.mPendingCreateCount = 0;
             }
+            mPrefillGeneration++;
         }
 
         /**
@@ -5941,6 +5994,126 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             scrapHeap.add(scrap);
         }
 
+        /**
+         * Creates ViewHolders of the given type on a background thread, and adds them to the pool
+         * so that the RecyclerView does not need to create them when they are first needed.
+         * <p>
+         * This is similar to using an {@code AsyncLayoutInflater}: the ViewHolders are created with
+         * {@link Adapter#createViewHolder(ViewGroup, int)} on a background thread shared by all
+         * pools, so {@link Adapter#onCreateViewHolder(ViewGroup, int)} must be safe to call off the
+         * main thread. They are added to the pool on the main thread, and the time it took to
+         * create them is factored into the create time estimates of the pool.
+         * <p>
+         * The pool never holds more than {@link #setMaxRecycledViews(int, int) the maximum number}
+         * of ViewHolders of the type, counting those that are still being created. If creating a
+         * ViewHolder fails, no more are created in the background and the RecyclerView creates
+         * them on demand as usual.
+         * <p>
+         * ViewHolders which are still being created when the pool is {@link #clear() cleared}, or
+         * when the adapter of the RecyclerView is changed, are discarded instead of being added
+         * to the pool.
+         *
+         * @param recyclerView The RecyclerView the ViewHolders are created for. Its adapter
+         *                     creates the ViewHolders, and it is passed as their parent.
+         * @param viewType     ViewHolder type.
+         * @param count        Number of ViewHolders to create.
+         * @return The number of ViewHolders which will be created, which is less than
+         * {@code count} if the pool would be full.
+         * @see #prefillRecycledViewsAsync(RecyclerView, int, int, Executor)
+         */
+        public int prefillRecycledViewsAsync(@NonNull RecyclerView recyclerView, int viewType,
+                int count) {
+            synchronized (sPrefillLock) {
+                if (sPrefillExecutor == null) {
+                    sPrefillExecutor = Executors.newSingleThreadExecutor();
+                }
+            }
+            return prefillRecycledViewsAsync(recyclerView, viewType, count, sPrefillExecutor);
+        }
+
+        /**
+         * Creates ViewHolders of the given type on the given executor, and adds them to the pool
+         * so that the RecyclerView does not need to create them when they are first needed.
+         *
+         * @param recyclerView The RecyclerView the ViewHolders are created for. Its adapter
+         *                     creates the ViewHolders, and it is passed as their parent.
+         * @param viewType     ViewHolder type.
+         * @param count        Number of ViewHolders to create.
+         * @param executor     The background executor to create the ViewHolders on.
+         * @return The number of ViewHolders which will be created, which is less than
+         * {@code count} if the pool would be full.
+         * @see #prefillRecycledViewsAsync(RecyclerView, int, int)
+         */
+        public int prefillRecycledViewsAsync(@NonNull final RecyclerView recyclerView,
+                final int viewType, int count, @NonNull Executor executor) {
+            final Adapter adapter = recyclerView.getAdapter();
+            if (adapter == null) {
+                throw new IllegalStateException("The RecyclerView must have an adapter to create"
+                        + " ViewHolders" + recyclerView.exceptionLabel());
+            }
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final int toCreate = Math.min(count, scrapData.mMaxScrap
+                    - scrapData.mScrapHeap.size() - scrapData.mPendingCreateCount);
+            if (toCreate <= 0) {
+                return 0;
+            }
+            synchronized (sPrefillLock) {
+                if (sMainThreadHandler == null) {
+                    sMainThreadHandler = new Handler(Looper.getMainLooper());
+                }
+            }
+            final Handler mainThreadHandler = sMainThreadHandler;
+            final int generation = mPrefillGeneration;
+            scrapData.mPendingCreateCount += toCreate;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < toCreate; i++) {
+                        final long start = recyclerView.getNanoTime();
+                        final ViewHolder holder;
+                        try {
+                            holder = adapter.createViewHolder(recyclerView, viewType);
+                        } catch (RuntimeException e) {
+                            Log.w(TAG, "Failed to create ViewHolder of type " + viewType
+                                    + " in the background, they will be created on demand", e);
+                            postCancelled(mainThreadHandler, scrapData, generation, toCreate - i);
+                            return;
+                        }
+                        final long createTimeNs = recyclerView.getNanoTime() - start;
+                        mainThreadHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (generation != mPrefillGeneration) {
+                                    // cleared, which already reset the pending count
+                                    return;
+                                }
+                                scrapData.mPendingCreateCount--;
+                                if (recyclerView.getAdapter() != adapter) {
+                                    return;
+                                }
+                                factorInCreateTime(viewType, createTimeNs);
+                                putRecycledView(holder);
+                            }
+                        });
+                    }
+                }
+            });
+            return toCreate;
+        }
+
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        void postCancelled(Handler mainThreadHandler, final ScrapData scrapData,
+                final int generation, final int count) {
+            mainThreadHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == mPrefillGeneration) {
+                        scrapData.mPendingCreateCount -= count;
+                    }
+                }
+            });
+        }
+
         long runningAverage(long oldAverage, long newValue) {
             if (oldAverage == 0) {
                 return newValue;
@@ -6469,6 +6642,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                 final int offsetPosition = mAdapterHelper.findPositionOffset(position);
                 bound = tryBindViewHolderByDeadline(holder, offsetPosition, position, deadlineNs);
             }
+            if (mPrefetchRegistry != null && !dryRun) {
+                mPrefetchRegistry.onViewHolderFetched(holder, bound, mState.isPreLayout());
+            }
 
             final ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
             final LayoutParams rvLayoutParams;
@@ -6728,6 +6904,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             if (dispatchRecycled) {
                 dispatchViewRecycled(holder);
             }
+            if (mPrefetchRegistry != null
+                    && holder.hasAnyOfTheFlags(ViewHolder.FLAG_PREFETCHED)) {
+                // prefetched, but never handed to the LayoutManager
+                mPrefetchRegistry.mWastedBindCount++;
+            }
             holder.mBindingAdapter = null;
             holder.mOwnerRecyclerView = null;
             getRecycledViewPool().putRecycledView(holder);
@@ -8020,6 +8201,22 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         boolean mPrefetchMaxObservedInInitialPrefetch;
 
+        private boolean mAdaptivePrefetchEnabled = false;
+
+        /**
+         * Written by {@link GapWorker} when adaptive prefetch is enabled. Maximum number of lines
+         * (items, or rows/columns for grids) to prefetch ahead of the scroll direction, derived
+         * from the frame time left over by previous prefetch passes.
+         */
+        int mPrefetchLookaheadCount = 1;
+
+        /**
+         * Written by {@link GapWorker} when adaptive prefetch is enabled. Lines further than this
+         * many pixels from the viewport edge, derived from the current scroll velocity, are only
+         * prefetched if they are the first line past the edge.
+         */
+        int mPrefetchLookaheadDistance;
+
         /**
          * These measure specs might be the measure specs that were passed into RecyclerView's
          * onMeasure method OR fake measure specs created by the RecyclerView.
@@ -8368,6 +8565,41 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return mItemPrefetchEnabled;
         }
 
+        /**
+         * Sets whether item prefetch should look further ahead than the next line of items.
+         *
+         * <p>When enabled, the number of lines prefetched in the scroll direction grows while
+         * prefetch passes finish with frame time to spare, and shrinks as soon as a pass runs
+         * past its deadline. Only lines within a few frames of travel at the current scroll
+         * velocity are considered, so slow scrolls still prefetch a single line while flings
+         * prefetch deeper. Default value is false.</p>
+         *
+         * <p>This has no effect unless {@link #isItemPrefetchEnabled() item prefetch} is enabled,
+         * and LayoutManagers that don't support it will keep prefetching a single line.</p>
+         *
+         * @param enabled <code>True</code> if prefetch depth should adapt to scroll velocity and
+         *                spare frame time.
+         * @see #isAdaptivePrefetchEnabled()
+         * @see RecyclerView#getPrefetchHitCount()
+         */
+        public final void setAdaptivePrefetchEnabled(boolean enabled) {
+            if (enabled != mAdaptivePrefetchEnabled) {
+                mAdaptivePrefetchEnabled = enabled;
+                mPrefetchLookaheadCount = 1;
+                mPrefetchLookaheadDistance = 0;
+            }
+        }
+
+        /**
+         * Returns whether item prefetch should look further ahead than the next line of items.
+         *
+         * @return true if adaptive prefetch is enabled, false otherwise
+         * @see #setAdaptivePrefetchEnabled(boolean)
+         */
+        public final boolean isAdaptivePrefetchEnabled() {
+            return mAdaptivePrefetchEnabled;
+        }
+
         /**
          * Gather all positions from the LayoutManager to be prefetched, given specified momentum.
          *
@@ -11329,6 +11561,13 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         static final int FLAG_BOUNCED_FROM_HIDDEN_LIST = 1 << 13;
 
+        /**
+         * Set when the ViewHolder was bound by {@link GapWorker} ahead of being needed. Cleared
+         * once the ViewHolder is handed to the LayoutManager, so that prefetch hits, misses and
+         * wasted binds can be told apart.
+         */
+        static final int FLAG_PREFETCHED = 1 << 14;
+
         int mFlags;
 
         private static final List<Object> FULLUPDATE_PAYLOADS = Collections.emptyList();
@@ -821,7 +821,7 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             anchorInfo.mLayoutFromEnd = mShouldReverseLayout;
         }
         if (mPendingSavedState.mSpanLookupSize > 1) {
-            mLazySpanLookup.mData = mPendingSavedState.mSpanLookup;
+            mLazySpanLookup.restoreSavedSpans(mPendingSavedState.mSpanLookup);
             mLazySpanLookup.mFullSpanItems = mPendingSavedState.mFullSpanItems;
         }
     }
@@ -1249,8 +1249,9 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         state.mAnchorLayoutFromEnd = mLastLayoutFromEnd;
         state.mLastLayoutRTL = mLastLayoutRTL;
 
-        if (mLazySpanLookup != null && mLazySpanLookup.mData != null) {
-            state.mSpanLookup = mLazySpanLookup.mData;
+        final int[] savedSpans = mLazySpanLookup != null ? mLazySpanLookup.getSavedSpans() : null;
+        if (savedSpans != null) {
+            state.mSpanLookup = savedSpans;
             state.mSpanLookupSize = state.mSpanLookup.length;
             state.mFullSpanItems = mLazySpanLookup.mFullSpanItems;
         } else {
@@ -2806,13 +2807,29 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
     }
 
     /**
-     * An array of mappings from adapter position to span.
-     * This only grows when a write happens and it grows up to the size of the adapter.
+     * Mappings from adapter position to span, stored as sorted, non-overlapping blocks of
+     * consecutive positions. Only positions that have been laid out are tracked, so jumping deep
+     * into a large adapter doesn't allocate for the positions in between. Lookups are a binary
+     * search over the blocks, and offsetting for adapter changes splits at most two blocks and
+     * moves the start of the blocks after it, instead of shifting every tracked position.
      */
     static class LazySpanLookup {
 
-        private static final int MIN_SIZE = 10;
-        int[] mData;
+        /**
+         * Maximum number of positions tracked by a single block. Bounds the number of spans
+         * copied when an adapter change splits a block.
+         */
+        static final int MAX_BLOCK_SIZE = 256;
+
+        /**
+         * A position at most this far from an existing block is added to it, with the positions
+         * in between marked as {@link LayoutParams#INVALID_SPAN_ID}, instead of starting a new
+         * block.
+         */
+        static final int MAX_BLOCK_GAP = 16;
+
+        // sorted by mStart, never overlapping and never empty
+        final List<SpanBlock> mBlocks = new ArrayList<>();
         List<FullSpanItem> mFullSpanItems;
 
 
@@ -2821,12 +2838,8 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
          */
         int forceInvalidateAfter(int position) {
             if (mFullSpanItems != null) {
-                for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                    FullSpanItem fsi = mFullSpanItems.get(i);
-                    if (fsi.mPosition >= position) {
-                        mFullSpanItems.remove(i);
-                    }
-                }
+                final int index = firstFullSpanItemIndexFrom(position);
+                mFullSpanItems.subList(index, mFullSpanItems.size()).clear();
             }
             return invalidateAfter(position);
         }
@@ -2835,74 +2848,92 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
          * returns end position for invalidation.
          */
         int invalidateAfter(int position) {
-            if (mData == null) {
-                return RecyclerView.NO_POSITION;
-            }
-            if (position >= mData.length) {
+            final int trackedEnd = getTrackedEnd();
+            if (position >= trackedEnd) {
                 return RecyclerView.NO_POSITION;
             }
             int endPosition = invalidateFullSpansAfter(position);
             if (endPosition == RecyclerView.NO_POSITION) {
-                Arrays.fill(mData, position, mData.length, LayoutParams.INVALID_SPAN_ID);
-                return mData.length;
+                invalidateRange(position, trackedEnd);
+                return trackedEnd;
             } else {
                 // Just invalidate items in between `position` and the next full span item, or the
-                // end of the tracked spans in mData if it's not been lengthened yet.
-                final int invalidateToIndex = Math.min(endPosition + 1, mData.length);
-                Arrays.fill(mData, position, invalidateToIndex, LayoutParams.INVALID_SPAN_ID);
+                // end of the tracked spans if it's not been reached yet.
+                final int invalidateToIndex = Math.min(endPosition + 1, trackedEnd);
+                invalidateRange(position, invalidateToIndex);
                 return invalidateToIndex;
             }
         }
 
         int getSpan(int position) {
-            if (mData == null || position >= mData.length) {
-                return LayoutParams.INVALID_SPAN_ID;
-            } else {
-                return mData[position];
+            final int index = findBlockIndex(position);
+            if (index != -1) {
+                final SpanBlock block = mBlocks.get(index);
+                if (position < block.getEnd()) {
+                    return block.mSpans[position - block.mStart];
+                }
             }
+            return LayoutParams.INVALID_SPAN_ID;
         }
 
         void setSpan(int position, Span span) {
-            ensureSize(position);
-            mData[position] = span.mIndex;
-        }
-
-        int sizeForPosition(int position) {
-            int len = mData.length;
-            while (len <= position) {
-                len *= 2;
+            final int index = findBlockIndex(position);
+            if (index != -1) {
+                final SpanBlock block = mBlocks.get(index);
+                final int offset = position - block.mStart;
+                if (offset < block.mCount) {
+                    block.mSpans[offset] = span.mIndex;
+                    return;
+                }
+                if (offset < MAX_BLOCK_SIZE && offset - block.mCount <= MAX_BLOCK_GAP) {
+                    // laying out towards the end, grow the block
+                    Arrays.fill(block.mSpans, block.mCount, offset, LayoutParams.INVALID_SPAN_ID);
+                    block.mSpans[offset] = span.mIndex;
+                    block.mCount = offset + 1;
+                    mergeBlocks(index);
+                    return;
+                }
             }
-            return len;
-        }
-
-        void ensureSize(int position) {
-            if (mData == null) {
-                mData = new int[Math.max(position, MIN_SIZE) + 1];
-                Arrays.fill(mData, LayoutParams.INVALID_SPAN_ID);
-            } else if (position >= mData.length) {
-                int[] old = mData;
-                mData = new int[sizeForPosition(position)];
-                System.arraycopy(old, 0, mData, 0, old.length);
-                Arrays.fill(mData, old.length, mData.length, LayoutParams.INVALID_SPAN_ID);
+            if (index + 1 < mBlocks.size()) {
+                final SpanBlock next = mBlocks.get(index + 1);
+                final int shift = next.mStart - position;
+                if (shift <= MAX_BLOCK_GAP + 1 && next.mCount + shift <= MAX_BLOCK_SIZE) {
+                    // laying out towards the start, grow the next block backwards
+                    System.arraycopy(next.mSpans, 0, next.mSpans, shift, next.mCount);
+                    Arrays.fill(next.mSpans, 1, shift, LayoutParams.INVALID_SPAN_ID);
+                    next.mSpans[0] = span.mIndex;
+                    next.mStart = position;
+                    next.mCount += shift;
+                    if (index != -1) {
+                        mergeBlocks(index);
+                    }
+                    return;
+                }
             }
+            final SpanBlock block = new SpanBlock(position);
+            block.mSpans[0] = span.mIndex;
+            block.mCount = 1;
+            mBlocks.add(index + 1, block);
         }
 
         void clear() {
-            if (mData != null) {
-                Arrays.fill(mData, LayoutParams.INVALID_SPAN_ID);
-            }
+            mBlocks.clear();
             mFullSpanItems = null;
         }
 
         void offsetForRemoval(int positionStart, int itemCount) {
-            if (mData == null || positionStart >= mData.length) {
-                return;
+            final int end = positionStart + itemCount;
+            splitBlockAt(positionStart);
+            splitBlockAt(end);
+            final int from = firstBlockIndexFrom(positionStart);
+            mBlocks.subList(from, firstBlockIndexFrom(end)).clear();
+            final int size = mBlocks.size();
+            for (int i = from; i < size; i++) {
+                mBlocks.get(i).mStart -= itemCount;
+            }
+            if (from > 0) {
+                mergeBlocks(from - 1);
             }
-            ensureSize(positionStart + itemCount);
-            System.arraycopy(mData, positionStart + itemCount, mData, positionStart,
-                    mData.length - positionStart - itemCount);
-            Arrays.fill(mData, mData.length - itemCount, mData.length,
-                    LayoutParams.INVALID_SPAN_ID);
             offsetFullSpansForRemoval(positionStart, itemCount);
         }
 
@@ -2911,28 +2942,20 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
                 return;
             }
             final int end = positionStart + itemCount;
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition < positionStart) {
-                    continue;
-                }
-                if (fsi.mPosition < end) {
-                    mFullSpanItems.remove(i);
-                } else {
-                    fsi.mPosition -= itemCount;
-                }
+            final int from = firstFullSpanItemIndexFrom(positionStart);
+            mFullSpanItems.subList(from, firstFullSpanItemIndexFrom(end)).clear();
+            final int size = mFullSpanItems.size();
+            for (int i = from; i < size; i++) {
+                mFullSpanItems.get(i).mPosition -= itemCount;
             }
         }
 
         void offsetForAddition(int positionStart, int itemCount) {
-            if (mData == null || positionStart >= mData.length) {
-                return;
+            splitBlockAt(positionStart);
+            final int size = mBlocks.size();
+            for (int i = firstBlockIndexFrom(positionStart); i < size; i++) {
+                mBlocks.get(i).mStart += itemCount;
             }
-            ensureSize(positionStart + itemCount);
-            System.arraycopy(mData, positionStart, mData, positionStart + itemCount,
-                    mData.length - positionStart - itemCount);
-            Arrays.fill(mData, positionStart, positionStart + itemCount,
-                    LayoutParams.INVALID_SPAN_ID);
             offsetFullSpansForAddition(positionStart, itemCount);
         }
 
@@ -2940,13 +2963,156 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 return;
             }
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition < positionStart) {
-                    continue;
+            final int size = mFullSpanItems.size();
+            for (int i = firstFullSpanItemIndexFrom(positionStart); i < size; i++) {
+                mFullSpanItems.get(i).mPosition += itemCount;
+            }
+        }
+
+        /**
+         * Returns the position after the last tracked span or full span item.
+         */
+        private int getTrackedEnd() {
+            int end = 0;
+            if (!mBlocks.isEmpty()) {
+                end = mBlocks.get(mBlocks.size() - 1).getEnd();
+            }
+            if (mFullSpanItems != null && !mFullSpanItems.isEmpty()) {
+                end = Math.max(end, mFullSpanItems.get(mFullSpanItems.size() - 1).mPosition + 1);
+            }
+            return end;
+        }
+
+        /**
+         * Returns the index of the last block starting at or before the given position, or -1.
+         */
+        private int findBlockIndex(int position) {
+            int low = 0;
+            int high = mBlocks.size() - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (mBlocks.get(mid).mStart <= position) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        /**
+         * Returns the index of the first block starting at or after the given position. Only
+         * meaningful if no block spans across the position, see {@link #splitBlockAt(int)}.
+         */
+        private int firstBlockIndexFrom(int position) {
+            return findBlockIndex(position - 1) + 1;
+        }
+
+        /**
+         * Splits the block containing the given position, if any, so that a block starts there.
+         */
+        private void splitBlockAt(int position) {
+            final int index = findBlockIndex(position);
+            if (index == -1) {
+                return;
+            }
+            final SpanBlock block = mBlocks.get(index);
+            final int offset = position - block.mStart;
+            if (offset == 0 || offset >= block.mCount) {
+                return;
+            }
+            final SpanBlock tail = new SpanBlock(position);
+            tail.mCount = block.mCount - offset;
+            System.arraycopy(block.mSpans, offset, tail.mSpans, 0, tail.mCount);
+            block.mCount = offset;
+            mBlocks.add(index + 1, tail);
+        }
+
+        /**
+         * Merges the block at the given index with the next one, if they are adjacent and fit.
+         */
+        private void mergeBlocks(int index) {
+            if (index + 1 >= mBlocks.size()) {
+                return;
+            }
+            final SpanBlock block = mBlocks.get(index);
+            final SpanBlock next = mBlocks.get(index + 1);
+            if (block.getEnd() == next.mStart && block.mCount + next.mCount <= MAX_BLOCK_SIZE) {
+                System.arraycopy(next.mSpans, 0, block.mSpans, block.mCount, next.mCount);
+                block.mCount += next.mCount;
+                mBlocks.remove(index + 1);
+            }
+        }
+
+        /**
+         * Marks the spans of positions from start (inclusive) to end (exclusive) as unknown.
+         */
+        private void invalidateRange(int start, int end) {
+            splitBlockAt(start);
+            splitBlockAt(end);
+            mBlocks.subList(firstBlockIndexFrom(start), firstBlockIndexFrom(end)).clear();
+        }
+
+        /**
+         * Returns the tracked spans flattened into (start position, count, spans...) records for
+         * {@link SavedState}, or null if nothing is tracked.
+         */
+        int[] getSavedSpans() {
+            if (mBlocks.isEmpty()) {
+                return null;
+            }
+            int length = 0;
+            for (SpanBlock block : mBlocks) {
+                length += 2 + block.mCount;
+            }
+            final int[] savedSpans = new int[length];
+            int index = 0;
+            for (SpanBlock block : mBlocks) {
+                savedSpans[index++] = block.mStart;
+                savedSpans[index++] = block.mCount;
+                System.arraycopy(block.mSpans, 0, savedSpans, index, block.mCount);
+                index += block.mCount;
+            }
+            return savedSpans;
+        }
+
+        /**
+         * Restores spans written by {@link #getSavedSpans()}.
+         */
+        void restoreSavedSpans(int[] savedSpans) {
+            mBlocks.clear();
+            int index = 0;
+            while (index + 1 < savedSpans.length) {
+                final int count = savedSpans[index + 1];
+                if (count <= 0 || count > MAX_BLOCK_SIZE || index + 2 + count > savedSpans.length) {
+                    // not written by getSavedSpans(), spans will be reassigned
+                    mBlocks.clear();
+                    return;
+                }
+                final SpanBlock block = new SpanBlock(savedSpans[index]);
+                block.mCount = count;
+                index += 2;
+                System.arraycopy(savedSpans, index, block.mSpans, 0, block.mCount);
+                index += block.mCount;
+                mBlocks.add(block);
+            }
+        }
+
+        /**
+         * Returns the index of the first full span item at or after the given position.
+         */
+        private int firstFullSpanItemIndexFrom(int position) {
+            int low = 0;
+            int high = mFullSpanItems.size() - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (mFullSpanItems.get(mid).mPosition < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
                 }
-                fsi.mPosition += itemCount;
             }
+            return low;
         }
 
         /**
@@ -2957,24 +3123,14 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 return RecyclerView.NO_POSITION;
             }
-            final FullSpanItem item = getFullSpanItem(position);
+            final int index = firstFullSpanItemIndexFrom(position);
             // if there is an fsi at this position, get rid of it.
-            if (item != null) {
-                mFullSpanItems.remove(item);
-            }
-            int nextFsiIndex = -1;
-            final int count = mFullSpanItems.size();
-            for (int i = 0; i < count; i++) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition >= position) {
-                    nextFsiIndex = i;
-                    break;
-                }
+            if (index < mFullSpanItems.size()
+                    && mFullSpanItems.get(index).mPosition == position) {
+                mFullSpanItems.remove(index);
             }
-            if (nextFsiIndex != -1) {
-                FullSpanItem fsi = mFullSpanItems.get(nextFsiIndex);
-                mFullSpanItems.remove(nextFsiIndex);
-                return fsi.mPosition;
+            if (index < mFullSpanItems.size()) {
+                return mFullSpanItems.remove(index).mPosition;
             }
             return RecyclerView.NO_POSITION;
         }
@@ -2983,31 +3139,26 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 mFullSpanItems = new ArrayList<>();
             }
-            final int size = mFullSpanItems.size();
-            for (int i = 0; i < size; i++) {
-                FullSpanItem other = mFullSpanItems.get(i);
-                if (other.mPosition == fullSpanItem.mPosition) {
-                    if (DEBUG) {
-                        throw new IllegalStateException("two fsis for same position");
-                    } else {
-                        mFullSpanItems.remove(i);
-                    }
-                }
-                if (other.mPosition >= fullSpanItem.mPosition) {
-                    mFullSpanItems.add(i, fullSpanItem);
-                    return;
+            final int index = firstFullSpanItemIndexFrom(fullSpanItem.mPosition);
+            if (index < mFullSpanItems.size()
+                    && mFullSpanItems.get(index).mPosition == fullSpanItem.mPosition) {
+                if (DEBUG) {
+                    throw new IllegalStateException("two fsis for same position");
+                } else {
+                    mFullSpanItems.set(index, fullSpanItem);
                 }
+            } else {
+                mFullSpanItems.add(index, fullSpanItem);
             }
-            // if it is not added to a position.
-            mFullSpanItems.add(fullSpanItem);
         }
 
         public FullSpanItem getFullSpanItem(int position) {
             if (mFullSpanItems == null) {
                 return null;
             }
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                final FullSpanItem fsi = mFullSpanItems.get(i);
+            final int index = firstFullSpanItemIndexFrom(position);
+            if (index < mFullSpanItems.size()) {
+                final FullSpanItem fsi = mFullSpanItems.get(index);
                 if (fsi.mPosition == position) {
                     return fsi;
                 }
@@ -3028,20 +3179,37 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
                 return null;
             }
             final int limit = mFullSpanItems.size();
-            for (int i = 0; i < limit; i++) {
+            for (int i = firstFullSpanItemIndexFrom(minPos); i < limit; i++) {
                 FullSpanItem fsi = mFullSpanItems.get(i);
                 if (fsi.mPosition >= maxPos) {
                     return null;
                 }
-                if (fsi.mPosition >= minPos
-                        && (gapDir == 0 || fsi.mGapDir == gapDir
-                        || (hasUnwantedGapAfter && fsi.mHasUnwantedGapAfter))) {
+                if (gapDir == 0 || fsi.mGapDir == gapDir
+                        || (hasUnwantedGapAfter && fsi.mHasUnwantedGapAfter)) {
                     return fsi;
                 }
             }
             return null;
         }
 
+        /**
+         * Spans of up to {@link #MAX_BLOCK_SIZE} consecutive positions.
+         */
+        static class SpanBlock {
+
+            int mStart;
+            int mCount;
+            final int[] mSpans = new int[MAX_BLOCK_SIZE];
+
+            SpanBlock(int start) {
+                mStart = start;
+            }
+
+            int getEnd() {
+                return mStart + mCount;
+            }
+        }
+
         /**
          * We keep information about full span items because they may create gaps in the UI.
          */
@@ -3129,7 +3297,7 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         int mSpanOffsetsSize;
         int[] mSpanOffsets;
         int mSpanLookupSize;
-        int[] mSpanLookup;
+        int[] mSpanLookup; // Written by LazySpanLookup#getSavedSpans()
         List<LazySpanLookup.FullSpanItem> mFullSpanItems;
         boolean mReverseLayout;
         boolean mAnchorLayoutFromEnd;
@@ -28,12 +28,14 @@ import org.junit.Test
 import org.junit.rules.TestWatcher
 import org.junit.runner.Description
 import org.junit.runner.RunWith
-import org.junit.runners.JUnit4
+import org.junit.runners.Parameterized
 import java.util.Random
 import java.util.UUID
 
-@RunWith(JUnit4::class)
-class DiffUtilTest {
+@RunWith(Parameterized::class)
+class DiffUtilTest(
+    private val keyed: Boolean
+) {
     private val before = mutableListOf<Item>()
     private val after = mutableListOf<Item>()
     private val log = StringBuilder()
@@ -317,7 +319,7 @@ class DiffUtilTest {
         move(0, 4)
         val applied = applyUpdates(
             before,
-            DiffUtil.calculateDiff(callback, false)
+            calculate(detectMoves = false)
         )
         assertThat(
             applied.size,
@@ -361,7 +363,22 @@ class DiffUtilTest {
         calculate().convertNewPositionToOld(2)
     }
 
-    private fun calculate() = DiffUtil.calculateDiff(callback, true)
+    private fun calculate(detectMoves: Boolean = true) = if (keyed) {
+        DiffUtil.calculateKeyedDiff(callback, detectMoves)
+    } else {
+        DiffUtil.calculateDiff(callback, detectMoves)
+    }
+
+    @Test
+    fun shuffle() {
+        initWithSize(50)
+        after.shuffle(sRand)
+        update(10)
+        updateWithPayload(20)
+        add(30)
+        delete(40)
+        check()
+    }
 
     @Test
     fun duplicate() {
@@ -683,9 +700,13 @@ class DiffUtilTest {
         private val oldList: List<Item>,
         private val newList: List<Item>,
         private val assertCalls: Boolean = true
-    ) : DiffUtil.Callback() {
+    ) : DiffUtil.KeyedCallback() {
         override fun getOldListSize() = oldList.size
 
+        override fun getOldItemKey(oldItemPosition: Int) = oldList[oldItemPosition].id
+
+        override fun getNewItemKey(newItemPosition: Int) = newList[newItemPosition].id
+
         override fun getNewListSize() = newList.size
 
         override fun areItemsTheSame(
@@ -733,5 +754,9 @@ class DiffUtilTest {
 
     companion object {
         private val sRand = Random(System.nanoTime())
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "keyed_{0}")
+        fun params() = listOf(false, true)
     }
 }
\ No newline at end of file
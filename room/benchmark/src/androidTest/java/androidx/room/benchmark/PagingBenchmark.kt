@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.database.Cursor
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.paging.DataSource
+import androidx.room.Dao
+import androidx.room.Database
+import androidx.room.Entity
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Query
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.RoomSQLiteQuery
+import androidx.room.paging.KeysetDataSource
+import androidx.room.paging.LimitOffsetDataSource
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Compares how long it takes to load a page deep into a query with [LimitOffsetDataSource] and
+ * with the [KeysetDataSource] Room generates for queries ordered by the primary key.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class PagingBenchmark(private val depth: Int, private val mode: Mode) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    val context = ApplicationProvider.getApplicationContext() as android.content.Context
+
+    private lateinit var db: TestDatabase
+
+    @Before
+    fun setup() {
+        for (postfix in arrayOf("", "-wal", "-shm")) {
+            val dbFile = context.getDatabasePath(DB_NAME + postfix)
+            if (dbFile.exists()) {
+                assertTrue(dbFile.delete())
+            }
+        }
+        db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .build()
+        db.getUserDao().insert(List(ROW_COUNT) { User(it, "name$it") })
+    }
+
+    @After
+    fun teardown() {
+        db.close()
+    }
+
+    @Test
+    fun loadDeepPage() {
+        val dataSource = when (mode) {
+            Mode.LIMIT_OFFSET -> object : LimitOffsetDataSource<User>(
+                db, RoomSQLiteQuery.acquire(QUERY, 0), false, "User"
+            ) {
+                override fun convertRows(cursor: Cursor) = cursor.toUsers()
+            }
+            Mode.KEYSET -> db.getUserDao().pagedById().create() as KeysetDataSource<User>
+        }
+        if (dataSource is KeysetDataSource<User>) {
+            // load the page before so that the measured page is found by seeking
+            dataSource.loadRange(depth - PAGE_SIZE, PAGE_SIZE)
+        }
+
+        benchmarkRule.measureRepeated {
+            val page = when (dataSource) {
+                is LimitOffsetDataSource<User> -> dataSource.loadRange(depth, PAGE_SIZE)
+                is KeysetDataSource<User> -> dataSource.loadRange(depth, PAGE_SIZE)
+                else -> throw AssertionError("unexpected data source $dataSource")
+            }
+            assertEquals(depth, page.first().id)
+        }
+        if (dataSource is KeysetDataSource<User>) {
+            assertEquals(1, dataSource.offsetLoadCount)
+        }
+    }
+
+    private fun Cursor.toUsers(): List<User> {
+        val idIndex = getColumnIndexOrThrow("id")
+        val nameIndex = getColumnIndexOrThrow("name")
+        val users = ArrayList<User>(count)
+        while (moveToNext()) {
+            users.add(User(getInt(idIndex), getString(nameIndex)))
+        }
+        return users
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "depth={0}, mode={1}")
+        fun data() = arrayOf(PAGE_SIZE, 10_000, 50_000).flatMap { depth ->
+            Mode.values().map { mode -> arrayOf(depth, mode) }
+        }
+
+        private const val DB_NAME = "paging-benchmark-test"
+        private const val ROW_COUNT = 60_000
+        private const val PAGE_SIZE = 20
+        const val QUERY = "SELECT * FROM User ORDER BY id"
+    }
+
+    @Database(entities = [User::class], version = 1, exportSchema = false)
+    abstract class TestDatabase : RoomDatabase() {
+        abstract fun getUserDao(): UserDao
+    }
+
+    @Entity
+    data class User(@PrimaryKey val id: Int, val name: String)
+
+    @Dao
+    interface UserDao {
+        @Insert
+        fun insert(users: List<User>)
+
+        @Query(QUERY)
+        fun pagedById(): DataSource.Factory<Int, User>
+    }
+
+    enum class Mode {
+        LIMIT_OFFSET,
+        KEYSET
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.Dao
+import androidx.room.Database
+import androidx.room.Embedded
+import androidx.room.Entity
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Query
+import androidx.room.Relation
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Assert
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Loads users with two sibling relations, one of which has a nested relation of its own, with
+ * and without [RoomDatabase.Builder.enableParallelRelationFetching].
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class RelationGraphBenchmark(private val userCount: Int, private val parallel: Boolean) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext() as android.content.Context
+
+    private lateinit var db: TestDatabase
+
+    @Before
+    fun setup() {
+        for (postfix in arrayOf("", "-wal", "-shm")) {
+            val dbFile = context.getDatabasePath(DB_NAME + postfix)
+            if (dbFile.exists()) {
+                Assert.assertTrue(dbFile.delete())
+            }
+        }
+        db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .setReadConnectionPoolSize(2)
+            .apply {
+                if (parallel) {
+                    enableParallelRelationFetching()
+                }
+            }
+            .build()
+        val dao = db.getDao()
+        dao.insertUsers(List(userCount) { User(it, "user$it") })
+        dao.insertDevices(List(userCount * DEVICES_PER_USER) {
+            Device(it, it / DEVICES_PER_USER, "device$it")
+        })
+        dao.insertPlaylists(List(userCount * PLAYLISTS_PER_USER) {
+            Playlist(it, it / PLAYLISTS_PER_USER, "playlist$it")
+        })
+        dao.insertSongs(List(userCount * PLAYLISTS_PER_USER * SONGS_PER_PLAYLIST) {
+            Song(it, it / SONGS_PER_PLAYLIST, "song$it")
+        })
+    }
+
+    @After
+    fun teardown() {
+        db.close()
+    }
+
+    @Test
+    fun threeLevelRelationQuery() {
+        val dao = db.getDao()
+        benchmarkRule.measureRepeated {
+            val result = dao.getUsers()
+            assertEquals(userCount, result.size)
+            assertEquals(DEVICES_PER_USER, result.last().devices.size)
+            assertEquals(PLAYLISTS_PER_USER, result.last().playlists.size)
+            assertEquals(SONGS_PER_PLAYLIST, result.last().playlists.last().songs.size)
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "userCount={0}, parallel={1}")
+        fun data() = arrayOf(100, 1000).flatMap { userCount ->
+            arrayOf(false, true).map { parallel ->
+                arrayOf(userCount, parallel)
+            }
+        }
+
+        private const val DB_NAME = "relation-graph-benchmark-test"
+        private const val DEVICES_PER_USER = 3
+        private const val PLAYLISTS_PER_USER = 5
+        private const val SONGS_PER_PLAYLIST = 10
+    }
+
+    @Database(
+        entities = [User::class, Device::class, Playlist::class, Song::class],
+        version = 1,
+        exportSchema = false
+    )
+    abstract class TestDatabase : RoomDatabase() {
+        abstract fun getDao(): GraphDao
+    }
+
+    @Entity
+    data class User(@PrimaryKey val id: Int, val name: String)
+
+    @Entity
+    data class Device(@PrimaryKey val id: Int, val ownerId: Int, val name: String)
+
+    @Entity
+    data class Playlist(@PrimaryKey val id: Int, val ownerId: Int, val name: String)
+
+    @Entity
+    data class Song(@PrimaryKey val id: Int, val playlistId: Int, val title: String)
+
+    data class PlaylistWithSongs(
+        @Embedded
+        val playlist: Playlist,
+
+        @Relation(parentColumn = "id", entityColumn = "playlistId")
+        val songs: List<Song>
+    )
+
+    data class UserWithDevicesAndPlaylists(
+        @Embedded
+        val user: User,
+
+        @Relation(parentColumn = "id", entityColumn = "ownerId")
+        val devices: List<Device>,
+
+        @Relation(parentColumn = "id", entityColumn = "ownerId", entity = Playlist::class)
+        val playlists: List<PlaylistWithSongs>
+    )
+
+    @Dao
+    interface GraphDao {
+        @Insert
+        fun insertUsers(users: List<User>)
+
+        @Insert
+        fun insertDevices(devices: List<Device>)
+
+        @Insert
+        fun insertPlaylists(playlists: List<Playlist>)
+
+        @Insert
+        fun insertSongs(songs: List<Song>)
+
+        // relations are only fetched in parallel outside of a transaction
+        @Query("SELECT * FROM User")
+        fun getUsers(): List<UserWithDevicesAndPlaylists>
+    }
+}
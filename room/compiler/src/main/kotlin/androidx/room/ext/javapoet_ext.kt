@@ -40,6 +40,8 @@ object SupportDbTypeNames {
     val DB: ClassName = ClassName.get("$SQLITE_PACKAGE.db", "SupportSQLiteDatabase")
     val SQLITE_STMT: ClassName =
             ClassName.get("$SQLITE_PACKAGE.db", "SupportSQLiteStatement")
+    val SQLITE_PROGRAM: ClassName =
+            ClassName.get("$SQLITE_PACKAGE.db", "SupportSQLiteProgram")
     val SQLITE_OPEN_HELPER: ClassName =
             ClassName.get("$SQLITE_PACKAGE.db", "SupportSQLiteOpenHelper")
     val SQLITE_OPEN_HELPER_CALLBACK: ClassName =
@@ -87,10 +89,16 @@ object RoomTypeNames {
             ClassName.get("$ROOM_PACKAGE.util", "ViewInfo")
     val LIMIT_OFFSET_DATA_SOURCE: ClassName =
             ClassName.get("$ROOM_PACKAGE.paging", "LimitOffsetDataSource")
+    val KEYSET_DATA_SOURCE: ClassName =
+            ClassName.get("$ROOM_PACKAGE.paging", "KeysetDataSource")
+    val CURSOR_ITERATOR: ClassName =
+            ClassName.get(ROOM_PACKAGE, "CursorIterator")
     val DB_UTIL: ClassName =
             ClassName.get("$ROOM_PACKAGE.util", "DBUtil")
     val CURSOR_UTIL: ClassName =
             ClassName.get("$ROOM_PACKAGE.util", "CursorUtil")
+    val RELATION_UTIL: ClassName =
+            ClassName.get("$ROOM_PACKAGE.util", "RelationUtil")
 }
 
 object PagingTypeNames {
@@ -37,13 +37,22 @@ data class Section(val text: String, val type: SectionType) {
 }
 
 data class Table(val name: String, val alias: String)
+
+/**
+ * The single column a SELECT query is ordered by, if the query is simple enough to be paged by
+ * seeking on that column (no compound select, grouping, limit or common table expression).
+ * [table] is the table name or alias the column was qualified with, if any.
+ */
+data class PagingKey(val column: String, val table: String?, val descending: Boolean)
+
 data class ParsedQuery(
     val original: String,
     val type: QueryType,
     val inputs: List<TerminalNode>,
     val tables: Set<Table>, // pairs of table name and alias
     val syntaxErrors: List<String>,
-    val runtimeQueryPlaceholder: Boolean
+    val runtimeQueryPlaceholder: Boolean,
+    val pagingKey: PagingKey? = null
 ) {
     companion object {
         val STARTS_WITH_NUMBER = "^\\?[0-9]".toRegex()
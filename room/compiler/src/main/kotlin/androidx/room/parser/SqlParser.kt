@@ -35,11 +35,15 @@ class QueryVisitor(
     private val tableNames = mutableSetOf<Table>()
     private val withClauseNames = mutableSetOf<String>()
     private val queryType: QueryType
+    private val pagingKey: PagingKey?
 
     init {
         queryType = (0 until statement.childCount).map {
             findQueryType(statement.getChild(it))
         }.filterNot { it == QueryType.UNKNOWN }.firstOrNull() ?: QueryType.UNKNOWN
+        pagingKey = (0 until statement.childCount).map { statement.getChild(it) }
+            .filterIsInstance<SQLiteParser.Select_stmtContext>()
+            .firstOrNull()?.let { findPagingKey(it) }
         statement.accept(this)
     }
 
@@ -63,6 +67,38 @@ class QueryVisitor(
         }
     }
 
+    private fun findPagingKey(select: SQLiteParser.Select_stmtContext): PagingKey? {
+        val core = select.select_or_values().singleOrNull() ?: return null
+        if (select.with_clause() != null || select.limit_clause() != null ||
+            core.K_VALUES() != null || core.K_GROUP() != null
+        ) {
+            return null
+        }
+        val term = select.order_clause()?.ordering_term()?.singleOrNull() ?: return null
+        if (term.K_COLLATE() != null) {
+            return null
+        }
+        val expr = term.expr()
+        val column = expr.column_name()?.text?.let { unescapeIdentifier(it) } ?: return null
+        if (expr.schema_name() != null) {
+            return null
+        }
+        // ORDER BY prefers result aliases, which might not be the column of the same name
+        val aliased = core.result_column().any { resultColumn ->
+            resultColumn.column_alias()?.text?.let {
+                unescapeIdentifier(it).equals(column, ignoreCase = true)
+            } ?: false
+        }
+        if (aliased) {
+            return null
+        }
+        return PagingKey(
+            column = column,
+            table = expr.table_name()?.text?.let { unescapeIdentifier(it) },
+            descending = term.K_DESC() != null
+        )
+    }
+
     override fun visitExpr(ctx: SQLiteParser.ExprContext): Void? {
         val bindParameter = ctx.BIND_PARAMETER()
         if (bindParameter != null) {
@@ -78,7 +114,8 @@ class QueryVisitor(
             inputs = bindingExpressions.sortedBy { it.sourceInterval.a },
             tables = tableNames,
             syntaxErrors = syntaxErrors,
-            runtimeQueryPlaceholder = forRuntimeQuery
+            runtimeQueryPlaceholder = forRuntimeQuery,
+            pagingKey = pagingKey
         )
     }
 
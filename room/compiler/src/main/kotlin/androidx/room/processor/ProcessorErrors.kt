@@ -164,6 +164,10 @@ object ProcessorErrors {
             " possibility of inconsistent results between the POJO and its relations. See " +
             TRANSACTION_REFERENCE_DOCS + " for details."
 
+    val CURSOR_ITERATOR_WITH_RELATION = "A CursorIterator cannot return a POJO with a @Relation" +
+            " since the relations are fetched for the whole result at once. Return a List" +
+            " instead or query the relation separately."
+
     val CANNOT_FIND_ENTITY_FOR_SHORTCUT_QUERY_PARAMETER = "Type of the parameter must be a class " +
             "annotated with @Entity or a collection/array of it."
 
@@ -44,7 +44,11 @@ class DataSourceFactoryQueryResultBinderProvider(val context: Context) : QueryRe
 
         val tableNames = ((adapter?.accessedTableNames() ?: emptyList()) +
                 query.tables.map { it.name }).toSet()
-        val countedBinder = PositionalDataSourceQueryResultBinder(adapter, tableNames)
+        val countedBinder = PositionalDataSourceQueryResultBinder(
+            adapter,
+            tableNames,
+            PositionalDataSourceQueryResultBinder.findPagingKey(context, query)
+        )
         return DataSourceFactoryQueryResultBinder(countedBinder)
     }
 
@@ -46,7 +46,11 @@ class DataSourceQueryResultBinderProvider(val context: Context) : QueryResultBin
         }
         val tableNames = ((listAdapter?.accessedTableNames() ?: emptyList()) +
                 query.tables.map { it.name }).toSet()
-        return PositionalDataSourceQueryResultBinder(listAdapter, tableNames)
+        return PositionalDataSourceQueryResultBinder(
+            listAdapter,
+            tableNames,
+            PositionalDataSourceQueryResultBinder.findPagingKey(context, query)
+        )
     }
 
     override fun matches(declared: XDeclaredType): Boolean {
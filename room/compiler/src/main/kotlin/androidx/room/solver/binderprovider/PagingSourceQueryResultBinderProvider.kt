@@ -45,7 +45,11 @@ class PagingSourceQueryResultBinderProvider(val context: Context) : QueryResultB
         val tableNames = ((listAdapter?.accessedTableNames() ?: emptyList()) +
                 query.tables.map { it.name }).toSet()
         return PagingSourceQueryResultBinder(
-            PositionalDataSourceQueryResultBinder(listAdapter, tableNames)
+            PositionalDataSourceQueryResultBinder(
+                listAdapter,
+                tableNames,
+                PositionalDataSourceQueryResultBinder.findPagingKey(context, query)
+            )
         )
     }
 
@@ -34,7 +34,7 @@ abstract class PreparedQueryResultBinder(val adapter: PreparedQueryResultAdapter
      */
     abstract fun executeAndReturn(
         prepareQueryStmtBlock: CodeGenScope.() -> String,
-        preparedStmtField: String?, // null when the query is not shared
+        preparedStmtField: String?, // null when the statement comes from the db statement cache
         dbField: FieldSpec,
         scope: CodeGenScope
     )
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.solver.query.result
+
+import androidx.room.ext.AndroidTypeNames
+import androidx.room.ext.L
+import androidx.room.ext.RoomTypeNames
+import androidx.room.ext.T
+import androidx.room.solver.CodeGenScope
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import javax.lang.model.element.Modifier
+
+/**
+ * Wraps the cursor into a [RoomTypeNames.CURSOR_ITERATOR] that converts one row at a time.
+ * <p>
+ * The column indices are resolved once, before the iterator is created, and captured by its
+ * convert method.
+ */
+class CursorIteratorQueryResultAdapter(
+    rowAdapter: RowAdapter,
+    val itemTypeName: TypeName
+) : QueryResultAdapter(rowAdapter) {
+    val typeName: ParameterizedTypeName =
+        ParameterizedTypeName.get(RoomTypeNames.CURSOR_ITERATOR, itemTypeName)
+
+    override fun convert(outVarName: String, cursorVarName: String, scope: CodeGenScope) {
+        convert(outVarName, cursorVarName, null, scope)
+    }
+
+    /**
+     * @param queryVarName The query the iterator releases once closed, if any.
+     */
+    fun convert(
+        outVarName: String,
+        cursorVarName: String,
+        queryVarName: String?,
+        scope: CodeGenScope
+    ) {
+        rowAdapter?.onCursorReady(cursorVarName, scope)
+        val spec = TypeSpec.anonymousClassBuilder("$L, $L", cursorVarName, queryVarName ?: "null")
+            .apply {
+                superclass(typeName)
+                addMethod(createConvertMethod(scope))
+            }.build()
+        scope.builder().addStatement("final $T $L = $L", typeName, outVarName, spec)
+    }
+
+    private fun createConvertMethod(scope: CodeGenScope): MethodSpec =
+        MethodSpec.methodBuilder("convert").apply {
+            addAnnotation(Override::class.java)
+            addModifiers(Modifier.PROTECTED)
+            returns(itemTypeName)
+            val rowScope = scope.fork()
+            val cursorParam = ParameterSpec.builder(
+                AndroidTypeNames.CURSOR,
+                rowScope.getTmpVar("_cursor")
+            ).build()
+            addParameter(cursorParam)
+            val itemVar = rowScope.getTmpVar("_item")
+            rowScope.builder().addStatement("final $T $L", itemTypeName, itemVar)
+            rowAdapter?.convert(itemVar, cursorParam.name, rowScope)
+            rowScope.builder().addStatement("return $L", itemVar)
+            addCode(rowScope.builder().build())
+        }.build()
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.solver.query.result
+
+import androidx.room.ext.AndroidTypeNames
+import androidx.room.ext.L
+import androidx.room.ext.N
+import androidx.room.ext.RoomTypeNames
+import androidx.room.ext.T
+import androidx.room.solver.CodeGenScope
+import com.squareup.javapoet.FieldSpec
+
+/**
+ * Runs the query and returns a [RoomTypeNames.CURSOR_ITERATOR] that owns the cursor, and the
+ * query if it can be released.
+ */
+class CursorIteratorQueryResultBinder(
+    adapter: CursorIteratorQueryResultAdapter?
+) : QueryResultBinder(adapter) {
+    override fun convertAndReturn(
+        roomSQLiteQueryVar: String,
+        canReleaseQuery: Boolean,
+        dbField: FieldSpec,
+        inTransaction: Boolean,
+        scope: CodeGenScope
+    ) {
+        scope.builder().apply {
+            addStatement("$N.assertNotSuspendingTransaction()", dbField)
+        }
+        val transactionWrapper = if (inTransaction) {
+            scope.builder().transactionWrapper(dbField)
+        } else {
+            null
+        }
+        transactionWrapper?.beginTransactionWithControlFlow()
+        scope.builder().apply {
+            val outVar = scope.getTmpVar("_result")
+            val cursorVar = scope.getTmpVar("_cursor")
+            val exceptionVar = scope.getTmpVar("_e")
+            addStatement(
+                "final $T $L = $T.query($N, $L, false, null)",
+                AndroidTypeNames.CURSOR,
+                cursorVar,
+                RoomTypeNames.DB_UTIL,
+                dbField,
+                roomSQLiteQueryVar
+            )
+            beginControlFlow("try").apply {
+                (adapter as? CursorIteratorQueryResultAdapter)?.convert(
+                    outVarName = outVar,
+                    cursorVarName = cursorVar,
+                    queryVarName = if (canReleaseQuery) roomSQLiteQueryVar else null,
+                    scope = scope
+                )
+                transactionWrapper?.commitTransaction()
+                addStatement("return $L", outVar)
+            }
+            // once returned, the iterator closes the cursor
+            nextControlFlow("catch ($T $L)", RuntimeException::class.java, exceptionVar).apply {
+                addStatement("$L.close()", cursorVar)
+                if (canReleaseQuery) {
+                    addStatement("$L.release()", roomSQLiteQueryVar)
+                }
+                addStatement("throw $L", exceptionVar)
+            }
+            endControlFlow()
+        }
+        transactionWrapper?.endTransactionWithControlFlow()
+    }
+}
@@ -144,7 +144,7 @@ class PojoRowAdapter(
                 endControlFlow()
             }
             scope.builder().addStatement("$L.moveToPosition(-1)", cursorVarName)
-            relationCollectors.forEach { it.writeCollectionCode(scope) }
+            RelationCollector.writeCollectionCode(relationCollectors, scope)
         }
     }
 
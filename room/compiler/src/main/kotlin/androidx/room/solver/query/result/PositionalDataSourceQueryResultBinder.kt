@@ -21,7 +21,14 @@ import androidx.room.ext.CommonTypeNames
 import androidx.room.ext.L
 import androidx.room.ext.N
 import androidx.room.ext.RoomTypeNames
+import androidx.room.ext.S
+import androidx.room.parser.PagingKey
+import androidx.room.parser.ParsedQuery
+import androidx.room.parser.SQLTypeAffinity
+import androidx.room.processor.Context
 import androidx.room.solver.CodeGenScope
+import androidx.room.vo.Entity
+import androidx.room.vo.FtsEntity
 import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
@@ -30,13 +37,22 @@ import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
 import javax.lang.model.element.Modifier
 
+/**
+ * Generates a [RoomTypeNames.LIMIT_OFFSET_DATA_SOURCE], or a [RoomTypeNames.KEYSET_DATA_SOURCE]
+ * if a [pagingKey] is given.
+ */
 class PositionalDataSourceQueryResultBinder(
     val listAdapter: ListQueryResultAdapter?,
-    val tableNames: Set<String>
+    val tableNames: Set<String>,
+    val pagingKey: PagingKey? = null
 ) : QueryResultBinder(listAdapter) {
     val itemTypeName: TypeName = listAdapter?.rowAdapter?.out?.typeName ?: TypeName.OBJECT
     val typeName: ParameterizedTypeName = ParameterizedTypeName.get(
-            RoomTypeNames.LIMIT_OFFSET_DATA_SOURCE, itemTypeName)
+            if (pagingKey == null) {
+                RoomTypeNames.LIMIT_OFFSET_DATA_SOURCE
+            } else {
+                RoomTypeNames.KEYSET_DATA_SOURCE
+            }, itemTypeName)
     override fun convertAndReturn(
         roomSQLiteQueryVar: String,
         canReleaseQuery: Boolean,
@@ -48,8 +64,14 @@ class PositionalDataSourceQueryResultBinder(
         // we don't need a comma. If list is empty, this prevents generating bad code (it is still
         // an error to have empty list but that is already reported while item is processed)
         val tableNamesList = tableNames.joinToString("") { ", \"$it\"" }
-        val spec = TypeSpec.anonymousClassBuilder("$N, $L, $L $L",
-                dbField, roomSQLiteQueryVar, inTransaction, tableNamesList).apply {
+        val spec = if (pagingKey == null) {
+            TypeSpec.anonymousClassBuilder("$N, $L, $L $L",
+                    dbField, roomSQLiteQueryVar, inTransaction, tableNamesList)
+        } else {
+            TypeSpec.anonymousClassBuilder("$N, $L, $S, $L, $L $L",
+                    dbField, roomSQLiteQueryVar, pagingKey.column, pagingKey.descending,
+                    inTransaction, tableNamesList)
+        }.apply {
             superclass(typeName)
             addMethod(createConvertRowsMethod(scope))
         }.build()
@@ -72,4 +94,47 @@ class PositionalDataSourceQueryResultBinder(
                 addCode(rowsScope.builder().build())
                 addStatement("return $L", resultVar)
             }.build()
+
+    companion object {
+        /**
+         * Returns the key a data source for the given query can seek on instead of skipping rows
+         * with OFFSET, or null if the query has to be paged with LIMIT and OFFSET.
+         * <p>
+         * The query must select from a single table and be ordered by a column of the result
+         * that is either the primary key of the table or has a unique index, and that cannot be
+         * null. Otherwise, seeking past a row would skip the rows that share its key.
+         */
+        fun findPagingKey(context: Context, query: ParsedQuery): PagingKey? {
+            val key = query.pagingKey ?: return null
+            val table = query.tables.singleOrNull() ?: return null
+            if (key.table != null &&
+                !key.table.equals(table.alias, ignoreCase = true) &&
+                !key.table.equals(table.name, ignoreCase = true)
+            ) {
+                return null
+            }
+            val resultColumn = query.resultInfo?.columns?.filter {
+                it.name.equals(key.column, ignoreCase = true)
+            }?.singleOrNull() ?: return null
+            val entity = context.databaseVerifier?.entitiesAndViews?.firstOrNull {
+                it is Entity && it.tableName.equals(table.name, ignoreCase = true)
+            } as? Entity ?: return null
+            if (entity is FtsEntity) {
+                return null
+            }
+            val field = entity.fields.firstOrNull {
+                it.columnName.equals(key.column, ignoreCase = true)
+            } ?: return null
+            // an INTEGER PRIMARY KEY is the rowid, which is never null
+            val isRowId = entity.primaryKey.fields.singleOrNull() == field &&
+                    field.affinity == SQLTypeAffinity.INTEGER
+            val unique = entity.primaryKey.fields.singleOrNull() == field ||
+                    entity.indices.any { it.unique && it.fields.singleOrNull() == field }
+            return if (isRowId || (unique && field.nonNull)) {
+                key.copy(column = resultColumn.name)
+            } else {
+                null
+            }
+        }
+    }
 }
@@ -20,6 +20,7 @@ import androidx.room.ext.CollectionTypeNames
 import androidx.room.ext.CommonTypeNames
 import androidx.room.ext.L
 import androidx.room.ext.N
+import androidx.room.ext.RoomTypeNames
 import androidx.room.ext.T
 import androidx.room.parser.ParsedQuery
 import androidx.room.parser.SQLTypeAffinity
@@ -35,18 +36,22 @@ import androidx.room.solver.query.parameter.QueryParameterAdapter
 import androidx.room.solver.query.result.RowAdapter
 import androidx.room.solver.query.result.SingleColumnRowAdapter
 import androidx.room.verifier.DatabaseVerificationErrors
+import androidx.room.writer.DaoWriter
 import androidx.room.writer.QueryWriter
 import androidx.room.writer.RelationCollectorMethodWriter
 import capitalize
 import com.squareup.javapoet.ClassName
 import com.squareup.javapoet.CodeBlock
+import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
 import stripNonJava
 import java.nio.ByteBuffer
 import java.util.ArrayList
 import java.util.HashSet
 import java.util.Locale
+import javax.lang.model.element.Modifier
 
 /**
  * Internal class that is used to manage fetching 1/N to N relationships.
@@ -130,11 +135,13 @@ data class RelationCollector(
     }
 
     fun writeCollectionCode(scope: CodeGenScope) {
+        scope.builder().add(collectionCode(scope))
+    }
+
+    private fun collectionCode(scope: CodeGenScope): CodeBlock {
         val method = scope.writer
                 .getOrCreateMethod(RelationCollectorMethodWriter(this))
-        scope.builder().apply {
-            addStatement("$N($L)", method, varName)
-        }
+        return CodeBlock.builder().addStatement("$N($L)", method, varName).build()
     }
 
     fun readKey(
@@ -219,6 +226,30 @@ data class RelationCollector(
         private val LONG_SPARSE_ARRAY_KEY_QUERY_PARAM_ADAPTER =
                 LongSparseArrayKeyQueryParameterAdapter()
 
+        /**
+         * Fetches the relations of a POJO. The relations do not depend on each other, so when
+         * there are several, they are handed to the runtime which may fetch them in parallel.
+         */
+        fun writeCollectionCode(collectors: List<RelationCollector>, scope: CodeGenScope) {
+            if (collectors.size < 2) {
+                collectors.forEach { it.writeCollectionCode(scope) }
+                return
+            }
+            val fetches = collectors.map { collector ->
+                TypeSpec.anonymousClassBuilder("").apply {
+                    superclass(Runnable::class.java)
+                    addMethod(MethodSpec.methodBuilder("run").apply {
+                        addAnnotation(Override::class.java)
+                        addModifiers(Modifier.PUBLIC)
+                        addCode(collector.collectionCode(scope))
+                    }.build())
+                }.build()
+            }
+            scope.builder().addStatement("$T.fetchRelations($N, $L)",
+                    RoomTypeNames.RELATION_UTIL, DaoWriter.dbField,
+                    CodeBlock.join(fetches.map { CodeBlock.of("$L", it) }, ", "))
+        }
+
         fun createCollectors(
             baseContext: Context,
             relations: List<Relation>
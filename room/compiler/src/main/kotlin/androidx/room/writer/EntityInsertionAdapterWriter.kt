@@ -89,12 +89,21 @@ class EntityInsertionAdapterWriter private constructor(
                 addStatement("return $S", query)
             }.build())
             addMethod(MethodSpec.methodBuilder("bind").apply {
+                addAnnotation(Override::class.java)
+                addModifiers(PUBLIC)
+                returns(TypeName.VOID)
+                addParameter(ParameterSpec.builder(SupportDbTypeNames.SQLITE_STMT, "stmt").build())
+                addParameter(ParameterSpec.builder(pojo.typeName, "value").build())
+                addStatement("bindRow(stmt, value)")
+            }.build())
+            // binds the rows of multiple row inserts too, see EntityInsertionAdapter
+            addMethod(MethodSpec.methodBuilder("bindRow").apply {
                 val bindScope = CodeGenScope(classWriter)
                 addAnnotation(Override::class.java)
                 addModifiers(PUBLIC)
                 returns(TypeName.VOID)
                 val stmtParam = "stmt"
-                addParameter(ParameterSpec.builder(SupportDbTypeNames.SQLITE_STMT,
+                addParameter(ParameterSpec.builder(SupportDbTypeNames.SQLITE_PROGRAM,
                         stmtParam).build())
                 val valueParam = "value"
                 addParameter(ParameterSpec.builder(pojo.typeName, valueParam).build())
@@ -114,13 +114,16 @@ class RelationCollectorMethodWriter(private val collector: RelationCollector) :
                     val limitVar = scope.getTmpVar("_limit")
                     addStatement("$T $L = 0", TypeName.INT, mapIndexVar)
                     addStatement("final $T $L = $N.size()", TypeName.INT, limitVar, param)
+                    // keys of a LongSparseArray come in ascending order, so they can be
+                    // appended to the batch instead of binary searched
+                    val putMethod = if (usingLongSparseArray) "append" else "put"
                     beginControlFlow("while($L < $L)", mapIndexVar, limitVar).apply {
                         if (collector.relationTypeIsCollection) {
-                            addStatement("$L.put($N.keyAt($L), $N.valueAt($L))",
-                                tmpMapVar, param, mapIndexVar, param, mapIndexVar)
+                            addStatement("$L.$L($N.keyAt($L), $N.valueAt($L))",
+                                tmpMapVar, putMethod, param, mapIndexVar, param, mapIndexVar)
                         } else {
-                            addStatement("$L.put($N.keyAt($L), null)",
-                                tmpMapVar, param, mapIndexVar)
+                            addStatement("$L.$L($N.keyAt($L), null)",
+                                tmpMapVar, putMethod, param, mapIndexVar)
                         }
                         addStatement("$L++", mapIndexVar)
                     }
@@ -18,6 +18,7 @@ package foo.bar;
 
 import androidx.room.EntityInsertionAdapter;
 import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteProgram;
 import androidx.sqlite.db.SupportSQLiteStatement;
 import java.lang.Override;
 import java.lang.String;
@@ -46,6 +47,11 @@ public final class WriterDao_Impl implements WriterDao {
 
             @Override
             public void bind(SupportSQLiteStatement stmt, User value) {
+                bindRow(stmt, value);
+            }
+
+            @Override
+            public void bindRow(SupportSQLiteProgram stmt, User value) {
                 stmt.bindLong(1, value.uid);
                 if (value.name == null) {
                     stmt.bindNull(2);
@@ -68,6 +74,11 @@ public final class WriterDao_Impl implements WriterDao {
 
             @Override
             public void bind(SupportSQLiteStatement stmt, User value) {
+                bindRow(stmt, value);
+            }
+
+            @Override
+            public void bindRow(SupportSQLiteProgram stmt, User value) {
                 stmt.bindLong(1, value.uid);
                 if (value.name == null) {
                     stmt.bindNull(2);
@@ -90,6 +101,11 @@ public final class WriterDao_Impl implements WriterDao {
 
             @Override
             public void bind(SupportSQLiteStatement stmt, Book value) {
+                bindRow(stmt, value);
+            }
+
+            @Override
+            public void bindRow(SupportSQLiteProgram stmt, Book value) {
                 stmt.bindLong(1, value.bookId);
                 stmt.bindLong(2, value.uid);
             }
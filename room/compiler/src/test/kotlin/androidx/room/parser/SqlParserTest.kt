@@ -269,6 +269,37 @@ class SqlParserTest {
         )
     }
 
+    @Test
+    fun pagingKey() {
+        assertPagingKey("SELECT * FROM users ORDER BY id", PagingKey("id", null, false))
+        assertPagingKey(
+            "SELECT * FROM users u WHERE name = :name ORDER BY `u`.`id` DESC",
+            PagingKey("id", "u", true)
+        )
+        assertPagingKey(
+            "SELECT DISTINCT name, id FROM users ORDER BY id ASC",
+            PagingKey("id", null, false)
+        )
+    }
+
+    @Test
+    fun noPagingKey() {
+        assertPagingKey("SELECT * FROM users", null)
+        assertPagingKey("SELECT * FROM users ORDER BY id, name", null)
+        assertPagingKey("SELECT * FROM users ORDER BY id + 1", null)
+        assertPagingKey("SELECT * FROM users ORDER BY name COLLATE NOCASE", null)
+        assertPagingKey("SELECT * FROM users ORDER BY id LIMIT 10", null)
+        assertPagingKey("SELECT name, max(id) FROM users GROUP BY name ORDER BY id", null)
+        assertPagingKey("SELECT age AS id FROM users ORDER BY id", null)
+        assertPagingKey("SELECT * FROM users UNION SELECT * FROM admins ORDER BY id", null)
+        assertPagingKey("WITH u AS (SELECT * FROM users) SELECT * FROM u ORDER BY id", null)
+        assertPagingKey("DELETE FROM users WHERE id > 3", null)
+    }
+
+    fun assertPagingKey(query: String, expected: PagingKey?) {
+        assertThat(SqlParser.parse(query).pagingKey, `is`(expected))
+    }
+
     fun assertVariables(query: String, vararg expected: String) {
         assertThat((SqlParser.parse(query)).inputs.map { it.text }, `is`(expected.toList()))
     }
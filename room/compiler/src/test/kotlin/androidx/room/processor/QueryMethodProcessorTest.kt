@@ -23,12 +23,15 @@ import androidx.room.ext.CommonTypeNames
 import androidx.room.ext.KotlinTypeNames
 import androidx.room.ext.LifecyclesTypeNames
 import androidx.room.ext.PagingTypeNames
+import androidx.room.ext.RoomTypeNames
 import androidx.room.ext.typeName
+import androidx.room.parser.PagingKey
 import androidx.room.parser.QueryType
 import androidx.room.parser.Table
 import androidx.room.compiler.processing.XDeclaredType
 import androidx.room.compiler.processing.XType
 import androidx.room.processor.ProcessorErrors.cannotFindQueryResultAdapter
+import androidx.room.solver.query.result.CursorIteratorQueryResultBinder
 import androidx.room.solver.query.result.DataSourceFactoryQueryResultBinder
 import androidx.room.solver.query.result.ListQueryResultAdapter
 import androidx.room.solver.query.result.LiveDataQueryResultBinder
@@ -553,6 +556,43 @@ class QueryMethodProcessorTest(val enableVerification: Boolean) {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun testKeysetDataSourceFactoryQuery() {
+        singleQueryMethod<ReadQueryMethod>(
+                """
+                @Query("select * from user where name = :name order by uid desc")
+                abstract ${PagingTypeNames.DATA_SOURCE_FACTORY}<Integer, User>
+                nameDataSourceFactory(String name);
+                """
+        ) { parsedQuery, _ ->
+            val pagingKey =
+                    (parsedQuery.queryResultBinder as DataSourceFactoryQueryResultBinder)
+                            .positionalDataSourceQueryResultBinder.pagingKey
+            if (enableVerification) {
+                assertThat(pagingKey, `is`(PagingKey("uid", null, true)))
+            } else {
+                // without the schema, Room cannot tell if the key is unique
+                assertThat(pagingKey, nullValue())
+            }
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun testNoKeysetForNonUniqueOrdering() {
+        singleQueryMethod<ReadQueryMethod>(
+                """
+                @Query("select * from user order by name")
+                abstract ${PagingTypeNames.DATA_SOURCE_FACTORY}<Integer, User>
+                nameDataSourceFactory();
+                """
+        ) { parsedQuery, _ ->
+            val pagingKey =
+                    (parsedQuery.queryResultBinder as DataSourceFactoryQueryResultBinder)
+                            .positionalDataSourceQueryResultBinder.pagingKey
+            assertThat(pagingKey, nullValue())
+        }.compilesWithoutError()
+    }
+
     @Test
     fun testBadChannelReturnForQuery() {
         singleQueryMethod<QueryMethod>(
@@ -684,6 +724,37 @@ class QueryMethodProcessorTest(val enableVerification: Boolean) {
             .withWarningCount(0)
     }
 
+    @Test
+    fun cursorIterator() {
+        singleQueryMethod<ReadQueryMethod>(
+            """
+                @Query("select * from user")
+                abstract ${RoomTypeNames.CURSOR_ITERATOR}<User> iterateUsers();
+            """) { method, _ ->
+            assertThat(method.queryResultBinder,
+                instanceOf(CursorIteratorQueryResultBinder::class.java))
+            assertThat(method.queryResultBinder.adapter?.rowAdapter,
+                instanceOf(PojoRowAdapter::class.java))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun cursorIteratorWithRelation() {
+        singleQueryMethod<ReadQueryMethod>(
+            """
+                static class Merged extends User {
+                   @Relation(parentColumn = "name", entityColumn = "lastName",
+                             entity = User.class)
+                   java.util.List<User> users;
+                }
+                @Transaction
+                @Query("select * from user")
+                abstract ${RoomTypeNames.CURSOR_ITERATOR}<Merged> iterateUsers();
+            """) { _, _ ->
+        }.failsToCompile()
+            .withErrorContaining(ProcessorErrors.CURSOR_ITERATOR_WITH_RELATION)
+    }
+
     @Test
     fun pojo_renamedColumn() {
         pojoTest("""
@@ -20,6 +20,7 @@ import android.database.Cursor;
 
 import androidx.lifecycle.LiveData;
 import androidx.paging.DataSource;
+import androidx.room.CursorIterator;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
@@ -276,6 +277,21 @@ public abstract class UserDao {
     @Query("SELECT * FROM user ORDER BY mAge DESC")
     public abstract DataSource.Factory<Integer, User> loadUsersByAgeDesc();
 
+    @Query("SELECT * FROM user ORDER BY mId DESC")
+    public abstract DataSource.Factory<Integer, User> loadUsersByIdDesc();
+
+    @Query("SELECT * FROM user ORDER BY mId")
+    public abstract CursorIterator<User> iterateAll();
+
+    @Query("SELECT mName, mLastName FROM user WHERE mAge > :age ORDER BY mName")
+    public abstract CursorIterator<NameAndLastName> iterateNamesOlderThan(int age);
+
+    @Query("SELECT * FROM user WHERE mAge >= :age ORDER BY mId")
+    public abstract List<User> loadAtLeastAge(int age);
+
+    @Query("SELECT * FROM user WHERE mAge >= :age AND mId IN (:ids)")
+    public abstract List<User> loadAtLeastAge(int age, long[] ids);
+
     @Query("DELETE FROM User WHERE mId IN (:ids) AND mAge == :age")
     public abstract int deleteByAgeAndIds(int age, List<Integer> ids);
 
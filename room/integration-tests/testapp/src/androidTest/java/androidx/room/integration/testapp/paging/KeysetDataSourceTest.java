@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.integration.testapp.paging;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.PositionalDataSource;
+import androidx.room.integration.testapp.test.TestDatabaseTest;
+import androidx.room.integration.testapp.test.TestUtil;
+import androidx.room.integration.testapp.vo.User;
+import androidx.room.paging.KeysetDataSource;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class KeysetDataSourceTest extends TestDatabaseTest {
+
+    @After
+    public void teardown() {
+        mUserDao.deleteEverything();
+    }
+
+    private KeysetDataSource<User> loadUsersByIdDesc() {
+        DataSource<Integer, User> dataSource = mUserDao.loadUsersByIdDesc().create();
+        assertThat(dataSource, instanceOf(KeysetDataSource.class));
+        return (KeysetDataSource<User>) dataSource;
+    }
+
+    @Test
+    public void emptyPage() {
+        KeysetDataSource<User> dataSource = loadUsersByIdDesc();
+        assertThat(dataSource.countItems(), is(0));
+        assertThat(dataSource.loadRange(0, 10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void seekAfterLoadedPage() {
+        List<User> users = createUsers(10);
+        KeysetDataSource<User> dataSource = loadUsersByIdDesc();
+        assertThat(dataSource.loadRange(0, 4), is(users.subList(0, 4)));
+        assertThat(dataSource.loadRange(4, 4), is(users.subList(4, 8)));
+        assertThat(dataSource.loadRange(8, 4), is(users.subList(8, 10)));
+        assertThat(dataSource.getOffsetLoadCount(), is(1));
+        assertThat(dataSource.getSeekLoadCount(), is(2));
+    }
+
+    @Test
+    public void seekBeforeLoadedPage() {
+        List<User> users = createUsers(10);
+        KeysetDataSource<User> dataSource = loadUsersByIdDesc();
+        assertThat(dataSource.loadRange(6, 4), is(users.subList(6, 10)));
+        assertThat(dataSource.loadRange(3, 3), is(users.subList(3, 6)));
+        assertThat(dataSource.loadRange(0, 3), is(users.subList(0, 3)));
+        assertThat(dataSource.getOffsetLoadCount(), is(1));
+        assertThat(dataSource.getSeekLoadCount(), is(2));
+    }
+
+    @Test
+    public void offsetForDetachedPage() {
+        List<User> users = createUsers(10);
+        KeysetDataSource<User> dataSource = loadUsersByIdDesc();
+        assertThat(dataSource.loadRange(0, 2), is(users.subList(0, 2)));
+        assertThat(dataSource.loadRange(5, 2), is(users.subList(5, 7)));
+        assertThat(dataSource.getOffsetLoadCount(), is(2));
+        assertThat(dataSource.getSeekLoadCount(), is(0));
+    }
+
+    @Test
+    public void placeholdersSkipCountWhenInitialPageReachesEnd() {
+        List<User> users = createUsers(10);
+        KeysetDataSource<User> dataSource = loadUsersByIdDesc();
+        InitialResult<User> result = loadInitial(dataSource, 0, 20);
+        assertThat(result.mData, is(users));
+        assertThat(result.mTotalCount, is(10));
+        assertThat(dataSource.getCountQueryCount(), is(0));
+    }
+
+    @Test
+    public void placeholdersCountWhenInitialPageIsFull() {
+        List<User> users = createUsers(10);
+        KeysetDataSource<User> dataSource = loadUsersByIdDesc();
+        InitialResult<User> result = loadInitial(dataSource, 0, 4);
+        assertThat(result.mData, is(users.subList(0, 4)));
+        assertThat(result.mTotalCount, is(10));
+        assertThat(dataSource.getCountQueryCount(), is(1));
+    }
+
+    private static <T> InitialResult<T> loadInitial(KeysetDataSource<T> dataSource,
+            int startPosition, int loadSize) {
+        final InitialResult<T> result = new InitialResult<>();
+        dataSource.loadInitial(
+                new PositionalDataSource.LoadInitialParams(startPosition, loadSize, 2, true),
+                new PositionalDataSource.LoadInitialCallback<T>() {
+                    @Override
+                    public void onResult(@NonNull List<? extends T> data, int position,
+                            int totalCount) {
+                        result.mData = new ArrayList<>(data);
+                        result.mPosition = position;
+                        result.mTotalCount = totalCount;
+                    }
+
+                    @Override
+                    public void onResult(@NonNull List<? extends T> data, int position) {
+                        throw new AssertionError("placeholders require a count");
+                    }
+                });
+        return result;
+    }
+
+    private static class InitialResult<T> {
+        List<T> mData;
+        int mPosition;
+        int mTotalCount;
+    }
+
+    @NonNull
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = TestUtil.createUser(i);
+            mUserDao.insert(user);
+            users.add(user);
+        }
+        // the query is ordered by id, descending
+        Collections.reverse(users);
+        return users;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.integration.testapp.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.CountingTaskExecutorRule;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.testing.TestLifecycleOwner;
+import androidx.room.IncrementalResult;
+import androidx.room.integration.testapp.vo.User;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class IncrementalLiveDataTest extends TestDatabaseTest {
+    @Rule
+    public CountingTaskExecutorRule mExecutorRule = new CountingTaskExecutorRule();
+
+    private final List<User> mApplied = new ArrayList<>();
+
+    @Test
+    public void appliesChanges() throws ExecutionException, InterruptedException,
+            TimeoutException {
+        final User[] users = TestUtil.createUsersArray(1, 2, 3, 4, 5, 6, 7, 8);
+        for (User user : users) {
+            user.setAge(20);
+        }
+        mUserDao.insertAll(users);
+        final TestObserver<IncrementalResult<User>> observer = observe();
+        IncrementalResult<User> result = observer.get();
+        assertThat(result.isBasedOn(null), is(false));
+        assertThat(ids(result.getItems()), is(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)));
+        mApplied.addAll(result.getItems());
+
+        // changed
+        observer.reset();
+        mUserDao.updateById(3, "updated");
+        IncrementalResult<User> next = observer.get();
+        assertThat(next.isBasedOn(result), is(true));
+        assertThat(next.getChangeCount(), is(1));
+        assertApplied(next);
+        assertThat(next.getItems().get(2).getName(), is("updated"));
+        result = next;
+
+        // inserted, and removed as it no longer matches the query
+        observer.reset();
+        final User inserted = TestUtil.createUser(10);
+        inserted.setAge(30);
+        final User tooYoung = users[1];
+        tooYoung.setAge(10);
+        mDatabase.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                mUserDao.insert(inserted);
+                mUserDao.insertOrReplace(tooYoung);
+            }
+        });
+        next = observer.get();
+        assertThat(next.isBasedOn(result), is(true));
+        assertThat(next.getChangeCount(), is(2));
+        assertApplied(next);
+        assertThat(ids(next.getItems()), is(Arrays.asList(1, 3, 4, 5, 6, 7, 8, 10)));
+        result = next;
+
+        // deleted
+        observer.reset();
+        mUserDao.deleteByUids(5);
+        next = observer.get();
+        assertThat(next.isBasedOn(result), is(true));
+        assertApplied(next);
+        assertThat(ids(next.getItems()), is(Arrays.asList(1, 3, 4, 6, 7, 8, 10)));
+    }
+
+    @Test
+    public void reloadsManyChanges() throws ExecutionException, InterruptedException,
+            TimeoutException {
+        mUserDao.insertAll(TestUtil.createUsersArray(1, 2, 3, 4));
+        final TestObserver<IncrementalResult<User>> observer = observe();
+        final IncrementalResult<User> result = observer.get();
+
+        observer.reset();
+        mUserDao.deleteEverything();
+        final IncrementalResult<User> next = observer.get();
+        assertThat(next.isBasedOn(result), is(false));
+        assertThat(next.getItems().isEmpty(), is(true));
+    }
+
+    @Test
+    public void reloadsRemoteChangesInterleavedWithLocalOnes() throws ExecutionException,
+            InterruptedException, TimeoutException {
+        final User[] users = TestUtil.createUsersArray(1, 2, 3, 4);
+        for (User user : users) {
+            user.setAge(20);
+        }
+        mUserDao.insertAll(users);
+        final TestObserver<IncrementalResult<User>> observer = observe();
+        final IncrementalResult<User> result = observer.get();
+
+        observer.reset();
+        mDatabase.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                // logged by this connection
+                mUserDao.updateById(1, "local");
+                // another instance changes a row; its change never reaches the log of this
+                // connection, which is simulated by dropping the logged row
+                mUserDao.updateById(4, "remote");
+                mDatabase.getOpenHelper().getWritableDatabase().execSQL(
+                        "DELETE FROM temp.room_row_log_User WHERE row_id = 4");
+                mDatabase.getInvalidationTracker().notifyObserversByTableNames("User");
+            }
+        });
+        final IncrementalResult<User> next = observer.get();
+        assertThat(next.isBasedOn(result), is(false));
+        assertThat(next.getItems().get(0).getName(), is("local"));
+        assertThat(next.getItems().get(3).getName(), is("remote"));
+    }
+
+    @Test
+    public void prunesChangesAndDropsLogWhenInactive() throws ExecutionException,
+            InterruptedException, TimeoutException {
+        final User[] users = TestUtil.createUsersArray(1, 2, 3, 4);
+        for (User user : users) {
+            user.setAge(20);
+        }
+        mUserDao.insertAll(users);
+        final TestLifecycleOwner lifecycleOwner = new TestLifecycleOwner();
+        final TestObserver<IncrementalResult<User>> observer = observe(lifecycleOwner);
+        final IncrementalResult<User> result = observer.get();
+
+        observer.reset();
+        mUserDao.updateById(1, "updated");
+        assertThat(observer.get().isBasedOn(result), is(true));
+        // the only observer has read the change
+        assertThat(queryCount("SELECT COUNT(*) FROM temp.room_row_log_User"), is(0));
+
+        lifecycleOwner.handleLifecycleEvent(Lifecycle.Event.ON_STOP);
+        mExecutorRule.drainTasks(1, TimeUnit.MINUTES);
+        assertThat(queryCount("SELECT COUNT(*) FROM sqlite_temp_master"
+                + " WHERE name LIKE 'room_row_log_User%'"), is(0));
+
+        // the changes made meanwhile are not logged, so everything is loaded again
+        observer.reset();
+        mUserDao.updateById(2, "updated");
+        lifecycleOwner.handleLifecycleEvent(Lifecycle.Event.ON_START);
+        final IncrementalResult<User> next = observer.get();
+        assertThat(next.isBasedOn(result), is(false));
+        assertThat(next.getItems().get(1).getName(), is("updated"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownTable() {
+        mDatabase.getInvalidationTracker().createIncrementalLiveData("foo", new UserLoader());
+    }
+
+    private TestObserver<IncrementalResult<User>> observe() throws ExecutionException,
+            InterruptedException {
+        return observe(new TestLifecycleOwner());
+    }
+
+    private TestObserver<IncrementalResult<User>> observe(LifecycleOwner lifecycleOwner)
+            throws ExecutionException, InterruptedException {
+        final LiveData<IncrementalResult<User>> liveData = mDatabase.getInvalidationTracker()
+                .createIncrementalLiveData("User", new UserLoader());
+        final TestObserver<IncrementalResult<User>> observer = new TestObserver<
+                IncrementalResult<User>>() {
+            @Override
+            protected void drain() throws TimeoutException, InterruptedException {
+                mExecutorRule.drainTasks(1, TimeUnit.MINUTES);
+            }
+        };
+        TestUtil.observeOnMainThread(liveData, lifecycleOwner, observer);
+        return observer;
+    }
+
+    private int queryCount(String sql) {
+        final Cursor cursor = mDatabase.query(sql, null);
+        try {
+            assertThat(cursor.moveToFirst(), is(true));
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void assertApplied(final IncrementalResult<User> result) {
+        result.dispatchChangesTo(new IncrementalResult.ChangeCallback() {
+            @Override
+            public void onInserted(int position) {
+                mApplied.add(position, result.getItems().get(position));
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                mApplied.remove(position);
+            }
+
+            @Override
+            public void onChanged(int position) {
+                mApplied.set(position, result.getItems().get(position));
+            }
+        });
+        assertThat(mApplied, is(result.getItems()));
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        final List<Integer> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+    private class UserLoader implements IncrementalResult.Loader<User> {
+        @NonNull
+        @Override
+        public List<User> loadAll() {
+            return mUserDao.loadAtLeastAge(18);
+        }
+
+        @NonNull
+        @Override
+        public List<User> loadByKeys(@NonNull long[] keys) {
+            return mUserDao.loadAtLeastAge(18, keys);
+        }
+
+        @Override
+        public long getKey(@NonNull User item) {
+            return item.getId();
+        }
+    }
+}
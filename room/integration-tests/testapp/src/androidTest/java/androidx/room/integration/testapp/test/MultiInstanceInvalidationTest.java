@@ -21,12 +21,14 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
 import android.os.Build;
 import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.collection.SimpleArrayMap;
@@ -66,12 +68,15 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @LargeTest
 @RunWith(AndroidJUnit4.class)
 @SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
 public class MultiInstanceInvalidationTest {
 
+    private static final String TAG = "MultiInstanceInvalidationTest";
+
     @Rule
     public TestName testName = new TestName();
 
@@ -286,6 +291,35 @@ public class MultiInstanceInvalidationTest {
                 CUSTOMER_1.getLastName()));
     }
 
+    @Test
+    public void notificationsPerSecond() throws Exception {
+        bindTestService();
+        final SampleDatabase db = openDatabase(true);
+        final int count = 500;
+        final AtomicInteger notifications = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("Customer") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                notifications.incrementAndGet();
+                if (db.getCustomerDao().countCustomers() == count) {
+                    done.countDown();
+                }
+            }
+        });
+
+        final long start = SystemClock.elapsedRealtime();
+        mService.insertCustomers(1, count);
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        final long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+
+        // invalidations that arrive before the previous ones are dispatched are merged
+        assertThat(notifications.get(), is(lessThanOrEqualTo(count)));
+        Log.i(TAG, count + " transactions in another process caused " + notifications.get()
+                + " notifications in " + elapsed + " ms, "
+                + (count * 1000L / elapsed) + " transactions per second.");
+    }
+
     // TODO: b/72877822 Better performance measurement
     @Ignore
     @Test
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.integration.testapp.test;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.QueryMetricsAggregator;
+import androidx.room.Room;
+import androidx.room.integration.testapp.TestDatabase;
+import androidx.room.integration.testapp.dao.UserDao;
+import androidx.room.integration.testapp.vo.User;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class QueryMetricsTest {
+    private static final String LOAD_QUERY = "select * from user where mId = ?";
+    private TestDatabase mDatabase;
+    private QueryMetricsAggregator mMetrics;
+
+    @Before
+    public void createDb() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mMetrics = new QueryMetricsAggregator();
+        mDatabase = Room.inMemoryDatabaseBuilder(context, TestDatabase.class)
+                .setQueryMetricsCallback(mMetrics)
+                .enableQueryTracing()
+                .build();
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void readsAndWrites() {
+        UserDao dao = mDatabase.getUserDao();
+        dao.insertAll(TestUtil.createUsersArray(1, 2, 3));
+        User user = dao.load(2);
+        assertThat(user.getId(), is(2));
+        assertThat(dao.load(4) == null, is(true));
+        assertThat(dao.deleteEverything(), is(3));
+
+        assertThat(mMetrics.getQueries(), hasItem(LOAD_QUERY));
+        assertThat(mMetrics.getRunCount(LOAD_QUERY), is(2L));
+        assertThat(mMetrics.getAverageRowCount(LOAD_QUERY), is(0.5));
+        assertThat(mMetrics.getDurationPercentileNanos(LOAD_QUERY, 50) > 0, is(true));
+        assertThat(mMetrics.getAverageRowCount("delete from user"), is(3.0));
+        // insertAll and deleteEverything run in transactions
+        assertThat(mMetrics.getTransactionWaitPercentileNanos(100) >= 0, is(true));
+    }
+
+    @Test
+    public void multipleRowInsertReportsEveryRow() {
+        mDatabase.getUserDao().insertAll(TestUtil.createUsersArray(1, 2, 3));
+        String insertQuery = null;
+        for (String query : mMetrics.getQueries()) {
+            if (query.startsWith("INSERT")) {
+                insertQuery = query;
+            }
+        }
+        assertThat(insertQuery != null, is(true));
+        assertThat(mMetrics.getAverageRowCount(insertQuery), is(3.0));
+    }
+
+    @Test
+    public void unreadCursorIsReportedOnClose() {
+        Cursor cursor = mDatabase.query("select * from user", null);
+        assertThat(mMetrics.getRunCount("select * from user"), is(0L));
+        cursor.close();
+        assertThat(mMetrics.getRunCount("select * from user"), is(1L));
+        assertThat(mMetrics.getAverageRowCount("select * from user"), is(-1.0));
+    }
+}
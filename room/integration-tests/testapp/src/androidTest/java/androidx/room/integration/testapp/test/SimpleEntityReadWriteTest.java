@@ -33,6 +33,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteException;
 
+import androidx.room.CursorIterator;
 import androidx.room.Room;
 import androidx.room.integration.testapp.TestDatabase;
 import androidx.room.integration.testapp.dao.BlobEntityDao;
@@ -69,6 +70,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 @SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
@@ -234,6 +236,82 @@ public class SimpleEntityReadWriteTest {
         assertThat(mUserDao.update(user2), is(0));
     }
 
+    @Test
+    public void insertAllInSeveralStatements() {
+        int[] ids = new int[900];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        User[] users = TestUtil.createUsersArray(ids);
+        mUserDao.insertAll(users);
+        assertThat(mUserDao.count(), is(ids.length));
+        assertThat(mUserDao.loadByIds(ids), is(users));
+    }
+
+    @Test
+    public void insertAllInSeveralStatements_conflict() {
+        int[] ids = new int[900];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        // the last statement fails, none of the users should be inserted
+        ids[ids.length - 1] = 1;
+        try {
+            mUserDao.insertAll(TestUtil.createUsersArray(ids));
+            fail("Exception expected");
+        } catch (SQLiteConstraintException ignored) {
+        }
+        assertThat(mUserDao.count(), is(0));
+    }
+
+    @Test
+    public void iterate() {
+        List<User> users = TestUtil.createUsersList(3, 1, 2);
+        mUserDao.insertAll(users.toArray(new User[3]));
+        List<User> result = new LinkedList<>();
+        CursorIterator<User> iterator = mUserDao.iterateAll();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        assertThat(result, is(Arrays.asList(users.get(1), users.get(2), users.get(0))));
+        // the cursor is closed once consumed
+        assertThat(iterator.hasNext(), is(false));
+        try {
+            iterator.next();
+            fail("Exception expected");
+        } catch (NoSuchElementException ignored) {
+        }
+    }
+
+    @Test
+    public void iteratePojo() {
+        User[] users = TestUtil.createUsersArray(1, 2, 3);
+        users[0].setAge(10);
+        users[1].setAge(30);
+        users[2].setAge(20);
+        mUserDao.insertAll(users);
+        CursorIterator<NameAndLastName> iterator = mUserDao.iterateNamesOlderThan(15);
+        Set<NameAndLastName> result = new HashSet<>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        Set<NameAndLastName> expected = new HashSet<>();
+        expected.add(new NameAndLastName(users[1].getName(), users[1].getLastName()));
+        expected.add(new NameAndLastName(users[2].getName(), users[2].getLastName()));
+        assertThat(result, is(expected));
+    }
+
+    @Test
+    public void closeIteratorEarly() {
+        mUserDao.insertAll(TestUtil.createUsersArray(1, 2, 3));
+        CursorIterator<User> iterator = mUserDao.iterateAll();
+        assertThat(iterator.next().getId(), is(1));
+        iterator.close();
+        assertThat(iterator.hasNext(), is(false));
+        // the database is still usable
+        assertThat(mUserDao.count(), is(3));
+    }
+
     @Test
     public void updateList() {
         List<User> users = TestUtil.createUsersList(3, 4, 5);
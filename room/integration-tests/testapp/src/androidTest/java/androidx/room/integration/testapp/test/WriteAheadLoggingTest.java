@@ -39,7 +39,11 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.integration.testapp.TestDatabase;
 import androidx.room.integration.testapp.dao.UserDao;
+import androidx.room.integration.testapp.dao.UserHouseDao;
+import androidx.room.integration.testapp.vo.House;
+import androidx.room.integration.testapp.vo.Pet;
 import androidx.room.integration.testapp.vo.User;
+import androidx.room.integration.testapp.vo.UserAndPetsAndHouses;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -53,6 +57,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -61,6 +66,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RunWith(AndroidJUnit4.class)
 @LargeTest
@@ -224,6 +230,87 @@ public class WriteAheadLoggingTest {
         assertThat(onInvalidatedCalled.await(500, TimeUnit.MILLISECONDS), is(false));
     }
 
+    @SuppressWarnings("deprecation")
+    @Test
+    public void readConnectionPool_readsWhileWriting()
+            throws InterruptedException, ExecutionException {
+        Context context = ApplicationProvider.getApplicationContext();
+        mDatabase.close();
+        mDatabase = Room.databaseBuilder(context, TestDatabase.class, DATABASE_NAME)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setReadConnectionPoolSize(2)
+                .build();
+        final UserDao dao = mDatabase.getUserDao();
+        final User user1 = TestUtil.createUser(1);
+        dao.insert(user1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            mDatabase.beginTransaction();
+            dao.delete(user1);
+            // the open transaction on this thread must not hold up readers on other threads
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() ->
+                        assertThat(dao.load(1), is(equalTo(user1)))));
+            }
+            for (Future<?> future : futures) {
+                future.get(3000, TimeUnit.MILLISECONDS);
+            }
+            // inside the transaction, queries still see its changes
+            assertThat(dao.count(), is(0));
+            mDatabase.setTransactionSuccessful();
+        } catch (TimeoutException e) {
+            throw new AssertionError("reads were blocked by the write transaction", e);
+        } finally {
+            mDatabase.endTransaction();
+        }
+        assertThat(executor.submit(() -> dao.count()).get(), is(0));
+        executor.shutdown();
+
+        Cursor c = mDatabase.query("PRAGMA journal_mode", null);
+        try {
+            c.moveToFirst();
+            assertThat(c.getString(0), is(equalToIgnoringCase("wal")));
+        } finally {
+            c.close();
+        }
+    }
+
+    @Test
+    public void parallelRelationFetching() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mDatabase.close();
+        mDatabase = Room.databaseBuilder(context, TestDatabase.class, DATABASE_NAME)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setReadConnectionPoolSize(2)
+                .enableParallelRelationFetching()
+                .build();
+        User[] users = TestUtil.createUsersArray(1, 2, 3);
+        mDatabase.getUserDao().insertAll(users);
+        List<List<Pet>> pets = new ArrayList<>();
+        List<List<House>> houses = new ArrayList<>();
+        for (User user : users) {
+            Pet[] userPets = TestUtil.createPetsForUser(user.getId(), user.getId() * 10, 3);
+            House[] userHouses = TestUtil.createHousesForUser(user.getId(), user.getId() * 10,
+                    user.getId());
+            mDatabase.getPetDao().insertAll(userPets);
+            mDatabase.getUserHouseDao().insertAll(userHouses);
+            pets.add(Arrays.asList(userPets));
+            houses.add(Arrays.asList(userHouses));
+        }
+        UserHouseDao dao = mDatabase.getUserHouseDao();
+        List<UserAndPetsAndHouses> parallel = dao.getUsersAndTheirPetsAndHousesWithoutTransaction();
+        List<UserAndPetsAndHouses> sequential = dao.getUsersAndTheirPetsAndHouses();
+        assertThat(parallel, hasSize(users.length));
+        for (int i = 0; i < users.length; i++) {
+            assertThat(parallel.get(i).getUser(), is(users[i]));
+            assertThat(parallel.get(i).getPets(), is(pets.get(i)));
+            assertThat(parallel.get(i).getHouses(), is(houses.get(i)));
+            assertThat(parallel.get(i).getPets(), is(sequential.get(i).getPets()));
+            assertThat(parallel.get(i).getHouses(), is(sequential.get(i).getHouses()));
+        }
+    }
+
     @Test
     public void invalidation() throws InterruptedException {
         final CountDownLatch latch = new CountDownLatch(1);
@@ -58,6 +58,14 @@ public class SampleDatabaseService extends Service {
             mDatabase.getCustomerDao().insert(customer);
         }
 
+        @Override
+        public void insertCustomers(int firstId, int count) {
+            // one transaction per customer
+            for (int id = firstId; id < firstId + count; id++) {
+                insertCustomer(id, "Name" + id, "LastName" + id);
+            }
+        }
+
         @Override
         public boolean waitForCustomer(int id, String name, String lastName) {
             final Customer customer = new Customer();
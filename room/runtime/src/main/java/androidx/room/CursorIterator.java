@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over the result of a query that converts each row only when it is requested.
+ * <p>
+ * A {@link Query} method can return a {@code CursorIterator} to read results that would not fit
+ * in memory as a {@link java.util.List}: only one row is converted at a time and the columns of
+ * the result are looked up once, when the query runs.
+ * <pre>
+ * {@literal @}Dao
+ * public interface SongDao {
+ *     {@literal @}Query("SELECT * FROM song")
+ *     CursorIterator&lt;Song&gt; iterateAll();
+ * }
+ *
+ * try (CursorIterator&lt;Song&gt; songs = songDao.iterateAll()) {
+ *     while (songs.hasNext()) {
+ *         export(songs.next());
+ *     }
+ * }
+ * </pre>
+ * The iterator holds an open cursor, so it must be closed once done. It is closed automatically
+ * when the last row is read. Reading the iterator runs on the calling thread and may access the
+ * database, so it should not be used on the main thread.
+ * <p>
+ * The query is not observed: rows that are modified while iterating may or may not be reflected in
+ * the rows that are not read yet. Queries that return a POJO with a {@link Relation} cannot be
+ * iterated since their relations are fetched for the whole result at once.
+ *
+ * @param <T> The type of the rows.
+ */
+public abstract class CursorIterator<T> implements Iterator<T>, Closeable {
+    private final Cursor mCursor;
+    @Nullable
+    private RoomSQLiteQuery mQuery;
+    private boolean mMoved;
+    private boolean mHasNext;
+    private boolean mClosed;
+
+    /**
+     * @param cursor The result of the query, positioned before the first row.
+     * @param query  The query to release when the iterator is closed, if any.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    protected CursorIterator(@NonNull Cursor cursor, @Nullable RoomSQLiteQuery query) {
+        mCursor = cursor;
+        mQuery = query;
+    }
+
+    /**
+     * Converts the row the cursor is positioned on.
+     *
+     * @param cursor The cursor of the query.
+     * @return The converted row.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    protected abstract T convert(@NonNull Cursor cursor);
+
+    @Override
+    public boolean hasNext() {
+        if (mClosed) {
+            return false;
+        }
+        if (!mMoved) {
+            mHasNext = mCursor.moveToNext();
+            mMoved = true;
+            if (!mHasNext) {
+                close();
+            }
+        }
+        return mHasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        mMoved = false;
+        return convert(mCursor);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Rows cannot be removed from a query result.");
+    }
+
+    /**
+     * Closes the cursor of the query. Calling {@link #hasNext()} returns {@code false} afterwards.
+     */
+    @Override
+    public void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mHasNext = false;
+        mCursor.close();
+        if (mQuery != null) {
+            mQuery.release();
+            mQuery = null;
+        }
+    }
+}
@@ -16,16 +16,28 @@
 
 package androidx.room;
 
+import android.os.Build;
+
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+import androidx.sqlite.db.SupportSQLiteProgram;
 import androidx.sqlite.db.SupportSQLiteStatement;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 /**
  * Implementations of this class knows how to insert a particular entity.
  * <p>
+ * When inserting several entities without asking for their row ids, up to
+ * {@link #getRowsPerStatement()} entities are inserted by a single statement with multiple rows
+ * of VALUES, so that SQLite is called once per chunk rather than once per entity. The row id of
+ * each entity cannot be recovered from such a statement, so the methods that return row ids still
+ * insert one entity at a time. Adapters generated by versions of Room that do not override
+ * {@link #bindRow(SupportSQLiteProgram, Object)} also insert one entity at a time.
+ * <p>
  * This is an internal library class and all of its implementations are auto-generated.
  *
  * @param <T> The type parameter of the entity to be inserted
@@ -34,6 +46,23 @@ import java.util.List;
 @SuppressWarnings({"WeakerAccess", "unused"})
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
 public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
+    // Before SQLite 3.32, a statement cannot have more bind arguments than this.
+    @VisibleForTesting
+    static final int MAX_BIND_ARGS = 999;
+    // Before SQLite 3.8.8, multiple rows of VALUES are a compound select, limited to 500 terms.
+    @VisibleForTesting
+    static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final RoomDatabase mDatabase;
+
+    // Computed on first use from createQuery(), mRowsPerStatement is written last.
+    private String mValuesGroup;
+    private int mArgsPerRow;
+    private String mFullChunkQuery;
+    private volatile int mRowsPerStatement;
+    // Cleared when the adapter turns out not to override bindRow().
+    private volatile boolean mBindsRows = true;
+
     /**
      * Creates an InsertionAdapter that can insert the entity type T into the given database.
      *
@@ -41,6 +70,7 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      */
     public EntityInsertionAdapter(RoomDatabase database) {
         super(database);
+        mDatabase = database;
     }
 
     /**
@@ -52,6 +82,21 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      */
     protected abstract void bind(SupportSQLiteStatement statement, T entity);
 
+    /**
+     * Binds the entity into a row of a multiple row insert statement, using the same indices as
+     * {@link #bind(SupportSQLiteStatement, Object)}.
+     * <p>
+     * Adapters generated by older versions of Room do not override this, and insert one entity
+     * per statement.
+     *
+     * @param row    The row of the statement, which shifts the indices to its arguments.
+     * @param entity The entity of type T.
+     */
+    protected void bindRow(SupportSQLiteProgram row, T entity) {
+        // nothing is bound, the entities are inserted one at a time instead
+        mBindsRows = false;
+    }
+
     /**
      * Inserts the entity into the database.
      *
@@ -73,6 +118,36 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      * @param entities Entities to insert
      */
     public final void insert(T[] entities) {
+        insert(Arrays.asList(entities));
+    }
+
+    /**
+     * Inserts the given entities into the database.
+     *
+     * @param entities Entities to insert
+     */
+    public final void insert(Iterable<? extends T> entities) {
+        // multiple rows of VALUES need SQLite 3.7.11
+        final int rowsPerStatement = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? getRowsPerStatement() : 1;
+        if (rowsPerStatement > 1 && mBindsRows) {
+            final List<T> chunk = new ArrayList<>(rowsPerStatement);
+            for (T entity : entities) {
+                chunk.add(entity);
+                if (chunk.size() == rowsPerStatement) {
+                    insertChunk(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(chunk);
+            }
+            return;
+        }
+        insertEach(entities);
+    }
+
+    private void insertEach(Iterable<? extends T> entities) {
         final SupportSQLiteStatement stmt = acquire();
         try {
             for (T entity : entities) {
@@ -85,19 +160,67 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
     }
 
     /**
-     * Inserts the given entities into the database.
+     * Returns the number of entities inserted by a single statement when inserting several
+     * entities, which is limited by the number of arguments SQLite can bind to a statement.
      *
-     * @param entities Entities to insert
+     * @return The number of rows per insert statement.
      */
-    public final void insert(Iterable<? extends T> entities) {
-        final SupportSQLiteStatement stmt = acquire();
+    public final int getRowsPerStatement() {
+        if (mRowsPerStatement == 0) {
+            final String query = createQuery();
+            final int valuesIndex = query.lastIndexOf("VALUES");
+            if (valuesIndex < 0) {
+                mRowsPerStatement = 1;
+            } else {
+                final String valuesGroup = query.substring(valuesIndex + "VALUES".length()).trim();
+                int argCount = 0;
+                for (int i = 0; i < valuesGroup.length(); i++) {
+                    if (valuesGroup.charAt(i) == '?') {
+                        argCount++;
+                    }
+                }
+                mValuesGroup = valuesGroup;
+                mArgsPerRow = argCount;
+                mRowsPerStatement = Math.max(1,
+                        Math.min(MAX_ROWS_PER_STATEMENT, MAX_BIND_ARGS / Math.max(1, argCount)));
+            }
+        }
+        return mRowsPerStatement;
+    }
+
+    @VisibleForTesting
+    void insertChunk(List<T> chunk) {
+        if (chunk.size() == 1 || !mBindsRows || !insertRows(chunk)) {
+            insertEach(chunk);
+        }
+    }
+
+    /**
+     * Inserts the entities with a multiple row insert statement, or returns false if the adapter
+     * cannot bind them into one.
+     */
+    private boolean insertRows(List<T> chunk) {
+        String sql = chunk.size() == mRowsPerStatement ? mFullChunkQuery : null;
+        if (sql == null) {
+            sql = createChunkQuery(chunk.size());
+            if (chunk.size() == mRowsPerStatement) {
+                mFullChunkQuery = sql;
+            }
+        }
+        final SupportSQLiteStatement stmt = mDatabase.acquireStatement(sql);
         try {
-            for (T entity : entities) {
-                bind(stmt, entity);
-                stmt.executeInsert();
+            final OffsetProgram row = new OffsetProgram(stmt, mArgsPerRow);
+            for (T entity : chunk) {
+                bindRow(row, entity);
+                if (!mBindsRows) {
+                    return false;
+                }
+                row.mOffset += mArgsPerRow;
             }
+            stmt.executeInsert();
+            return true;
         } finally {
-            release(stmt);
+            mDatabase.releaseStatement(stmt);
         }
     }
 
@@ -248,4 +371,69 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
             release(stmt);
         }
     }
+
+    private String createChunkQuery(int rowCount) {
+        final String query = createQuery();
+        final StringBuilder sql = new StringBuilder(
+                query.length() + (mValuesGroup.length() + 1) * (rowCount - 1));
+        sql.append(query);
+        for (int i = 1; i < rowCount; i++) {
+            sql.append(',').append(mValuesGroup);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Shifts the bind arguments of {@link #bindRow(SupportSQLiteProgram, Object)} to the row of a
+     * multiple row insert statement that is being bound.
+     */
+    @VisibleForTesting
+    static class OffsetProgram implements SupportSQLiteProgram {
+        private final SupportSQLiteProgram mDelegate;
+        private final int mArgsPerRow;
+        int mOffset;
+
+        OffsetProgram(SupportSQLiteProgram delegate, int argsPerRow) {
+            mDelegate = delegate;
+            mArgsPerRow = argsPerRow;
+        }
+
+        @Override
+        public void bindNull(int index) {
+            mDelegate.bindNull(mOffset + index);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            mDelegate.bindLong(mOffset + index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            mDelegate.bindDouble(mOffset + index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            mDelegate.bindString(mOffset + index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            mDelegate.bindBlob(mOffset + index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            // only the arguments of the current row belong to this program
+            for (int index = 1; index <= mArgsPerRow; index++) {
+                mDelegate.bindNull(mOffset + index);
+            }
+        }
+
+        @Override
+        public void close() {
+            // the statement is owned by the statement cache
+        }
+    }
 }
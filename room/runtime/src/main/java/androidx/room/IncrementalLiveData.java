@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.LiveData;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A LiveData that observes a query on a table and, when the table changes, only re-fetches the
+ * rows that changed.
+ * <p>
+ * The changed rows are read from a {@link RowChangeLog}. When it cannot tell which rows changed,
+ * because the change came from another connection or process, or when too many rows changed,
+ * the whole query runs again. Changes reported by another instance of the database, through
+ * {@link InvalidationTracker#notifyObserversByTableNames(String...)}, also make the whole query
+ * run again, even if rows of the same table were logged in the meantime.
+ * <p>
+ * Like {@link RoomTrackingLiveData}, it registers a weak observer to the
+ * {@link InvalidationTracker} and is held strongly by the {@link InvalidationLiveDataContainer}
+ * while it is active. It only observes the log while it is active too, so that the log is dropped
+ * when the table has no active observers; once active again, it re-fetches the changes if they
+ * are still in the log, and loads all items otherwise.
+ *
+ * @param <T> The type of the items
+ */
+class IncrementalLiveData<T> extends LiveData<IncrementalResult<T>> {
+    /**
+     * The maximum number of changed rows that are re-fetched, below the 999 arguments a query
+     * can have.
+     */
+    @VisibleForTesting
+    static final int MAX_CHANGED_ROWS = 256;
+
+    @SuppressWarnings("WeakerAccess")
+    final RoomDatabase mDatabase;
+
+    private final InvalidationLiveDataContainer mContainer;
+
+    private final IncrementalResult.Loader<T> mLoader;
+
+    private final String mTableName;
+
+    private final RowChangeLog mLog;
+
+    @SuppressWarnings("WeakerAccess")
+    final InvalidationTracker.Observer mObserver;
+
+    @SuppressWarnings("WeakerAccess")
+    final AtomicBoolean mInvalid = new AtomicBoolean(true);
+
+    @SuppressWarnings("WeakerAccess")
+    final AtomicBoolean mComputing = new AtomicBoolean(false);
+
+    @SuppressWarnings("WeakerAccess")
+    final AtomicBoolean mRegisteredObserver = new AtomicBoolean(false);
+
+    // only accessed while holding the compute lock
+    private int mLogInstallCount;
+    private List<T> mItems;
+    private long mTableVersion;
+    private long mResultVersion = -1;
+    private long mExternalInvalidationCount;
+
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mRefreshRunnable = new Runnable() {
+        @WorkerThread
+        @Override
+        public void run() {
+            if (mRegisteredObserver.compareAndSet(false, true)) {
+                mDatabase.getInvalidationTracker().addWeakObserver(mObserver);
+            }
+            boolean computed;
+            do {
+                computed = false;
+                if (mComputing.compareAndSet(false, true)) {
+                    try {
+                        IncrementalResult<T> value = null;
+                        while (mInvalid.compareAndSet(true, false)) {
+                            computed = true;
+                            value = compute();
+                        }
+                        if (computed) {
+                            // if values are posted faster than they are dispatched, observers
+                            // skip some and see that the next ones are not based on theirs.
+                            postValue(value);
+                        }
+                    } finally {
+                        mComputing.set(false);
+                    }
+                }
+                // see RoomTrackingLiveData for why this is checked after releasing the lock.
+            } while (computed && mInvalid.get());
+        }
+    };
+
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mInvalidationRunnable = new Runnable() {
+        @MainThread
+        @Override
+        public void run() {
+            boolean isActive = hasActiveObservers();
+            if (mInvalid.compareAndSet(false, true)) {
+                if (isActive) {
+                    mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+                }
+            }
+        }
+    };
+
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mRemoveFromLogRunnable = new Runnable() {
+        @WorkerThread
+        @Override
+        public void run() {
+            final SupportSQLiteDatabase db = mDatabase.isOpen()
+                    ? mDatabase.getOpenHelper().getWritableDatabase() : null;
+            mLog.removeObserver(db, IncrementalLiveData.this);
+        }
+    };
+
+    @SuppressLint("RestrictedApi")
+    IncrementalLiveData(
+            RoomDatabase database,
+            InvalidationLiveDataContainer container,
+            String tableName,
+            RowChangeLog log,
+            IncrementalResult.Loader<T> loader) {
+        mDatabase = database;
+        mContainer = container;
+        mLoader = loader;
+        mTableName = tableName;
+        mLog = log;
+        mObserver = new InvalidationTracker.Observer(tableName) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                ArchTaskExecutor.getInstance().executeOnMainThread(mInvalidationRunnable);
+            }
+        };
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        mContainer.onActive(this);
+        mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        mContainer.onInactive(this);
+        mDatabase.getQueryExecutor().execute(mRemoveFromLogRunnable);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @WorkerThread
+    IncrementalResult<T> compute() {
+        final SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+        final int logInstallCount = mLog.install(db, this);
+        if (logInstallCount != mLogInstallCount) {
+            // the log was dropped, or its connection was closed, and missed changes meanwhile
+            mLogInstallCount = logInstallCount;
+            mItems = null;
+        }
+        // read before the log, so that a later external change invalidates the next result
+        final long externalCount = mDatabase.getInvalidationTracker()
+                .getExternalInvalidationCount(mTableName);
+        final boolean externalChange = externalCount != mExternalInvalidationCount;
+        mExternalInvalidationCount = externalCount;
+        if (mItems != null && !externalChange) {
+            final int maxRows = Math.min(MAX_CHANGED_ROWS, Math.max(1, mItems.size() / 2));
+            final RowChangeLog.Changes changes = mLog.readChanges(db, mTableVersion, maxRows);
+            // an invalidation without logged rows was made by another connection
+            if (changes != null && changes.mRowIds.length > 0) {
+                return applyChanges(db, changes);
+            }
+        }
+        return reload(db);
+    }
+
+    private IncrementalResult<T> reload(SupportSQLiteDatabase db) {
+        // changes made while loading are re-fetched by the next refresh
+        final long tableVersion = mLog.getVersion(db);
+        // keep the changes after this version in the log while loading
+        mLog.setObservedVersion(db, this, tableVersion);
+        final List<T> items = new ArrayList<>(mLoader.loadAll());
+        for (int i = 1; i < items.size(); i++) {
+            if (mLoader.getKey(items.get(i - 1)) >= mLoader.getKey(items.get(i))) {
+                throw new IllegalStateException("Loader.loadAll() must return items in"
+                        + " ascending order of their keys.");
+            }
+        }
+        mItems = items;
+        mTableVersion = tableVersion;
+        return new IncrementalResult<>(Collections.unmodifiableList(items), ++mResultVersion, -1,
+                new int[0]);
+    }
+
+    private IncrementalResult<T> applyChanges(SupportSQLiteDatabase db,
+            RowChangeLog.Changes changes) {
+        final Map<Long, T> fetched = new HashMap<>();
+        for (T item : mLoader.loadByKeys(changes.mRowIds)) {
+            fetched.put(mLoader.getKey(item), item);
+        }
+        final List<T> items = new ArrayList<>(mItems);
+        final IncrementalResult.ChangesBuilder builder = new IncrementalResult.ChangesBuilder();
+        // row ids are ascending, so are the positions of the changes
+        int from = 0;
+        for (long key : changes.mRowIds) {
+            final int index = indexOf(items, key, from);
+            final T item = fetched.get(key);
+            if (index >= 0) {
+                if (item == null) {
+                    items.remove(index);
+                    builder.removed(index);
+                    from = index;
+                } else {
+                    items.set(index, item);
+                    builder.changed(index);
+                    from = index + 1;
+                }
+            } else if (item != null) {
+                final int insertion = -index - 1;
+                items.add(insertion, item);
+                builder.inserted(insertion);
+                from = insertion + 1;
+            }
+        }
+        mItems = items;
+        mTableVersion = changes.mVersion;
+        mLog.setObservedVersion(db, this, changes.mVersion);
+        final long baseVersion = mResultVersion;
+        return new IncrementalResult<>(Collections.unmodifiableList(items), ++mResultVersion,
+                baseVersion, builder.build());
+    }
+
+    /**
+     * Binary searches the items for a key, like {@link Collections#binarySearch}.
+     */
+    private int indexOf(List<T> items, long key, int from) {
+        int low = from;
+        int high = items.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midKey = mLoader.getKey(items.get(mid));
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A result of a LiveData created by
+ * {@link InvalidationTracker#createIncrementalLiveData(String, Loader)}: the items of the query,
+ * and the changes that turned the previous result into this one.
+ * <p>
+ * Observers that applied the previous result can apply the changes of this one, in order, instead
+ * of comparing the lists:
+ * <pre>
+ * public void onChanged(IncrementalResult&lt;User&gt; result) {
+ *     if (result.isBasedOn(mResult)) {
+ *         result.dispatchChangesTo(mCallback);
+ *     } else {
+ *         mAdapter.notifyDataSetChanged();
+ *     }
+ *     mResult = result;
+ * }
+ * </pre>
+ *
+ * @param <T> The type of the items
+ */
+public final class IncrementalResult<T> {
+    private static final int INSERTED = 0;
+    private static final int REMOVED = 1;
+    private static final int CHANGED = 2;
+
+    private final List<T> mItems;
+    private final long mVersion;
+    private final long mBaseVersion;
+    // pairs of change type and position
+    private final int[] mChanges;
+
+    IncrementalResult(List<T> items, long version, long baseVersion, int[] changes) {
+        mItems = items;
+        mVersion = version;
+        mBaseVersion = baseVersion;
+        mChanges = changes;
+    }
+
+    /**
+     * @return The items of the query, which cannot be modified.
+     */
+    @NonNull
+    public List<T> getItems() {
+        return mItems;
+    }
+
+    /**
+     * Returns whether the changes of this result apply to the given result. This is false for
+     * results that were loaded from scratch, and for results that follow one that was never
+     * delivered to the observer.
+     *
+     * @param previous The result the observer received before this one, if any.
+     * @return True if {@link #dispatchChangesTo(ChangeCallback)} turns the items of
+     * {@code previous} into the items of this result.
+     */
+    public boolean isBasedOn(@Nullable IncrementalResult<T> previous) {
+        return previous != null && mBaseVersion >= 0 && previous.mVersion == mBaseVersion;
+    }
+
+    /**
+     * @return The number of changes that {@link #dispatchChangesTo(ChangeCallback)} dispatches.
+     */
+    public int getChangeCount() {
+        return mChanges.length / 2;
+    }
+
+    /**
+     * Dispatches the changes of this result. Each position is valid once the changes before it
+     * are applied, which is what RecyclerView adapters expect.
+     *
+     * @param callback The callback to receive the changes.
+     */
+    public void dispatchChangesTo(@NonNull ChangeCallback callback) {
+        for (int i = 0; i < mChanges.length; i += 2) {
+            final int position = mChanges[i + 1];
+            switch (mChanges[i]) {
+                case INSERTED:
+                    callback.onInserted(position);
+                    break;
+                case REMOVED:
+                    callback.onRemoved(position);
+                    break;
+                default:
+                    callback.onChanged(position);
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IncrementalResult{items=" + mItems.size()
+                + ", version=" + mVersion
+                + ", baseVersion=" + mBaseVersion
+                + ", changes=" + getChangeCount() + '}';
+    }
+
+    /**
+     * Loads the items of an incrementally observed query. Both methods are usually {@link Query}
+     * methods of a {@link Dao} with the same filter:
+     * <pre>
+     * {@literal @}Query("SELECT * FROM user WHERE age &gt;= 18 ORDER BY id")
+     * List&lt;User&gt; loadAdults();
+     *
+     * {@literal @}Query("SELECT * FROM user WHERE age &gt;= 18 AND id IN (:ids)")
+     * List&lt;User&gt; loadAdults(long[] ids);
+     * </pre>
+     *
+     * @param <T> The type of the items
+     */
+    public interface Loader<T> {
+        /**
+         * Loads all items of the query, in ascending order of their {@link #getKey(Object) key}.
+         *
+         * @return The items of the query.
+         */
+        @WorkerThread
+        @NonNull
+        List<T> loadAll();
+
+        /**
+         * Loads the items of the query among the rows that have the given keys, in any order.
+         * Rows that were deleted, or no longer match the query, are not returned.
+         *
+         * @param keys The primary keys of the rows, at most 999.
+         * @return The items of the query that have one of the keys.
+         */
+        @WorkerThread
+        @NonNull
+        List<T> loadByKeys(@NonNull long[] keys);
+
+        /**
+         * @param item An item of the query.
+         * @return The {@code INTEGER PRIMARY KEY} of the row of the item.
+         */
+        long getKey(@NonNull T item);
+    }
+
+    /**
+     * Receives the changes of an {@link IncrementalResult}.
+     */
+    public interface ChangeCallback {
+        /**
+         * @param position The position at which an item was inserted.
+         */
+        void onInserted(int position);
+
+        /**
+         * @param position The position from which an item was removed.
+         */
+        void onRemoved(int position);
+
+        /**
+         * @param position The position of an item that was replaced by a new version.
+         */
+        void onChanged(int position);
+    }
+
+    /**
+     * Collects the changes of a result.
+     */
+    static class ChangesBuilder {
+        private int[] mChanges = new int[16];
+        private int mSize;
+
+        void inserted(int position) {
+            add(INSERTED, position);
+        }
+
+        void removed(int position) {
+            add(REMOVED, position);
+        }
+
+        void changed(int position) {
+            add(CHANGED, position);
+        }
+
+        private void add(int type, int position) {
+            if (mSize + 2 > mChanges.length) {
+                mChanges = Arrays.copyOf(mChanges, mChanges.length * 2);
+            }
+            mChanges[mSize++] = type;
+            mChanges[mSize++] = position;
+        }
+
+        int[] build() {
+            return Arrays.copyOf(mChanges, mSize);
+        }
+    }
+}
@@ -20,7 +20,10 @@ import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LiveData;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
@@ -38,6 +41,8 @@ class InvalidationLiveDataContainer {
             new IdentityHashMap<LiveData, Boolean>()
     );
     private final RoomDatabase mDatabase;
+    // The logs of the tables observed by IncrementalLiveData, by lower case table name.
+    private final Map<String, RowChangeLog> mRowChangeLogs = new HashMap<>();
 
     InvalidationLiveDataContainer(RoomDatabase database) {
         mDatabase = database;
@@ -49,6 +54,22 @@ class InvalidationLiveDataContainer {
                 tableNames);
     }
 
+    <T> LiveData<IncrementalResult<T>> createIncremental(String tableName,
+            IncrementalResult.Loader<T> loader) {
+        final RowChangeLog log;
+        synchronized (mRowChangeLogs) {
+            // all observers of a table share its log, which is named case insensitively
+            final String key = tableName.toLowerCase(Locale.US);
+            RowChangeLog existing = mRowChangeLogs.get(key);
+            if (existing == null) {
+                existing = new RowChangeLog(tableName);
+                mRowChangeLogs.put(key, existing);
+            }
+            log = existing;
+        }
+        return new IncrementalLiveData<>(mDatabase, this, tableName, log, loader);
+    }
+
     void onActive(LiveData liveData) {
         mLiveDataSet.add(liveData);
     }
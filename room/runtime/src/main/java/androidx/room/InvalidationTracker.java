@@ -42,7 +42,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -60,6 +66,9 @@ import java.util.concurrent.locks.Lock;
 // memory table table, flipping the invalidated flag ON.
 // * When multi-instance invalidation is turned on, MultiInstanceInvalidationClient will be created.
 // It works as an Observer, and notifies other instances of table invalidation.
+// * With a coalescing window, a refresh that is requested less than a window after the previous
+// one is postponed until the window is over, and table names reported through
+// notifyObserversByTableNames are held until then, so that each observer gets one merged set.
 public class InvalidationTracker {
 
     private static final String[] TRIGGERS = new String[]{"UPDATE", "DELETE", "INSERT"};
@@ -94,6 +103,23 @@ public class InvalidationTracker {
 
     AtomicBoolean mPendingRefresh = new AtomicBoolean(false);
 
+    private volatile long mCoalescingWindowNanos;
+
+    // System.nanoTime() when the modification log was last checked, if mRefreshed is set.
+    private volatile long mLastRefreshNanos;
+
+    private volatile boolean mRefreshed;
+
+    // Ids of tables reported by notifyObserversByTableNames while coalescing, guarded by itself.
+    private final Set<Integer> mPendingLocalTableIds = new HashSet<>();
+
+    private final AtomicLong mRefreshCount = new AtomicLong();
+
+    private final AtomicLong mNotifiedObserverCount = new AtomicLong();
+
+    // Invalidations reported by notifyObserversByTableNames, by table id.
+    private final AtomicLongArray mExternalInvalidationCounts;
+
     private volatile boolean mInitialized = false;
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -108,7 +134,7 @@ public class InvalidationTracker {
     @SuppressLint("RestrictedApi")
     final SafeIterableMap<Observer, ObserverWrapper> mObserverMap = new SafeIterableMap<>();
 
-    private MultiInstanceInvalidationClient mMultiInstanceInvalidationClient;
+    private volatile MultiInstanceInvalidationClient mMultiInstanceInvalidationClient;
 
     /**
      * Used by the generated code.
@@ -138,6 +164,7 @@ public class InvalidationTracker {
         mInvalidationLiveDataContainer = new InvalidationLiveDataContainer(mDatabase);
         final int size = tableNames.length;
         mTableNames = new String[size];
+        mExternalInvalidationCounts = new AtomicLongArray(size);
         for (int id = 0; id < size; id++) {
             final String tableName = tableNames[id].toLowerCase(Locale.US);
             mTableIdLookup.put(tableName, id);
@@ -274,6 +301,9 @@ public class InvalidationTracker {
         if (currentObserver == null && mObservedTableTracker.onAdded(tableIds)) {
             syncTriggers();
         }
+        if (currentObserver == null) {
+            onObserversChanged(observer);
+        }
     }
 
     private String[] validateAndResolveTableNames(String[] tableNames) {
@@ -336,6 +366,34 @@ public class InvalidationTracker {
         if (wrapper != null && mObservedTableTracker.onRemoved(wrapper.mTableIds)) {
             syncTriggers();
         }
+        if (wrapper != null) {
+            onObserversChanged(observer);
+        }
+    }
+
+    private void onObserversChanged(Observer observer) {
+        final MultiInstanceInvalidationClient client = mMultiInstanceInvalidationClient;
+        if (client != null && !observer.isRemote()) {
+            client.syncObservedTables();
+        }
+    }
+
+    /**
+     * Returns the tables observed by the observers of this tracker, other than the
+     * {@link MultiInstanceInvalidationClient}, as bits indexed by table id.
+     */
+    long[] getLocallyObservedTableBits() {
+        final long[] tableBits = new long[(mTableNames.length + 63) >> 6];
+        synchronized (mObserverMap) {
+            for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
+                if (!entry.getKey().isRemote()) {
+                    for (int tableId : entry.getValue().mTableIds) {
+                        tableBits[tableId >> 6] |= 1L << tableId;
+                    }
+                }
+            }
+        }
+        return tableBits;
     }
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -379,6 +437,9 @@ public class InvalidationTracker {
                     return;
                 }
 
+                mLastRefreshNanos = System.nanoTime();
+                mRefreshed = true;
+                mRefreshCount.incrementAndGet();
                 if (mDatabase.mWriteAheadLoggingEnabled) {
                     // This transaction has to be on the underlying DB rather than the RoomDatabase
                     // in order to avoid a recursive loop after endTransaction.
@@ -400,13 +461,40 @@ public class InvalidationTracker {
             } finally {
                 closeLock.unlock();
             }
-            if (invalidatedTableIds != null && !invalidatedTableIds.isEmpty()) {
-                synchronized (mObserverMap) {
-                    for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
-                        entry.getValue().notifyByTableInvalidStatus(invalidatedTableIds);
+            if (invalidatedTableIds == null) {
+                return;
+            }
+            final Set<Integer> localTableIds = drainPendingLocalTableIds(invalidatedTableIds);
+            if (invalidatedTableIds.isEmpty() && localTableIds == null) {
+                return;
+            }
+            int notified = 0;
+            synchronized (mObserverMap) {
+                for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
+                    final Set<Integer> tableIds = localTableIds != null
+                            && !entry.getKey().isRemote() ? localTableIds : invalidatedTableIds;
+                    if (entry.getValue().notifyByTableInvalidStatus(tableIds)) {
+                        notified++;
                     }
                 }
             }
+            mNotifiedObserverCount.addAndGet(notified);
+        }
+
+        /**
+         * Returns the given ids merged with the ones held back by
+         * {@link #notifyObserversByTableNames(String...)}, or null if none were held back.
+         */
+        private Set<Integer> drainPendingLocalTableIds(Set<Integer> invalidatedTableIds) {
+            synchronized (mPendingLocalTableIds) {
+                if (mPendingLocalTableIds.isEmpty()) {
+                    return null;
+                }
+                Set<Integer> merged = new HashSet<>(mPendingLocalTableIds);
+                merged.addAll(invalidatedTableIds);
+                mPendingLocalTableIds.clear();
+                return merged;
+            }
         }
 
         private Set<Integer> checkUpdatedTable() {
@@ -439,8 +527,55 @@ public class InvalidationTracker {
     public void refreshVersionsAsync() {
         // TODO we should consider doing this sync instead of async.
         if (mPendingRefresh.compareAndSet(false, true)) {
+            final long window = mCoalescingWindowNanos;
+            final long delay = window > 0 && mRefreshed
+                    ? mLastRefreshNanos + window - System.nanoTime() : 0;
+            if (delay > 0) {
+                CoalescingScheduler.INSTANCE.schedule(mScheduledRefreshRunnable, delay,
+                        TimeUnit.NANOSECONDS);
+            } else {
+                mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+            }
+        }
+    }
+
+    private final Runnable mScheduledRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
             mDatabase.getQueryExecutor().execute(mRefreshRunnable);
         }
+    };
+
+    /**
+     * Sets the minimum time between two checks of the modification log. Refreshes requested
+     * within the window are merged into one that runs when the window is over, so that bursts of
+     * small transactions cause at most one invalidation of each observer per window.
+     *
+     * @param window The coalescing window, 0 to refresh after every transaction.
+     * @param timeUnit The unit of {@code window}.
+     */
+    void setCoalescingWindow(long window, @NonNull TimeUnit timeUnit) {
+        mCoalescingWindowNanos = timeUnit.toNanos(window);
+    }
+
+    /**
+     * Returns the number of times the tracker has checked the database for modified tables.
+     *
+     * @return The number of refreshes.
+     */
+    public long getRefreshCount() {
+        return mRefreshCount.get();
+    }
+
+    /**
+     * Returns the number of times an {@link Observer} was notified of invalidated tables after a
+     * refresh. Each observer is notified at most once per refresh, with all of its invalidated
+     * tables.
+     *
+     * @return The number of observer notifications.
+     */
+    public long getNotifiedObserverCount() {
+        return mNotifiedObserverCount.get();
     }
 
     /**
@@ -467,6 +602,25 @@ public class InvalidationTracker {
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     public void notifyObserversByTableNames(String... tables) {
+        for (String table : tables) {
+            Integer tableId = mTableIdLookup.get(table.toLowerCase(Locale.US));
+            if (tableId != null) {
+                mExternalInvalidationCounts.incrementAndGet(tableId);
+            }
+        }
+        if (mCoalescingWindowNanos > 0) {
+            // hold the tables back and dispatch them with the next refresh.
+            synchronized (mPendingLocalTableIds) {
+                for (String table : tables) {
+                    Integer tableId = mTableIdLookup.get(table.toLowerCase(Locale.US));
+                    if (tableId != null) {
+                        mPendingLocalTableIds.add(tableId);
+                    }
+                }
+            }
+            refreshVersionsAsync();
+            return;
+        }
         synchronized (mObserverMap) {
             for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
                 if (!entry.getKey().isRemote()) {
@@ -476,6 +630,20 @@ public class InvalidationTracker {
         }
     }
 
+    /**
+     * Returns how many times the table was reported invalidated through
+     * {@link #notifyObserversByTableNames(String...)}, such as by another instance of the
+     * database. These changes were not made through the connection of this tracker, so they do
+     * not show up in the logs of its TEMP triggers.
+     *
+     * @param tableName The table.
+     * @return The number of invalidations that were reported for the table.
+     */
+    long getExternalInvalidationCount(@NonNull String tableName) {
+        final Integer tableId = mTableIdLookup.get(tableName.toLowerCase(Locale.US));
+        return tableId == null ? 0 : mExternalInvalidationCounts.get(tableId);
+    }
+
     void syncTriggers(SupportSQLiteDatabase database) {
         if (database.inTransaction()) {
             // we won't run this inside another transaction.
@@ -581,6 +749,33 @@ public class InvalidationTracker {
                 validateAndResolveTableNames(tableNames), inTransaction, computeFunction);
     }
 
+    /**
+     * Creates a LiveData that loads the items of a query on a table, and then only re-fetches the
+     * rows that change in the table, emitting the changes along with the items.
+     * <p>
+     * The table must have an {@code INTEGER PRIMARY KEY}. Changes made through this database are
+     * applied to the previous items; other changes, or a large number of them, load all items
+     * again. This saves running a query that returns many rows, and comparing the lists, when only
+     * a few rows change at a time.
+     * <p>
+     * Holds a strong reference to the created LiveData as long as it is active.
+     *
+     * @param tableName The table to observe.
+     * @param loader    The loader of the items of the query.
+     * @param <T>       The type of the items
+     * @return A new LiveData that loads the changed items when the table invalidates.
+     * @throws IllegalArgumentException If there is no table with the given name.
+     * @see IncrementalResult
+     */
+    @NonNull
+    public <T> LiveData<IncrementalResult<T>> createIncrementalLiveData(
+            @NonNull String tableName, @NonNull IncrementalResult.Loader<T> loader) {
+        if (!mTableIdLookup.containsKey(tableName.toLowerCase(Locale.US))) {
+            throw new IllegalArgumentException("There is no table with name " + tableName);
+        }
+        return mInvalidationLiveDataContainer.createIncremental(tableName, loader);
+    }
+
     /**
      * Wraps an observer and keeps the table information.
      * <p>
@@ -612,8 +807,9 @@ public class InvalidationTracker {
          * based on the given invalid status set.
          *
          * @param invalidatedTablesIds The table ids of the tables that are invalidated.
+         * @return Whether the observer was notified.
          */
-        void notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds) {
+        boolean notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds) {
             Set<String> invalidatedTables = null;
             final int size = mTableIds.length;
             for (int index = 0; index < size; index++) {
@@ -632,7 +828,9 @@ public class InvalidationTracker {
             }
             if (invalidatedTables != null) {
                 mObserver.onInvalidated(invalidatedTables);
+                return true;
             }
+            return false;
         }
 
         /**
@@ -849,4 +1047,19 @@ public class InvalidationTracker {
             }
         }
     }
+
+    /**
+     * Holds the single daemon thread that postpones coalesced refreshes, created on first use.
+     */
+    private static class CoalescingScheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "Room-InvalidationCoalescer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
 }
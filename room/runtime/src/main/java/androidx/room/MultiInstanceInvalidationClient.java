@@ -27,6 +27,9 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -75,21 +78,93 @@ class MultiInstanceInvalidationClient {
     @SuppressWarnings("WeakerAccess")
     final Executor mExecutor;
 
+    /**
+     * Bits of the tables invalidated by other instances that are not dispatched yet, guarded by
+     * itself. Invalidations that arrive before the dispatch are merged into it.
+     */
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final long[] mReceivedTableBits;
+
+    /**
+     * Bits of the tables invalidated by this instance that are not broadcast yet, guarded by
+     * itself. Transactions that end before the broadcast are merged into it.
+     */
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final long[] mPendingTableBits;
+
+    /**
+     * The observed table bits last sent to the service, guarded by {@link #mServiceLock}.
+     */
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    long[] mObservedTableBits;
+
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final Object mServiceLock = new Object();
+
     // synthetic access
     @SuppressWarnings("WeakerAccess")
     final IMultiInstanceInvalidationCallback mCallback =
             new IMultiInstanceInvalidationCallback.Stub() {
                 @Override
-                public void onInvalidation(final String[] tables) {
-                    mExecutor.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            mInvalidationTracker.notifyObserversByTableNames(tables);
+                public void onInvalidation(final long[] tableBits) {
+                    boolean dispatch;
+                    synchronized (mReceivedTableBits) {
+                        dispatch = isEmpty(mReceivedTableBits);
+                        for (int i = 0; i < tableBits.length && i < mReceivedTableBits.length;
+                                i++) {
+                            mReceivedTableBits[i] |= tableBits[i];
                         }
-                    });
+                    }
+                    if (dispatch) {
+                        mExecutor.execute(mDispatchRunnable);
+                    }
                 }
             };
 
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final String[] tables;
+            synchronized (mReceivedTableBits) {
+                tables = getTableNames(mReceivedTableBits);
+                Arrays.fill(mReceivedTableBits, 0);
+            }
+            if (tables.length > 0) {
+                mInvalidationTracker.notifyObserversByTableNames(tables);
+            }
+        }
+    };
+
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mBroadcastRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final long[] tableBits;
+            synchronized (mPendingTableBits) {
+                tableBits = mPendingTableBits.clone();
+                Arrays.fill(mPendingTableBits, 0);
+            }
+            if (mStopped.get() || isEmpty(tableBits)) {
+                return;
+            }
+            try {
+                final IMultiInstanceInvalidationService service = mService;
+                if (service != null) {
+                    service.broadcastInvalidation(mClientId, tableBits);
+                }
+            } catch (RemoteException e) {
+                Log.w(Room.LOG_TAG, "Cannot broadcast invalidation", e);
+            }
+        }
+    };
+
     // synthetic access
     @SuppressWarnings("WeakerAccess")
     final AtomicBoolean mStopped = new AtomicBoolean(false);
@@ -120,8 +195,13 @@ class MultiInstanceInvalidationClient {
             try {
                 final IMultiInstanceInvalidationService service = mService;
                 if (service != null) {
-                    mClientId = service.registerCallback(mCallback, mName);
+                    synchronized (mServiceLock) {
+                        mClientId = service.registerCallback(mCallback, mName,
+                                mInvalidationTracker.mTableNames);
+                        mObservedTableBits = null;
+                    }
                     mInvalidationTracker.addObserver(mObserver);
+                    sendObservedTables();
                 }
             } catch (RemoteException e) {
                 Log.w(Room.LOG_TAG, "Cannot register multi-instance invalidation callback", e);
@@ -129,6 +209,15 @@ class MultiInstanceInvalidationClient {
         }
     };
 
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final Runnable mSyncObservedTablesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sendObservedTables();
+        }
+    };
+
     // synthetic access
     @SuppressWarnings("WeakerAccess")
     final Runnable mRemoveObserverRunnable = new Runnable() {
@@ -151,6 +240,9 @@ class MultiInstanceInvalidationClient {
         mName = name;
         mInvalidationTracker = invalidationTracker;
         mExecutor = executor;
+        final int bitCount = (invalidationTracker.mTableNames.length + 63) >> 6;
+        mReceivedTableBits = new long[bitCount];
+        mPendingTableBits = new long[bitCount];
         // Use all tables names for observer.
         final Set<String> tableNames = invalidationTracker.mTableIdLookup.keySet();
         mObserver = new InvalidationTracker.Observer(tableNames.toArray(new String[0])) {
@@ -159,13 +251,19 @@ class MultiInstanceInvalidationClient {
                 if (mStopped.get()) {
                     return;
                 }
-                try {
-                    final IMultiInstanceInvalidationService service = mService;
-                    if (service != null) {
-                        service.broadcastInvalidation(mClientId, tables.toArray(new String[0]));
+                boolean broadcast;
+                synchronized (mPendingTableBits) {
+                    broadcast = isEmpty(mPendingTableBits);
+                    for (String table : tables) {
+                        Integer tableId = mInvalidationTracker.mTableIdLookup.get(
+                                table.toLowerCase(Locale.US));
+                        if (tableId != null) {
+                            mPendingTableBits[tableId >> 6] |= 1L << tableId;
+                        }
                     }
-                } catch (RemoteException e) {
-                    Log.w(Room.LOG_TAG, "Cannot broadcast invalidation", e);
+                }
+                if (broadcast) {
+                    mExecutor.execute(mBroadcastRunnable);
                 }
             }
 
@@ -178,6 +276,89 @@ class MultiInstanceInvalidationClient {
         mAppContext.bindService(intent, mServiceConnection, Context.BIND_AUTO_CREATE);
     }
 
+    /**
+     * Sends the tables that the observers of this instance are interested in to the service, so
+     * that it does not call this instance for the invalidation of other tables.
+     * <p>
+     * This is called when observers are added or removed, which can happen on the main thread,
+     * so the service is called on the background executor.
+     */
+    void syncObservedTables() {
+        if (mService == null || mStopped.get()) {
+            // the set up will sync them once connected
+            return;
+        }
+        mExecutor.execute(mSyncObservedTablesRunnable);
+    }
+
+    /**
+     * Sends the observed tables to the service if they changed since they were last sent.
+     * <p>
+     * Another instance can change a table after an observer of it was added but before the
+     * service knows about it, and the first query of the observer may not see that change.
+     * Observers of tables that were not observed before are therefore notified once the service
+     * knows about them.
+     */
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    void sendObservedTables() {
+        final IMultiInstanceInvalidationService service = mService;
+        if (service == null || mStopped.get()) {
+            return;
+        }
+        final long[] addedTableBits;
+        synchronized (mServiceLock) {
+            // Read under the lock, so that older tables are never sent after newer ones.
+            final long[] tableBits = mInvalidationTracker.getLocallyObservedTableBits();
+            if (Arrays.equals(tableBits, mObservedTableBits)) {
+                return;
+            }
+            try {
+                service.setObservedTables(mClientId, tableBits);
+            } catch (RemoteException e) {
+                Log.w(Room.LOG_TAG, "Cannot set observed tables", e);
+                return;
+            }
+            if (mObservedTableBits == null) {
+                // nothing was filtered out before
+                addedTableBits = null;
+            } else {
+                addedTableBits = new long[tableBits.length];
+                for (int i = 0; i < tableBits.length; i++) {
+                    addedTableBits[i] = tableBits[i] & ~mObservedTableBits[i];
+                }
+            }
+            mObservedTableBits = tableBits;
+        }
+        if (addedTableBits != null && !isEmpty(addedTableBits)) {
+            mInvalidationTracker.notifyObserversByTableNames(getTableNames(addedTableBits));
+        }
+    }
+
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    String[] getTableNames(long[] tableBits) {
+        final String[] tableNames = mInvalidationTracker.mTableNames;
+        final ArrayList<String> tables = new ArrayList<>();
+        for (int i = 0; i < tableNames.length; i++) {
+            if ((tableBits[i >> 6] & (1L << i)) != 0) {
+                tables.add(tableNames[i]);
+            }
+        }
+        return tables.toArray(new String[0]);
+    }
+
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    static boolean isEmpty(long[] tableBits) {
+        for (long bits : tableBits) {
+            if (bits != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     void stop() {
         if (mStopped.compareAndSet(false, true)) {
             mInvalidationTracker.removeObserver(mObserver);
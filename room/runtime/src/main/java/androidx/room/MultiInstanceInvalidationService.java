@@ -27,6 +27,9 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * A {@link Service} for remote invalidation among multiple {@link InvalidationTracker} instances.
@@ -44,7 +47,15 @@ public class MultiInstanceInvalidationService extends Service {
 
     // synthetic access
     @SuppressWarnings("WeakerAccess")
-    final HashMap<Integer, String> mClientNames = new HashMap<>();
+    final HashMap<Integer, Client> mClients = new HashMap<>();
+
+    /**
+     * The ids the service gives to the tables of each database file, so that clients that list
+     * the tables in different orders can still exchange table bits.
+     */
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    final HashMap<String, HashMap<String, Integer>> mTableIds = new HashMap<>();
 
     // synthetic access
     @SuppressWarnings("WeakerAccess")
@@ -53,7 +64,7 @@ public class MultiInstanceInvalidationService extends Service {
                 @Override
                 public void onCallbackDied(IMultiInstanceInvalidationCallback callback,
                         Object cookie) {
-                    mClientNames.remove((int) cookie);
+                    mClients.remove((int) cookie);
                 }
             };
 
@@ -63,15 +74,15 @@ public class MultiInstanceInvalidationService extends Service {
                 // Assigns a client ID to the client.
                 @Override
                 public int registerCallback(IMultiInstanceInvalidationCallback callback,
-                        String name) {
-                    if (name == null) {
+                        String name, String[] tables) {
+                    if (name == null || tables == null) {
                         return 0;
                     }
                     synchronized (mCallbackList) {
                         int clientId = ++mMaxClientId;
                         // Use the client ID as the RemoteCallbackList cookie.
                         if (mCallbackList.register(callback, clientId)) {
-                            mClientNames.put(clientId, name);
+                            mClients.put(clientId, new Client(name, getTableIds(name, tables)));
                             return clientId;
                         } else {
                             --mMaxClientId;
@@ -88,33 +99,59 @@ public class MultiInstanceInvalidationService extends Service {
                         int clientId) {
                     synchronized (mCallbackList) {
                         mCallbackList.unregister(callback);
-                        mClientNames.remove(clientId);
+                        mClients.remove(clientId);
                     }
                 }
 
-                // Broadcasts table invalidation to other instances of the same database file.
-                // The broadcast is not sent to the caller itself.
                 @Override
-                public void broadcastInvalidation(int clientId, String[] tables) {
+                public void setObservedTables(int clientId, long[] tableBits) {
                     synchronized (mCallbackList) {
-                        String name = mClientNames.get(clientId);
-                        if (name == null) {
+                        Client client = mClients.get(clientId);
+                        if (client != null) {
+                            client.mObservedTableBits = tableBits;
+                        }
+                    }
+                }
+
+                // Broadcasts table invalidation to other instances of the same database file
+                // that observe the tables. The broadcast is not sent to the caller itself.
+                @Override
+                public void broadcastInvalidation(int clientId, long[] tableBits) {
+                    synchronized (mCallbackList) {
+                        Client client = mClients.get(clientId);
+                        if (client == null) {
                             Log.w(Room.LOG_TAG, "Remote invalidation client ID not registered");
                             return;
                         }
+                        // the service ids of the invalidated tables
+                        HashSet<Integer> invalidated = new HashSet<>();
+                        for (int i = 0; i < client.mTableIds.length; i++) {
+                            if (isSet(tableBits, i)) {
+                                invalidated.add(client.mTableIds[i]);
+                            }
+                        }
+                        if (invalidated.isEmpty()) {
+                            return;
+                        }
                         int count = mCallbackList.beginBroadcast();
                         try {
                             for (int i = 0; i < count; i++) {
                                 int targetClientId = (int) mCallbackList.getBroadcastCookie(i);
-                                String targetName = mClientNames.get(targetClientId);
+                                Client target = mClients.get(targetClientId);
                                 if (clientId == targetClientId // This is the caller itself.
-                                        || !name.equals(targetName)) { // Not the same file.
+                                        || target == null
+                                        || !client.mName.equals(target.mName)) { // Other file.
+                                    continue;
+                                }
+                                long[] targetBits = target.getObservedBits(invalidated);
+                                if (targetBits == null) {
+                                    // Not observing any of the tables, so not worth a call.
                                     continue;
                                 }
                                 try {
                                     IMultiInstanceInvalidationCallback callback =
                                             mCallbackList.getBroadcastItem(i);
-                                    callback.onInvalidation(tables);
+                                    callback.onInvalidation(targetBits);
                                 } catch (RemoteException e) {
                                     Log.w(Room.LOG_TAG, "Error invoking a remote callback", e);
                                 }
@@ -126,6 +163,71 @@ public class MultiInstanceInvalidationService extends Service {
                 }
             };
 
+    /**
+     * Returns the service ids of the given tables of a database file, assigning ids to the tables
+     * seen for the first time.
+     */
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    int[] getTableIds(String name, String[] tables) {
+        HashMap<String, Integer> ids = mTableIds.get(name);
+        if (ids == null) {
+            ids = new HashMap<>();
+            mTableIds.put(name, ids);
+        }
+        int[] result = new int[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            String table = tables[i].toLowerCase(Locale.US);
+            Integer id = ids.get(table);
+            if (id == null) {
+                id = ids.size();
+                ids.put(table, id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    // synthetic access
+    @SuppressWarnings("WeakerAccess")
+    static boolean isSet(long[] bits, int index) {
+        return (index >> 6) < bits.length && (bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * A registered client.
+     */
+    private static class Client {
+        final String mName;
+        // the service ids of the tables of the client, indexed by the client table ids.
+        final int[] mTableIds;
+        // null until the client sets it, which means that all tables are observed.
+        long[] mObservedTableBits;
+
+        Client(String name, int[] tableIds) {
+            mName = name;
+            mTableIds = tableIds;
+        }
+
+        /**
+         * Returns the bits of the given tables that the client observes, or null if there are
+         * none.
+         */
+        long[] getObservedBits(Set<Integer> invalidated) {
+            long[] bits = null;
+            for (int i = 0; i < mTableIds.length; i++) {
+                if (invalidated.contains(mTableIds[i])
+                        && (mObservedTableBits == null || isSet(mObservedTableBits, i))) {
+                    if (bits == null) {
+                        bits = new long[(mTableIds.length + 63) >> 6];
+                    }
+                    bits[i >> 6] |= 1L << i;
+                }
+            }
+            return bits;
+        }
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
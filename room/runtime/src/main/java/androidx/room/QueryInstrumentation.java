@@ -0,0 +1,344 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.Build;
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.tracing.Trace;
+
+import java.io.IOException;
+
+/**
+ * Measures the queries of a {@link RoomDatabase} for its
+ * {@link RoomDatabase.QueryMetricsCallback} and wraps them in trace sections.
+ * <p>
+ * The database only creates one if either was requested, so nothing is measured otherwise.
+ */
+class QueryInstrumentation {
+    // android.os.Trace rejects longer section names
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+    private static final String SECTION_PREFIX = "Room ";
+
+    @Nullable
+    private final RoomDatabase.QueryMetricsCallback mCallback;
+    private final boolean mTrace;
+
+    QueryInstrumentation(@Nullable RoomDatabase.QueryMetricsCallback callback, boolean trace) {
+        mCallback = callback;
+        mTrace = trace;
+    }
+
+    @NonNull
+    Cursor query(@NonNull SupportSQLiteDatabase db, @NonNull SupportSQLiteQuery query,
+            @Nullable CancellationSignal signal) {
+        final String sql = query.getSql();
+        beginSection(sql);
+        try {
+            final long start = System.nanoTime();
+            final Cursor cursor;
+            if (signal != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                cursor = db.query(query, signal);
+            } else {
+                cursor = db.query(query);
+            }
+            return new MeasuredCursor(cursor, sql, System.nanoTime() - start);
+        } finally {
+            endSection();
+        }
+    }
+
+    @NonNull
+    SupportSQLiteStatement compileStatement(@NonNull SupportSQLiteDatabase db,
+            @NonNull String sql) {
+        beginSection(sql);
+        try {
+            final long start = System.nanoTime();
+            final SupportSQLiteStatement statement = db.compileStatement(sql);
+            return new Statement(statement, sql, System.nanoTime() - start);
+        } finally {
+            endSection();
+        }
+    }
+
+    void beginTransaction(@NonNull SupportSQLiteDatabase db) {
+        beginSection("BEGIN TRANSACTION");
+        try {
+            final long start = System.nanoTime();
+            db.beginTransaction();
+            if (mCallback != null) {
+                mCallback.onTransactionBegin(System.nanoTime() - start);
+            }
+        } finally {
+            endSection();
+        }
+    }
+
+    void report(@NonNull String sql, long compileTimeNanos, long executionTimeNanos,
+            int rowCount) {
+        if (mCallback != null) {
+            mCallback.onQuery(
+                    new QueryMetrics(sql, compileTimeNanos, executionTimeNanos, rowCount));
+        }
+    }
+
+    /**
+     * Returns the number of rows of VALUES in an insert statement, as generated by
+     * {@link EntityInsertionAdapter}: {@code VALUES (?,?),(?,?)}.
+     */
+    @VisibleForTesting
+    static int countValuesRows(@NonNull String sql) {
+        final int valuesIndex = sql.lastIndexOf("VALUES");
+        if (valuesIndex < 0) {
+            return 1;
+        }
+        int rows = 1;
+        int index = valuesIndex;
+        while ((index = sql.indexOf("),(", index)) >= 0) {
+            rows++;
+            index += 3;
+        }
+        return rows;
+    }
+
+    void beginSection(@NonNull String sql) {
+        if (!mTrace) {
+            return;
+        }
+        final String name = SECTION_PREFIX + sql;
+        Trace.beginSection(name.length() > MAX_SECTION_NAME_LENGTH
+                ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name);
+    }
+
+    void endSection() {
+        if (mTrace) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Reports a query when its cursor is first read. A SQLite cursor runs the query and counts
+     * its rows on the first read, so the rows are counted then rather than when the query is
+     * compiled. A cursor that is closed without being read is reported with an unknown row count.
+     */
+    private class MeasuredCursor extends CursorWrapper {
+        private final String mSql;
+        private final long mCompileTimeNanos;
+        private boolean mReported;
+
+        MeasuredCursor(Cursor cursor, String sql, long compileTimeNanos) {
+            super(cursor);
+            mSql = sql;
+            mCompileTimeNanos = compileTimeNanos;
+        }
+
+        private void fill() {
+            if (mReported) {
+                return;
+            }
+            mReported = true;
+            beginSection(mSql);
+            try {
+                final long start = System.nanoTime();
+                final int rowCount = super.getCount();
+                report(mSql, mCompileTimeNanos, System.nanoTime() - start, rowCount);
+            } finally {
+                endSection();
+            }
+        }
+
+        @Override
+        public int getCount() {
+            fill();
+            return super.getCount();
+        }
+
+        @Override
+        public boolean move(int offset) {
+            fill();
+            return super.move(offset);
+        }
+
+        @Override
+        public boolean moveToPosition(int position) {
+            fill();
+            return super.moveToPosition(position);
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            fill();
+            return super.moveToFirst();
+        }
+
+        @Override
+        public boolean moveToLast() {
+            fill();
+            return super.moveToLast();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            fill();
+            return super.moveToNext();
+        }
+
+        @Override
+        public boolean moveToPrevious() {
+            fill();
+            return super.moveToPrevious();
+        }
+
+        @Override
+        public void close() {
+            if (!mReported) {
+                mReported = true;
+                report(mSql, mCompileTimeNanos, 0, -1);
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Measures each execution of a compiled statement. The compile time is reported with the
+     * first execution only.
+     */
+    private class Statement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement mDelegate;
+        private final String mSql;
+        private final int mValuesRowCount;
+        private long mCompileTimeNanos;
+
+        Statement(SupportSQLiteStatement delegate, String sql, long compileTimeNanos) {
+            mDelegate = delegate;
+            mSql = sql;
+            mValuesRowCount = countValuesRows(sql);
+            mCompileTimeNanos = compileTimeNanos;
+        }
+
+        private long begin() {
+            beginSection(mSql);
+            return System.nanoTime();
+        }
+
+        private void end(long start, int rowCount) {
+            final long executionTimeNanos = System.nanoTime() - start;
+            endSection();
+            report(mSql, mCompileTimeNanos, executionTimeNanos, rowCount);
+            mCompileTimeNanos = 0;
+        }
+
+        @Override
+        public void execute() {
+            final long start = begin();
+            try {
+                mDelegate.execute();
+            } finally {
+                end(start, -1);
+            }
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            final long start = begin();
+            int rowCount = -1;
+            try {
+                rowCount = mDelegate.executeUpdateDelete();
+                return rowCount;
+            } finally {
+                end(start, rowCount);
+            }
+        }
+
+        @Override
+        public long executeInsert() {
+            final long start = begin();
+            int rowCount = -1;
+            try {
+                final long rowId = mDelegate.executeInsert();
+                // a multiple row insert only returns the id of its last row
+                rowCount = rowId == -1 ? 0 : mValuesRowCount;
+                return rowId;
+            } finally {
+                end(start, rowCount);
+            }
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            final long start = begin();
+            try {
+                return mDelegate.simpleQueryForLong();
+            } finally {
+                end(start, 1);
+            }
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            final long start = begin();
+            try {
+                return mDelegate.simpleQueryForString();
+            } finally {
+                end(start, 1);
+            }
+        }
+
+        @Override
+        public void bindNull(int index) {
+            mDelegate.bindNull(index);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            mDelegate.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            mDelegate.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            mDelegate.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            mDelegate.bindBlob(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            mDelegate.clearBindings();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mDelegate.close();
+        }
+    }
+}
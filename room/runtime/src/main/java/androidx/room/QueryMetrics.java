@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * The cost of one query run by a {@link RoomDatabase}, as reported to a
+ * {@link RoomDatabase.QueryMetricsCallback}.
+ */
+public final class QueryMetrics {
+    private final String mSql;
+    private final long mCompileTimeNanos;
+    private final long mExecutionTimeNanos;
+    private final int mRowCount;
+
+    /**
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    public QueryMetrics(@NonNull String sql, long compileTimeNanos, long executionTimeNanos,
+            int rowCount) {
+        mSql = sql;
+        mCompileTimeNanos = compileTimeNanos;
+        mExecutionTimeNanos = executionTimeNanos;
+        mRowCount = rowCount;
+    }
+
+    /**
+     * @return The SQL of the query, with {@code ?} in place of its arguments.
+     */
+    @NonNull
+    public String getSql() {
+        return mSql;
+    }
+
+    /**
+     * Returns the time it took to compile the query, including the time spent waiting for a
+     * connection to the database. Statements that are run again without being compiled again,
+     * such as the ones of {@link Insert}, {@link Update} and {@link Delete} methods, report a
+     * compile time of 0.
+     *
+     * @return The compile time, in nanoseconds.
+     */
+    public long getCompileTimeNanos() {
+        return mCompileTimeNanos;
+    }
+
+    /**
+     * Returns the time it took to run the query. For a query that returns rows, this is the time
+     * it took to count them and read the first rows into memory.
+     *
+     * @return The execution time, in nanoseconds.
+     */
+    public long getExecutionTimeNanos() {
+        return mExecutionTimeNanos;
+    }
+
+    /**
+     * @return The number of rows returned by a query, or changed by an {@code UPDATE} or
+     * {@code DELETE} statement, or {@code -1} if it is not known.
+     */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryMetrics{sql='" + mSql + '\''
+                + ", compileTimeNanos=" + mCompileTimeNanos
+                + ", executionTimeNanos=" + mExecutionTimeNanos
+                + ", rowCount=" + mRowCount + '}';
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link RoomDatabase.QueryMetricsCallback} that keeps the durations of the latest runs of each
+ * query, so that their percentiles can be read at any time.
+ * <pre>
+ * QueryMetricsAggregator metrics = new QueryMetricsAggregator();
+ * MusicDatabase db = Room.databaseBuilder(context, MusicDatabase.class, "music.db")
+ *         .setQueryMetricsCallback(metrics)
+ *         .build();
+ * ...
+ * for (String sql : metrics.getQueries()) {
+ *     long p90 = metrics.getDurationPercentileNanos(sql, 90);
+ * }
+ * </pre>
+ * The duration of a query is the sum of its compile and execution times. Queries are grouped by
+ * their SQL, in which arguments are {@code ?}. Only the latest {@link #MAX_QUERIES} distinct
+ * queries are kept.
+ * <p>
+ * This class is thread safe.
+ */
+public class QueryMetricsAggregator extends RoomDatabase.QueryMetricsCallback {
+    /**
+     * The number of runs of each query the percentiles are computed from by default.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 128;
+
+    /**
+     * The number of distinct queries the aggregator keeps metrics for.
+     */
+    public static final int MAX_QUERIES = 256;
+
+    private final int mSampleSize;
+    private final Map<String, Samples> mQueries =
+            new LinkedHashMap<String, Samples>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Samples> eldest) {
+                    return size() > MAX_QUERIES;
+                }
+            };
+    private final Samples mTransactionWaits;
+
+    public QueryMetricsAggregator() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * @param sampleSize The number of runs of each query the percentiles are computed from.
+     */
+    public QueryMetricsAggregator(@IntRange(from = 1) int sampleSize) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be at least 1.");
+        }
+        mSampleSize = sampleSize;
+        mTransactionWaits = new Samples(sampleSize);
+    }
+
+    @Override
+    public void onQuery(@NonNull QueryMetrics metrics) {
+        final long duration = metrics.getCompileTimeNanos() + metrics.getExecutionTimeNanos();
+        synchronized (this) {
+            Samples samples = mQueries.get(metrics.getSql());
+            if (samples == null) {
+                samples = new Samples(mSampleSize);
+                mQueries.put(metrics.getSql(), samples);
+            }
+            samples.add(duration, metrics.getRowCount());
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionBegin(long waitTimeNanos) {
+        mTransactionWaits.add(waitTimeNanos, -1);
+    }
+
+    /**
+     * @return The SQL of the queries the aggregator has metrics for.
+     */
+    @NonNull
+    public synchronized Set<String> getQueries() {
+        return new HashSet<>(mQueries.keySet());
+    }
+
+    /**
+     * @param sql The SQL of a query.
+     * @return The number of times the query ran, 0 if it is not known.
+     */
+    public synchronized long getRunCount(@NonNull String sql) {
+        final Samples samples = mQueries.get(sql);
+        return samples == null ? 0 : samples.mCount;
+    }
+
+    /**
+     * Returns a percentile of the latest durations of a query, such as 50 for the median.
+     *
+     * @param sql        The SQL of a query.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The duration in nanoseconds, or -1 if the query is not known.
+     */
+    public synchronized long getDurationPercentileNanos(@NonNull String sql,
+            double percentile) {
+        checkPercentile(percentile);
+        final Samples samples = mQueries.get(sql);
+        return samples == null ? -1 : samples.percentile(percentile);
+    }
+
+    /**
+     * @param sql The SQL of a query.
+     * @return The average number of rows the query returned or changed, or -1 if it is not
+     * known.
+     */
+    public synchronized double getAverageRowCount(@NonNull String sql) {
+        final Samples samples = mQueries.get(sql);
+        if (samples == null || samples.mRowCounts == 0) {
+            return -1;
+        }
+        return (double) samples.mTotalRows / samples.mRowCounts;
+    }
+
+    /**
+     * Returns a percentile of the latest times transactions waited to begin.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The wait time in nanoseconds, or -1 if no transaction began.
+     */
+    public synchronized long getTransactionWaitPercentileNanos(double percentile) {
+        checkPercentile(percentile);
+        return mTransactionWaits.percentile(percentile);
+    }
+
+    /**
+     * Forgets all metrics.
+     */
+    public synchronized void clear() {
+        mQueries.clear();
+        mTransactionWaits.clear();
+    }
+
+    private static void checkPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+    }
+
+    /**
+     * The latest values in a ring buffer, and totals over all values.
+     */
+    private static class Samples {
+        final long[] mValues;
+        int mSize;
+        int mNext;
+        long mCount;
+        long mTotalRows;
+        long mRowCounts;
+
+        Samples(int size) {
+            mValues = new long[size];
+        }
+
+        void add(long value, int rowCount) {
+            mValues[mNext] = value;
+            mNext = (mNext + 1) % mValues.length;
+            if (mSize < mValues.length) {
+                mSize++;
+            }
+            mCount++;
+            if (rowCount >= 0) {
+                mTotalRows += rowCount;
+                mRowCounts++;
+            }
+        }
+
+        long percentile(double percentile) {
+            if (mSize == 0) {
+                return -1;
+            }
+            final long[] sorted = Arrays.copyOf(mValues, mSize);
+            Arrays.sort(sorted);
+            // nearest rank
+            final int rank = (int) Math.ceil(percentile / 100 * mSize);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        void clear() {
+            mSize = 0;
+            mNext = 0;
+            mCount = 0;
+            mTotalRows = 0;
+            mRowCounts = 0;
+        }
+    }
+}
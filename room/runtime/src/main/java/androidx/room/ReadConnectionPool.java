@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed number of extra connections to a write-ahead logging database that serve queries
+ * outside of transactions, so that they neither wait for nor block the connection that runs
+ * transactions.
+ * <p>
+ * Each reader is opened through the same {@link SupportSQLiteOpenHelper.Factory} as the main
+ * database, lazily and only after the main database was opened, so that it never has to create
+ * or migrate the schema. Readers are handed out round robin; they are thread safe and may serve
+ * several queries at a time.
+ */
+@RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+class ReadConnectionPool {
+    private final Context mContext;
+    private final String mName;
+    private final SupportSQLiteOpenHelper.Factory mFactory;
+    private final SupportSQLiteOpenHelper[] mHelpers;
+    private final AtomicReferenceArray<SupportSQLiteDatabase> mDatabases;
+    private final AtomicInteger mNext = new AtomicInteger();
+
+    ReadConnectionPool(@NonNull Context context, @NonNull String name,
+            @NonNull SupportSQLiteOpenHelper.Factory factory, int size) {
+        mContext = context;
+        mName = name;
+        mFactory = factory;
+        mHelpers = new SupportSQLiteOpenHelper[size];
+        mDatabases = new AtomicReferenceArray<>(size);
+    }
+
+    int size() {
+        return mHelpers.length;
+    }
+
+    /**
+     * Returns the next reader connection, opening it if necessary.
+     *
+     * @param writer The main database, which must already be open.
+     * @return A database to run a query on.
+     */
+    @NonNull
+    SupportSQLiteDatabase get(@NonNull SupportSQLiteDatabase writer) {
+        final int index = (mNext.getAndIncrement() & Integer.MAX_VALUE) % mHelpers.length;
+        SupportSQLiteDatabase db = mDatabases.get(index);
+        if (db == null || !db.isOpen()) {
+            db = open(index, writer.getVersion());
+        }
+        return db;
+    }
+
+    private synchronized SupportSQLiteDatabase open(int index, int version) {
+        SupportSQLiteDatabase db = mDatabases.get(index);
+        if (db != null && db.isOpen()) {
+            return db;
+        }
+        if (mHelpers[index] == null) {
+            SupportSQLiteOpenHelper.Configuration configuration =
+                    SupportSQLiteOpenHelper.Configuration.builder(mContext)
+                            .name(mName)
+                            .callback(new ReaderCallback(version))
+                            .build();
+            SupportSQLiteOpenHelper helper = mFactory.create(configuration);
+            // A reader that does not ask for WAL would switch the journal mode of the database.
+            helper.setWriteAheadLoggingEnabled(true);
+            mHelpers[index] = helper;
+        }
+        db = mHelpers[index].getReadableDatabase();
+        mDatabases.set(index, db);
+        return db;
+    }
+
+    /**
+     * Closes all reader connections. They are reopened on demand.
+     */
+    synchronized void close() {
+        for (int i = 0; i < mHelpers.length; i++) {
+            if (mHelpers[i] != null) {
+                mHelpers[i].close();
+                mHelpers[i] = null;
+            }
+            mDatabases.set(i, null);
+        }
+    }
+
+    /**
+     * Readers are only opened once the main database has been created and migrated, so they
+     * should never be asked to change the schema.
+     */
+    static class ReaderCallback extends SupportSQLiteOpenHelper.Callback {
+        ReaderCallback(int version) {
+            super(version);
+        }
+
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            throw new IllegalStateException("A read connection cannot create the database.");
+        }
+
+        @Override
+        public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion,
+                int newVersion) {
+            throw new IllegalStateException("A read connection cannot migrate the database from "
+                    + oldVersion + " to " + newVersion + ".");
+        }
+    }
+}
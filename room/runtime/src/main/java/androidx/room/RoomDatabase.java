@@ -20,12 +20,14 @@ import android.annotation.SuppressLint;
 import android.app.ActivityManager;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.os.Build;
 import android.os.CancellationSignal;
 import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.CallSuper;
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
@@ -53,6 +55,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -85,7 +88,15 @@ public abstract class RoomDatabase {
     private Executor mTransactionExecutor;
     private SupportSQLiteOpenHelper mOpenHelper;
     private final InvalidationTracker mInvalidationTracker;
+    private volatile StatementCache mStatementCache =
+            new StatementCache(this, StatementCache.DEFAULT_MAX_SIZE);
+    private int mSqlCacheSize;
+    @Nullable
+    private ReadConnectionPool mReadConnectionPool;
+    @Nullable
+    private QueryInstrumentation mQueryInstrumentation;
     private boolean mAllowMainThreadQueries;
+    private boolean mParallelRelationFetching;
     boolean mWriteAheadLoggingEnabled;
 
     /**
@@ -245,6 +256,10 @@ public abstract class RoomDatabase {
             closeLock.lock();
             try {
                 mInvalidationTracker.stopMultiInstanceInvalidation();
+                mStatementCache.invalidate();
+                if (mReadConnectionPool != null) {
+                    mReadConnectionPool.close();
+                }
                 mOpenHelper.close();
             } finally {
                 closeLock.unlock();
@@ -298,7 +313,11 @@ public abstract class RoomDatabase {
      */
     @NonNull
     public Cursor query(@NonNull String query, @Nullable Object[] args) {
-        return mOpenHelper.getWritableDatabase().query(new SimpleSQLiteQuery(query, args));
+        final SimpleSQLiteQuery sqLiteQuery = new SimpleSQLiteQuery(query, args);
+        if (mQueryInstrumentation != null) {
+            return mQueryInstrumentation.query(getQueryDatabase(), sqLiteQuery, null);
+        }
+        return getQueryDatabase().query(sqLiteQuery);
     }
 
     /**
@@ -323,13 +342,46 @@ public abstract class RoomDatabase {
     public Cursor query(@NonNull SupportSQLiteQuery query, @Nullable CancellationSignal signal) {
         assertNotMainThread();
         assertNotSuspendingTransaction();
+        final SupportSQLiteDatabase db = getQueryDatabase();
+        if (mQueryInstrumentation != null) {
+            return mQueryInstrumentation.query(db, query, signal);
+        }
         if (signal != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-            return mOpenHelper.getWritableDatabase().query(query, signal);
+            return db.query(query, signal);
         } else {
-            return mOpenHelper.getWritableDatabase().query(query);
+            return db.query(query);
         }
     }
 
+    /**
+     * Returns the database to run a query on: one of the read connections if there are any and
+     * the current thread is not in a transaction, the main database otherwise.
+     */
+    private SupportSQLiteDatabase getQueryDatabase() {
+        final SupportSQLiteDatabase writer = mOpenHelper.getWritableDatabase();
+        if (mReadConnectionPool == null || !mWriteAheadLoggingEnabled || writer.inTransaction()) {
+            return writer;
+        }
+        return mReadConnectionPool.get(writer);
+    }
+
+    /**
+     * Sets up {@code size} extra connections that serve queries while another thread runs a
+     * transaction. Called by the {@link Builder} before {@link #init(DatabaseConfiguration)}.
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    void setReadConnectionPool(@NonNull Context context, @NonNull String name,
+            @NonNull SupportSQLiteOpenHelper.Factory factory, int size) {
+        mReadConnectionPool = new ReadConnectionPool(context, name, factory, size);
+    }
+
+    /**
+     * Called by the {@link Builder} if queries should be measured or traced.
+     */
+    void setQueryInstrumentation(@NonNull QueryInstrumentation instrumentation) {
+        mQueryInstrumentation = instrumentation;
+    }
+
     /**
      * Wrapper for {@link SupportSQLiteDatabase#compileStatement(String)}.
      *
@@ -339,9 +391,65 @@ public abstract class RoomDatabase {
     public SupportSQLiteStatement compileStatement(@NonNull String sql) {
         assertNotMainThread();
         assertNotSuspendingTransaction();
+        if (mQueryInstrumentation != null) {
+            return mQueryInstrumentation.compileStatement(mOpenHelper.getWritableDatabase(), sql);
+        }
         return mOpenHelper.getWritableDatabase().compileStatement(sql);
     }
 
+    /**
+     * Returns a compiled statement for the given SQL from this database's statement cache. Must
+     * call {@link #releaseStatement(SupportSQLiteStatement)} once done.
+     *
+     * @param sql The query to compile.
+     * @return The compiled query.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    @NonNull
+    public SupportSQLiteStatement acquireStatement(@NonNull String sql) {
+        assertNotMainThread();
+        assertNotSuspendingTransaction();
+        return mStatementCache.acquire(sql);
+    }
+
+    /**
+     * Returns a statement acquired from {@link #acquireStatement(String)} to the statement cache.
+     *
+     * @param statement The statement to release.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    public void releaseStatement(@NonNull SupportSQLiteStatement statement) {
+        mStatementCache.release(statement);
+    }
+
+    /**
+     * Returns the cache of compiled statements used by the generated code, which also keeps hit and
+     * miss statistics.
+     *
+     * @return The statement cache.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    @NonNull
+    public StatementCache getStatementCache() {
+        return mStatementCache;
+    }
+
+    /**
+     * Replaces the statement cache with one holding up to {@code size} statements. Also raises the
+     * size of the prepared statement cache SQLite keeps for each connection, which is used by read
+     * queries, when the database is opened.
+     */
+    void setStatementCacheSize(int size) {
+        StatementCache old = mStatementCache;
+        mStatementCache = new StatementCache(this, size);
+        old.invalidate();
+        // SQLite connections cache 25 statements by default, only ever grow that.
+        mSqlCacheSize = size > 25 ? Math.min(size, SQLiteDatabase.MAX_SQL_CACHE_SIZE) : 0;
+    }
+
     /**
      * Wrapper for {@link SupportSQLiteDatabase#beginTransaction()}.
      *
@@ -352,7 +460,11 @@ public abstract class RoomDatabase {
         assertNotMainThread();
         SupportSQLiteDatabase database = mOpenHelper.getWritableDatabase();
         mInvalidationTracker.syncTriggers(database);
-        database.beginTransaction();
+        if (mQueryInstrumentation != null) {
+            mQueryInstrumentation.beginTransaction(database);
+        } else {
+            database.beginTransaction();
+        }
     }
 
     /**
@@ -370,6 +482,26 @@ public abstract class RoomDatabase {
         }
     }
 
+    /**
+     * Called by the {@link Builder} when {@link Builder#enableParallelRelationFetching()} is set.
+     */
+    void setParallelRelationFetching(boolean enabled) {
+        mParallelRelationFetching = enabled;
+    }
+
+    /**
+     * Returns whether the relations of a query may be fetched in parallel on the
+     * {@link #getQueryExecutor() query executor}, which is only the case if it was enabled, the
+     * database uses write-ahead logging and the current thread is not in a transaction.
+     *
+     * @return True if the relations may be fetched in parallel.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    public boolean canFetchRelationsInParallel() {
+        return mParallelRelationFetching && mWriteAheadLoggingEnabled && !inTransaction();
+    }
+
     /**
      * @return The Executor in use by this database for async queries.
      */
@@ -450,6 +582,12 @@ public abstract class RoomDatabase {
      * @param db The database instance.
      */
     protected void internalInitInvalidationTracker(@NonNull SupportSQLiteDatabase db) {
+        // Statements compiled before the database was (re)opened belong to a closed connection
+        // and may not match the migrated schema.
+        mStatementCache.invalidate();
+        if (mSqlCacheSize > 0) {
+            db.setMaxSqlCacheSize(mSqlCacheSize);
+        }
         mInvalidationTracker.internalInit(db);
     }
 
@@ -477,6 +615,31 @@ public abstract class RoomDatabase {
         return mOpenHelper.getWritableDatabase().inTransaction();
     }
 
+    /**
+     * Returns the number of times a DAO query reused a pooled query object since the process
+     * started.
+     * <p>
+     * The pool is shared by all databases in the process. Compare with
+     * {@link #getQueryPoolMissCount()} to decide whether {@link Builder#setQueryPoolSize(int)}
+     * should be raised.
+     *
+     * @return The number of pool hits in this process.
+     */
+    public static long getQueryPoolHitCount() {
+        return RoomSQLiteQuery.getPoolHitCount();
+    }
+
+    /**
+     * Returns the number of times a DAO query had to allocate a new query object because the
+     * pool had none to reuse, since the process started.
+     *
+     * @return The number of pool misses in this process.
+     * @see #getQueryPoolHitCount()
+     */
+    public static long getQueryPoolMissCount() {
+        return RoomSQLiteQuery.getPoolMissCount();
+    }
+
     /**
      * Journal modes for SQLite database.
      *
@@ -551,6 +714,14 @@ public abstract class RoomDatabase {
         private boolean mAllowMainThreadQueries;
         private JournalMode mJournalMode;
         private boolean mMultiInstanceInvalidation;
+        private boolean mParallelRelationFetching;
+        @Nullable
+        private QueryMetricsCallback mQueryMetricsCallback;
+        private boolean mQueryTracing;
+        private int mQueryPoolSize;
+        private int mStatementCacheSize = -1;
+        private int mReadConnectionPoolSize;
+        private long mInvalidationCoalescingWindowMillis;
         private boolean mRequireMigration;
         private boolean mAllowDestructiveMigrationOnDowngrade;
         /**
@@ -900,6 +1071,173 @@ public abstract class RoomDatabase {
             return this;
         }
 
+        /**
+         * Sets the number of idle query objects Room keeps around for reuse, per group of queries
+         * with a similar number of bind arguments.
+         * <p>
+         * Every DAO query acquires one of these objects to hold its bind arguments. Raising the
+         * size reduces allocations when many threads run queries concurrently, at the cost of
+         * keeping more objects alive. The pool is shared by all databases in the process, so the
+         * largest size requested by any database is used.
+         * <p>
+         * The default size is 4. Use {@link RoomDatabase#getQueryPoolHitCount()} and
+         * {@link RoomDatabase#getQueryPoolMissCount()} to see how well the pool is serving queries.
+         *
+         * @param size The number of idle query objects to keep per group, must be positive.
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> setQueryPoolSize(@IntRange(from = 1) int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Query pool size must be positive.");
+            }
+            mQueryPoolSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the number of compiled statements Room keeps around for reuse, keyed by their SQL.
+         * <p>
+         * Queries that cannot share a single statement, such as {@code DELETE} or {@code UPDATE}
+         * queries with a variable number of arguments, are compiled once per distinct SQL and
+         * reused while they stay in this least recently used cache. The same size is also applied
+         * to the cache of prepared statements SQLite keeps for each connection, which serves read
+         * queries, if it is bigger than that cache's default size of 25 (up to 100).
+         * <p>
+         * The default size is 16. Passing 0 disables the cache.
+         *
+         * @param size The maximum number of statements to cache.
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> setStatementCacheSize(@IntRange(from = 0) int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Statement cache size cannot be negative.");
+            }
+            mStatementCacheSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the number of extra read connections Room opens to the database when it uses
+         * {@link JournalMode#WRITE_AHEAD_LOGGING write-ahead logging}.
+         * <p>
+         * With read connections, queries that are not part of a transaction, including the ones
+         * run by {@code LiveData}, {@code Flow} and RxJava observers, are spread over the read
+         * connections instead of sharing the connection pool of the main database. Since write-
+         * ahead logging lets readers and a writer work at the same time, those queries run in
+         * parallel with each other and are not held up by a long write transaction. Queries
+         * inside a transaction, including {@link Transaction} DAO methods, keep running on the
+         * main database so they see the transaction's changes.
+         * <p>
+         * Read connections only see the main schema: {@code TEMP} tables and attached databases
+         * created on the main database are not visible to them, and statements that modify the
+         * database should not be run through {@link RoomDatabase#query(SupportSQLiteQuery)}.
+         * <p>
+         * This has no effect on in-memory databases or when write-ahead logging is not used. By
+         * default there are no read connections.
+         *
+         * @param size The number of read connections to open.
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> setReadConnectionPoolSize(@IntRange(from = 0) int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Read connection pool size cannot be "
+                        + "negative.");
+            }
+            mReadConnectionPoolSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the minimum time between two checks for modified tables by the
+         * {@link InvalidationTracker}.
+         * <p>
+         * By default, the tracker checks for modified tables after every transaction and notifies
+         * the observers of {@code LiveData}, {@code Flow} and RxJava queries right away, so a burst
+         * of small transactions makes those queries run again many times. With a coalescing window,
+         * a check requested less than a window after the previous one is postponed until the
+         * window is over, and all tables modified in the meantime are merged into a single
+         * notification for each observer.
+         *
+         * @param window   The coalescing window, 0 to check after every transaction.
+         * @param timeUnit The unit of {@code window}.
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> setInvalidationCoalescingWindow(@IntRange(from = 0) long window,
+                @NonNull TimeUnit timeUnit) {
+            if (window < 0) {
+                throw new IllegalArgumentException("Coalescing window cannot be negative.");
+            }
+            mInvalidationCoalescingWindowMillis = timeUnit.toMillis(window);
+            return this;
+        }
+
+        /**
+         * Sets a callback that is told how long each query of the database took to compile and
+         * run, how many rows it returned or changed and how long each transaction waited to
+         * begin.
+         * <p>
+         * The callback is invoked on the thread that ran the query, right after it ran, so it
+         * should only record the metrics, for instance with a {@link QueryMetricsAggregator}.
+         * A read query is reported when its cursor is first read, which is when SQLite runs it
+         * and counts its rows. A cursor that is closed without being read is reported with an
+         * unknown row count.
+         * <p>
+         * Without a callback, queries are not measured.
+         *
+         * @param callback The callback to report metrics to.
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> setQueryMetricsCallback(@NonNull QueryMetricsCallback callback) {
+            mQueryMetricsCallback = callback;
+            return this;
+        }
+
+        /**
+         * Wraps each query of the database in a trace section named after its SQL, so that
+         * queries show up in system traces. The names are truncated to the 127 characters a
+         * section name can have.
+         * <p>
+         * This is not enabled by default.
+         *
+         * @return This {@link Builder} instance.
+         * @see androidx.tracing.Trace
+         */
+        @NonNull
+        public Builder<T> enableQueryTracing() {
+            mQueryTracing = true;
+            return this;
+        }
+
+        /**
+         * Lets Room fetch the {@link Relation}s of a query result in parallel.
+         * <p>
+         * By default, when a POJO has several relations, Room queries them one after another on
+         * the calling thread. With this option, the relations of the same POJO are queried at the
+         * same time: one on the calling thread and the others on the
+         * {@link #setQueryExecutor(Executor) query executor}. Nested relations are still fetched
+         * one after another by the thread that fetches their parent.
+         * <p>
+         * Relations are only fetched in parallel when the database uses
+         * {@link JournalMode#WRITE_AHEAD_LOGGING write-ahead logging}, preferably with
+         * {@link #setReadConnectionPoolSize(int) read connections}, and when the query does not
+         * run in a transaction, since other threads cannot see the transaction. This means that
+         * {@link Transaction} DAO methods keep fetching their relations one after another.
+         * <p>
+         * This is not enabled by default.
+         *
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> enableParallelRelationFetching() {
+            mParallelRelationFetching = true;
+            return this;
+        }
+
         /**
          * Sets whether table invalidation in this instance of {@link RoomDatabase} should be
          * broadcast and synchronized with other instances of the same {@link RoomDatabase},
@@ -1058,6 +1396,13 @@ public abstract class RoomDatabase {
                 mFactory = new FrameworkSQLiteOpenHelperFactory();
             }
 
+            if (mQueryPoolSize > 0) {
+                RoomSQLiteQuery.ensurePoolSize(mQueryPoolSize);
+            }
+
+            // Readers never copy or migrate, so they use the factory before it is wrapped below.
+            final SupportSQLiteOpenHelper.Factory readerFactory = mFactory;
+
             if (mCopyFromAssetPath != null
                     || mCopyFromFile != null
                     || mCopyFromInputStream != null) {
@@ -1078,6 +1423,7 @@ public abstract class RoomDatabase {
                 mFactory = new SQLiteCopyOpenHelperFactory(mCopyFromAssetPath, mCopyFromFile,
                         mCopyFromInputStream, mFactory);
             }
+            final JournalMode journalMode = mJournalMode.resolve(mContext);
             DatabaseConfiguration configuration =
                     new DatabaseConfiguration(
                             mContext,
@@ -1086,7 +1432,7 @@ public abstract class RoomDatabase {
                             mMigrationContainer,
                             mCallbacks,
                             mAllowMainThreadQueries,
-                            mJournalMode.resolve(mContext),
+                            journalMode,
                             mQueryExecutor,
                             mTransactionExecutor,
                             mMultiInstanceInvalidation,
@@ -1098,7 +1444,24 @@ public abstract class RoomDatabase {
                             mCopyFromInputStream,
                             mPrepackagedDatabaseCallback);
             T db = Room.getGeneratedImplementation(mDatabaseClass, DB_IMPL_SUFFIX);
+            if (mStatementCacheSize >= 0) {
+                db.setStatementCacheSize(mStatementCacheSize);
+            }
+            db.setParallelRelationFetching(mParallelRelationFetching);
+            if (mQueryMetricsCallback != null || mQueryTracing) {
+                db.setQueryInstrumentation(
+                        new QueryInstrumentation(mQueryMetricsCallback, mQueryTracing));
+            }
+            if (mReadConnectionPoolSize > 0 && mName != null
+                    && journalMode == JournalMode.WRITE_AHEAD_LOGGING
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                db.setReadConnectionPool(mContext, mName, readerFactory, mReadConnectionPoolSize);
+            }
             db.init(configuration);
+            if (mInvalidationCoalescingWindowMillis > 0) {
+                db.getInvalidationTracker().setCoalescingWindow(
+                        mInvalidationCoalescingWindowMillis, TimeUnit.MILLISECONDS);
+            }
             return db;
         }
     }
@@ -1230,6 +1593,31 @@ public abstract class RoomDatabase {
         }
     }
 
+    /**
+     * Callback for the metrics of the queries run by a {@link RoomDatabase}.
+     *
+     * @see Builder#setQueryMetricsCallback(QueryMetricsCallback)
+     */
+    public abstract static class QueryMetricsCallback {
+
+        /**
+         * Called after a query or a statement was run.
+         *
+         * @param metrics The metrics of the query.
+         */
+        public void onQuery(@NonNull QueryMetrics metrics) {
+        }
+
+        /**
+         * Called when a transaction began.
+         *
+         * @param waitTimeNanos The time it took to begin the transaction, mostly spent waiting
+         *                      for other transactions to end, in nanoseconds.
+         */
+        public void onTransactionBegin(long waitTimeNanos) {
+        }
+    }
+
     /**
      * Callback for {@link Builder#createFromAsset(String)}, {@link Builder#createFromFile(File)}
      * and {@link Builder#createFromInputStream(Callable)}
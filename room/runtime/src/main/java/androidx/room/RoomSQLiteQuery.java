@@ -25,15 +25,18 @@ import androidx.sqlite.db.SupportSQLiteQuery;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This class is used as an intermediate place to keep binding arguments so that we can run
  * Cursor queries with correct types rather than passing everything as a string.
  * <p>
  * Because it is relatively a big object, they are pooled and must be released after each use.
+ * <p>
+ * The pool is split into buckets by argument count, where bucket {@code b} holds queries with a
+ * capacity of {@code 2^b - 1} arguments. Each bucket is a small array of slots which is claimed
+ * and refilled with compare-and-set, so acquiring and releasing a query never blocks.
  *
  * @hide
  */
@@ -42,13 +45,12 @@ import java.util.TreeMap;
 public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram {
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
-    // Maximum number of queries we'll keep cached.
-    static final int POOL_LIMIT = 15;
+    // Default number of idle queries we'll keep cached per bucket.
+    static final int DEFAULT_POOL_SIZE = 4;
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
-    // Once we hit POOL_LIMIT, we'll bring the pool size back to the desired number. We always
-    // clear the bigger queries (# of arguments).
-    static final int DESIRED_POOL_SIZE = 10;
+    // Queries with more than 2^MAX_POOLED_BUCKET - 1 arguments are sized exactly and never pooled.
+    static final int MAX_POOLED_BUCKET = 10;
     private volatile String mQuery;
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
@@ -76,7 +78,10 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
 
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
-    static final TreeMap<Integer, RoomSQLiteQuery> sQueryPool = new TreeMap<>();
+    static volatile QueryPool sQueryPool = new QueryPool(DEFAULT_POOL_SIZE);
+
+    private static final AtomicLong sPoolHitCount = new AtomicLong();
+    private static final AtomicLong sPoolMissCount = new AtomicLong();
 
     /**
      * Copies the given SupportSQLiteQuery and converts it into RoomSQLiteQuery.
@@ -138,21 +143,71 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
      */
     @SuppressWarnings("WeakerAccess")
     public static RoomSQLiteQuery acquire(String query, int argumentCount) {
-        synchronized (sQueryPool) {
-            final Map.Entry<Integer, RoomSQLiteQuery> entry =
-                    sQueryPool.ceilingEntry(argumentCount);
-            if (entry != null) {
-                sQueryPool.remove(entry.getKey());
-                final RoomSQLiteQuery sqliteQuery = entry.getValue();
+        final int bucket = bucketFor(argumentCount);
+        if (bucket <= MAX_POOLED_BUCKET) {
+            final RoomSQLiteQuery sqliteQuery = sQueryPool.poll(bucket);
+            if (sqliteQuery != null) {
+                sPoolHitCount.incrementAndGet();
                 sqliteQuery.init(query, argumentCount);
                 return sqliteQuery;
             }
         }
-        RoomSQLiteQuery sqLiteQuery = new RoomSQLiteQuery(argumentCount);
+        sPoolMissCount.incrementAndGet();
+        final int capacity = bucket <= MAX_POOLED_BUCKET ? capacityOf(bucket) : argumentCount;
+        RoomSQLiteQuery sqLiteQuery = new RoomSQLiteQuery(capacity);
         sqLiteQuery.init(query, argumentCount);
         return sqLiteQuery;
     }
 
+    /**
+     * Makes sure the pool keeps at least the given number of idle queries per argument count
+     * bucket. The pool is shared by all databases in the process, so the largest requested size
+     * wins.
+     *
+     * @param size The number of idle queries to keep per bucket.
+     */
+    static void ensurePoolSize(int size) {
+        synchronized (RoomSQLiteQuery.class) {
+            if (sQueryPool.mSize < size) {
+                sQueryPool = new QueryPool(size);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times {@link #acquire(String, int)} was served from the pool since
+     * the process started.
+     */
+    public static long getPoolHitCount() {
+        return sPoolHitCount.get();
+    }
+
+    /**
+     * Returns the number of times {@link #acquire(String, int)} had to allocate a new query since
+     * the process started.
+     */
+    public static long getPoolMissCount() {
+        return sPoolMissCount.get();
+    }
+
+    @VisibleForTesting
+    static void resetPool(int size) {
+        synchronized (RoomSQLiteQuery.class) {
+            sQueryPool = new QueryPool(size);
+            sPoolHitCount.set(0);
+            sPoolMissCount.set(0);
+        }
+    }
+
+    @VisibleForTesting
+    static int bucketFor(int argumentCount) {
+        return 32 - Integer.numberOfLeadingZeros(argumentCount);
+    }
+
+    private static int capacityOf(int bucket) {
+        return (1 << bucket) - 1;
+    }
+
     private RoomSQLiteQuery(int capacity) {
         mCapacity = capacity;
         // because, 1 based indices... we don't want to offsets everything with 1 all the time.
@@ -179,20 +234,9 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
      */
     @SuppressWarnings("WeakerAccess")
     public void release() {
-        synchronized (sQueryPool) {
-            sQueryPool.put(mCapacity, this);
-            prunePoolLocked();
-        }
-    }
-
-    private static void prunePoolLocked() {
-        if (sQueryPool.size() > POOL_LIMIT) {
-            int toBeRemoved = sQueryPool.size() - DESIRED_POOL_SIZE;
-            final Iterator<Integer> iterator = sQueryPool.descendingKeySet().iterator();
-            while (toBeRemoved-- > 0) {
-                iterator.next();
-                iterator.remove();
-            }
+        final int bucket = bucketFor(mCapacity);
+        if (bucket <= MAX_POOLED_BUCKET && capacityOf(bucket) == mCapacity) {
+            sQueryPool.offer(bucket, this);
         }
     }
 
@@ -296,4 +340,58 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
     @IntDef({NULL, LONG, DOUBLE, STRING, BLOB})
     @interface Binding {
     }
+
+    /**
+     * Fixed size slots of idle queries for each bucket. Threads start probing at a slot derived
+     * from their id so that concurrent callers rarely contend on the same slot.
+     */
+    @VisibleForTesting
+    static final class QueryPool {
+        final int mSize;
+        private final AtomicReferenceArray<RoomSQLiteQuery> mSlots;
+
+        QueryPool(int size) {
+            mSize = size;
+            mSlots = new AtomicReferenceArray<>((MAX_POOLED_BUCKET + 1) * size);
+        }
+
+        RoomSQLiteQuery poll(int bucket) {
+            final int start = bucket * mSize;
+            final int probe = probe();
+            for (int i = 0; i < mSize; i++) {
+                final int slot = start + (probe + i) % mSize;
+                final RoomSQLiteQuery query = mSlots.get(slot);
+                if (query != null && mSlots.compareAndSet(slot, query, null)) {
+                    return query;
+                }
+            }
+            return null;
+        }
+
+        boolean offer(int bucket, RoomSQLiteQuery query) {
+            final int start = bucket * mSize;
+            final int probe = probe();
+            for (int i = 0; i < mSize; i++) {
+                final int slot = start + (probe + i) % mSize;
+                if (mSlots.get(slot) == null && mSlots.compareAndSet(slot, null, query)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int count(int bucket) {
+            int count = 0;
+            for (int i = bucket * mSize, end = i + mSize; i < end; i++) {
+                if (mSlots.get(i) != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private int probe() {
+            return mSize == 0 ? 0 : (int) (Thread.currentThread().getId() % mSize);
+        }
+    }
 }
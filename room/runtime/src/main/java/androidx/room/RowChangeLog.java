@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the row ids that change in a table, so that {@link IncrementalLiveData} can re-fetch
+ * only those rows.
+ * <p>
+ * Like the table modification log of the {@link InvalidationTracker}, the log lives in TEMP
+ * tables and triggers of the writable connection, so it only sees the changes made through it.
+ * Each change bumps a version number of the table and records it for the changed row, hence any
+ * number of observers of the table share the same log and read the changes since the version
+ * they last saw.
+ * <p>
+ * The log only exists while it has observers: changes that every observer has read are deleted,
+ * and the log is dropped along with its triggers once the last observer is removed.
+ */
+class RowChangeLog {
+    private static final String VERSION_TABLE_NAME = "room_row_log_version";
+    private static final String LOG_TABLE_PREFIX = "room_row_log_";
+    private static final String[] TRIGGERS = new String[]{"UPDATE", "DELETE", "INSERT"};
+
+    private final String mTableName;
+    private final String mLogTableName;
+
+    // Guarded by this.
+    // The version each observer last read, or Long.MAX_VALUE until it has read one.
+    private final Map<Object, Long> mObserverVersions = new HashMap<>();
+    private SupportSQLiteDatabase mInstalledDatabase;
+    private int mInstallCount;
+    // The changes up to this version may have been deleted.
+    private long mPrunedVersion;
+
+    RowChangeLog(@NonNull String tableName) {
+        mTableName = tableName;
+        mLogTableName = LOG_TABLE_PREFIX + tableName;
+    }
+
+    /**
+     * Creates the log of the table on the given connection if it does not exist yet, and keeps it
+     * until the observer is removed.
+     *
+     * @return A number that changes whenever the log is created again, as the changes made
+     * before are not in it.
+     * @throws IllegalArgumentException If the table does not have an {@code INTEGER PRIMARY KEY}.
+     */
+    synchronized int install(@NonNull SupportSQLiteDatabase db, @NonNull Object observer) {
+        if (db != mInstalledDatabase) {
+            create(db);
+            mInstalledDatabase = db;
+            mInstallCount++;
+        }
+        if (!mObserverVersions.containsKey(observer)) {
+            mObserverVersions.put(observer, Long.MAX_VALUE);
+        }
+        return mInstallCount;
+    }
+
+    private void create(SupportSQLiteDatabase db) {
+        // TEMP tables only exist on the connection that created them, and the connection pool
+        // always runs transactions on the primary connection.
+        db.beginTransaction();
+        try {
+            checkIntegerPrimaryKey(db);
+            db.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + VERSION_TABLE_NAME
+                    + " (table_name TEXT PRIMARY KEY, version INTEGER NOT NULL)");
+            db.execSQL("INSERT OR IGNORE INTO " + VERSION_TABLE_NAME + " VALUES(?, 0)",
+                    new Object[]{mTableName});
+            db.execSQL("CREATE TEMP TABLE IF NOT EXISTS `" + mLogTableName
+                    + "` (row_id INTEGER PRIMARY KEY, version INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS temp.`" + mLogTableName + "_version` ON `"
+                    + mLogTableName + "` (version)");
+            StringBuilder stringBuilder = new StringBuilder();
+            for (String trigger : TRIGGERS) {
+                stringBuilder.setLength(0);
+                stringBuilder.append("CREATE TEMP TRIGGER IF NOT EXISTS `")
+                        .append(mLogTableName).append('_').append(trigger)
+                        .append("` AFTER ").append(trigger)
+                        .append(" ON `").append(mTableName)
+                        .append("` BEGIN UPDATE ").append(VERSION_TABLE_NAME)
+                        .append(" SET version = version + 1 WHERE table_name = '")
+                        .append(mTableName.replace("'", "''")).append("';");
+                if (!trigger.equals("INSERT")) {
+                    appendLogRow(stringBuilder, "OLD");
+                }
+                if (!trigger.equals("DELETE")) {
+                    appendLogRow(stringBuilder, "NEW");
+                }
+                stringBuilder.append(" END");
+                db.execSQL(stringBuilder.toString());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Records the version of the table the observer has seen, and deletes the changes that no
+     * observer needs anymore.
+     */
+    synchronized void setObservedVersion(@NonNull SupportSQLiteDatabase db,
+            @NonNull Object observer, long version) {
+        if (!mObserverVersions.containsKey(observer)) {
+            // removed while it was loading
+            return;
+        }
+        mObserverVersions.put(observer, version);
+        long minVersion = Long.MAX_VALUE;
+        for (long observedVersion : mObserverVersions.values()) {
+            minVersion = Math.min(minVersion, observedVersion);
+        }
+        if (db != mInstalledDatabase || minVersion == Long.MAX_VALUE
+                || minVersion <= mPrunedVersion) {
+            return;
+        }
+        db.execSQL("DELETE FROM `" + mLogTableName + "` WHERE version <= ?",
+                new Object[]{minVersion});
+        mPrunedVersion = minVersion;
+    }
+
+    /**
+     * Removes the observer, and drops the log once it has no observers, so that changes to the
+     * table do not pay for it anymore.
+     *
+     * @param db The connection the log was created on, or {@code null} if the database is closed.
+     */
+    synchronized void removeObserver(@Nullable SupportSQLiteDatabase db,
+            @NonNull Object observer) {
+        if (mObserverVersions.remove(observer) == null || !mObserverVersions.isEmpty()) {
+            return;
+        }
+        if (db != null && db == mInstalledDatabase && db.isOpen()) {
+            db.beginTransaction();
+            try {
+                for (String trigger : TRIGGERS) {
+                    db.execSQL("DROP TRIGGER IF EXISTS temp.`" + mLogTableName + '_' + trigger
+                            + "`");
+                }
+                db.execSQL("DROP TABLE IF EXISTS temp.`" + mLogTableName + "`");
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        mInstalledDatabase = null;
+    }
+
+    private void appendLogRow(StringBuilder stringBuilder, String row) {
+        stringBuilder.append(" INSERT OR REPLACE INTO `").append(mLogTableName)
+                .append("` VALUES(").append(row).append(".rowid, (SELECT version FROM ")
+                .append(VERSION_TABLE_NAME).append(" WHERE table_name = '")
+                .append(mTableName.replace("'", "''")).append("'));");
+    }
+
+    private void checkIntegerPrimaryKey(SupportSQLiteDatabase db) {
+        int keyCount = 0;
+        boolean integerKey = false;
+        Cursor cursor = db.query("PRAGMA table_info(`" + mTableName + "`)");
+        try {
+            final int typeIndex = cursor.getColumnIndexOrThrow("type");
+            final int pkIndex = cursor.getColumnIndexOrThrow("pk");
+            while (cursor.moveToNext()) {
+                if (cursor.getInt(pkIndex) > 0) {
+                    keyCount++;
+                    integerKey = "INTEGER".equalsIgnoreCase(cursor.getString(typeIndex));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        // only a single INTEGER PRIMARY KEY column is an alias of the rowid
+        if (keyCount != 1 || !integerKey) {
+            throw new IllegalArgumentException("Table " + mTableName + " must have an INTEGER"
+                    + " PRIMARY KEY to be observed incrementally.");
+        }
+    }
+
+    /**
+     * @return The latest version of the table, which {@link #readChanges} can be called with to
+     * read the changes that happen after this call.
+     */
+    long getVersion(@NonNull SupportSQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query("SELECT version FROM " + VERSION_TABLE_NAME
+                    + " WHERE table_name = ?", new Object[]{mTableName});
+            try {
+                return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+            } finally {
+                cursor.close();
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Reads the rows that changed after the given version.
+     *
+     * @param sinceVersion The version of the table the caller last saw.
+     * @param maxRows      The maximum number of changed rows the caller is interested in.
+     * @return The changed rows, or {@code null} if more than {@code maxRows} rows changed, or if
+     * the changes since the version are no longer in the log.
+     */
+    @Nullable
+    synchronized Changes readChanges(@NonNull SupportSQLiteDatabase db, long sinceVersion,
+            int maxRows) {
+        if (db != mInstalledDatabase || sinceVersion < mPrunedVersion) {
+            return null;
+        }
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query("SELECT row_id, version FROM `" + mLogTableName
+                    + "` WHERE version > ? ORDER BY row_id LIMIT " + (maxRows + 1),
+                    new Object[]{sinceVersion});
+            try {
+                if (cursor.getCount() > maxRows) {
+                    return null;
+                }
+                final long[] rowIds = new long[cursor.getCount()];
+                long version = sinceVersion;
+                int index = 0;
+                while (cursor.moveToNext()) {
+                    rowIds[index++] = cursor.getLong(0);
+                    version = Math.max(version, cursor.getLong(1));
+                }
+                return new Changes(rowIds, version);
+            } finally {
+                cursor.close();
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The rows that changed in a table.
+     */
+    static class Changes {
+        /**
+         * The ids of the changed rows, in ascending order.
+         */
+        final long[] mRowIds;
+        /**
+         * The version of the table after the changes.
+         */
+        final long mVersion;
+
+        Changes(long[] rowIds, long version) {
+            mRowIds = rowIds;
+            mVersion = version;
+        }
+    }
+}
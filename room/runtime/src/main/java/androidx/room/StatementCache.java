@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A bounded, least recently used cache of compiled statements keyed by their SQL.
+ * <p>
+ * Statements are checked out by {@link #acquire(String)} so that a statement is never used by two
+ * threads at the same time. If the statement for some SQL is already in use, a new one is compiled
+ * and the extra copy is closed when it is released.
+ * <p>
+ * Statements are compiled against the connection that is open at the time. Calling
+ * {@link #invalidate()} closes every idle statement and makes sure the statements in use are
+ * closed, rather than cached, when they are released. Room invalidates the cache whenever the
+ * database is (re)opened, which is also when migrations change the schema.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public class StatementCache {
+    @VisibleForTesting
+    static final int DEFAULT_MAX_SIZE = 16;
+
+    private final RoomDatabase mDatabase;
+    private final int mMaxSize;
+
+    // Idle statements in access order, guarded by this.
+    private final LinkedHashMap<String, SupportSQLiteStatement> mIdle =
+            new LinkedHashMap<>(0, 0.75f, true);
+    // Statements checked out since the last invalidation, guarded by this.
+    private final IdentityHashMap<SupportSQLiteStatement, String> mInUse = new IdentityHashMap<>();
+    // Bumped by every invalidation, guarded by this. Statements compiled while an invalidation
+    // happens belong to an older generation and are never cached.
+    private int mGeneration;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * Creates a cache that keeps up to {@code maxSize} idle statements.
+     *
+     * @param database The database to compile statements in.
+     * @param maxSize  The maximum number of idle statements. If 0, nothing is cached.
+     */
+    public StatementCache(@NonNull RoomDatabase database, int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        mDatabase = database;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Returns a compiled statement for the given SQL. Must call
+     * {@link #release(SupportSQLiteStatement)} once done.
+     *
+     * @param sql The SQL to compile.
+     * @return A statement that is not used by anyone else.
+     */
+    @NonNull
+    public SupportSQLiteStatement acquire(@NonNull String sql) {
+        int generation;
+        synchronized (this) {
+            SupportSQLiteStatement statement = mIdle.remove(sql);
+            if (statement != null) {
+                mHitCount++;
+                mInUse.put(statement, sql);
+                return statement;
+            }
+            mMissCount++;
+            generation = mGeneration;
+        }
+        // compiled outside the lock, the connection may be reopened in the meantime
+        SupportSQLiteStatement statement = mDatabase.compileStatement(sql);
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mInUse.put(statement, sql);
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * Returns a statement acquired from {@link #acquire(String)} to the cache. The statement must
+     * not be used after this call.
+     *
+     * @param statement The statement that was returned from acquire.
+     */
+    public void release(@NonNull SupportSQLiteStatement statement) {
+        statement.clearBindings();
+        List<SupportSQLiteStatement> toClose = null;
+        synchronized (this) {
+            String sql = mInUse.remove(statement);
+            if (sql != null && mMaxSize > 0 && !mIdle.containsKey(sql)) {
+                mIdle.put(sql, statement);
+                statement = null;
+                if (mIdle.size() > mMaxSize) {
+                    toClose = new ArrayList<>(mIdle.size() - mMaxSize);
+                    Iterator<SupportSQLiteStatement> iterator = mIdle.values().iterator();
+                    while (mIdle.size() > mMaxSize) {
+                        toClose.add(iterator.next());
+                        iterator.remove();
+                        mEvictionCount++;
+                    }
+                }
+            }
+        }
+        if (statement != null) {
+            closeQuietly(statement);
+        }
+        if (toClose != null) {
+            for (SupportSQLiteStatement evicted : toClose) {
+                closeQuietly(evicted);
+            }
+        }
+    }
+
+    /**
+     * Closes all idle statements. Statements that are in use are closed when released.
+     */
+    public void invalidate() {
+        List<SupportSQLiteStatement> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(mIdle.values());
+            mIdle.clear();
+            mInUse.clear();
+            mGeneration++;
+        }
+        for (SupportSQLiteStatement statement : toClose) {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Returns the maximum number of idle statements kept by this cache.
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the number of idle statements in the cache.
+     */
+    public synchronized int size() {
+        return mIdle.size();
+    }
+
+    /**
+     * Returns the number of times {@link #acquire(String)} returned a cached statement.
+     */
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of times {@link #acquire(String)} had to compile a statement.
+     */
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the number of statements that were closed to keep the cache within its size.
+     */
+    public synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int accesses = mHitCount + mMissCount;
+        int hitPercent = accesses != 0 ? (100 * mHitCount / accesses) : 0;
+        return String.format(Locale.US, "StatementCache[maxSize=%d,hits=%d,misses=%d,hitRate=%d%%]",
+                mMaxSize, mHitCount, mMissCount, hitPercent);
+    }
+
+    private static void closeQuietly(SupportSQLiteStatement statement) {
+        try {
+            statement.close();
+        } catch (IOException ignored) {
+            // statements of a closed database may fail to close, nothing to do.
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.paging;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+import androidx.room.RoomSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A data source for queries that are ordered by a unique, indexed column, which loads pages by
+ * seeking on that column instead of skipping rows with OFFSET.
+ * <p>
+ * {@link LimitOffsetDataSource} makes SQLite step over every row before the requested position,
+ * so each page gets slower to load the further the list is scrolled. This data source remembers
+ * the key of the first and the last row of the pages it loads, and loads the page right after
+ * (or before) a loaded page with {@code WHERE key > ?} (or {@code key < ?}), which SQLite answers
+ * with an index search no matter how deep the page is. Pages that do not touch a loaded page, such
+ * as the initial one, are still loaded with LIMIT and OFFSET.
+ * <p>
+ * <b>Placeholders still count every row.</b> {@link androidx.paging.PositionalDataSource} needs
+ * the total number of rows when placeholders are enabled, and SQLite can only tell it by stepping
+ * through the whole result with {@code SELECT COUNT(*)}, which costs as much as a deep OFFSET. To
+ * avoid it, the initial page is loaded first and the count is skipped when that page reaches the
+ * end of the result, which covers results that fit in the initial load. Larger results are counted
+ * once per data source, so lists over large tables that page by key should disable placeholders
+ * with {@code setEnablePlaceholders(false)}. Without placeholders, the initial page is placed at
+ * the requested position and the position of the next pages is derived from the pages already
+ * loaded.
+ * <p>
+ * The key column must be part of the result and hold unique, non null values, otherwise rows that
+ * share a key would be skipped. Room only generates this data source for queries that select from
+ * a single table and are ordered by its primary key or by a column with a unique index.
+ *
+ * @param <T> Data type returned by the data source.
+ *
+ * @hide
+ */
+@SuppressWarnings("deprecation")
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public abstract class KeysetDataSource<T> extends androidx.paging.PositionalDataSource<T> {
+    // Pages are usually loaded next to the last few pages, no need to remember all of them.
+    private static final int MAX_ANCHORS = 64;
+
+    private final RoomSQLiteQuery mSourceQuery;
+    private final String mCountQuery;
+    private final String mLimitOffsetQuery;
+    private final String mAfterKeyQuery;
+    private final String mBeforeKeyQuery;
+    private final String mKeyColumn;
+    private final RoomDatabase mDb;
+    @SuppressWarnings("FieldCanBeLocal")
+    private final InvalidationTracker.Observer mObserver;
+    private final boolean mInTransaction;
+
+    // Key of the first and the last row of each loaded page, by position. Guarded by itself.
+    private final Map<Integer, Object> mAnchors =
+            new LinkedHashMap<Integer, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest) {
+                    return size() > MAX_ANCHORS;
+                }
+            };
+
+    private final AtomicInteger mSeekLoadCount = new AtomicInteger();
+    private final AtomicInteger mOffsetLoadCount = new AtomicInteger();
+    private final AtomicInteger mCountQueryCount = new AtomicInteger();
+
+    /**
+     * @param db            The database to query.
+     * @param query         The query, which must be ordered by {@code keyColumn}.
+     * @param keyColumn     The name of the result column the query is ordered by.
+     * @param descending    {@code true} if the query is ordered by {@code keyColumn} descending.
+     * @param inTransaction {@code true} if pages should be loaded in a transaction.
+     * @param tables        The tables to observe for invalidation.
+     */
+    protected KeysetDataSource(RoomDatabase db, RoomSQLiteQuery query, String keyColumn,
+            boolean descending, boolean inTransaction, String... tables) {
+        mDb = db;
+        mSourceQuery = query;
+        mKeyColumn = keyColumn;
+        mInTransaction = inTransaction;
+        final String sql = mSourceQuery.getSql();
+        final String key = "`" + keyColumn + "`";
+        mCountQuery = "SELECT COUNT(*) FROM ( " + sql + " )";
+        mLimitOffsetQuery = "SELECT * FROM ( " + sql + " ) LIMIT ? OFFSET ?";
+        // SQLite flattens these into the source query, so the key comparison and the order are
+        // both served by the index on the key column.
+        mAfterKeyQuery = "SELECT * FROM ( " + sql + " ) WHERE " + key
+                + (descending ? " < ?" : " > ?") + " LIMIT ?";
+        mBeforeKeyQuery = "SELECT * FROM ( " + sql + " ) WHERE " + key
+                + (descending ? " > ? ORDER BY " + key + " ASC" : " < ? ORDER BY " + key + " DESC")
+                + " LIMIT ?";
+        mObserver = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        db.getInvalidationTracker().addWeakObserver(mObserver);
+    }
+
+    /**
+     * Count number of rows query can return
+     *
+     * @hide
+     */
+    @SuppressWarnings("WeakerAccess")
+    public int countItems() {
+        mCountQueryCount.incrementAndGet();
+        final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(mCountQuery,
+                mSourceQuery.getArgCount());
+        sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+        Cursor cursor = mDb.query(sqLiteQuery);
+        try {
+            if (cursor.moveToFirst()) {
+                return cursor.getInt(0);
+            }
+            return 0;
+        } finally {
+            cursor.close();
+            sqLiteQuery.release();
+        }
+    }
+
+    @Override
+    public boolean isInvalid() {
+        mDb.getInvalidationTracker().refreshVersionsSync();
+        return super.isInvalid();
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    protected abstract List<T> convertRows(Cursor cursor);
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams params,
+            @NonNull LoadInitialCallback<T> callback) {
+        List<T> list = Collections.emptyList();
+        int totalCount = 0;
+        int firstLoadPosition = 0;
+        mDb.beginTransaction();
+        try {
+            if (params.placeholdersEnabled) {
+                firstLoadPosition = Math.max(0, params.requestedStartPosition);
+                list = load(firstLoadPosition, params.requestedLoadSize);
+                if (!list.isEmpty() && list.size() < params.requestedLoadSize) {
+                    // the page reached the end of the result, no need to count the rows
+                    totalCount = firstLoadPosition + list.size();
+                } else if (list.isEmpty() && firstLoadPosition == 0) {
+                    totalCount = 0;
+                } else {
+                    totalCount = countItems();
+                    if (list.isEmpty() && totalCount != 0) {
+                        // rows were removed since the position was requested, bound it by the
+                        // known count
+                        firstLoadPosition = computeInitialLoadPosition(params, totalCount);
+                        int firstLoadSize = computeInitialLoadSize(params, firstLoadPosition,
+                                totalCount);
+                        list = load(firstLoadPosition, firstLoadSize);
+                    }
+                }
+            } else {
+                // without a count, start at the page that contains the requested position
+                firstLoadPosition = Math.max(0, params.requestedStartPosition);
+                firstLoadPosition -= firstLoadPosition % params.pageSize;
+                list = load(firstLoadPosition, params.requestedLoadSize);
+                if (list.isEmpty() && firstLoadPosition != 0) {
+                    // rows were removed since the position was requested, start over
+                    firstLoadPosition = 0;
+                    list = load(firstLoadPosition, params.requestedLoadSize);
+                }
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+
+        if (params.placeholdersEnabled) {
+            callback.onResult(list, firstLoadPosition, totalCount);
+        } else {
+            callback.onResult(list, firstLoadPosition);
+        }
+    }
+
+    @Override
+    public void loadRange(@NonNull LoadRangeParams params,
+            @NonNull LoadRangeCallback<T> callback) {
+        callback.onResult(loadRange(params.startPosition, params.loadSize));
+    }
+
+    /**
+     * Return the rows from startPos to startPos + loadCount
+     *
+     * @hide
+     */
+    @NonNull
+    public List<T> loadRange(int startPosition, int loadCount) {
+        if (mInTransaction) {
+            mDb.beginTransaction();
+            try {
+                List<T> rows = load(startPosition, loadCount);
+                mDb.setTransactionSuccessful();
+                return rows;
+            } finally {
+                mDb.endTransaction();
+            }
+        } else {
+            return load(startPosition, loadCount);
+        }
+    }
+
+    /**
+     * Returns the number of pages that were loaded by seeking on the key column.
+     *
+     * @hide
+     */
+    public int getSeekLoadCount() {
+        return mSeekLoadCount.get();
+    }
+
+    /**
+     * Returns the number of pages that were loaded with LIMIT and OFFSET.
+     *
+     * @hide
+     */
+    public int getOffsetLoadCount() {
+        return mOffsetLoadCount.get();
+    }
+
+    /**
+     * Returns the number of times the rows of the query were counted.
+     *
+     * @hide
+     */
+    public int getCountQueryCount() {
+        return mCountQueryCount.get();
+    }
+
+    private List<T> load(int startPosition, int loadCount) {
+        final Object keyBefore;
+        final Object keyAfter;
+        synchronized (mAnchors) {
+            keyBefore = mAnchors.get(startPosition - 1);
+            keyAfter = mAnchors.get(startPosition + loadCount);
+        }
+        final RoomSQLiteQuery sqLiteQuery;
+        final boolean reversed;
+        if (keyBefore != null) {
+            sqLiteQuery = getSeekQuery(mAfterKeyQuery, keyBefore, loadCount);
+            reversed = false;
+            mSeekLoadCount.incrementAndGet();
+        } else if (keyAfter != null) {
+            sqLiteQuery = getSeekQuery(mBeforeKeyQuery, keyAfter, loadCount);
+            reversed = true;
+            mSeekLoadCount.incrementAndGet();
+        } else {
+            sqLiteQuery = getLimitOffsetQuery(startPosition, loadCount);
+            reversed = false;
+            mOffsetLoadCount.incrementAndGet();
+        }
+        Cursor cursor = mDb.query(sqLiteQuery);
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            List<T> rows = convertRows(cursor);
+            if (reversed) {
+                rows = new ArrayList<>(rows);
+                Collections.reverse(rows);
+            }
+            if (cursor.moveToFirst()) {
+                final int keyIndex = cursor.getColumnIndexOrThrow(mKeyColumn);
+                final Object firstKey = readKey(cursor, keyIndex);
+                cursor.moveToLast();
+                final Object lastKey = readKey(cursor, keyIndex);
+                final int lastPosition = startPosition + cursor.getCount() - 1;
+                synchronized (mAnchors) {
+                    putAnchor(startPosition, reversed ? lastKey : firstKey);
+                    putAnchor(lastPosition, reversed ? firstKey : lastKey);
+                }
+            }
+            return rows;
+        } finally {
+            cursor.close();
+            sqLiteQuery.release();
+        }
+    }
+
+    private void putAnchor(int position, @Nullable Object key) {
+        if (key != null) {
+            mAnchors.put(position, key);
+        }
+    }
+
+    private RoomSQLiteQuery getLimitOffsetQuery(int startPosition, int loadCount) {
+        final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(mLimitOffsetQuery,
+                mSourceQuery.getArgCount() + 2);
+        sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+        sqLiteQuery.bindLong(sqLiteQuery.getArgCount() - 1, loadCount);
+        sqLiteQuery.bindLong(sqLiteQuery.getArgCount(), startPosition);
+        return sqLiteQuery;
+    }
+
+    private RoomSQLiteQuery getSeekQuery(String sql, Object key, int loadCount) {
+        final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(sql,
+                mSourceQuery.getArgCount() + 2);
+        sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+        final int keyIndex = sqLiteQuery.getArgCount() - 1;
+        if (key instanceof Long) {
+            sqLiteQuery.bindLong(keyIndex, (Long) key);
+        } else if (key instanceof Double) {
+            sqLiteQuery.bindDouble(keyIndex, (Double) key);
+        } else if (key instanceof String) {
+            sqLiteQuery.bindString(keyIndex, (String) key);
+        } else {
+            sqLiteQuery.bindBlob(keyIndex, (byte[]) key);
+        }
+        sqLiteQuery.bindLong(sqLiteQuery.getArgCount(), loadCount);
+        return sqLiteQuery;
+    }
+
+    @Nullable
+    private static Object readKey(Cursor cursor, int index) {
+        switch (cursor.getType(index)) {
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(index);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(index);
+            case Cursor.FIELD_TYPE_STRING:
+                return cursor.getString(index);
+            case Cursor.FIELD_TYPE_BLOB:
+                return cursor.getBlob(index);
+            default:
+                return null;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package androidx.room.util;
 
 import android.database.AbstractWindowedCursor;
 import android.database.Cursor;
+import android.database.CursorWrapper;
 import android.os.Build;
 import android.os.CancellationSignal;
 
@@ -81,9 +82,12 @@ public class DBUtil {
     public static Cursor query(@NonNull RoomDatabase db, @NonNull SupportSQLiteQuery sqLiteQuery,
             boolean maybeCopy, @Nullable CancellationSignal signal) {
         final Cursor cursor = db.query(sqLiteQuery, signal);
-        if (maybeCopy && cursor instanceof AbstractWindowedCursor) {
-            AbstractWindowedCursor windowedCursor = (AbstractWindowedCursor) cursor;
-            int rowsInCursor = windowedCursor.getCount(); // Should fill the window.
+        // databases with query metrics wrap their cursors
+        final Cursor unwrapped = cursor instanceof CursorWrapper
+                ? ((CursorWrapper) cursor).getWrappedCursor() : cursor;
+        if (maybeCopy && unwrapped instanceof AbstractWindowedCursor) {
+            AbstractWindowedCursor windowedCursor = (AbstractWindowedCursor) unwrapped;
+            int rowsInCursor = cursor.getCount(); // Should fill the window.
             int rowsInWindow;
             if (windowedCursor.hasWindow()) {
                 rowsInWindow = windowedCursor.getWindow().getNumRows();
@@ -91,7 +95,7 @@ public class DBUtil {
                 rowsInWindow = rowsInCursor;
             }
             if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M || rowsInWindow < rowsInCursor) {
-                return CursorUtil.copyAndClose(windowedCursor);
+                return CursorUtil.copyAndClose(cursor);
             }
         }
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+import androidx.room.RoomDatabase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the methods generated to fetch the relations of a POJO.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public class RelationUtil {
+    /**
+     * Set while a thread fetches a relation, so that nested relations are fetched in place instead
+     * of waiting for yet another thread of the executor.
+     */
+    private static final ThreadLocal<Boolean> sFetching = new ThreadLocal<>();
+
+    /**
+     * Runs the given fetches and returns once they are all done.
+     * <p>
+     * If {@link RoomDatabase#canFetchRelationsInParallel()}, the first fetch runs on the calling
+     * thread and the others are posted to the query executor. A posted fetch that has not
+     * started yet when the calling thread gets to it is run on the calling thread instead, so a
+     * busy executor never blocks the query.
+     *
+     * @param db      The database.
+     * @param fetches Each fetches one relation into its own map.
+     */
+    public static void fetchRelations(@NonNull RoomDatabase db, @NonNull Runnable... fetches) {
+        if (fetches.length < 2 || sFetching.get() != null || !db.canFetchRelationsInParallel()) {
+            for (Runnable fetch : fetches) {
+                fetch.run();
+            }
+            return;
+        }
+        final Executor executor = db.getQueryExecutor();
+        final Fetch[] posted = new Fetch[fetches.length - 1];
+        for (int i = 0; i < posted.length; i++) {
+            posted[i] = new Fetch(fetches[i + 1]);
+            try {
+                executor.execute(posted[i]);
+            } catch (RejectedExecutionException e) {
+                // run on the calling thread below
+            }
+        }
+        final Fetch first = new Fetch(fetches[0]);
+        first.run();
+        Throwable error = first.mError;
+        for (Fetch fetch : posted) {
+            fetch.run();
+            fetch.await();
+            if (error == null) {
+                error = fetch.mError;
+            }
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        } else if (error != null) {
+            SneakyThrow.reThrow((Exception) error);
+        }
+    }
+
+    private static class Fetch implements Runnable {
+        private final Runnable mDelegate;
+        private final AtomicBoolean mStarted = new AtomicBoolean();
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        Throwable mError;
+
+        Fetch(Runnable delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            if (!mStarted.compareAndSet(false, true)) {
+                return;
+            }
+            sFetching.set(Boolean.TRUE);
+            try {
+                mDelegate.run();
+            } catch (Throwable t) {
+                mError = t;
+            } finally {
+                sFetching.remove();
+                mDone.countDown();
+            }
+        }
+
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // the relations must be complete before the result is returned
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private RelationUtil() {
+    }
+}
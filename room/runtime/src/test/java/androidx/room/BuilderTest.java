@@ -70,6 +70,36 @@ public class BuilderTest {
         Room.databaseBuilder(mock(Context.class), RoomDatabase.class, "  ").build();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveQueryPoolSize() {
+        Room.databaseBuilder(mock(Context.class), RoomDatabase.class, "foo")
+                .setQueryPoolSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeStatementCacheSize() {
+        Room.databaseBuilder(mock(Context.class), RoomDatabase.class, "foo")
+                .setStatementCacheSize(-1);
+    }
+
+    @Test
+    public void setStatementCacheSize() {
+        TestDatabase db = Room.databaseBuilder(mock(Context.class), TestDatabase.class, "foo")
+                .setStatementCacheSize(3)
+                .build();
+        assertThat(db.getStatementCache().getMaxSize(), is(3));
+    }
+
+    @Test
+    public void setQueryPoolSize() {
+        int size = RoomSQLiteQuery.sQueryPool.mSize + 3;
+        Room.databaseBuilder(mock(Context.class), TestDatabase.class, "foo")
+                .setQueryPoolSize(size)
+                .build();
+        assertThat(RoomSQLiteQuery.sQueryPool.mSize, is(size));
+        RoomSQLiteQuery.resetPool(RoomSQLiteQuery.DEFAULT_POOL_SIZE);
+    }
+
     @Test
     public void executors_setQueryExecutor() {
         Executor executor = mock(Executor.class);
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.NoSuchElementException;
+
+@RunWith(JUnit4.class)
+public class CursorIteratorTest {
+    @Test
+    public void convertLazilyAndCloseAtEnd() {
+        Cursor cursor = mock(Cursor.class);
+        when(cursor.moveToNext()).thenReturn(true, true, false);
+        when(cursor.getInt(0)).thenReturn(1, 2);
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("SELECT 1", 0);
+        CursorIterator<Integer> iterator = new IntIterator(cursor, query);
+        verify(cursor, times(0)).moveToNext();
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next(), is(1));
+        assertThat(iterator.next(), is(2));
+        verify(cursor, times(0)).close();
+        assertThat(iterator.hasNext(), is(false));
+        verify(cursor).close();
+        verify(cursor, times(3)).moveToNext();
+        iterator.close();
+        verify(cursor, times(1)).close();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextAfterClose() {
+        Cursor cursor = mock(Cursor.class);
+        when(cursor.moveToNext()).thenReturn(true);
+        CursorIterator<Integer> iterator = new IntIterator(cursor, null);
+        iterator.close();
+        verify(cursor).close();
+        iterator.next();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void remove() {
+        new IntIterator(mock(Cursor.class), null).remove();
+    }
+
+    private static class IntIterator extends CursorIterator<Integer> {
+        IntIterator(Cursor cursor, RoomSQLiteQuery query) {
+            super(cursor, query);
+        }
+
+        @Override
+        protected Integer convert(@NonNull Cursor cursor) {
+            return cursor.getInt(0);
+        }
+    }
+}
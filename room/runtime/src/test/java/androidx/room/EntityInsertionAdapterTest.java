@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class EntityInsertionAdapterTest {
+    @Test
+    public void rowsPerStatementLimitedByBindArgs() {
+        assertThat(createAdapter("INSERT OR ABORT INTO `a` (`x`,`y`,`z`) VALUES (?,?,?)")
+                .getRowsPerStatement(), is(EntityInsertionAdapter.MAX_BIND_ARGS / 3));
+        assertThat(createAdapter("INSERT OR ABORT INTO `a` (`x`,`y`) VALUES (nullif(?, 0),?)")
+                .getRowsPerStatement(), is(EntityInsertionAdapter.MAX_BIND_ARGS / 2));
+    }
+
+    @Test
+    public void rowsPerStatementLimitedByCompoundSelect() {
+        assertThat(createAdapter("INSERT OR IGNORE INTO `a` (`x`) VALUES (?)")
+                .getRowsPerStatement(), is(EntityInsertionAdapter.MAX_ROWS_PER_STATEMENT));
+    }
+
+    @Test
+    public void offsetProgramShiftsIndices() {
+        SupportSQLiteStatement delegate = mock(SupportSQLiteStatement.class);
+        EntityInsertionAdapter.OffsetProgram program =
+                new EntityInsertionAdapter.OffsetProgram(delegate, 4);
+        program.bindLong(1, 3);
+        program.mOffset = 4;
+        program.bindString(1, "a");
+        program.bindNull(2);
+        verify(delegate).bindLong(1, 3);
+        verify(delegate).bindString(5, "a");
+        verify(delegate).bindNull(6);
+    }
+
+    @Test
+    public void offsetProgramClearsOnlyItsRow() throws IOException {
+        SupportSQLiteStatement delegate = mock(SupportSQLiteStatement.class);
+        EntityInsertionAdapter.OffsetProgram program =
+                new EntityInsertionAdapter.OffsetProgram(delegate, 2);
+        program.mOffset = 2;
+        program.clearBindings();
+        program.close();
+        verify(delegate).bindNull(3);
+        verify(delegate).bindNull(4);
+        verify(delegate, never()).clearBindings();
+        verify(delegate, never()).close();
+    }
+
+    @Test
+    public void insertChunkBindsRows() throws IOException {
+        RoomDatabase database = mock(RoomDatabase.class);
+        SupportSQLiteStatement statement = mock(SupportSQLiteStatement.class);
+        when(database.acquireStatement(anyString())).thenReturn(statement);
+        EntityInsertionAdapter<Long> adapter = new EntityInsertionAdapter<Long>(database) {
+            @Override
+            protected void bind(SupportSQLiteStatement statement, Long entity) {
+                bindRow(statement, entity);
+            }
+
+            @Override
+            protected void bindRow(SupportSQLiteProgram row, Long entity) {
+                row.bindLong(1, entity);
+            }
+
+            @Override
+            protected String createQuery() {
+                return "INSERT OR ABORT INTO `a` (`x`) VALUES (?)";
+            }
+        };
+        adapter.getRowsPerStatement();
+        adapter.insertChunk(Arrays.asList(5L, 6L, 7L));
+        verify(database).acquireStatement("INSERT OR ABORT INTO `a` (`x`) VALUES (?),(?),(?)");
+        verify(statement).bindLong(1, 5L);
+        verify(statement).bindLong(2, 6L);
+        verify(statement).bindLong(3, 7L);
+        verify(statement).executeInsert();
+        verify(database).releaseStatement(statement);
+    }
+
+    @Test
+    public void insertChunkWithoutBindRowInsertsOneByOne() throws IOException {
+        RoomDatabase database = mock(RoomDatabase.class);
+        SupportSQLiteStatement chunkStatement = mock(SupportSQLiteStatement.class);
+        SupportSQLiteStatement statement = mock(SupportSQLiteStatement.class);
+        when(database.acquireStatement(anyString())).thenReturn(chunkStatement);
+        when(database.compileStatement(anyString())).thenReturn(statement);
+        // generated by an older version of Room, which only overrides bind()
+        EntityInsertionAdapter<Long> adapter = new EntityInsertionAdapter<Long>(database) {
+            @Override
+            protected void bind(SupportSQLiteStatement statement, Long entity) {
+                statement.bindLong(1, entity);
+            }
+
+            @Override
+            protected String createQuery() {
+                return "INSERT OR ABORT INTO `a` (`x`) VALUES (?)";
+            }
+        };
+        adapter.getRowsPerStatement();
+        adapter.insertChunk(Arrays.asList(5L, 6L));
+        adapter.insertChunk(Arrays.asList(7L, 8L));
+        verify(chunkStatement, never()).executeInsert();
+        verify(statement, times(4)).executeInsert();
+        verify(statement).bindLong(1, 8L);
+        // the adapter is not asked to bind rows again
+        verify(database, times(1)).acquireStatement(anyString());
+    }
+
+    private static EntityInsertionAdapter<Object> createAdapter(final String query) {
+        return new EntityInsertionAdapter<Object>(mock(RoomDatabase.class)) {
+            @Override
+            protected void bind(SupportSQLiteStatement statement, Object entity) {
+            }
+
+            @Override
+            protected String createQuery() {
+                return query;
+            }
+        };
+    }
+}
@@ -250,6 +250,65 @@ public class InvalidationTrackerTest {
         assertThat(observer.await(), is(false));
     }
 
+    @Test
+    public void refreshAndNotificationCounts() throws Exception {
+        LatchObserver observerA = new LatchObserver(1, "a");
+        LatchObserver observerB = new LatchObserver(1, "B");
+        mTracker.addObserver(observerA);
+        mTracker.addObserver(observerB);
+        setInvalidatedTables(0);
+        refreshSync();
+        assertThat(observerA.await(), is(true));
+        assertThat(mTracker.getRefreshCount(), is(1L));
+        assertThat(mTracker.getNotifiedObserverCount(), is(1L));
+
+        setInvalidatedTables(0, 1);
+        refreshSync();
+        assertThat(mTracker.getRefreshCount(), is(2L));
+        assertThat(mTracker.getNotifiedObserverCount(), is(3L));
+    }
+
+    @Test
+    public void coalesceRefreshesWithinWindow() throws Exception {
+        mTracker.setCoalescingWindow(500, TimeUnit.MILLISECONDS);
+        LatchObserver observer = new LatchObserver(1, "a");
+        mTracker.addObserver(observer);
+        setInvalidatedTables(0);
+        refreshSync();
+        assertThat(observer.await(), is(true));
+        assertThat(mTracker.getRefreshCount(), is(1L));
+
+        observer.reset(1);
+        setInvalidatedTables(0);
+        mTracker.refreshVersionsAsync();
+        mTracker.refreshVersionsAsync();
+        drainTasks();
+        // postponed until the window is over
+        assertThat(mTracker.getRefreshCount(), is(1L));
+        assertThat(observer.await(), is(true));
+        drainTasks();
+        assertThat(mTracker.getRefreshCount(), is(2L));
+        assertThat(mTracker.getNotifiedObserverCount(), is(2L));
+    }
+
+    @Test
+    public void mergeTableNamesWithinWindow() throws Exception {
+        mTracker.setCoalescingWindow(500, TimeUnit.MILLISECONDS);
+        LatchObserver observer = new LatchObserver(1, "a", "B");
+        mTracker.addObserver(observer);
+        setInvalidatedTables();
+        refreshSync();
+        assertThat(mTracker.getRefreshCount(), is(1L));
+
+        setInvalidatedTables();
+        mTracker.notifyObserversByTableNames("a");
+        mTracker.notifyObserversByTableNames("b");
+        assertThat(observer.await(), is(true));
+        assertThat(observer.getInvalidatedTables().size(), is(2));
+        assertThat(observer.getInvalidatedTables(), hasItems("a", "B"));
+        assertThat(mTracker.getNotifiedObserverCount(), is(1L));
+    }
+
     @Test
     public void locale() {
         LatchObserver observer = new LatchObserver(1, "I");
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class QueryInstrumentationTest {
+    private final List<QueryMetrics> mMetrics = new ArrayList<>();
+    private final List<Long> mTransactionWaits = new ArrayList<>();
+    private SupportSQLiteDatabase mDatabase;
+    private QueryInstrumentation mInstrumentation;
+
+    @Before
+    public void setup() {
+        mDatabase = mock(SupportSQLiteDatabase.class);
+        mInstrumentation = new QueryInstrumentation(new RoomDatabase.QueryMetricsCallback() {
+            @Override
+            public void onQuery(@NonNull QueryMetrics metrics) {
+                mMetrics.add(metrics);
+            }
+
+            @Override
+            public void onTransactionBegin(long waitTimeNanos) {
+                mTransactionWaits.add(waitTimeNanos);
+            }
+        }, false);
+    }
+
+    @Test
+    public void queryIsNotCountedEagerly() {
+        Cursor cursor = mock(Cursor.class);
+        when(mDatabase.query(any(SupportSQLiteQuery.class))).thenReturn(cursor);
+        mInstrumentation.query(mDatabase,
+                new SimpleSQLiteQuery("SELECT * FROM user WHERE id > ?", new Object[]{1}), null);
+        // the rows are counted when the cursor is first read
+        verify(cursor, never()).getCount();
+        assertThat(mMetrics.size(), is(0));
+    }
+
+    @Test
+    public void countValuesRows() {
+        assertThat(QueryInstrumentation.countValuesRows("DELETE FROM user"), is(1));
+        assertThat(QueryInstrumentation.countValuesRows(
+                "INSERT OR ABORT INTO `user` (`id`,`name`) VALUES (nullif(?, 0),?)"), is(1));
+        assertThat(QueryInstrumentation.countValuesRows(
+                "INSERT OR ABORT INTO `user` (`id`,`name`) VALUES (nullif(?, 0),?),"
+                        + "(nullif(?, 0),?),(nullif(?, 0),?)"), is(3));
+    }
+
+    @Test
+    public void statement() {
+        SupportSQLiteStatement delegate = mock(SupportSQLiteStatement.class);
+        when(delegate.executeUpdateDelete()).thenReturn(2);
+        when(delegate.executeInsert()).thenReturn(-1L);
+        when(mDatabase.compileStatement(anyString())).thenReturn(delegate);
+        SupportSQLiteStatement statement =
+                mInstrumentation.compileStatement(mDatabase, "DELETE FROM user");
+        statement.bindLong(1, 3);
+        verify(delegate).bindLong(1, 3);
+        assertThat(statement.executeUpdateDelete(), is(2));
+        assertThat(statement.executeInsert(), is(-1L));
+        assertThat(mMetrics.size(), is(2));
+        assertThat(mMetrics.get(0).getRowCount(), is(2));
+        // failed inserts did not change any row
+        assertThat(mMetrics.get(1).getRowCount(), is(0));
+        // the statement is only compiled once
+        assertThat(mMetrics.get(1).getCompileTimeNanos(), is(0L));
+    }
+
+    @Test
+    public void beginTransaction() {
+        mInstrumentation.beginTransaction(mDatabase);
+        verify(mDatabase).beginTransaction();
+        assertThat(mTransactionWaits.size(), is(1));
+    }
+}
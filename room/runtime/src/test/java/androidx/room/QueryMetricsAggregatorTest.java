@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class QueryMetricsAggregatorTest {
+    @Test
+    public void percentiles() {
+        QueryMetricsAggregator aggregator = new QueryMetricsAggregator();
+        for (int i = 1; i <= 100; i++) {
+            aggregator.onQuery(new QueryMetrics("a", i, 0, 2));
+        }
+        aggregator.onQuery(new QueryMetrics("b", 3, 4, -1));
+        assertThat(aggregator.getQueries().size(), is(2));
+        assertThat(aggregator.getRunCount("a"), is(100L));
+        assertThat(aggregator.getDurationPercentileNanos("a", 50), is(50L));
+        assertThat(aggregator.getDurationPercentileNanos("a", 90), is(90L));
+        assertThat(aggregator.getDurationPercentileNanos("a", 100), is(100L));
+        assertThat(aggregator.getDurationPercentileNanos("a", 0), is(1L));
+        assertThat(aggregator.getAverageRowCount("a"), is(2.0));
+        assertThat(aggregator.getDurationPercentileNanos("b", 50), is(7L));
+        assertThat(aggregator.getAverageRowCount("b"), is(-1.0));
+        assertThat(aggregator.getDurationPercentileNanos("c", 50), is(-1L));
+    }
+
+    @Test
+    public void keepLatestSamples() {
+        QueryMetricsAggregator aggregator = new QueryMetricsAggregator(10);
+        for (int i = 1; i <= 100; i++) {
+            aggregator.onQuery(new QueryMetrics("a", i, 0, 0));
+        }
+        assertThat(aggregator.getRunCount("a"), is(100L));
+        assertThat(aggregator.getDurationPercentileNanos("a", 0), is(91L));
+        assertThat(aggregator.getDurationPercentileNanos("a", 100), is(100L));
+    }
+
+    @Test
+    public void keepLatestQueries() {
+        QueryMetricsAggregator aggregator = new QueryMetricsAggregator();
+        for (int i = 0; i <= QueryMetricsAggregator.MAX_QUERIES; i++) {
+            aggregator.onQuery(new QueryMetrics("q" + i, 1, 1, 1));
+        }
+        assertThat(aggregator.getQueries().size(), is(QueryMetricsAggregator.MAX_QUERIES));
+        assertThat(aggregator.getQueries().contains("q0"), is(false));
+    }
+
+    @Test
+    public void transactionWaits() {
+        QueryMetricsAggregator aggregator = new QueryMetricsAggregator();
+        assertThat(aggregator.getTransactionWaitPercentileNanos(50), is(-1L));
+        aggregator.onTransactionBegin(5);
+        aggregator.onTransactionBegin(1);
+        aggregator.onTransactionBegin(3);
+        assertThat(aggregator.getTransactionWaitPercentileNanos(50), is(3L));
+        aggregator.clear();
+        assertThat(aggregator.getQueries(), is(Collections.<String>emptySet()));
+        assertThat(aggregator.getTransactionWaitPercentileNanos(50), is(-1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        new QueryMetricsAggregator().getDurationPercentileNanos("a", 101);
+    }
+}
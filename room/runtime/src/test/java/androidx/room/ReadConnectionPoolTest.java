@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ReadConnectionPoolTest {
+    private final List<SupportSQLiteOpenHelper.Configuration> mConfigurations = new ArrayList<>();
+    private final List<SupportSQLiteOpenHelper> mHelpers = new ArrayList<>();
+    private SupportSQLiteOpenHelper.Factory mFactory;
+    private SupportSQLiteDatabase mWriter;
+
+    @Before
+    public void setup() {
+        mWriter = mock(SupportSQLiteDatabase.class);
+        when(mWriter.getVersion()).thenReturn(3);
+        mFactory = mock(SupportSQLiteOpenHelper.Factory.class);
+        when(mFactory.create(any(SupportSQLiteOpenHelper.Configuration.class))).thenAnswer(
+                new Answer<SupportSQLiteOpenHelper>() {
+                    @Override
+                    public SupportSQLiteOpenHelper answer(InvocationOnMock invocation) {
+                        mConfigurations.add(
+                                (SupportSQLiteOpenHelper.Configuration) invocation.getArgument(0));
+                        SupportSQLiteOpenHelper helper = mock(SupportSQLiteOpenHelper.class);
+                        SupportSQLiteDatabase db = mock(SupportSQLiteDatabase.class);
+                        when(db.isOpen()).thenReturn(true);
+                        when(helper.getReadableDatabase()).thenReturn(db);
+                        mHelpers.add(helper);
+                        return helper;
+                    }
+                });
+    }
+
+    @Test
+    public void openLazilyAndRoundRobin() {
+        ReadConnectionPool pool = new ReadConnectionPool(mock(Context.class), "foo.db",
+                mFactory, 2);
+        assertThat(mHelpers.size(), is(0));
+        SupportSQLiteDatabase first = pool.get(mWriter);
+        SupportSQLiteDatabase second = pool.get(mWriter);
+        assertThat(second, not(sameInstance(first)));
+        assertThat(pool.get(mWriter), sameInstance(first));
+        assertThat(pool.get(mWriter), sameInstance(second));
+        assertThat(mHelpers.size(), is(2));
+        for (SupportSQLiteOpenHelper helper : mHelpers) {
+            verify(helper).setWriteAheadLoggingEnabled(true);
+            verify(helper, times(1)).getReadableDatabase();
+        }
+        for (SupportSQLiteOpenHelper.Configuration configuration : mConfigurations) {
+            assertThat(configuration.name, is("foo.db"));
+            assertThat(configuration.callback.version, is(3));
+        }
+    }
+
+    @Test
+    public void closeAndReopen() {
+        ReadConnectionPool pool = new ReadConnectionPool(mock(Context.class), "foo.db",
+                mFactory, 1);
+        SupportSQLiteDatabase first = pool.get(mWriter);
+        pool.close();
+        verify(mHelpers.get(0)).close();
+        assertThat(pool.get(mWriter), not(sameInstance(first)));
+        assertThat(mHelpers.size(), is(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readerCannotCreateDatabase() {
+        new ReadConnectionPool.ReaderCallback(1).onCreate(mock(SupportSQLiteDatabase.class));
+    }
+}
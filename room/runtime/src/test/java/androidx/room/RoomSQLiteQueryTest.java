@@ -18,6 +18,7 @@ package androidx.room;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -31,14 +32,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(JUnit4.class)
 public class RoomSQLiteQueryTest {
     @Before
     public void clear() {
-        RoomSQLiteQuery.sQueryPool.clear();
+        RoomSQLiteQuery.resetPool(RoomSQLiteQuery.DEFAULT_POOL_SIZE);
     }
 
     @Test
@@ -90,17 +92,24 @@ public class RoomSQLiteQueryTest {
     }
 
     @Test
-    public void dontKeepSameSizeTwice() {
-        RoomSQLiteQuery query1 = RoomSQLiteQuery.acquire("abc", 3);
-        RoomSQLiteQuery query2 = RoomSQLiteQuery.acquire("zx", 3);
-        RoomSQLiteQuery query3 = RoomSQLiteQuery.acquire("qw", 0);
-
-        query1.release();
-        query2.release();
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(1));
-
-        query3.release();
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(2));
+    public void keepUpToPoolSizePerBucket() {
+        List<RoomSQLiteQuery> queries = new ArrayList<>();
+        for (int i = 0; i < RoomSQLiteQuery.DEFAULT_POOL_SIZE + 2; i++) {
+            queries.add(RoomSQLiteQuery.acquire("abc", 3));
+        }
+        RoomSQLiteQuery other = RoomSQLiteQuery.acquire("qw", 0);
+        for (RoomSQLiteQuery query : queries) {
+            query.release();
+        }
+        int bucket = RoomSQLiteQuery.bucketFor(3);
+        assertThat(RoomSQLiteQuery.sQueryPool.count(bucket),
+                is(RoomSQLiteQuery.DEFAULT_POOL_SIZE));
+        assertThat(RoomSQLiteQuery.sQueryPool.count(RoomSQLiteQuery.bucketFor(0)), is(0));
+
+        other.release();
+        assertThat(RoomSQLiteQuery.sQueryPool.count(RoomSQLiteQuery.bucketFor(0)), is(1));
+        assertThat(RoomSQLiteQuery.sQueryPool.count(bucket),
+                is(RoomSQLiteQuery.DEFAULT_POOL_SIZE));
     }
 
     @Test
@@ -118,32 +127,81 @@ public class RoomSQLiteQueryTest {
     }
 
     @Test
-    public void pruneCache() {
-        for (int i = 0; i < RoomSQLiteQuery.POOL_LIMIT; i++) {
-            RoomSQLiteQuery.acquire("dsdsa", i).release();
-        }
-        pruneCacheTest();
+    public void sameBucketSharesCapacity() {
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 5);
+        assertThat(query.mCapacity, is(7));
+        assertThat(query.mLongBindings.length, is(8));
+        query.release();
+        assertThat(RoomSQLiteQuery.acquire("dsa", 7), sameInstance(query));
     }
 
     @Test
-    public void pruneCacheReverseInsertion() {
-        List<RoomSQLiteQuery> queries = new ArrayList<>();
-        for (int i = RoomSQLiteQuery.POOL_LIMIT - 1; i >= 0; i--) {
-            queries.add(RoomSQLiteQuery.acquire("dsdsa", i));
-        }
-        for (RoomSQLiteQuery query : queries) {
-            query.release();
-        }
-        pruneCacheTest();
+    public void doNotPoolHugeQueries() {
+        int argCount = 1 << RoomSQLiteQuery.MAX_POOLED_BUCKET;
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", argCount);
+        assertThat(query.mCapacity, is(argCount));
+        query.release();
+        assertThat(RoomSQLiteQuery.acquire("dsa", argCount), not(sameInstance(query)));
+    }
+
+    @Test
+    public void hitAndMissCounts() {
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
+        assertThat(RoomSQLiteQuery.getPoolHitCount(), is(0L));
+        assertThat(RoomSQLiteQuery.getPoolMissCount(), is(1L));
+        query.release();
+        RoomSQLiteQuery.acquire("abc", 2);
+        RoomSQLiteQuery.acquire("abc", 2);
+        assertThat(RoomSQLiteQuery.getPoolHitCount(), is(1L));
+        assertThat(RoomSQLiteQuery.getPoolMissCount(), is(2L));
+        assertThat(RoomDatabase.getQueryPoolHitCount(), is(1L));
+        assertThat(RoomDatabase.getQueryPoolMissCount(), is(2L));
+    }
+
+    @Test
+    public void ensurePoolSizeOnlyGrows() {
+        RoomSQLiteQuery.ensurePoolSize(RoomSQLiteQuery.DEFAULT_POOL_SIZE + 4);
+        assertThat(RoomSQLiteQuery.sQueryPool.mSize, is(RoomSQLiteQuery.DEFAULT_POOL_SIZE + 4));
+        RoomSQLiteQuery.ensurePoolSize(1);
+        assertThat(RoomSQLiteQuery.sQueryPool.mSize, is(RoomSQLiteQuery.DEFAULT_POOL_SIZE + 4));
     }
 
-    private void pruneCacheTest() {
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(RoomSQLiteQuery.POOL_LIMIT));
-        RoomSQLiteQuery.acquire("dsadsa", RoomSQLiteQuery.POOL_LIMIT + 1).release();
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(RoomSQLiteQuery.DESIRED_POOL_SIZE));
-        Iterator<RoomSQLiteQuery> itr = RoomSQLiteQuery.sQueryPool.values().iterator();
-        for (int i = 0; i < RoomSQLiteQuery.DESIRED_POOL_SIZE; i++) {
-            assertThat(itr.next().mCapacity, is(i));
+    @Test
+    public void concurrentAcquireNeverSharesInstances() throws InterruptedException {
+        final int threadCount = 8;
+        final int iterations = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final String sql = "query" + t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < iterations; i++) {
+                            RoomSQLiteQuery query = RoomSQLiteQuery.acquire(sql, 2);
+                            Thread.yield();
+                            if (!sql.equals(query.getSql())) {
+                                throw new AssertionError("query reused while in use");
+                            }
+                            query.release();
+                        }
+                    } catch (Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
         }
+        assertThat(failure.get(), nullValue());
+        assertThat(RoomSQLiteQuery.getPoolHitCount() + RoomSQLiteQuery.getPoolMissCount(),
+                is((long) threadCount * iterations));
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+
+@RunWith(JUnit4.class)
+public class StatementCacheTest {
+    private RoomDatabase mDatabase;
+
+    @Before
+    public void setup() {
+        mDatabase = mock(RoomDatabase.class);
+        when(mDatabase.compileStatement(anyString())).thenAnswer(
+                new Answer<SupportSQLiteStatement>() {
+                    @Override
+                    public SupportSQLiteStatement answer(InvocationOnMock invocation) {
+                        return mock(SupportSQLiteStatement.class);
+                    }
+                });
+    }
+
+    @Test
+    public void reuseReleasedStatement() {
+        StatementCache cache = new StatementCache(mDatabase, 2);
+        SupportSQLiteStatement statement = cache.acquire("a");
+        cache.release(statement);
+        verify(statement).clearBindings();
+        assertThat(cache.acquire("a"), sameInstance(statement));
+        assertThat(cache.getHitCount(), is(1));
+        assertThat(cache.getMissCount(), is(1));
+    }
+
+    @Test
+    public void doNotShareStatementInUse() throws IOException {
+        StatementCache cache = new StatementCache(mDatabase, 2);
+        SupportSQLiteStatement first = cache.acquire("a");
+        SupportSQLiteStatement second = cache.acquire("a");
+        assertThat(second, not(sameInstance(first)));
+        cache.release(first);
+        cache.release(second);
+        verify(first, never()).close();
+        verify(second).close();
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getMissCount(), is(2));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws IOException {
+        StatementCache cache = new StatementCache(mDatabase, 2);
+        SupportSQLiteStatement a = cache.acquire("a");
+        SupportSQLiteStatement b = cache.acquire("b");
+        SupportSQLiteStatement c = cache.acquire("c");
+        cache.release(a);
+        cache.release(b);
+        cache.release(cache.acquire("a"));
+        cache.release(c);
+        verify(b).close();
+        verify(a, never()).close();
+        verify(c, never()).close();
+        assertThat(cache.size(), is(2));
+        assertThat(cache.getEvictionCount(), is(1));
+    }
+
+    @Test
+    public void invalidateClosesIdleAndInUseStatements() throws IOException {
+        StatementCache cache = new StatementCache(mDatabase, 2);
+        SupportSQLiteStatement idle = cache.acquire("a");
+        SupportSQLiteStatement inUse = cache.acquire("b");
+        cache.release(idle);
+        cache.invalidate();
+        verify(idle).close();
+        verify(inUse, never()).close();
+        cache.release(inUse);
+        verify(inUse).close();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.acquire("a"), not(sameInstance(idle)));
+    }
+
+    @Test
+    public void invalidateWhileCompilingClosesStatement() throws IOException {
+        final StatementCache cache = new StatementCache(mDatabase, 2);
+        final SupportSQLiteStatement stale = mock(SupportSQLiteStatement.class);
+        when(mDatabase.compileStatement("a")).thenAnswer(
+                new Answer<SupportSQLiteStatement>() {
+                    @Override
+                    public SupportSQLiteStatement answer(InvocationOnMock invocation) {
+                        // the database is reopened before the statement is handed out
+                        cache.invalidate();
+                        return stale;
+                    }
+                });
+        SupportSQLiteStatement statement = cache.acquire("a");
+        assertThat(statement, sameInstance(stale));
+        cache.release(statement);
+        verify(stale).close();
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void zeroSizeNeverCaches() throws IOException {
+        StatementCache cache = new StatementCache(mDatabase, 0);
+        SupportSQLiteStatement statement = cache.acquire("a");
+        cache.release(statement);
+        verify(statement).close();
+        assertThat(cache.acquire("a"), not(sameInstance(statement)));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.room.RoomDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(JUnit4.class)
+public class RelationUtilTest {
+    private RoomDatabase mDatabase;
+    private ExecutorService mExecutor;
+    private final List<Thread> mThreads = Collections.synchronizedList(new ArrayList<Thread>());
+
+    @Before
+    public void setup() {
+        mDatabase = mock(RoomDatabase.class);
+        mExecutor = Executors.newSingleThreadExecutor();
+        when(mDatabase.getQueryExecutor()).thenReturn(mExecutor);
+    }
+
+    @After
+    public void shutdown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void sequentialWhenNotAllowed() {
+        when(mDatabase.canFetchRelationsInParallel()).thenReturn(false);
+        RelationUtil.fetchRelations(mDatabase, new RecordThread(), new RecordThread());
+        assertThat(mThreads.size(), is(2));
+        assertThat(mThreads.get(0), sameInstance(Thread.currentThread()));
+        assertThat(mThreads.get(1), sameInstance(Thread.currentThread()));
+    }
+
+    @Test
+    public void parallel() {
+        when(mDatabase.canFetchRelationsInParallel()).thenReturn(true);
+        final Thread caller = Thread.currentThread();
+        // the first fetch waits until the second one ran, which can only happen on the executor
+        final Object lock = new Object();
+        RelationUtil.fetchRelations(mDatabase, new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    while (mThreads.isEmpty()) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    mThreads.add(Thread.currentThread());
+                    lock.notifyAll();
+                }
+            }
+        });
+        assertThat(mThreads.size(), is(1));
+        assertThat(mThreads.get(0), not(sameInstance(caller)));
+    }
+
+    @Test
+    public void callerRunsWhenExecutorIsBusy() {
+        when(mDatabase.canFetchRelationsInParallel()).thenReturn(true);
+        when(mDatabase.getQueryExecutor()).thenReturn(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                // never runs
+            }
+        });
+        RelationUtil.fetchRelations(mDatabase, new RecordThread(), new RecordThread(),
+                new RecordThread());
+        assertThat(mThreads.size(), is(3));
+        for (Thread thread : mThreads) {
+            assertThat(thread, sameInstance(Thread.currentThread()));
+        }
+    }
+
+    @Test
+    public void nestedFetchesRunInPlace() {
+        when(mDatabase.canFetchRelationsInParallel()).thenReturn(true);
+        final List<Thread> outer = Collections.synchronizedList(new ArrayList<Thread>());
+        Runnable nested = new Runnable() {
+            @Override
+            public void run() {
+                outer.add(Thread.currentThread());
+                RelationUtil.fetchRelations(mDatabase, new RecordThread(), new RecordThread());
+            }
+        };
+        RelationUtil.fetchRelations(mDatabase, nested, nested);
+        assertThat(mThreads.size(), is(4));
+        for (Thread thread : mThreads) {
+            assertThat(outer.contains(thread), is(true));
+        }
+    }
+
+    @Test
+    public void rethrow() {
+        when(mDatabase.canFetchRelationsInParallel()).thenReturn(true);
+        final IllegalStateException error = new IllegalStateException();
+        try {
+            RelationUtil.fetchRelations(mDatabase, new RecordThread(), new Runnable() {
+                @Override
+                public void run() {
+                    throw error;
+                }
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertThat(e, sameInstance(error));
+        }
+        assertThat(mThreads.size(), is(1));
+    }
+
+    private class RecordThread implements Runnable {
+        @Override
+        public void run() {
+            mThreads.add(Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.filters.LargeTest
+import androidx.work.Data
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+
+/**
+ * Compares the size and the encoding and decoding time of the compact [Data] format with the
+ * [ObjectOutputStream] based format it replaced, for typical worker inputs and outputs.
+ */
+@RunWith(Parameterized::class)
+@LargeTest
+class DataSerializationBenchmark(private val payload: String) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val data = when (payload) {
+        INPUT -> Data.Builder()
+            .putString("upload_uri", "content://media/external/images/media/1234")
+            .putString("destination", "https://example.com/api/v1/albums/42/photos")
+            .putString("account", "user@example.com")
+            .putLong("created_at", 1600000000000L)
+            .putInt("retries", 3)
+            .putBoolean("metered_allowed", false)
+            .build()
+        else -> Data.Builder()
+            .putStringArray("synced_ids", Array(50) { "message-${1000 + it}" })
+            .putIntArray("counts", IntArray(50) { it * 7 })
+            .putLong("synced_at", 1600000000000L)
+            .putString("status", "OK")
+            .build()
+    }
+
+    @Test
+    fun encode() {
+        benchmarkRule.measureRepeated {
+            data.toByteArray()
+        }
+    }
+
+    @Test
+    fun decode() {
+        val bytes = data.toByteArray()
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(bytes)
+        }
+    }
+
+    @Test
+    fun encodeLegacy() {
+        benchmarkRule.measureRepeated {
+            toLegacyByteArray(data)
+        }
+    }
+
+    @Test
+    fun decodeLegacy() {
+        // rows written by previous versions are still read through fromByteArray()
+        val bytes = toLegacyByteArray(data)
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(bytes)
+        }
+    }
+
+    @Test
+    fun size() {
+        val size = data.toByteArray().size
+        val legacySize = toLegacyByteArray(data).size
+        Log.i(TAG, "$payload: $size bytes, legacy $legacySize bytes")
+        check(size < legacySize)
+    }
+
+    /**
+     * Serializes [data] the way [Data.toByteArray] did before the compact format.
+     */
+    private fun toLegacyByteArray(data: Data): ByteArray {
+        val outputStream = ByteArrayOutputStream()
+        ObjectOutputStream(outputStream).use { objectOutputStream ->
+            objectOutputStream.writeInt(data.keyValueMap.size)
+            for ((key, value) in data.keyValueMap) {
+                objectOutputStream.writeUTF(key)
+                objectOutputStream.writeObject(value)
+            }
+        }
+        return outputStream.toByteArray()
+    }
+
+    companion object {
+        private const val TAG = "DataSerialization"
+        private const val INPUT = "input"
+        private const val OUTPUT = "output"
+
+        @JvmStatic
+        @Parameters(name = "{0}")
+        fun payloads() = listOf(INPUT, OUTPUT)
+    }
+}
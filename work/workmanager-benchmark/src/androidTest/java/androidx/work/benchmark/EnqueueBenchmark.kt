@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.work.Configuration
+import androidx.work.OneTimeWorkRequest
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.impl.WorkContinuationImpl
+import androidx.work.impl.WorkDatabase
+import androidx.work.impl.WorkDatabasePathHelper
+import androidx.work.impl.WorkManagerImpl
+import androidx.work.impl.model.WorkTag
+import androidx.work.impl.utils.EnqueueRunnable
+import androidx.work.impl.utils.SerialExecutor
+import androidx.work.impl.utils.taskexecutor.TaskExecutor
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executor
+
+/**
+ * Measures how fast a batch of [COUNT] requests is written to the database when it is enqueued.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class EnqueueBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+    private lateinit var databasePath: String
+    private lateinit var context: Context
+    private lateinit var executor: DispatchingExecutor
+    private lateinit var database: WorkDatabase
+    private lateinit var workManager: WorkManagerImpl
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        databasePath = WorkDatabasePathHelper.getDatabasePath(context).path
+        context.deleteDatabase(databasePath)
+
+        executor = DispatchingExecutor()
+        val serialExecutor = SerialExecutor(executor)
+        val taskExecutor = object : TaskExecutor {
+            override fun postToMainThread(runnable: Runnable) {
+                serialExecutor.execute(runnable)
+            }
+
+            override fun getMainThreadExecutor(): Executor {
+                return serialExecutor
+            }
+
+            override fun executeOnBackgroundThread(runnable: Runnable) {
+                serialExecutor.execute(runnable)
+            }
+
+            override fun getBackgroundExecutor(): SerialExecutor {
+                return serialExecutor
+            }
+        }
+        val configuration = Configuration.Builder()
+            .setTaskExecutor(executor)
+            .setExecutor(executor)
+            .setMinimumLoggingLevel(Log.DEBUG)
+            .build()
+        database = WorkDatabase.create(context, configuration.taskExecutor, false)
+        workManager = WorkManagerImpl(context, configuration, taskExecutor, database)
+        executor.runAllCommands()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+        context.deleteDatabase(databasePath)
+    }
+
+    @Test
+    fun enqueue() {
+        benchmarkRule.measureRepeated {
+            val requests = runWithTimingDisabled { createRequests() }
+            EnqueueRunnable(WorkContinuationImpl(workManager, requests)).addToDatabase()
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    /**
+     * Writes the rows of [enqueue] with one list insert per table, as [EnqueueRunnable] does.
+     */
+    @Test
+    fun insertBatched() {
+        benchmarkRule.measureRepeated {
+            val requests = runWithTimingDisabled { createRequests() }
+            database.runInTransaction {
+                val tags = requests.flatMap { request ->
+                    request.tags.map { WorkTag(it, request.stringId) }
+                }
+                database.workSpecDao().insertWorkSpecs(requests.map { it.workSpec })
+                database.workTagDao().insert(tags)
+            }
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    /**
+     * Writes the same rows as [insertBatched] one statement per row, as enqueueing used to.
+     */
+    @Test
+    fun insertOneByOne() {
+        benchmarkRule.measureRepeated {
+            val requests = runWithTimingDisabled { createRequests() }
+            database.runInTransaction {
+                for (request in requests) {
+                    database.workSpecDao().insertWorkSpec(request.workSpec)
+                    for (tag in request.tags) {
+                        database.workTagDao().insert(WorkTag(tag, request.stringId))
+                    }
+                }
+            }
+            runWithTimingDisabled { database.clearAllTables() }
+        }
+    }
+
+    private fun createRequests(): List<OneTimeWorkRequest> {
+        return List(COUNT) {
+            OneTimeWorkRequestBuilder<NoOpWorker>().addTag(TAG).build()
+        }
+    }
+
+    companion object {
+        private const val TAG = "EnqueueBenchmark"
+        private const val COUNT = 1000
+    }
+}
@@ -114,6 +114,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -230,6 +231,33 @@ public class WorkManagerImplTest {
         assertThat(workSpecDao.getWorkSpec(work3.getStringId()), is(notNullValue()));
     }
 
+    @Test
+    @MediumTest
+    public void testEnqueue_insertManyWork() throws ExecutionException, InterruptedException {
+        final String tag = "bulk_tag";
+        final String name = "bulk_name";
+        final int count = 1000;
+        List<OneTimeWorkRequest> work = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            work.add(new OneTimeWorkRequest.Builder(TestWorker.class).addTag(tag).build());
+        }
+        OneTimeWorkRequest dependent = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+
+        mWorkManagerImpl.beginUniqueWork(name, REPLACE, work)
+                .then(dependent)
+                .enqueue()
+                .getResult()
+                .get();
+
+        assertThat(mDatabase.workTagDao().getWorkSpecIdsWithTag(tag).size(), is(count));
+        assertThat(mDatabase.workNameDao().getWorkSpecIdsWithName(name).size(), is(count + 1));
+        assertThat(mDatabase.dependencyDao().getPrerequisites(dependent.getStringId()).size(),
+                is(count));
+        assertThat(mDatabase.workSpecDao().getState(work.get(count - 1).getStringId()),
+                is(ENQUEUED));
+        assertThat(mDatabase.workSpecDao().getState(dependent.getStringId()), is(BLOCKED));
+    }
+
     @Test
     @MediumTest
     public void testEnqueue_insertMultipleWork_continuationBlocking()
@@ -30,6 +30,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.isOneOf;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeast;
@@ -62,6 +63,8 @@ import androidx.work.ListenableWorker;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.ProgressUpdater;
+import androidx.work.WorkMetrics;
+import androidx.work.WorkMetricsListener;
 import androidx.work.WorkerFactory;
 import androidx.work.WorkerParameters;
 import androidx.work.impl.foreground.ForegroundProcessor;
@@ -153,6 +156,36 @@ public class WorkerWrapperTest extends DatabaseTest {
         assertThat(mWorkSpecDao.getState(work.getStringId()), is(SUCCEEDED));
     }
 
+    @Test
+    @SmallTest
+    public void testWorkMetrics() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+        WorkMetricsListener metricsListener = mock(WorkMetricsListener.class);
+        Configuration configuration = new Configuration.Builder(mConfiguration)
+                .setWorkMetricsListener(metricsListener)
+                .build();
+        WorkerWrapper workerWrapper = new WorkerWrapper.Builder(
+                mContext,
+                configuration,
+                mWorkTaskExecutor,
+                mMockForegroundProcessor,
+                mDatabase,
+                work.getStringId()).build();
+        workerWrapper.run();
+
+        ArgumentCaptor<WorkMetrics> captor = ArgumentCaptor.forClass(WorkMetrics.class);
+        verify(metricsListener).onWorkFinished(captor.capture());
+        WorkMetrics metrics = captor.getValue();
+        assertThat(metrics.getId(), is(work.getId()));
+        assertThat(metrics.getWorkerClassName(), is(TestWorker.class.getName()));
+        for (int phase : new int[]{WorkMetrics.PHASE_QUEUE_WAIT, WorkMetrics.PHASE_SETUP,
+                WorkMetrics.PHASE_WORK, WorkMetrics.PHASE_PERSIST_RESULT,
+                WorkMetrics.PHASE_RESCHEDULE}) {
+            assertThat(metrics.getDurationMillis(phase), is(greaterThanOrEqualTo(0L)));
+        }
+    }
+
     @Test
     @SmallTest
     public void testRunAttemptCountIncremented_successfulExecution() {
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PriorityWorkExecutorTest {
+    private static final String SYNC = "sync";
+    private static final String USER = "user";
+
+    private ManualExecutor mExecutor;
+    private Map<String, Integer> mPriorities;
+    private Map<String, Integer> mLimits;
+    private List<String> mRan;
+
+    @Before
+    public void setUp() {
+        mExecutor = new ManualExecutor();
+        mPriorities = new HashMap<>();
+        mLimits = new HashMap<>();
+        mRan = new ArrayList<>();
+    }
+
+    @Test
+    public void testForWork_notConfigured() {
+        PriorityWorkExecutor executor = createExecutor(1);
+        assertThat(executor.forWork(Collections.singletonList(SYNC)),
+                is(sameInstance((Executor) mExecutor)));
+    }
+
+    @Test
+    public void testPriority_highestTag() {
+        mPriorities.put(SYNC, -1);
+        mPriorities.put(USER, 10);
+        PriorityWorkExecutor executor = createExecutor(1);
+        assertThat(executor.getPriority(Collections.<String>emptyList()), is(0));
+        assertThat(executor.getPriority(Collections.singletonList(SYNC)), is(-1));
+        assertThat(executor.getPriority(Arrays.asList(SYNC, USER)), is(10));
+    }
+
+    @Test
+    public void testHigherPriorityRunsFirst() {
+        mPriorities.put(SYNC, -1);
+        mPriorities.put(USER, 10);
+        PriorityWorkExecutor executor = createExecutor(1);
+        Executor sync = executor.forWork(Collections.singletonList(SYNC));
+        Executor user = executor.forWork(Collections.singletonList(USER));
+        Executor other = executor.forWork(Collections.singletonList("other"));
+
+        sync.execute(record("sync 1"));
+        sync.execute(record("sync 2"));
+        other.execute(record("other"));
+        user.execute(record("user 1"));
+        user.execute(record("user 2"));
+        // Only one task is handed over at a time.
+        assertThat(mExecutor.mTasks.size(), is(1));
+        mExecutor.runAll();
+
+        assertThat(mRan, is(Arrays.asList("sync 1", "user 1", "user 2", "other", "sync 2")));
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        mLimits.put(SYNC, 2);
+        PriorityWorkExecutor executor = createExecutor(4);
+        List<String> syncTags = Arrays.asList(SYNC, "other");
+        Executor user = executor.forWork(Collections.singletonList(USER));
+
+        executor.forWork(syncTags).execute(record("sync 1"));
+        executor.forWork(syncTags).execute(record("sync 2"));
+        executor.forWork(syncTags).execute(record("sync 3"));
+        user.execute(record("user"));
+        // The third sync task waits for one of the first two, but does not block the other work.
+        assertThat(mExecutor.mTasks.size(), is(3));
+        assertThat(executor.getQueueDepth(0), is(4));
+
+        mExecutor.runNext();
+        assertThat(mExecutor.mTasks.size(), is(3));
+        mExecutor.runAll();
+        assertThat(mRan, is(Arrays.asList("sync 1", "sync 2", "user", "sync 3")));
+        assertThat(executor.getQueueDepth(0), is(0));
+    }
+
+    @Test
+    public void testWaitTime() throws InterruptedException {
+        mPriorities.put(USER, 1);
+        PriorityWorkExecutor executor = createExecutor(1);
+        Executor user = executor.forWork(Collections.singletonList(USER));
+
+        user.execute(record("first"));
+        user.execute(record("second"));
+        assertThat(executor.getQueueDepth(1), is(2));
+        Thread.sleep(20);
+        mExecutor.runAll();
+
+        assertThat(executor.getQueueDepth(1), is(0));
+        assertThat(executor.getMaxWaitTimeMillis(1) >= 20, is(true));
+        assertThat(executor.getAverageWaitTimeMillis(1) >= 10, is(true));
+        assertThat(executor.getMaxWaitTimeMillis(0), is(0L));
+    }
+
+    @Test
+    public void testInlineExecutor() {
+        mLimits.put(SYNC, 1);
+        PriorityWorkExecutor executor =
+                new PriorityWorkExecutor(new SynchronousExecutor(), mPriorities, mLimits);
+        final Executor sync = executor.forWork(Collections.singletonList(SYNC));
+        final Executor otherSync = executor.forWork(Collections.singletonList(SYNC));
+
+        sync.execute(new Runnable() {
+            @Override
+            public void run() {
+                mRan.add("outer");
+                // Another worker with the tag waits for the running one to complete.
+                otherSync.execute(record("other worker"));
+                mRan.add("outer done");
+            }
+        });
+
+        assertThat(mRan, is(Arrays.asList("outer", "outer done", "other worker")));
+    }
+
+    @Test
+    public void testConcurrencyLimit_countsWorkersNotTasks() {
+        mLimits.put(SYNC, 1);
+        PriorityWorkExecutor executor = createExecutor(4);
+        final Executor sync = executor.forWork(Collections.singletonList(SYNC));
+        Executor otherSync = executor.forWork(Collections.singletonList(SYNC));
+
+        sync.execute(new Runnable() {
+            @Override
+            public void run() {
+                mRan.add("outer");
+                // A worker that waits for a task it submits must not deadlock on its own limit.
+                sync.execute(record("inner"));
+                assertThat(mExecutor.mTasks.size(), is(1));
+            }
+        });
+        otherSync.execute(record("other worker"));
+        assertThat(mExecutor.mTasks.size(), is(1));
+
+        mExecutor.runNext();
+        // The inner task was handed over while the outer one ran, the other worker still waits.
+        assertThat(mExecutor.mTasks.size(), is(1));
+        mExecutor.runAll();
+        assertThat(mRan, is(Arrays.asList("outer", "inner", "other worker")));
+        assertThat(executor.getQueueDepth(0), is(0));
+    }
+
+    @Test
+    public void testRejectedTask_requeuesTheRest() {
+        mLimits.put(SYNC, 1);
+        PriorityWorkExecutor executor = createExecutor(4);
+        Executor sync = executor.forWork(Collections.singletonList(SYNC));
+        Executor otherSync = executor.forWork(Collections.singletonList(SYNC));
+
+        sync.execute(record("first"));
+        otherSync.execute(record("second 1"));
+        otherSync.execute(record("second 2"));
+        otherSync.execute(record("second 3"));
+        assertThat(mExecutor.mTasks.size(), is(1));
+
+        // All tasks of the other worker are handed over when the first one finishes.
+        mExecutor.mRejectNext = true;
+        try {
+            mExecutor.runNext();
+            fail("Expected the rejection to be rethrown");
+        } catch (RejectedExecutionException expected) {
+            // The rejected task is dropped.
+        }
+        assertThat(mExecutor.mTasks.size(), is(0));
+        assertThat(executor.getQueueDepth(0), is(2));
+
+        // The other tasks run as soon as anything is scheduled, they hold no slots.
+        executor.forWork(Collections.singletonList(USER)).execute(record("user"));
+        assertThat(mExecutor.mTasks.size(), is(3));
+        mExecutor.runAll();
+        assertThat(mRan, is(Arrays.asList("first", "second 2", "second 3", "user")));
+        assertThat(executor.getQueueDepth(0), is(0));
+    }
+
+    @NonNull
+    private PriorityWorkExecutor createExecutor(int maxRunning) {
+        return new PriorityWorkExecutor(mExecutor, maxRunning, mPriorities, mLimits);
+    }
+
+    @NonNull
+    private Runnable record(@NonNull final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mRan.add(name);
+            }
+        };
+    }
+
+    /**
+     * An {@link Executor} which runs the tasks when the test tells it to.
+     */
+    private static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        boolean mRejectNext;
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            if (mRejectNext) {
+                mRejectNext = false;
+                throw new RejectedExecutionException();
+            }
+            mTasks.add(command);
+        }
+
+        void runNext() {
+            mTasks.poll().run();
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                runNext();
+            }
+        }
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary format {@link Data} is serialized to.
+ * <p>
+ * A payload starts with a {@link #MAGIC} header and a {@link #VERSION}, followed by a table of
+ * the distinct strings of the payload, keys and values alike, and the entries. Each entry is the
+ * index of its key in the string table, a type and the value. Lengths, indices, integers and
+ * longs are varints (integers and longs zigzag encoded), floats and doubles are written as their
+ * raw bits, and arrays are written as their length followed by their unboxed elements.
+ * <p>
+ * Arrays that contain {@code null} elements, which can only be put through
+ * {@link Data.Builder#put(String, Object)}, are flagged with {@link #NULLABLE} and followed by a
+ * bitmap of the non-null elements.
+ */
+final class CompactDataFormat {
+    // Never starts an ObjectOutputStream, whose stream magic is 0xACED.
+    private static final byte[] MAGIC = new byte[]{(byte) 0xDA, (byte) 0x7A};
+    static final int VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_BYTE = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_FLOAT = 5;
+    private static final int TYPE_DOUBLE = 6;
+    private static final int TYPE_STRING = 7;
+    private static final int ELEMENT_TYPE_MASK = 0x0F;
+    private static final int ARRAY = 0x10;
+    private static final int NULLABLE = 0x20;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CompactDataFormat() {
+    }
+
+    /**
+     * @return {@code true} if the bytes start with the header of this format.
+     */
+    static boolean isCompact(@NonNull byte[] bytes) {
+        return bytes.length >= MAGIC.length + 1
+                && bytes[0] == MAGIC[0]
+                && bytes[1] == MAGIC[1];
+    }
+
+    /**
+     * Serializes the values of a {@link Data}.
+     *
+     * @param values The values, of the types {@link Data.Builder#put(String, Object)} accepts
+     * @return The serialized values
+     */
+    @NonNull
+    static byte[] write(@NonNull Map<String, Object> values) {
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            addString(entry.getKey(), stringIndices, strings);
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                addString((String) value, stringIndices, strings);
+            } else if (value instanceof String[]) {
+                for (String element : (String[]) value) {
+                    if (element != null) {
+                        addString(element, stringIndices, strings);
+                    }
+                }
+            }
+        }
+
+        Writer writer = new Writer();
+        writer.writeBytes(MAGIC, 0, MAGIC.length);
+        writer.writeByte(VERSION);
+        writer.writeVarint(strings.size());
+        for (String string : strings) {
+            byte[] utf8 = string.getBytes(UTF_8);
+            writer.writeVarint(utf8.length);
+            writer.writeBytes(utf8, 0, utf8.length);
+        }
+        writer.writeVarint(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writer.writeVarint(stringIndices.get(entry.getKey()));
+            writeValue(writer, entry.getValue(), stringIndices);
+        }
+        return writer.toByteArray();
+    }
+
+    private static void addString(String string, Map<String, Integer> stringIndices,
+            List<String> strings) {
+        if (!stringIndices.containsKey(string)) {
+            stringIndices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static void writeValue(Writer writer, Object value,
+            Map<String, Integer> stringIndices) {
+        if (value == null) {
+            writer.writeByte(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            writer.writeByte(TYPE_BOOLEAN);
+            writer.writeByte((Boolean) value ? 1 : 0);
+        } else if (value instanceof Byte) {
+            writer.writeByte(TYPE_BYTE);
+            writer.writeByte((Byte) value);
+        } else if (value instanceof Integer) {
+            writer.writeByte(TYPE_INT);
+            writer.writeZigzag((Integer) value);
+        } else if (value instanceof Long) {
+            writer.writeByte(TYPE_LONG);
+            writer.writeZigzag((Long) value);
+        } else if (value instanceof Float) {
+            writer.writeByte(TYPE_FLOAT);
+            writer.writeFixed(Float.floatToIntBits((Float) value), 4);
+        } else if (value instanceof Double) {
+            writer.writeByte(TYPE_DOUBLE);
+            writer.writeFixed(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof String) {
+            writer.writeByte(TYPE_STRING);
+            writer.writeVarint(stringIndices.get(value));
+        } else {
+            writeArray(writer, (Object[]) value, stringIndices);
+        }
+    }
+
+    private static void writeArray(Writer writer, Object[] array,
+            Map<String, Integer> stringIndices) {
+        int type = ARRAY | arrayElementType(array);
+        boolean nullable = false;
+        for (Object element : array) {
+            if (element == null) {
+                nullable = true;
+                break;
+            }
+        }
+        writer.writeByte(nullable ? type | NULLABLE : type);
+        writer.writeVarint(array.length);
+        if (nullable) {
+            byte[] bitmap = new byte[(array.length + 7) / 8];
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] != null) {
+                    bitmap[i / 8] |= 1 << (i % 8);
+                }
+            }
+            writer.writeBytes(bitmap, 0, bitmap.length);
+        }
+        switch (type & ELEMENT_TYPE_MASK) {
+            case TYPE_BOOLEAN: {
+                // eight booleans per byte
+                int bits = 0;
+                int count = 0;
+                for (Object element : array) {
+                    if (element != null) {
+                        if ((Boolean) element) {
+                            bits |= 1 << count;
+                        }
+                        if (++count == 8) {
+                            writer.writeByte(bits);
+                            bits = 0;
+                            count = 0;
+                        }
+                    }
+                }
+                if (count > 0) {
+                    writer.writeByte(bits);
+                }
+                break;
+            }
+            case TYPE_BYTE:
+                for (Object element : array) {
+                    if (element != null) {
+                        writer.writeByte((Byte) element);
+                    }
+                }
+                break;
+            case TYPE_INT:
+                for (Object element : array) {
+                    if (element != null) {
+                        writer.writeZigzag((Integer) element);
+                    }
+                }
+                break;
+            case TYPE_LONG:
+                for (Object element : array) {
+                    if (element != null) {
+                        writer.writeZigzag((Long) element);
+                    }
+                }
+                break;
+            case TYPE_FLOAT:
+                for (Object element : array) {
+                    if (element != null) {
+                        writer.writeFixed(Float.floatToIntBits((Float) element), 4);
+                    }
+                }
+                break;
+            case TYPE_DOUBLE:
+                for (Object element : array) {
+                    if (element != null) {
+                        writer.writeFixed(Double.doubleToLongBits((Double) element), 8);
+                    }
+                }
+                break;
+            default:
+                for (Object element : array) {
+                    if (element != null) {
+                        writer.writeVarint(stringIndices.get(element));
+                    }
+                }
+                break;
+        }
+    }
+
+    private static int arrayElementType(Object[] array) {
+        if (array instanceof Boolean[]) {
+            return TYPE_BOOLEAN;
+        } else if (array instanceof Byte[]) {
+            return TYPE_BYTE;
+        } else if (array instanceof Integer[]) {
+            return TYPE_INT;
+        } else if (array instanceof Long[]) {
+            return TYPE_LONG;
+        } else if (array instanceof Float[]) {
+            return TYPE_FLOAT;
+        } else if (array instanceof Double[]) {
+            return TYPE_DOUBLE;
+        } else if (array instanceof String[]) {
+            return TYPE_STRING;
+        }
+        throw new IllegalArgumentException("Unsupported array type " + array.getClass());
+    }
+
+    /**
+     * Deserializes values written by {@link #write(Map)}.
+     *
+     * @param bytes  The serialized values, starting with the header of this format
+     * @param values The map to put the values in
+     * @throws IOException If the bytes are truncated, malformed, or written by a newer version
+     */
+    static void read(@NonNull byte[] bytes, @NonNull Map<String, Object> values)
+            throws IOException {
+        Reader reader = new Reader(bytes, MAGIC.length);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported Data version " + version);
+        }
+        String[] strings = new String[reader.readLength()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = reader.readLength();
+            strings[i] = new String(bytes, reader.skip(length), length, UTF_8);
+        }
+        for (int i = reader.readLength(); i > 0; i--) {
+            String key = reader.readString(strings);
+            values.put(key, readValue(reader, strings));
+        }
+    }
+
+    private static Object readValue(Reader reader, String[] strings) throws IOException {
+        int type = reader.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return reader.readByte() != 0;
+            case TYPE_BYTE:
+                return (byte) reader.readByte();
+            case TYPE_INT:
+                return (int) reader.readZigzag();
+            case TYPE_LONG:
+                return reader.readZigzag();
+            case TYPE_FLOAT:
+                return Float.intBitsToFloat((int) reader.readFixed(4));
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(reader.readFixed(8));
+            case TYPE_STRING:
+                return reader.readString(strings);
+        }
+        if ((type & ARRAY) == 0 || (type & ~(ARRAY | NULLABLE | ELEMENT_TYPE_MASK)) != 0) {
+            throw new IOException("Unknown Data value type " + type);
+        }
+        return readArray(reader, type, strings);
+    }
+
+    private static Object[] readArray(Reader reader, int type, String[] strings)
+            throws IOException {
+        // booleans and null elements take less than a byte each
+        int length = reader.readLength(8);
+        Object[] array;
+        switch (type & ELEMENT_TYPE_MASK) {
+            case TYPE_BOOLEAN:
+                array = new Boolean[length];
+                break;
+            case TYPE_BYTE:
+                array = new Byte[length];
+                break;
+            case TYPE_INT:
+                array = new Integer[length];
+                break;
+            case TYPE_LONG:
+                array = new Long[length];
+                break;
+            case TYPE_FLOAT:
+                array = new Float[length];
+                break;
+            case TYPE_DOUBLE:
+                array = new Double[length];
+                break;
+            case TYPE_STRING:
+                array = new String[length];
+                break;
+            default:
+                throw new IOException("Unknown Data array type " + type);
+        }
+        int bitmapOffset = -1;
+        if ((type & NULLABLE) != 0) {
+            bitmapOffset = reader.skip((length + 7) / 8);
+        }
+        int bits = 0;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (bitmapOffset >= 0
+                    && (reader.mBytes[bitmapOffset + i / 8] & (1 << (i % 8))) == 0) {
+                continue;
+            }
+            switch (type & ELEMENT_TYPE_MASK) {
+                case TYPE_BOOLEAN:
+                    if (count % 8 == 0) {
+                        bits = reader.readByte();
+                    }
+                    array[i] = (bits & (1 << (count % 8))) != 0;
+                    count++;
+                    break;
+                case TYPE_BYTE:
+                    array[i] = (byte) reader.readByte();
+                    break;
+                case TYPE_INT:
+                    array[i] = (int) reader.readZigzag();
+                    break;
+                case TYPE_LONG:
+                    array[i] = reader.readZigzag();
+                    break;
+                case TYPE_FLOAT:
+                    array[i] = Float.intBitsToFloat((int) reader.readFixed(4));
+                    break;
+                case TYPE_DOUBLE:
+                    array[i] = Double.longBitsToDouble(reader.readFixed(8));
+                    break;
+                default:
+                    array[i] = reader.readString(strings);
+                    break;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * A growable byte buffer, which unlike a {@link java.io.ByteArrayOutputStream} is not
+     * synchronized.
+     */
+    private static final class Writer {
+        private byte[] mBytes = new byte[64];
+        private int mSize;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, mBytes, mSize, length);
+            mSize += length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeFixed(long value, int byteCount) {
+            ensureCapacity(byteCount);
+            for (int shift = (byteCount - 1) * 8; shift >= 0; shift -= 8) {
+                mBytes[mSize++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void ensureCapacity(int count) {
+            if (mSize + count > mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, Math.max(mBytes.length * 2, mSize + count));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBytes, mSize);
+        }
+    }
+
+    private static final class Reader {
+        final byte[] mBytes;
+        private int mPosition;
+
+        Reader(byte[] bytes, int position) {
+            mBytes = bytes;
+            mPosition = position;
+        }
+
+        int readByte() throws IOException {
+            if (mPosition >= mBytes.length) {
+                throw new EOFException();
+            }
+            return mBytes[mPosition++] & 0xFF;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        long readZigzag() throws IOException {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readFixed(int byteCount) throws IOException {
+            long value = 0;
+            for (int i = 0; i < byteCount; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        /**
+         * Reads a length, which cannot be larger than the remaining bytes.
+         */
+        int readLength() throws IOException {
+            return readLength(1);
+        }
+
+        /**
+         * Reads a length of things that are at least {@code 1 / perByte} bytes long.
+         */
+        int readLength(int perByte) throws IOException {
+            long length = readVarint();
+            if (length < 0 || length > (long) (mBytes.length - mPosition) * perByte) {
+                throw new IOException("Malformed length " + length);
+            }
+            return (int) length;
+        }
+
+        String readString(String[] strings) throws IOException {
+            long index = readVarint();
+            if (index < 0 || index >= strings.length) {
+                throw new IOException("Malformed string index " + index);
+            }
+            return strings[(int) index];
+        }
+
+        /**
+         * @return The position of the skipped bytes.
+         */
+        int skip(int count) throws IOException {
+            if (count > mBytes.length - mPosition) {
+                throw new EOFException();
+            }
+            int position = mPosition;
+            mPosition += count;
+            return position;
+        }
+    }
+}
@@ -30,7 +30,11 @@ import androidx.annotation.RestrictTo;
 import androidx.work.impl.DefaultRunnableScheduler;
 import androidx.work.impl.Scheduler;
 import androidx.work.impl.utils.IdGenerator;
+import androidx.work.impl.utils.PriorityWorkExecutor;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -68,6 +72,8 @@ public final class Configuration {
     @SuppressWarnings("WeakerAccess")
     final @Nullable String mDefaultProcessName;
     @SuppressWarnings("WeakerAccess")
+    final @Nullable WorkMetricsListener mWorkMetricsListener;
+    @SuppressWarnings("WeakerAccess")
     final int mLoggingLevel;
     @SuppressWarnings("WeakerAccess")
     final int mMinJobSchedulerId;
@@ -75,6 +81,11 @@ public final class Configuration {
     final int mMaxJobSchedulerId;
     @SuppressWarnings("WeakerAccess")
     final int mMaxSchedulerLimit;
+    @SuppressWarnings("WeakerAccess")
+    final @NonNull Map<String, Integer> mTagPriorities;
+    @SuppressWarnings("WeakerAccess")
+    final @NonNull Map<String, Integer> mTagConcurrencyLimits;
+    private final @NonNull PriorityWorkExecutor mPriorityWorkExecutor;
     private final boolean mIsUsingDefaultTaskExecutor;
 
     Configuration(@NonNull Configuration.Builder builder) {
@@ -119,6 +130,12 @@ public final class Configuration {
         mMaxSchedulerLimit = builder.mMaxSchedulerLimit;
         mExceptionHandler = builder.mExceptionHandler;
         mDefaultProcessName = builder.mDefaultProcessName;
+        mWorkMetricsListener = builder.mWorkMetricsListener;
+        mTagPriorities = Collections.unmodifiableMap(new HashMap<>(builder.mTagPriorities));
+        mTagConcurrencyLimits =
+                Collections.unmodifiableMap(new HashMap<>(builder.mTagConcurrencyLimits));
+        mPriorityWorkExecutor =
+                new PriorityWorkExecutor(mExecutor, mTagPriorities, mTagConcurrencyLimits);
     }
 
     /**
@@ -130,6 +147,55 @@ public final class Configuration {
         return mExecutor;
     }
 
+    /**
+     * Gets the {@link PriorityWorkExecutor} which schedules the tasks of {@link Worker}s on
+     * {@link #getExecutor()} according to {@link Builder#setTagPriority(String, int)} and
+     * {@link Builder#setTagConcurrencyLimit(String, int)}.
+     *
+     * @return The {@link PriorityWorkExecutor} in front of {@link #getExecutor()}
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public PriorityWorkExecutor getPriorityWorkExecutor() {
+        return mPriorityWorkExecutor;
+    }
+
+    /**
+     * Gets the number of {@link Worker} tasks with a priority that are waiting for a thread of
+     * {@link #getExecutor()}, or for a limit of
+     * {@link Builder#setTagConcurrencyLimit(String, int)}.
+     *
+     * @param priority A priority set with {@link Builder#setTagPriority(String, int)}, or
+     *                 {@code 0} for work without a priority
+     * @return The number of tasks of that priority which were submitted, but did not start yet
+     */
+    public int getQueuedWorkCount(int priority) {
+        return mPriorityWorkExecutor.getQueueDepth(priority);
+    }
+
+    /**
+     * Gets the average time the {@link Worker} tasks with a priority waited before they started.
+     *
+     * @param priority A priority set with {@link Builder#setTagPriority(String, int)}, or
+     *                 {@code 0} for work without a priority
+     * @return The average wait time of the tasks of that priority, in milliseconds
+     */
+    public long getAverageWorkWaitTimeMillis(int priority) {
+        return mPriorityWorkExecutor.getAverageWaitTimeMillis(priority);
+    }
+
+    /**
+     * Gets the longest time a {@link Worker} task with a priority waited before it started.
+     *
+     * @param priority A priority set with {@link Builder#setTagPriority(String, int)}, or
+     *                 {@code 0} for work without a priority
+     * @return The longest wait time of a task of that priority, in milliseconds
+     */
+    public long getMaxWorkWaitTimeMillis(int priority) {
+        return mPriorityWorkExecutor.getMaxWaitTimeMillis(priority);
+    }
+
     /**
      * Gets the {@link Executor} used by {@link WorkManager} for all its internal business logic.
      *
@@ -216,6 +282,15 @@ public final class Configuration {
         return mDefaultProcessName;
     }
 
+    /**
+     * @return The {@link WorkMetricsListener} which receives the {@link WorkMetrics} of every
+     * execution of a {@link ListenableWorker}, if any.
+     */
+    @Nullable
+    public WorkMetricsListener getWorkMetricsListener() {
+        return mWorkMetricsListener;
+    }
+
     /**
      * Gets the maximum number of system requests that can be made by {@link WorkManager} when using
      * {@link android.app.job.JobScheduler} or {@link android.app.AlarmManager}.
@@ -235,6 +310,26 @@ public final class Configuration {
         }
     }
 
+    /**
+     * @return The priorities of tags set with {@link Builder#setTagPriority(String, int)}
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public Map<String, Integer> getTagPriorities() {
+        return mTagPriorities;
+    }
+
+    /**
+     * @return The limits of tags set with {@link Builder#setTagConcurrencyLimit(String, int)}
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public Map<String, Integer> getTagConcurrencyLimits() {
+        return mTagConcurrencyLimits;
+    }
+
     /**
      * @return {@code true} If the default task {@link Executor} is being used
      * @hide
@@ -273,6 +368,9 @@ public final class Configuration {
         RunnableScheduler mRunnableScheduler;
         @Nullable InitializationExceptionHandler mExceptionHandler;
         @Nullable String mDefaultProcessName;
+        @Nullable WorkMetricsListener mWorkMetricsListener;
+        Map<String, Integer> mTagPriorities = new HashMap<>();
+        Map<String, Integer> mTagConcurrencyLimits = new HashMap<>();
 
         int mLoggingLevel;
         int mMinJobSchedulerId;
@@ -311,6 +409,9 @@ public final class Configuration {
             mRunnableScheduler = configuration.mRunnableScheduler;
             mExceptionHandler = configuration.mExceptionHandler;
             mDefaultProcessName = configuration.mDefaultProcessName;
+            mWorkMetricsListener = configuration.mWorkMetricsListener;
+            mTagPriorities = new HashMap<>(configuration.mTagPriorities);
+            mTagConcurrencyLimits = new HashMap<>(configuration.mTagConcurrencyLimits);
         }
 
         /**
@@ -346,6 +447,55 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Specifies the priority of work with a tag.
+         * <p>
+         * When all the threads of the {@link Executor} are busy, the {@link Worker}s with the
+         * highest priority start first, and {@link Worker}s with the same priority start in the
+         * order they are enqueued.  The priority of work is the highest priority of its tags, or
+         * {@code 0} if it has none of them.
+         * <p>
+         * This only applies to the work that runs on the {@link Executor} specified with
+         * {@link #setExecutor(Executor)}.  Unless it is a
+         * {@link java.util.concurrent.ThreadPoolExecutor}, WorkManager cannot tell when its
+         * threads are busy, and only the limits of
+         * {@link #setTagConcurrencyLimit(String, int)} apply.
+         *
+         * @param tag      A tag of {@link WorkRequest}s
+         * @param priority The priority of the work with that tag; higher priorities start first
+         * @return This {@link Builder} instance
+         */
+        @NonNull
+        public Builder setTagPriority(@NonNull String tag, int priority) {
+            mTagPriorities.put(tag, priority);
+            return this;
+        }
+
+        /**
+         * Specifies the maximum number of {@link Worker}s with a tag that run at the same time,
+         * so that a burst of such work does not delay other work.  Work with several limited tags
+         * only runs when none of the limits is reached.
+         * <p>
+         * The limit counts {@link Worker}s rather than the tasks they run on their
+         * {@link ListenableWorker#getBackgroundExecutor()}: tasks that a running {@link Worker}
+         * submits there are not held back by its own tags.
+         *
+         * @param tag                  A tag of {@link WorkRequest}s
+         * @param maxConcurrentWorkers The maximum number of {@link Worker}s with that tag that
+         *                             run at the same time
+         * @return This {@link Builder} instance
+         * @throws IllegalArgumentException if {@code maxConcurrentWorkers} is less than {@code 1}
+         */
+        @NonNull
+        public Builder setTagConcurrencyLimit(@NonNull String tag, int maxConcurrentWorkers) {
+            if (maxConcurrentWorkers < 1) {
+                throw new IllegalArgumentException(
+                        "At least one worker with the tag must be able to run.");
+            }
+            mTagConcurrencyLimits.put(tag, maxConcurrentWorkers);
+            return this;
+        }
+
         /**
          * Specifies a {@link Executor} which will be used by WorkManager for all its
          * internal book-keeping.
@@ -483,6 +633,21 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Specifies a {@link WorkMetricsListener} which receives how long the phases of every
+         * execution of a {@link ListenableWorker} took, such as the time it waited before it
+         * started and the time spent writing its result to the database.
+         *
+         * @param workMetricsListener The {@link WorkMetricsListener}, for example a
+         *                            {@link WorkMetricsAggregator}
+         * @return This {@link Builder} instance
+         */
+        @NonNull
+        public Builder setWorkMetricsListener(@NonNull WorkMetricsListener workMetricsListener) {
+            mWorkMetricsListener = workMetricsListener;
+            return this;
+        }
+
         /**
          * Builds a {@link Configuration} object.
          *
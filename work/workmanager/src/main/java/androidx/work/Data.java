@@ -26,10 +26,8 @@ import androidx.annotation.VisibleForTesting;
 import androidx.room.TypeConverter;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -384,45 +382,20 @@ public final class Data {
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     @TypeConverter
     public static @NonNull byte[] toByteArrayInternal(@NonNull Data data) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ObjectOutputStream objectOutputStream = null;
-        try {
-            objectOutputStream = new ObjectOutputStream(outputStream);
-            objectOutputStream.writeInt(data.size());
-            for (Map.Entry<String, Object> entry : data.mValues.entrySet()) {
-                objectOutputStream.writeUTF(entry.getKey());
-                objectOutputStream.writeObject(entry.getValue());
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Error in Data#toByteArray: ", e);
-            return outputStream.toByteArray();
-        } finally {
-            if (objectOutputStream != null) {
-                try {
-                    // NOTE: this writes something to the output stream for bookkeeping purposes.
-                    // Don't get the byteArray before we do this!
-                    objectOutputStream.close();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error in Data#toByteArray: ", e);
-                }
-            }
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error in Data#toByteArray: ", e);
-            }
-        }
-
-        if (outputStream.size() > MAX_DATA_BYTES) {
+        byte[] bytes = CompactDataFormat.write(data.mValues);
+        if (bytes.length > MAX_DATA_BYTES) {
             throw new IllegalStateException(
                     "Data cannot occupy more than " + MAX_DATA_BYTES
                             + " bytes when serialized");
         }
-        return outputStream.toByteArray();
+        return bytes;
     }
 
     /**
      * Converts a byte array to {@link Data}.
+     * <p>
+     * Byte arrays written by previous versions of WorkManager, which used an
+     * {@link java.io.ObjectOutputStream}, are read as well.
      *
      * @param bytes The byte array representation to convert
      * @return An {@link Data} object built from the input
@@ -436,6 +409,20 @@ public final class Data {
         }
 
         Map<String, Object> map = new HashMap<>();
+        if (CompactDataFormat.isCompact(bytes)) {
+            try {
+                CompactDataFormat.read(bytes, map);
+            } catch (IOException e) {
+                Log.e(TAG, "Error in Data#fromByteArray: ", e);
+            }
+        } else {
+            readLegacyByteArray(bytes, map);
+        }
+        return new Data(map);
+    }
+
+    private static void readLegacyByteArray(@NonNull byte[] bytes,
+            @NonNull Map<String, Object> map) {
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         ObjectInputStream objectInputStream = null;
         try {
@@ -459,7 +446,6 @@ public final class Data {
                 Log.e(TAG, "Error in Data#fromByteArray: ", e);
             }
         }
-        return new Data(map);
     }
 
     @Override
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.UUID;
+
+/**
+ * How long the phases of an execution of a {@link ListenableWorker} took, as reported to the
+ * {@link WorkMetricsListener} of the {@link Configuration}.
+ */
+public final class WorkMetrics {
+
+    /**
+     * The time between the moment {@link WorkManager} decided to run the work, for example
+     * because its constraints were met, and the moment it started to prepare it.
+     */
+    public static final int PHASE_QUEUE_WAIT = 0;
+
+    /**
+     * The time spent reading the work from the database, merging its inputs, creating its
+     * {@link ListenableWorker} and marking it as running.
+     */
+    public static final int PHASE_SETUP = 1;
+
+    /**
+     * The time between the call to {@link ListenableWorker#startWork()} and the completion of
+     * the future it returned.
+     */
+    public static final int PHASE_WORK = 2;
+
+    /**
+     * The time spent writing the result of the work to the database.
+     */
+    public static final int PHASE_PERSIST_RESULT = 3;
+
+    /**
+     * The time spent scheduling the work that became eligible to run.
+     */
+    public static final int PHASE_RESCHEDULE = 4;
+
+    static final int PHASE_COUNT = 5;
+
+    /**
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @IntDef({PHASE_QUEUE_WAIT, PHASE_SETUP, PHASE_WORK, PHASE_PERSIST_RESULT, PHASE_RESCHEDULE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Phase {
+    }
+
+    private final @NonNull UUID mId;
+    private final @NonNull String mWorkerClassName;
+    private final @NonNull long[] mDurationsMillis;
+
+    /**
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public WorkMetrics(
+            @NonNull UUID id,
+            @NonNull String workerClassName,
+            long queueWaitMillis,
+            long setupMillis,
+            long workMillis,
+            long persistResultMillis,
+            long rescheduleMillis) {
+        mId = id;
+        mWorkerClassName = workerClassName;
+        mDurationsMillis = new long[]{
+                queueWaitMillis, setupMillis, workMillis, persistResultMillis, rescheduleMillis};
+    }
+
+    /**
+     * Gets the identifier of the {@link WorkRequest}.
+     *
+     * @return The identifier of a {@link WorkRequest}
+     */
+    public @NonNull UUID getId() {
+        return mId;
+    }
+
+    /**
+     * @return The fully qualified class name of the {@link ListenableWorker} that ran
+     */
+    public @NonNull String getWorkerClassName() {
+        return mWorkerClassName;
+    }
+
+    /**
+     * Gets how long a phase of the execution took.
+     *
+     * @param phase One of {@link #PHASE_QUEUE_WAIT}, {@link #PHASE_SETUP}, {@link #PHASE_WORK},
+     *              {@link #PHASE_PERSIST_RESULT} or {@link #PHASE_RESCHEDULE}
+     * @return The duration of the phase in milliseconds
+     */
+    public long getDurationMillis(@Phase int phase) {
+        return mDurationsMillis[phase];
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "WorkMetrics{id=" + mId
+                + ", workerClassName=" + mWorkerClassName
+                + ", queueWait=" + mDurationsMillis[PHASE_QUEUE_WAIT]
+                + "ms, setup=" + mDurationsMillis[PHASE_SETUP]
+                + "ms, work=" + mDurationsMillis[PHASE_WORK]
+                + "ms, persistResult=" + mDurationsMillis[PHASE_PERSIST_RESULT]
+                + "ms, reschedule=" + mDurationsMillis[PHASE_RESCHEDULE] + "ms}";
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.FloatRange;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link WorkMetricsListener} which keeps the {@link WorkMetrics} of the latest executions of
+ * each {@link ListenableWorker} class in memory, and computes percentiles of their phases.
+ * <p>
+ * For example, to log how long {@code SyncWorker}s waited before they started:
+ * <pre>
+ * WorkMetricsAggregator aggregator = new WorkMetricsAggregator();
+ * Configuration configuration = new Configuration.Builder()
+ *         .setWorkMetricsListener(aggregator)
+ *         .build();
+ * ...
+ * long median = aggregator.getPercentileMillis(
+ *         SyncWorker.class.getName(), WorkMetrics.PHASE_QUEUE_WAIT, 50);
+ * </pre>
+ */
+public final class WorkMetricsAggregator implements WorkMetricsListener {
+    private static final int DEFAULT_MAX_SAMPLES = 100;
+
+    private final int mMaxSamples;
+    // Guarded by this.
+    private final Map<String, Samples> mSamples = new HashMap<>();
+
+    /**
+     * Creates a {@link WorkMetricsAggregator} which keeps the latest 100 executions of each
+     * {@link ListenableWorker} class.
+     */
+    public WorkMetricsAggregator() {
+        this(DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * Creates a {@link WorkMetricsAggregator}.
+     *
+     * @param maxSamples The number of latest executions to keep for each
+     *                   {@link ListenableWorker} class
+     */
+    public WorkMetricsAggregator(@IntRange(from = 1) int maxSamples) {
+        if (maxSamples < 1) {
+            throw new IllegalArgumentException("At least one sample must be kept.");
+        }
+        mMaxSamples = maxSamples;
+    }
+
+    @Override
+    public synchronized void onWorkFinished(@NonNull WorkMetrics metrics) {
+        Samples samples = mSamples.get(metrics.getWorkerClassName());
+        if (samples == null) {
+            samples = new Samples(mMaxSamples);
+            mSamples.put(metrics.getWorkerClassName(), samples);
+        }
+        samples.add(metrics);
+    }
+
+    /**
+     * @return The class names of the {@link ListenableWorker}s which finished at least once
+     */
+    public synchronized @NonNull Set<String> getWorkerClassNames() {
+        return new HashSet<>(mSamples.keySet());
+    }
+
+    /**
+     * Gets the number of kept executions of a {@link ListenableWorker} class.
+     *
+     * @param workerClassName The fully qualified class name of the {@link ListenableWorker}
+     * @return The number of executions the percentiles are computed from
+     */
+    public synchronized int getSampleCount(@NonNull String workerClassName) {
+        Samples samples = mSamples.get(workerClassName);
+        return samples == null ? 0 : samples.mCount;
+    }
+
+    /**
+     * Gets a percentile of the duration of a phase of the kept executions of a
+     * {@link ListenableWorker} class, using the nearest-rank method.
+     *
+     * @param workerClassName The fully qualified class name of the {@link ListenableWorker}
+     * @param phase           One of the {@code PHASE_} constants of {@link WorkMetrics}
+     * @param percentile      The percentile, for example {@code 50} for the median
+     * @return The duration in milliseconds, or {@code -1} if no execution of the
+     * {@link ListenableWorker} class finished yet
+     */
+    public synchronized long getPercentileMillis(
+            @NonNull String workerClassName,
+            @WorkMetrics.Phase int phase,
+            @FloatRange(from = 0, to = 100) double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        Samples samples = mSamples.get(workerClassName);
+        if (samples == null) {
+            return -1;
+        }
+        long[] durations = Arrays.copyOf(samples.mDurationsMillis[phase], samples.mCount);
+        Arrays.sort(durations);
+        int rank = (int) Math.ceil(percentile / 100 * durations.length);
+        return durations[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Clears all the kept executions.
+     */
+    public synchronized void reset() {
+        mSamples.clear();
+    }
+
+    /**
+     * The latest durations of each phase of a {@link ListenableWorker} class, in ring buffers.
+     */
+    private static class Samples {
+        final long[][] mDurationsMillis;
+        int mCount;
+        int mNext;
+
+        Samples(int maxSamples) {
+            mDurationsMillis = new long[WorkMetrics.PHASE_COUNT][maxSamples];
+        }
+
+        void add(WorkMetrics metrics) {
+            for (int phase = 0; phase < WorkMetrics.PHASE_COUNT; phase++) {
+                mDurationsMillis[phase][mNext] = metrics.getDurationMillis(phase);
+            }
+            int maxSamples = mDurationsMillis[0].length;
+            mNext = (mNext + 1) % maxSamples;
+            mCount = Math.min(mCount + 1, maxSamples);
+        }
+    }
+}
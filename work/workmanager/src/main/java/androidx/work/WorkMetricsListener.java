@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives the {@link WorkMetrics} of every execution of a {@link ListenableWorker}.
+ * <p>
+ * See {@link WorkMetricsAggregator} for a listener that keeps percentiles per
+ * {@link ListenableWorker} class.
+ */
+public interface WorkMetricsListener {
+    /**
+     * Called once the result of a {@link ListenableWorker} is persisted and the work that depends
+     * on it is scheduled.
+     * <p>
+     * This is called on a thread bound to {@link Configuration#getTaskExecutor()}, and delays the
+     * next work it runs, so it should return quickly.
+     *
+     * @param metrics The {@link WorkMetrics} of the execution
+     */
+    void onWorkFinished(@NonNull WorkMetrics metrics);
+}
@@ -32,6 +32,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.tracing.Trace;
 import androidx.work.Configuration;
 import androidx.work.Data;
 import androidx.work.InputMerger;
@@ -39,6 +40,8 @@ import androidx.work.InputMergerFactory;
 import androidx.work.ListenableWorker;
 import androidx.work.Logger;
 import androidx.work.WorkInfo;
+import androidx.work.WorkMetrics;
+import androidx.work.WorkMetricsListener;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 import androidx.work.impl.background.systemalarm.RescheduleReceiver;
@@ -61,6 +64,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A runnable that looks up the {@link WorkSpec} from the database for a given id, instantiates
@@ -74,6 +78,12 @@ public class WorkerWrapper implements Runnable {
     // Avoid Synthetic accessor
     static final String TAG = Logger.tagWithPrefix("WorkerWrapper");
 
+    private static final String SECTION_QUEUE_WAIT = "WorkerWrapper.queueWait";
+    private static final String SECTION_SETUP = "WorkerWrapper.setup";
+    private static final String SECTION_WORK = "WorkerWrapper.work";
+    private static final String SECTION_PERSIST_RESULT = "WorkerWrapper.persistResult";
+    private static final String SECTION_RESCHEDULE = "WorkerWrapper.reschedule";
+
     // Avoid Synthetic accessor
     Context mAppContext;
     private String mWorkSpecId;
@@ -107,6 +117,14 @@ public class WorkerWrapper implements Runnable {
 
     private volatile boolean mInterrupted;
 
+    // The start of the current phase, and the durations of the past ones, for WorkMetrics.
+    // Package-private for synthetic accessor.
+    long mPhaseStartNanos;
+    final long[] mPhaseDurationsNanos = new long[WorkMetrics.PHASE_RESCHEDULE + 1];
+    // Identifies the async trace sections of this work.
+    // Package-private for synthetic accessor.
+    final int mTraceCookie;
+
     // Package-private for synthetic accessor.
     WorkerWrapper(@NonNull Builder builder) {
         mAppContext = builder.mAppContext;
@@ -122,6 +140,10 @@ public class WorkerWrapper implements Runnable {
         mWorkSpecDao = mWorkDatabase.workSpecDao();
         mDependencyDao = mWorkDatabase.dependencyDao();
         mWorkTagDao = mWorkDatabase.workTagDao();
+
+        mTraceCookie = mWorkSpecId.hashCode();
+        mPhaseStartNanos = System.nanoTime();
+        Trace.beginAsyncSection(SECTION_QUEUE_WAIT, mTraceCookie);
     }
 
     public @NonNull ListenableFuture<Boolean> getFuture() {
@@ -131,9 +153,26 @@ public class WorkerWrapper implements Runnable {
     @WorkerThread
     @Override
     public void run() {
-        mTags = mWorkTagDao.getTagsForWorkSpecId(mWorkSpecId);
-        mWorkDescription = createWorkDescription(mTags);
-        runWorker();
+        Trace.endAsyncSection(SECTION_QUEUE_WAIT, mTraceCookie);
+        endPhase(WorkMetrics.PHASE_QUEUE_WAIT);
+        Trace.beginSection(SECTION_SETUP);
+        try {
+            mTags = mWorkTagDao.getTagsForWorkSpecId(mWorkSpecId);
+            mWorkDescription = createWorkDescription(mTags);
+            runWorker();
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Records the duration of a phase, which ends when the next one starts.
+     */
+    // Package-private for synthetic accessor.
+    void endPhase(@WorkMetrics.Phase int phase) {
+        long now = System.nanoTime();
+        mPhaseDurationsNanos[phase] = now - mPhaseStartNanos;
+        mPhaseStartNanos = now;
     }
 
     private void runWorker() {
@@ -230,7 +269,7 @@ public class WorkerWrapper implements Runnable {
                 mTags,
                 mRuntimeExtras,
                 mWorkSpec.runAttemptCount,
-                mConfiguration.getExecutor(),
+                mConfiguration.getPriorityWorkExecutor().forWork(mTags),
                 mWorkTaskExecutor,
                 mConfiguration.getWorkerFactory(),
                 new WorkProgressUpdater(mWorkDatabase, mWorkTaskExecutor),
@@ -270,6 +309,8 @@ public class WorkerWrapper implements Runnable {
             }
 
             final SettableFuture<ListenableWorker.Result> future = SettableFuture.create();
+            endPhase(WorkMetrics.PHASE_SETUP);
+            Trace.beginAsyncSection(SECTION_WORK, mTraceCookie);
             // Call mWorker.startWork() on the main thread.
             mWorkTaskExecutor.getMainThreadExecutor()
                     .execute(new Runnable() {
@@ -293,6 +334,8 @@ public class WorkerWrapper implements Runnable {
                 @Override
                 @SuppressLint("SyntheticAccessor")
                 public void run() {
+                    Trace.endAsyncSection(SECTION_WORK, mTraceCookie);
+                    endPhase(WorkMetrics.PHASE_WORK);
                     try {
                         // If the ListenableWorker returns a null result treat it as a failure.
                         ListenableWorker.Result result = future.get();
@@ -326,6 +369,25 @@ public class WorkerWrapper implements Runnable {
 
     // Package-private for synthetic accessor.
     void onWorkFinished() {
+        Trace.beginSection(SECTION_PERSIST_RESULT);
+        try {
+            persistResult();
+        } finally {
+            Trace.endSection();
+        }
+        endPhase(WorkMetrics.PHASE_PERSIST_RESULT);
+
+        Trace.beginSection(SECTION_RESCHEDULE);
+        try {
+            reschedule();
+        } finally {
+            Trace.endSection();
+        }
+        endPhase(WorkMetrics.PHASE_RESCHEDULE);
+        reportMetrics();
+    }
+
+    private void persistResult() {
         if (!tryCheckForInterruptionAndResolve()) {
             mWorkDatabase.beginTransaction();
             try {
@@ -347,7 +409,9 @@ public class WorkerWrapper implements Runnable {
                 mWorkDatabase.endTransaction();
             }
         }
+    }
 
+    private void reschedule() {
         // Try to schedule any newly-unblocked workers, and workers requiring rescheduling (such as
         // periodic work using AlarmManager).  This code runs after runWorker() because it should
         // happen in its own transaction.
@@ -363,6 +427,33 @@ public class WorkerWrapper implements Runnable {
         }
     }
 
+    private void reportMetrics() {
+        WorkMetricsListener listener = mConfiguration.getWorkMetricsListener();
+        if (listener == null) {
+            return;
+        }
+        // mWorkSpec is set, otherwise the worker would not have run.
+        WorkMetrics metrics = new WorkMetrics(
+                UUID.fromString(mWorkSpecId),
+                mWorkSpec.workerClassName,
+                toMillis(mPhaseDurationsNanos[WorkMetrics.PHASE_QUEUE_WAIT]),
+                toMillis(mPhaseDurationsNanos[WorkMetrics.PHASE_SETUP]),
+                toMillis(mPhaseDurationsNanos[WorkMetrics.PHASE_WORK]),
+                toMillis(mPhaseDurationsNanos[WorkMetrics.PHASE_PERSIST_RESULT]),
+                toMillis(mPhaseDurationsNanos[WorkMetrics.PHASE_RESCHEDULE]));
+        try {
+            listener.onWorkFinished(metrics);
+        } catch (RuntimeException exception) {
+            Logger.get().error(TAG,
+                    String.format("WorkMetricsListener failed for %s", mWorkDescription),
+                    exception);
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
     /**
      * @hide
      */
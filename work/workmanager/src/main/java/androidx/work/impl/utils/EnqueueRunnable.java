@@ -288,6 +288,26 @@ public class EnqueueRunnable implements Runnable {
             }
         }
 
+        // Whether constrained work has to be delegated to ConstraintTrackingWorker does not depend
+        // on the work, so only look the schedulers up once.
+        final boolean delegateConstrainedWork;
+        if (Build.VERSION.SDK_INT >= WorkManagerImpl.MIN_JOB_SCHEDULER_API_LEVEL
+                && Build.VERSION.SDK_INT <= 25) {
+            delegateConstrainedWork = true;
+        } else {
+            delegateConstrainedWork =
+                    Build.VERSION.SDK_INT <= WorkManagerImpl.MAX_PRE_JOB_SCHEDULER_API_LEVEL
+                            && usesScheduler(workManagerImpl, Schedulers.GCM_SCHEDULER);
+        }
+
+        // The rows are inserted in bulk once all the work is processed. Room binds a list insert
+        // into multi-row statements, each as large as the SQLite variable limit allows, rather
+        // than running one statement per row.
+        final List<WorkSpec> workSpecs = new ArrayList<>(workList.size());
+        final List<Dependency> dependencies = new ArrayList<>();
+        final List<WorkTag> workTags = new ArrayList<>();
+        final List<WorkName> workNames = new ArrayList<>();
+
         for (WorkRequest work : workList) {
             WorkSpec workSpec = work.getWorkSpec();
 
@@ -317,11 +337,7 @@ public class EnqueueRunnable implements Runnable {
                 }
             }
 
-            if (Build.VERSION.SDK_INT >= WorkManagerImpl.MIN_JOB_SCHEDULER_API_LEVEL
-                    && Build.VERSION.SDK_INT <= 25) {
-                tryDelegateConstrainedWorkSpec(workSpec);
-            } else if (Build.VERSION.SDK_INT <= WorkManagerImpl.MAX_PRE_JOB_SCHEDULER_API_LEVEL
-                    && usesScheduler(workManagerImpl, Schedulers.GCM_SCHEDULER)) {
+            if (delegateConstrainedWork) {
                 tryDelegateConstrainedWorkSpec(workSpec);
             }
 
@@ -330,23 +346,34 @@ public class EnqueueRunnable implements Runnable {
                 needsScheduling = true;
             }
 
-            workDatabase.workSpecDao().insertWorkSpec(workSpec);
+            workSpecs.add(workSpec);
 
             if (hasPrerequisite) {
                 for (String prerequisiteId : prerequisiteIds) {
-                    Dependency dep = new Dependency(work.getStringId(), prerequisiteId);
-                    workDatabase.dependencyDao().insertDependency(dep);
+                    dependencies.add(new Dependency(work.getStringId(), prerequisiteId));
                 }
             }
 
             for (String tag : work.getTags()) {
-                workDatabase.workTagDao().insert(new WorkTag(tag, work.getStringId()));
+                workTags.add(new WorkTag(tag, work.getStringId()));
             }
 
             if (isNamed) {
-                workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
+                workNames.add(new WorkName(name, work.getStringId()));
             }
         }
+
+        // WorkSpecs first, as the other rows reference them.
+        workDatabase.workSpecDao().insertWorkSpecs(workSpecs);
+        if (!dependencies.isEmpty()) {
+            workDatabase.dependencyDao().insertDependencies(dependencies);
+        }
+        if (!workTags.isEmpty()) {
+            workDatabase.workTagDao().insert(workTags);
+        }
+        if (!workNames.isEmpty()) {
+            workDatabase.workNameDao().insert(workNames);
+        }
         return needsScheduling;
     }
 
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the tasks of workers on the {@link androidx.work.Configuration#getExecutor()}
+ * by priority, instead of in the order they are submitted.
+ * <p>
+ * The priority of a worker is the highest priority of its tags, and tasks of workers with the
+ * same priority run in the order they are submitted. A task is only handed to the underlying
+ * {@link Executor} when it has a free thread, so that it never queues tasks of lower priority
+ * in front of others. Tags can also have a limit on the number of their workers that run at the
+ * same time, so that a burst of work with one tag cannot occupy all the threads.
+ * <p>
+ * A tag limit counts workers, not tasks: a worker takes a slot of its tags when its first task
+ * starts, and gives it back when none of its tasks are running anymore. Tasks a worker submits
+ * while one of its tasks runs are not held back by its own tags, so a worker which waits for a
+ * task it submitted cannot deadlock on a limit of {@code 1}.
+ * <p>
+ * The number of waiting tasks and the time tasks wait before they start are recorded per
+ * priority.
+ */
+public class PriorityWorkExecutor {
+    private final Executor mExecutor;
+    private final int mMaxRunning;
+    private final Map<String, Integer> mTagPriorities;
+    private final Map<String, Integer> mTagLimits;
+    private final Object mLock;
+
+    // Guarded by mLock.
+    // Waiting tasks by descending priority.
+    private final TreeMap<Integer, ArrayDeque<Task>> mQueues;
+    private final Map<String, Integer> mRunningPerTag;
+    private final Map<Integer, Stats> mStats;
+    private int mRunning;
+
+    /**
+     * @param executor      The {@link Executor} to run the tasks on.
+     * @param tagPriorities The priorities of tags; work without any of them has priority
+     *                      {@code 0}.
+     * @param tagLimits     The maximum number of tasks of work with a tag that run at the same
+     *                      time.
+     */
+    public PriorityWorkExecutor(
+            @NonNull Executor executor,
+            @NonNull Map<String, Integer> tagPriorities,
+            @NonNull Map<String, Integer> tagLimits) {
+        this(executor, getParallelism(executor), tagPriorities, tagLimits);
+    }
+
+    @VisibleForTesting
+    public PriorityWorkExecutor(
+            @NonNull Executor executor,
+            int maxRunning,
+            @NonNull Map<String, Integer> tagPriorities,
+            @NonNull Map<String, Integer> tagLimits) {
+        mExecutor = executor;
+        mMaxRunning = maxRunning;
+        mTagPriorities = tagPriorities;
+        mTagLimits = tagLimits;
+        mLock = new Object();
+        mQueues = new TreeMap<>(Collections.<Integer>reverseOrder());
+        mRunningPerTag = new HashMap<>();
+        mStats = new HashMap<>();
+    }
+
+    /**
+     * Returns the number of tasks the {@link Executor} runs at the same time, if it is known.
+     */
+    private static int getParallelism(@NonNull Executor executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            // Extra threads are only created once the queue is full, which never happens with
+            // the unbounded queue of a fixed thread pool.
+            int corePoolSize = ((ThreadPoolExecutor) executor).getCorePoolSize();
+            if (corePoolSize > 0) {
+                return corePoolSize;
+            }
+        }
+        // Tasks are handed over as they come, so only the tag limits apply.
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return The {@link Executor} which is scheduled directly, without priorities or limits
+     */
+    @NonNull
+    public Executor getDelegatedExecutor() {
+        return mExecutor;
+    }
+
+    /**
+     * @param tags The tags of a worker
+     * @return The priority of the worker, the highest priority of its tags
+     */
+    public int getPriority(@NonNull Collection<String> tags) {
+        boolean found = false;
+        int priority = 0;
+        for (String tag : tags) {
+            Integer tagPriority = mTagPriorities.get(tag);
+            if (tagPriority != null && (!found || tagPriority > priority)) {
+                priority = tagPriority;
+                found = true;
+            }
+        }
+        return priority;
+    }
+
+    /**
+     * Returns the {@link Executor} for the tasks of a worker.
+     * <p>
+     * When no priorities or limits are configured, this is the underlying {@link Executor}.
+     *
+     * @param tags The tags of the worker
+     * @return The {@link Executor} to run the tasks of the worker on
+     */
+    @NonNull
+    public Executor forWork(@NonNull Collection<String> tags) {
+        if (mTagPriorities.isEmpty() && mTagLimits.isEmpty()) {
+            return mExecutor;
+        }
+        final Work work = new Work(getPriority(tags), getLimitedTags(tags));
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                submit(command, work);
+            }
+        };
+    }
+
+    private String[] getLimitedTags(Collection<String> tags) {
+        int count = 0;
+        String[] limitedTags = new String[tags.size()];
+        for (String tag : tags) {
+            if (mTagLimits.containsKey(tag)) {
+                limitedTags[count++] = tag;
+            }
+        }
+        String[] result = new String[count];
+        System.arraycopy(limitedTags, 0, result, 0, count);
+        return result;
+    }
+
+    // Synthetic access
+    void submit(@NonNull Runnable command, @NonNull Work work) {
+        List<Task> next;
+        synchronized (mLock) {
+            getQueue(work.mPriority).add(new Task(this, command, work, System.nanoTime()));
+            getStats(work.mPriority).mWaiting++;
+            next = takeNext();
+        }
+        dispatch(next);
+    }
+
+    /**
+     * Takes the first waiting tasks that can run, until the {@link Executor} has no free thread.
+     */
+    private List<Task> takeNext() {
+        List<Task> next = null;
+        Iterator<ArrayDeque<Task>> queues = mQueues.values().iterator();
+        while (mRunning < mMaxRunning && queues.hasNext()) {
+            Iterator<Task> tasks = queues.next().iterator();
+            while (mRunning < mMaxRunning && tasks.hasNext()) {
+                Task task = tasks.next();
+                if (canRun(task)) {
+                    tasks.remove();
+                    acquire(task);
+                    if (next == null) {
+                        next = new ArrayList<>();
+                    }
+                    next.add(task);
+                }
+            }
+        }
+        return next == null ? Collections.<Task>emptyList() : next;
+    }
+
+    private boolean canRun(Task task) {
+        if (task.mWork.mRunningTasks > 0) {
+            // the worker already holds a slot of its tags
+            return true;
+        }
+        for (String tag : task.mWork.mLimitedTags) {
+            Integer running = mRunningPerTag.get(tag);
+            if (running != null && running >= mTagLimits.get(tag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acquire(Task task) {
+        mRunning++;
+        if (task.mWork.mRunningTasks++ > 0) {
+            return;
+        }
+        for (String tag : task.mWork.mLimitedTags) {
+            Integer running = mRunningPerTag.get(tag);
+            mRunningPerTag.put(tag, running == null ? 1 : running + 1);
+        }
+    }
+
+    private void release(Task task) {
+        mRunning--;
+        if (--task.mWork.mRunningTasks > 0) {
+            return;
+        }
+        for (String tag : task.mWork.mLimitedTags) {
+            int running = mRunningPerTag.get(tag) - 1;
+            if (running == 0) {
+                mRunningPerTag.remove(tag);
+            } else {
+                mRunningPerTag.put(tag, running);
+            }
+        }
+    }
+
+    /**
+     * Hands tasks to the {@link Executor}, outside of the lock as it can run them inline.
+     * <p>
+     * If the {@link Executor} rejects a task, that task is dropped and the tasks after it are
+     * put back in front of their queues, so that none of them hold on to their slots.
+     */
+    private void dispatch(List<Task> tasks) {
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            try {
+                mExecutor.execute(task);
+            } catch (RuntimeException exception) {
+                synchronized (mLock) {
+                    release(task);
+                    getStats(task.mWork.mPriority).mWaiting--;
+                    // In reverse, so that the tasks keep their order in the queues.
+                    for (int j = tasks.size() - 1; j > i; j--) {
+                        Task waiting = tasks.get(j);
+                        release(waiting);
+                        getQueue(waiting.mWork.mPriority).addFirst(waiting);
+                    }
+                }
+                throw exception;
+            }
+        }
+    }
+
+    // Synthetic access
+    void onStarted(@NonNull Task task) {
+        long waitTimeNanos = System.nanoTime() - task.mSubmitTimeNanos;
+        synchronized (mLock) {
+            Stats stats = getStats(task.mWork.mPriority);
+            stats.mWaiting--;
+            stats.mStarted++;
+            stats.mTotalWaitTimeNanos += waitTimeNanos;
+            stats.mMaxWaitTimeNanos = Math.max(stats.mMaxWaitTimeNanos, waitTimeNanos);
+        }
+    }
+
+    // Synthetic access
+    void onFinished(@NonNull Task task) {
+        List<Task> next;
+        synchronized (mLock) {
+            release(task);
+            next = takeNext();
+        }
+        dispatch(next);
+    }
+
+    private ArrayDeque<Task> getQueue(int priority) {
+        ArrayDeque<Task> queue = mQueues.get(priority);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            mQueues.put(priority, queue);
+        }
+        return queue;
+    }
+
+    private Stats getStats(int priority) {
+        Stats stats = mStats.get(priority);
+        if (stats == null) {
+            stats = new Stats();
+            mStats.put(priority, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * @param priority A priority
+     * @return The number of tasks of that priority which were submitted, but did not start yet
+     */
+    public int getQueueDepth(int priority) {
+        synchronized (mLock) {
+            Stats stats = mStats.get(priority);
+            return stats == null ? 0 : stats.mWaiting;
+        }
+    }
+
+    /**
+     * @param priority A priority
+     * @return The average time tasks of that priority waited before they started, in
+     * milliseconds
+     */
+    public long getAverageWaitTimeMillis(int priority) {
+        synchronized (mLock) {
+            Stats stats = mStats.get(priority);
+            if (stats == null || stats.mStarted == 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(stats.mTotalWaitTimeNanos / stats.mStarted);
+        }
+    }
+
+    /**
+     * @param priority A priority
+     * @return The longest time a task of that priority waited before it started, in milliseconds
+     */
+    public long getMaxWaitTimeMillis(int priority) {
+        synchronized (mLock) {
+            Stats stats = mStats.get(priority);
+            return stats == null ? 0 : TimeUnit.NANOSECONDS.toMillis(stats.mMaxWaitTimeNanos);
+        }
+    }
+
+    /**
+     * The queue depth and wait times of a priority.
+     */
+    private static class Stats {
+        int mWaiting;
+        long mStarted;
+        long mTotalWaitTimeNanos;
+        long mMaxWaitTimeNanos;
+    }
+
+    /**
+     * The priority and limited tags of a worker, and how many of its tasks are running.
+     */
+    static class Work {
+        final int mPriority;
+        final String[] mLimitedTags;
+        // Guarded by the lock of the PriorityWorkExecutor.
+        int mRunningTasks;
+
+        Work(int priority, @NonNull String[] limitedTags) {
+            mPriority = priority;
+            mLimitedTags = limitedTags;
+        }
+    }
+
+    /**
+     * A {@link Runnable} which tells the {@link PriorityWorkExecutor} when it starts, and to
+     * schedule the next tasks after completion.
+     */
+    static class Task implements Runnable {
+        final PriorityWorkExecutor mPriorityWorkExecutor;
+        final Runnable mRunnable;
+        final Work mWork;
+        final long mSubmitTimeNanos;
+
+        Task(@NonNull PriorityWorkExecutor priorityWorkExecutor,
+                @NonNull Runnable runnable,
+                @NonNull Work work,
+                long submitTimeNanos) {
+            mPriorityWorkExecutor = priorityWorkExecutor;
+            mRunnable = runnable;
+            mWork = work;
+            mSubmitTimeNanos = submitTimeNanos;
+        }
+
+        @Override
+        public void run() {
+            mPriorityWorkExecutor.onStarted(this);
+            try {
+                mRunnable.run();
+            } finally {
+                mPriorityWorkExecutor.onFinished(this);
+            }
+        }
+    }
+}
@@ -27,6 +27,10 @@ import androidx.annotation.NonNull;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -89,6 +93,89 @@ public class DataTest {
         assertThat(restoredData.getIntArray(KEY2), is(equalTo(expectedValue2)));
     }
 
+    @Test
+    public void testSerializeAllTypes() {
+        Data data = createAllTypesData();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData, is(data));
+        assertThat(restoredData.getString("string"), is("\u00e9t\u00e9 \ud83d\ude00"));
+        assertThat(restoredData.getLong("long", 0L), is(Long.MIN_VALUE));
+        assertThat(restoredData.getDouble("double", 0.0), is(Double.NaN));
+        assertThat(restoredData.getBooleanArray("boolean array"),
+                is(new boolean[]{true, false, true, true, false, false, true, false, true}));
+        assertThat(restoredData.getIntArray("int array"),
+                is(new int[]{0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE}));
+    }
+
+    @Test
+    public void testSerializeArraysWithNullElements() {
+        Data data = new Data.Builder()
+                .put("strings", new String[]{"a", null, "b", "a"})
+                .put("booleans", new Boolean[]{null, true, null, false, true})
+                .put("longs", new Long[]{null, null})
+                .build();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testSerializeSmallerThanLegacy() throws IOException {
+        Data data = createAllTypesData();
+
+        assertThat(data.toByteArray().length < toLegacyByteArray(data).length, is(true));
+    }
+
+    @Test
+    public void testSerializeStringTable() {
+        Data data = new Data.Builder()
+                .putString(KEY1, "a long and repeated value")
+                .putString(KEY2, "a long and repeated value")
+                .putStringArray("array", new String[]{"a long and repeated value", KEY1})
+                .build();
+
+        byte[] byteArray = data.toByteArray();
+
+        // the value is written once, instead of three times
+        assertThat(byteArray.length < 3 * "a long and repeated value".length(), is(true));
+        assertThat(Data.fromByteArray(byteArray), is(data));
+    }
+
+    @Test
+    public void testDeserializeLegacy() throws IOException {
+        Data data = createAllTypesData();
+
+        Data restoredData = Data.fromByteArray(toLegacyByteArray(data));
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testDeserializeLegacyEmpty() throws IOException {
+        assertThat(Data.fromByteArray(toLegacyByteArray(Data.EMPTY)), is(Data.EMPTY));
+    }
+
+    @Test
+    public void testDeserializeTruncated() {
+        byte[] byteArray = createAllTypesData().toByteArray();
+
+        for (int length = 0; length < byteArray.length; length++) {
+            Data restoredData = Data.fromByteArray(Arrays.copyOf(byteArray, length));
+            assertThat(restoredData.size() < 12, is(true));
+        }
+    }
+
+    @Test
+    public void testDeserializeUnknownVersion() {
+        byte[] byteArray = createAllTypesData().toByteArray();
+        byteArray[2] = (byte) (CompactDataFormat.VERSION + 1);
+
+        assertThat(Data.fromByteArray(byteArray), is(Data.EMPTY));
+    }
+
     @Test
     public void testSerializePastMaxSize() {
         int[] payload = new int[Data.MAX_DATA_BYTES + 1];
@@ -230,6 +317,42 @@ public class DataTest {
         assertThat(caughtIllegalArgumentException, is(true));
     }
 
+    @NonNull
+    private Data createAllTypesData() {
+        return new Data.Builder()
+                .putBoolean("boolean", true)
+                .putByte("byte", (byte) -3)
+                .putInt("int", 300)
+                .putLong("long", Long.MIN_VALUE)
+                .putFloat("float", -1.5f)
+                .putDouble("double", Double.NaN)
+                .putString("string", "\u00e9t\u00e9 \ud83d\ude00")
+                .putBooleanArray("boolean array",
+                        new boolean[]{true, false, true, true, false, false, true, false, true})
+                .putByteArray("byte array", new byte[]{0, -1, 127})
+                .putIntArray("int array",
+                        new int[]{0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE})
+                .putLongArray("long array", new long[]{1L << 40, -(1L << 40)})
+                .putStringArray("string array", new String[]{"string", "", "other"})
+                .build();
+    }
+
+    /**
+     * Serializes data the way versions before the compact format did.
+     */
+    @NonNull
+    private static byte[] toLegacyByteArray(@NonNull Data data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeInt(data.size());
+        for (Map.Entry<String, Object> entry : data.mValues.entrySet()) {
+            objectOutputStream.writeUTF(entry.getKey());
+            objectOutputStream.writeObject(entry.getValue());
+        }
+        objectOutputStream.close();
+        return outputStream.toByteArray();
+    }
+
     @NonNull
     private Data createData() {
         Map<String, Object> map = new HashMap<>();
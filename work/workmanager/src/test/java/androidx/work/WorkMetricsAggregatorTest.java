@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.UUID;
+
+public class WorkMetricsAggregatorTest {
+    private static final String WORKER = "com.example.SyncWorker";
+    private static final String OTHER_WORKER = "com.example.OtherWorker";
+
+    @Test
+    public void testPercentiles() {
+        WorkMetricsAggregator aggregator = new WorkMetricsAggregator();
+        // Added out of order, so that the samples need sorting.
+        for (int i = 100; i >= 1; i--) {
+            aggregator.onWorkFinished(createMetrics(WORKER, i));
+        }
+        aggregator.onWorkFinished(createMetrics(OTHER_WORKER, 1000));
+
+        assertThat(aggregator.getSampleCount(WORKER), is(100));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_QUEUE_WAIT, 50),
+                is(50L));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_QUEUE_WAIT, 90),
+                is(90L));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_QUEUE_WAIT, 100),
+                is(100L));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_QUEUE_WAIT, 0),
+                is(1L));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_WORK, 50),
+                is(500L));
+        assertThat(aggregator.getPercentileMillis(OTHER_WORKER, WorkMetrics.PHASE_WORK, 50),
+                is(10000L));
+    }
+
+    @Test
+    public void testKeepsLatestSamples() {
+        WorkMetricsAggregator aggregator = new WorkMetricsAggregator(3);
+        for (int i = 1; i <= 5; i++) {
+            aggregator.onWorkFinished(createMetrics(WORKER, i));
+        }
+
+        assertThat(aggregator.getSampleCount(WORKER), is(3));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_SETUP, 0), is(6L));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_SETUP, 100), is(10L));
+    }
+
+    @Test
+    public void testNoSamples() {
+        WorkMetricsAggregator aggregator = new WorkMetricsAggregator();
+        assertThat(aggregator.getSampleCount(WORKER), is(0));
+        assertThat(aggregator.getPercentileMillis(WORKER, WorkMetrics.PHASE_WORK, 50), is(-1L));
+        assertThat(aggregator.getWorkerClassNames().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testReset() {
+        WorkMetricsAggregator aggregator = new WorkMetricsAggregator();
+        aggregator.onWorkFinished(createMetrics(WORKER, 1));
+        assertThat(aggregator.getWorkerClassNames(), is(Collections.singleton(WORKER)));
+
+        aggregator.reset();
+
+        assertThat(aggregator.getSampleCount(WORKER), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new WorkMetricsAggregator().getPercentileMillis(WORKER, WorkMetrics.PHASE_WORK, 101);
+    }
+
+    @NonNull
+    private static WorkMetrics createMetrics(@NonNull String workerClassName, long millis) {
+        return new WorkMetrics(UUID.randomUUID(), workerClassName, millis, millis * 2,
+                millis * 10, millis * 3, millis * 4);
+    }
+}